@@ -1,11 +1,15 @@
 package cs3240.project;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 
-import cs3240.regex.automaton.DFATable;
+import cs3240.regex.automaton.AhoCorasick;
+import cs3240.regex.automaton.Automaton;
+import cs3240.regex.automaton.DFAAnalysis;
+import cs3240.regex.automaton.ReverseSuffixMatcher;
 import cs3240.regex.scanner.token.RegexToken;
 
 /**
@@ -23,11 +27,31 @@ public class Driver {
 	 */
 	private String filename;
 	/**
-	 * The DFA Table used to identify the type of the tokens in the file 
+	 * The DFA used to identify the type of the tokens in the file 
 	 */
-	private DFATable dfa;
+	private Automaton dfa;
 	
 	private RegexToken regextoken;
+	/**
+	 * A scanner for the literals that every token must contain, or null if there is none
+	 */
+	private AhoCorasick prefilter;
+	/**
+	 * A matcher that finds where tokens can start for regexes whose tokens end with a literal, or null
+	 */
+	private ReverseSuffixMatcher suffixMatcher;
+	/**
+	 * The analysis of the DFA Table, or null if the DFA is not a DFA Table
+	 */
+	private DFAAnalysis analysis;
+	/**
+	 * A boolean on whether every match in each line is found, instead of the white-space separated tokens
+	 */
+	private boolean allMatches;
+	/**
+	 * A boolean on whether the code file is mapped into memory instead of read with a reader
+	 */
+	private boolean mappedInput;
 	/**
 	 * A list of the tokens from the code file
 	 */
@@ -40,16 +64,16 @@ public class Driver {
 	 * the type of tokens in the code file.
 	 * 
 	 * @param filename a string containing the file path of the code file
-	 * @param dfa a DFA Table which contains token type specifications
+	 * @param dfa a DFA which contains token type specifications
 	 */
-	public Driver(String filename, DFATable dfa) {
+	public Driver(String filename, Automaton dfa) {
 		// Set the filename and DFA Table
 		this.filename = filename;
 		this.dfa = dfa;
 		this.tokens = new ArrayList<Driver.Token>(); // Initialize the list for Tokens
 	}
 	
-	public Driver(RegexToken rt, DFATable dfa) {
+	public Driver(RegexToken rt, Automaton dfa) {
 		this.regextoken = rt;
 		this.dfa = dfa;
 		this.tokens = new ArrayList<Driver.Token>(); // Initialize the list for Tokens
@@ -72,80 +96,304 @@ public class Driver {
 			throw new Exception("String cannot match regex pattern");
 		}
 		
+		if (mappedInput) {
+			// Map the file, and follow the DFA over the bytes of each line
+			MappedLineReader fileReader = new MappedLineReader(new File("src/" + filename));
+			try {
+				CharSequence line = fileReader.readLine();
+				while (line != null) {
+					processLine(line);
+					line = fileReader.readLine();
+				}
+			} finally {
+				fileReader.close();
+			}
+			return tokens;
+		}
+		
 		// Open a new reader for the file
 		BufferedReader fileReader = new BufferedReader(new FileReader("src/" + filename));
 
 		String line = fileReader.readLine(); // Read the first file of the line
 		// Continue processing the file till the end of the file is reached
 		while (line != null) {
-			int cur_pos = 0; // A variable that points the current scanning location in the loop  
-			// Continue scanning the line until the end of the line is reached 
-			while (cur_pos < line.length()) {
-				// Loop through until a non-whitespace character is found
-				while (cur_pos < line.length() &&
-						Character.isWhitespace(line.charAt(cur_pos))) {
-					++cur_pos;
+			processLine(line);
+			line = fileReader.readLine(); // Read the next line in the file
+		}
+		fileReader.close();
+		return tokens;
+	}
+	
+	/**
+	 * Identifies the tokens in the inputed line of the code file,
+	 * and adds them to the list of tokens.
+	 * 
+	 * @param line a line of the code file
+	 */
+	private void processLine(CharSequence line) {
+		if (allMatches) {
+			// Find every match in the line, without treating escapes or white-space specially
+			tokens.addAll(findAllMatches(line));
+		} else {
+			scanLine(line, tokens);
+		}
+	}
+	
+	/**
+	 * Identifies the white-space separated tokens in the inputed
+	 * line, and adds them to the inputed list of tokens.
+	 *
+	 * The longest token from a position is only added once the DFA
+	 * reaches the error state, or when a token ends at the end of the
+	 * line. If the line ends while the DFA is in a state that can no
+	 * longer reach a token, the shorter candidate token is dropped.
+	 * So the tokens found depend on where the DFA fails, which is not
+	 * the same for every backend: DFAs built from derivatives send an
+	 * expression that can match nothing straight to the error state, so
+	 * they can fail one character earlier than DFAs built from NFAs,
+	 * which keep the state before it. For example, the line ax
+	 * has no token for 'a|ax[^a-z] IN [a-z]' with a DFA built from an
+	 * NFA, but has the token a with a DFA built from derivatives.
+	 * {@link #findAllMatches(CharSequence)} does not have this rule,
+	 * and finds the same matches with every backend.
+	 *
+	 * @param line a line of the code file
+	 * @param tokens the list to add the tokens to
+	 */
+	void scanLine(CharSequence line, ArrayList<Driver.Token> tokens) {
+		int error_id = dfa.getErrorStateID();
+		int cur_pos = 0; // A variable that points the current scanning location in the loop  
+		int end_pos = line.length(); // The position after the last position a token can start at
+		boolean[] starts = null; // Whether a token can start at each position, or null if unknown
+		// Lines with escape characters are scanned fully, since their tokens are not substrings
+		boolean escaped = isEscaped(line);
+		if (!escaped) {
+			end_pos = findEndPosition(line);
+			starts = findStartPositions(line, end_pos);
+		}
+		// Continue scanning the line until the end of the line is reached 
+		while (cur_pos < end_pos) {
+			// Loop through until a non-whitespace character is found
+			while (cur_pos < line.length() &&
+					Character.isWhitespace(line.charAt(cur_pos))) {
+				++cur_pos;
+			}
+			
+			// Skip the position without running the DFA if no token starts at it
+			if (starts != null && cur_pos < line.length() && !starts[cur_pos]) {
+				++cur_pos;
+				continue;
+			}
+			if (analysis != null && !escaped && cur_pos < line.length() && !analysis.canStartWith(line.charAt(cur_pos))) {
+				++cur_pos;
+				continue;
+			}
+			
+			int temp_pos = cur_pos; // A variable that serves a similar purpose to cur_pos
+			
+			/*
+			 * Walk the DFA once from the start of the token, one character at a time,
+			 * and remember the length and type of the longest accepted token so far.
+			 * The token string is only copied when a token is added.
+			 */
+			int cur_id = dfa.getStartID();
+			int candidate_length = 0; // The length of the candidate token, or 0 if there is none
+			String candidate_type = null; // The type of the candidate token
+			
+			// Initialize a string builder to hold the valid characters
+			StringBuilder tokString = new StringBuilder(10);
+			// Loop through until the read of the line is reached or the DFA reaches the error state
+			while (temp_pos < line.length()) {
+				char cur_char = line.charAt(temp_pos); // Get the character at the current position
+				if (cur_char == '\\') {
+					/*
+					 * If the character is the escape character, then add the
+					 * character at the next position
+					 */
+					cur_char = line.charAt(++cur_pos);
 				}
+				tokString.append(cur_char);
+				cur_id = dfa.followTransition(cur_id, cur_char);
 				
-				int temp_pos = cur_pos; // A variable that serves a similar purpose to cur_pos
-				Driver.Token oldCandidate = null; // Candidate for inclusion as a Token 
-				
-				// Initialize a string builder to hold the valid characters
-				StringBuilder tokString = new StringBuilder(10);
-				// Loop through until the read of the line is reached or a white-space character is found
-				while (temp_pos < line.length()) {
-					char cur_char = line.charAt(temp_pos); // Get the character at the current position
-					if (cur_char == '\\') {
-						/*
-						 * If the character is the escape character, then add the
-						 * character at the next position
-						 */
-						tokString.append(line.charAt(++cur_pos));
-					} else {
-						// Add the non-whitespace character to the string
-						tokString.append(cur_char);
+				/*
+				 * If the token is invalid, check to see if there is a
+				 * candidate token. If so, add it to the list of tokens.
+				 */
+				if (cur_id == error_id) {
+					if (candidate_length > 0) {
+						tokens.add(new Driver.Token(tokString.substring(0, candidate_length), candidate_type));
+						cur_pos = temp_pos;
 					}
-					
-					String tok = tokString.toString();
-
-					// If the token string is not empty, then process it
-					if (!tok.isEmpty()) {
-						// Identify the token string as a candidate 
-						Driver.Token candidate = processString(tok);
-						/*
-						 * If the token is invalid, check to see if the previous token
-						 * was valid. If so, add it to the list of tokens.
-						 */
-						if (candidate.type == "INVALID") {
-							if (oldCandidate != null) {
-								tokens.add(oldCandidate);
-								cur_pos = temp_pos;
+					break;
+				}
+				if (analysis != null && !escaped && !analysis.isLive(cur_id)) {
+					/*
+					 * The token can not be extended to a valid token, but the candidate
+					 * token is only added if the error state is reached before the end
+					 * of the line. So the rest of the transitions are only followed to
+					 * find the error state, and not if there is no candidate token.
+					 */
+					if (candidate_length > 0) {
+						int error_pos = temp_pos + 1;
+						while (error_pos < line.length()) {
+							cur_id = dfa.followTransition(cur_id, line.charAt(error_pos));
+							if (cur_id == error_id) {
+								tokens.add(new Driver.Token(tokString.substring(0, candidate_length), candidate_type));
+								cur_pos = error_pos;
+								break;
 							}
-							oldCandidate = null;
-							break;
-						/*
-						 * If the token is valid, and the end of the file/line has been
-						 * reached, add candidate to the list of tokens.
-						 */
-						} else if (temp_pos == line.length() - 1 && candidate.type != "YOKEL") {
-							tokens.add(candidate);
-							cur_pos = temp_pos;
-							break;
-						// If the token is acceptable, save as a candidate token.
-						} else if (candidate.type != "YOKEL") {
-							oldCandidate = candidate;
+							++error_pos;
 						}
 					}
+					break;
+				}
+				String type = isTerminating(cur_id);
+				if (type != null) {
+					if (temp_pos == line.length() - 1) {
+						// If the token is valid, and the end of the line has been reached, add the token
+						tokens.add(new Driver.Token(tokString.toString(), type));
+						cur_pos = temp_pos;
+						break;
+					}
+					// If the token is acceptable, save it as the candidate token
+					candidate_length = tokString.length();
+					candidate_type = type;
+				}
 
-					++temp_pos; // Increment the token scanning location to the next position
+				++temp_pos; // Increment the token scanning location to the next position
 
+			}
+			
+			++cur_pos; // Increment the file scanning location to the next position
+		}
+	}
+	
+	/**
+	 * Checks to see if the inputed line has an escape character.
+	 * The tokens in such a line are not substrings of the line,
+	 * so every position of the line has to be scanned.
+	 * 
+	 * @param line a line of the code file
+	 * @return true if the line has an escape character
+	 */
+	static boolean isEscaped(CharSequence line) {
+		for (int i = 0; i < line.length(); ++i) {
+			if (line.charAt(i) == '\\') {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Returns the data of the inputed state if it is a terminating
+	 * state, or null otherwise. If the DFA was analyzed, the data is
+	 * only looked up for the terminating states.
+	 * 
+	 * @param state_id the id of a state in the DFA
+	 * @return the data of the state, or null if it is not terminating
+	 */
+	private String isTerminating(int state_id) {
+		if (analysis != null && !analysis.isAccepting(state_id)) {
+			return null;
+		}
+		return dfa.isTerminatingState(state_id);
+	}
+	
+	/**
+	 * Returns the position after the last position in the inputed
+	 * line that a token can start at. Every token contains one of
+	 * the literals of the prefilter, so no token can start after 
+	 * the last literal. If the DFA was analyzed, no token can start
+	 * closer to the end of the line than the minimum token length.
+	 * If the line has no literal, this is 0 and the line can be skipped.
+	 * 
+	 * @param line a line of the code file, whose escape characters are matched as they are
+	 * @return the position after the last possible start of a token
+	 */
+	int findEndPosition(CharSequence line) {
+		int end_pos = line.length();
+		if (prefilter != null) {
+			end_pos = prefilter.lastMatchStart(line, 0, line.length()) + 1;
+		}
+		if (analysis != null) {
+			end_pos = analysis.isEmpty() ? 0 : Math.min(end_pos, line.length() - analysis.getMinLength() + 1);
+		}
+		return end_pos;
+	}
+	
+	/**
+	 * Returns whether a token can start at each position in the
+	 * inputed line, if the suffix matcher is set.
+	 * 
+	 * @param line a line of the code file without escape characters
+	 * @param end_pos the position after the last possible start of a token
+	 * @return a boolean for each position on whether a token can start at it, or null if unknown
+	 */
+	boolean[] findStartPositions(CharSequence line, int end_pos) {
+		if (suffixMatcher == null || end_pos <= 0) {
+			return null;
+		}
+		return suffixMatcher.findMatchStarts(line);
+	}
+	
+	/**
+	 * Finds every match in the inputed line from left to right. At each
+	 * position, the longest string starting at the position that the DFA
+	 * accepts is a match, and the search continues after the match. If 
+	 * no string starting at the position is accepted, the search continues
+	 * at the next position. Matches can start at any position, and the DFA
+	 * is walked once from each position without building intermediate strings.
+	 * If the DFA was analyzed, positions a match can not start with are skipped,
+	 * and the walk is stopped once the match can not get any longer.
+	 * 
+	 * @param line the line to find the matches in
+	 * @return a list of the matches in the line, in the order they appear
+	 */
+	public ArrayList<Driver.Token> findAllMatches(CharSequence line) {
+		ArrayList<Driver.Token> matches = new ArrayList<Driver.Token>();
+		int end_pos = findEndPosition(line); // The position after the last position a match can start at
+		boolean[] starts = null; // Whether a match can start at each position, or null if unknown
+		if (suffixMatcher != null && end_pos > 0) {
+			starts = suffixMatcher.findMatchStarts(line);
+		}
+		
+		int start_id = dfa.getStartID();
+		int error_id = dfa.getErrorStateID();
+		int cur_pos = 0;
+		while (cur_pos < end_pos) {
+			if ((starts != null && !starts[cur_pos])
+					|| (analysis != null && !analysis.canStartWith(line.charAt(cur_pos)))) {
+				++cur_pos;
+				continue;
+			}
+			// Walk the DFA from the position and remember the end of the longest match
+			int cur_id = start_id;
+			int match_end = -1;
+			String match_type = null;
+			int walk_end = line.length(); // The position after the last character a match can end at
+			if (analysis != null && analysis.getMaxLength() != DFAAnalysis.UNBOUNDED) {
+				walk_end = Math.min(walk_end, cur_pos + analysis.getMaxLength());
+			}
+			for (int temp_pos = cur_pos; temp_pos < walk_end; ++temp_pos) {
+				cur_id = dfa.followTransition(cur_id, line.charAt(temp_pos));
+				if (cur_id == error_id || (analysis != null && !analysis.isLive(cur_id))) {
+					break;
+				}
+				String type = isTerminating(cur_id);
+				if (type != null) {
+					match_end = temp_pos + 1;
+					match_type = type;
 				}
-				
-				++cur_pos; // Increment the file scanning location to the next position
 			}
-			line = fileReader.readLine(); // Read the next line in the file
+			if (match_end == -1) {
+				++cur_pos; // No match starts at the position
+			} else {
+				matches.add(new Driver.Token(line.subSequence(cur_pos, match_end).toString(), match_type));
+				cur_pos = match_end;
+			}
 		}
-		return tokens;
+		return matches;
 	}
 	
 	/**
@@ -165,15 +413,8 @@ public class Driver {
 		int cur_id = dfa.getStartID();  
 		int error_id = dfa.getErrorStateID();
 		
-		// Loop through the characters in the string
-		for (int i = 0; i < value.length(); ++i) {
-			// Follow the transition from the given state with the given character
-			cur_id = dfa.followTransition(cur_id, value.charAt(i));
-			if (cur_id == error_id) {
-				// If the followed transition led to the error state, break out of the loop
-				break;
-			}
-		}
+		// Follow the transitions for the characters in the string, stopping at the error state
+		cur_id = dfa.walk(value, 0, value.length(), cur_id);
 		
 		// If the current state is the error state, then return the INVALID token
 		if (cur_id == error_id) {
@@ -193,6 +434,63 @@ public class Driver {
 		return new Driver.Token(value, type);
 	}
 
+	/**
+	 * Set the scanner for the literals that every token must contain.
+	 * The scanner is used to skip the lines and the positions in 
+	 * a line where no token can start, without running the DFA.
+	 * 
+	 * @param prefilter a scanner for the required literals, or null to scan every position
+	 */
+	public void setPrefilter(AhoCorasick prefilter) {
+		this.prefilter = prefilter;
+	}
+
+	/**
+	 * Set the matcher that finds the positions where tokens start,
+	 * for regexes whose tokens all end with one of a set of literals.
+	 * The DFA is then only run from the positions where a token starts.
+	 * 
+	 * @param suffixMatcher the matcher for the regex, or null to run the DFA from every position
+	 */
+	public void setSuffixMatcher(ReverseSuffixMatcher suffixMatcher) {
+		this.suffixMatcher = suffixMatcher;
+	}
+
+	/**
+	 * Set the analysis of the DFA Table, which is used to skip the
+	 * positions where no token can start, and to stop following the
+	 * DFA once no terminating state can be reached. The analysis must
+	 * be of the DFA Table of this driver.
+	 * 
+	 * @param analysis the analysis of the DFA Table, or null to follow the DFA until the error state
+	 */
+	public void setAnalysis(DFAAnalysis analysis) {
+		this.analysis = analysis;
+	}
+
+	/**
+	 * Set whether {@link #run()} finds every match in each line with
+	 * {@link #findAllMatches(CharSequence)}, instead of the white-space
+	 * separated tokens. 
+	 * 
+	 * @param allMatches true if every match in each line should be found
+	 */
+	public void setAllMatches(boolean allMatches) {
+		this.allMatches = allMatches;
+	}
+
+	/**
+	 * Set whether {@link #run()} maps the code file into memory with a
+	 * {@link MappedLineReader}, so the DFA follows the bytes of each line
+	 * and only the tokens are made into strings, instead of reading each
+	 * line into a string.
+	 * 
+	 * @param mappedInput true if the code file should be mapped
+	 */
+	public void setMappedInput(boolean mappedInput) {
+		this.mappedInput = mappedInput;
+	}
+
 	/**
 	 * Set the file name of the code file
 	 * 
@@ -0,0 +1,257 @@
+package cs3240.project;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import cs3240.regex.automaton.ProductDFA;
+
+/**
+ * This class represents a driver program that identifies the
+ * tokens of several regular expressions in the same code file
+ * with a single pass over the file. Each regular expression has
+ * a {@link Driver}, and the tokens found for each expression are
+ * the same as the tokens its driver would find on its own.
+ *
+ * The DFAs of the expressions are combined into a {@link ProductDFA}.
+ * Each driver moves through a line on its own, but a walk of the
+ * product from a position gives the result of every driver whose
+ * next token starts at that position, so when the tokens of the
+ * expressions start at the same positions, the line is only walked
+ * once for all of them. Lines with escape characters are scanned
+ * by each driver separately.
+ */
+public class FusedDriver {
+	/**
+	 * The file name of the code file
+	 */
+	private String filename;
+	/**
+	 * The product of the DFAs of the regular expressions
+	 */
+	private ProductDFA product;
+	/**
+	 * The driver of each regular expression, which holds its DFA, prefilter and suffix matcher
+	 */
+	private Driver[] drivers;
+	/**
+	 * A boolean on whether the code file is mapped into memory instead of read with a reader
+	 */
+	private boolean mappedInput;
+
+	/**
+	 * Creates a driver for the inputed code file and the inputed
+	 * drivers, whose DFAs are the components of the product.
+	 *
+	 * @param filename a string containing the file path of the code file
+	 * @param product the product of the DFAs of the drivers, in the same order
+	 * @param drivers the driver of each regular expression
+	 */
+	public FusedDriver(String filename, ProductDFA product, Driver[] drivers) {
+		this.filename = filename;
+		this.product = product;
+		this.drivers = drivers;
+	}
+
+	/**
+	 * Analyzes the contents of the code file and identifies the
+	 * tokens of every regular expression.
+	 *
+	 * @return the list of tokens for each regular expression, in the order of the drivers
+	 * @throws IOException exception may occur from either file not existing or during reading of the file
+	 */
+	public ArrayList<ArrayList<Driver.Token>> run() throws IOException {
+		ArrayList<ArrayList<Driver.Token>> tokens = new ArrayList<ArrayList<Driver.Token>>();
+		for (int k = 0; k < drivers.length; ++k) {
+			tokens.add(new ArrayList<Driver.Token>());
+		}
+
+		if (mappedInput) {
+			MappedLineReader fileReader = new MappedLineReader(new File("src/" + filename));
+			try {
+				CharSequence line = fileReader.readLine();
+				while (line != null) {
+					processLine(line, tokens);
+					line = fileReader.readLine();
+				}
+			} finally {
+				fileReader.close();
+			}
+			return tokens;
+		}
+
+		BufferedReader fileReader = new BufferedReader(new FileReader("src/" + filename));
+		try {
+			String line = fileReader.readLine();
+			while (line != null) {
+				processLine(line, tokens);
+				line = fileReader.readLine();
+			}
+		} finally {
+			fileReader.close();
+		}
+		return tokens;
+	}
+
+	/**
+	 * Identifies the tokens of every regular expression in the inputed
+	 * line. Lines with escape characters are scanned by each driver.
+	 *
+	 * @param line a line of the code file
+	 * @param tokens the list of tokens for each regular expression
+	 */
+	private void processLine(CharSequence line, ArrayList<ArrayList<Driver.Token>> tokens) {
+		if (Driver.isEscaped(line)) {
+			for (int k = 0; k < drivers.length; ++k) {
+				drivers[k].scanLine(line, tokens.get(k));
+			}
+		} else {
+			scanLine(line, tokens);
+		}
+	}
+
+	/**
+	 * Set whether {@link #run()} maps the code file into memory with
+	 * a {@link MappedLineReader} instead of reading each line into a string.
+	 *
+	 * @param mappedInput true if the code file should be mapped
+	 */
+	public void setMappedInput(boolean mappedInput) {
+		this.mappedInput = mappedInput;
+	}
+
+	/**
+	 * Identifies the tokens of every regular expression in the inputed
+	 * line, which has no escape characters. Each driver scans the line
+	 * the same way as {@link Driver#scanLine(CharSequence, ArrayList)}, and the
+	 * driver whose next token starts first is always moved forward, so
+	 * drivers whose tokens start at the same position share a walk.
+	 *
+	 * @param line a line of the code file without escape characters
+	 * @param tokens the list of tokens for each regular expression
+	 */
+	void scanLine(CharSequence line, ArrayList<ArrayList<Driver.Token>> tokens) {
+		int num_drivers = drivers.length;
+		int[] end_pos = new int[num_drivers]; // The position after the last possible token start of each driver
+		boolean[][] starts = new boolean[num_drivers][]; // The possible token starts of each driver, or null
+		int[] next_pos = new int[num_drivers]; // The position the next token of each driver starts at, or -1
+		for (int k = 0; k < num_drivers; ++k) {
+			end_pos[k] = drivers[k].findEndPosition(line);
+			starts[k] = drivers[k].findStartPositions(line, end_pos[k]);
+			next_pos[k] = nextStart(line, 0, end_pos[k], starts[k]);
+		}
+
+		// The results of the last walk of the product, for each driver
+		int walk_pos = -1;
+		int[] token_end = new int[num_drivers]; // The end of the token found, or -1 if there is none
+		String[] token_type = new String[num_drivers];
+		int[] resume_pos = new int[num_drivers]; // The position the driver continues from after the walk
+
+		while (true) {
+			// Move the driver whose next token starts first
+			int k = -1;
+			for (int i = 0; i < num_drivers; ++i) {
+				if (next_pos[i] != -1 && (k == -1 || next_pos[i] < next_pos[k])) {
+					k = i;
+				}
+			}
+			if (k == -1) {
+				break; // Every driver has reached the end of the line
+			}
+			if (next_pos[k] != walk_pos) {
+				walk_pos = next_pos[k];
+				walk(line, walk_pos, token_end, token_type, resume_pos);
+			}
+			if (token_end[k] != -1) {
+				tokens.get(k).add(drivers[k].new Token(line.subSequence(walk_pos, token_end[k]).toString(), token_type[k]));
+			}
+			next_pos[k] = nextStart(line, resume_pos[k], end_pos[k], starts[k]);
+		}
+	}
+
+	/**
+	 * Returns the position the next token of a driver starts at,
+	 * by skipping the white-space and the positions where no token
+	 * can start, the same way as {@link Driver#scanLine(CharSequence, ArrayList)}.
+	 *
+	 * @param line a line of the code file
+	 * @param cur_pos the position to continue scanning from
+	 * @param end_pos the position after the last possible token start
+	 * @param starts the possible token starts, or null
+	 * @return the position the DFA is walked from next, or -1 if the driver is done with the line
+	 */
+	private static int nextStart(CharSequence line, int cur_pos, int end_pos, boolean[] starts) {
+		while (cur_pos < end_pos) {
+			while (cur_pos < line.length() && Character.isWhitespace(line.charAt(cur_pos))) {
+				++cur_pos;
+			}
+			if (starts != null && cur_pos < line.length() && !starts[cur_pos]) {
+				++cur_pos;
+				continue;
+			}
+			return cur_pos;
+		}
+		return -1;
+	}
+
+	/**
+	 * Walks the product from the inputed position, and finds the
+	 * token each driver would find starting at the position. A
+	 * driver is done once its DFA fails or it accepts at the last
+	 * character of the line, and the walk stops once every driver
+	 * is done.
+	 *
+	 * @param line a line of the code file without escape characters
+	 * @param cur_pos the position to walk from
+	 * @param token_end the end of the token of each driver, or -1 if it has none
+	 * @param token_type the type of the token of each driver
+	 * @param resume_pos the position each driver continues scanning from
+	 */
+	private void walk(CharSequence line, int cur_pos, int[] token_end, String[] token_type, int[] resume_pos) {
+		int num_drivers = drivers.length;
+		boolean[] done = new boolean[num_drivers];
+		int[] candidate_end = new int[num_drivers];
+		String[] candidate_type = new String[num_drivers];
+		for (int k = 0; k < num_drivers; ++k) {
+			token_end[k] = -1;
+			candidate_end[k] = -1;
+			resume_pos[k] = cur_pos + 1; // A driver without a token continues at the next position
+		}
+		int num_done = 0;
+		int state_id = product.getStartID();
+		for (int temp_pos = cur_pos; temp_pos < line.length() && num_done < num_drivers; ++temp_pos) {
+			state_id = product.followTransition(state_id, line.charAt(temp_pos));
+			for (int k = 0; k < num_drivers; ++k) {
+				if (done[k]) {
+					continue;
+				}
+				if (product.isFailed(state_id, k)) {
+					// The token is the candidate, and the driver continues after the failing character
+					if (candidate_end[k] != -1) {
+						token_end[k] = candidate_end[k];
+						token_type[k] = candidate_type[k];
+						resume_pos[k] = temp_pos + 1;
+					}
+					done[k] = true;
+					++num_done;
+					continue;
+				}
+				String type = product.isTerminatingState(state_id, k);
+				if (type != null) {
+					if (temp_pos == line.length() - 1) {
+						token_end[k] = line.length();
+						token_type[k] = type;
+						resume_pos[k] = line.length();
+						done[k] = true;
+						++num_done;
+					} else {
+						candidate_end[k] = temp_pos + 1;
+						candidate_type[k] = type;
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,271 @@
+package cs3240.project;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class reads the lines of a code file the same way as
+ * {@link java.io.BufferedReader#readLine()}, but maps the file into
+ * memory instead of decoding it into a buffer of characters. Each
+ * line is returned as a view of its bytes in the mapped file, and
+ * the characters of the line are only read when the DFA follows
+ * them, so no string is made for a line unless a token is found in it.
+ *
+ * A line is ended by a line feed, a carriage return, or a carriage
+ * return followed by a line feed. A line made of ASCII characters is
+ * viewed one byte per character. A line with any other byte is decoded
+ * with the default charset into a string, which gives the same line as
+ * a reader as long as the charset encodes the ASCII characters as
+ * single bytes, as UTF-8 and ISO-8859-1 do.
+ *
+ * A file larger than 2 GB can not be mapped at once, so it is mapped
+ * in segments, of 1 GB by default, as it is read, and a line that crosses the end
+ * of a segment is mapped on its own.
+ */
+public class MappedLineReader {
+	/**
+	 * The number of bytes mapped at once by default
+	 */
+	static final int SEGMENT_SIZE = 1 << 30;
+	/**
+	 * The channel of the file
+	 */
+	private FileChannel channel;
+	/**
+	 * The number of bytes in the file
+	 */
+	private long size;
+	/**
+	 * The segment of the file that is being read
+	 */
+	private ByteBuffer segment;
+	/**
+	 * The position of the start of the segment in the file
+	 */
+	private long segmentStart;
+	/**
+	 * The position of the next byte to read in the segment
+	 */
+	private int index;
+	/**
+	 * The charset used to decode the lines that are not ASCII
+	 */
+	private Charset charset;
+	/**
+	 * The number of bytes in each segment
+	 */
+	private int segmentSize;
+
+	/**
+	 * Opens the inputed file and maps its first segment.
+	 *
+	 * @param file the file to read
+	 * @throws IOException if the file does not exist or can not be mapped
+	 */
+	public MappedLineReader(File file) throws IOException {
+		this(file, SEGMENT_SIZE);
+	}
+
+	/**
+	 * Opens the inputed file and maps its first segment, mapping
+	 * the file in segments of the inputed number of bytes. Small
+	 * segments let the handling of segment ends be checked without
+	 * a file larger than 1 GB.
+	 *
+	 * @param file the file to read
+	 * @param segmentSize the number of bytes mapped at once, at least 1
+	 * @throws IOException if the file does not exist or can not be mapped
+	 */
+	MappedLineReader(File file, int segmentSize) throws IOException {
+		if (segmentSize < 1) {
+			throw new IllegalArgumentException("Segment size " + segmentSize + " is not positive");
+		}
+		FileInputStream input = new FileInputStream(file);
+		this.channel = input.getChannel();
+		this.size = channel.size();
+		this.charset = Charset.defaultCharset();
+		this.segmentSize = segmentSize;
+		this.segmentStart = 0;
+		this.index = 0;
+		try {
+			this.segment = map(0, Math.min(size, segmentSize));
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads the next line of the file, without the characters
+	 * that end it.
+	 *
+	 * @return the next line, or null if the end of the file has been reached
+	 * @throws IOException if a segment of the file can not be mapped, or the line is longer than 2 GB
+	 */
+	public CharSequence readLine() throws IOException {
+		if (segmentStart + index >= size) {
+			return null;
+		}
+		long start = segmentStart + index;
+		boolean ascii = true;
+		// Find the end of the line, moving on to the next segment at the end of each segment
+		while (true) {
+			if (index == segment.limit()) {
+				if (segmentStart + index >= size) {
+					break;
+				}
+				nextSegment();
+			}
+			byte b = segment.get(index);
+			if (b == '\n' || b == '\r') {
+				break;
+			}
+			if (b < 0) {
+				ascii = false;
+			}
+			++index;
+		}
+		long end = segmentStart + index;
+
+		// Skip the characters that end the line
+		if (end < size) {
+			byte b = segment.get(index++);
+			if (b == '\r' && end + 1 < size) {
+				if (index == segment.limit()) {
+					nextSegment();
+				}
+				if (segment.get(index) == '\n') {
+					++index;
+				}
+			}
+		}
+
+		if (end - start > Integer.MAX_VALUE) {
+			throw new IOException("Line at byte " + start + " is longer than 2 GB");
+		}
+		ByteBuffer bytes;
+		int offset;
+		if (start >= segmentStart) {
+			bytes = segment;
+			offset = (int) (start - segmentStart);
+		} else {
+			bytes = map(start, end - start); // The line crosses the end of a segment
+			offset = 0;
+		}
+		Line line = new Line(bytes, offset, (int) (end - start));
+		return ascii ? line : line.decode(charset);
+	}
+
+	/**
+	 * Maps the next segment of the file, and moves to its start.
+	 *
+	 * @throws IOException if the segment can not be mapped
+	 */
+	private void nextSegment() throws IOException {
+		segmentStart += segment.limit();
+		segment = map(segmentStart, Math.min(size - segmentStart, segmentSize));
+		index = 0;
+	}
+
+	/**
+	 * Maps the inputed range of the file as read-only.
+	 *
+	 * @param position the position of the start of the range
+	 * @param length the number of bytes in the range
+	 * @return a buffer of the bytes in the range
+	 * @throws IOException if the range can not be mapped
+	 */
+	private ByteBuffer map(long position, long length) throws IOException {
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+	}
+
+	/**
+	 * Closes the file. The lines that were read stay valid,
+	 * since a mapping stays valid after its channel is closed.
+	 *
+	 * @throws IOException if the file can not be closed
+	 */
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * A line of ASCII characters, viewed in the mapped file
+	 * with one byte for each character.
+	 */
+	private static class Line implements CharSequence {
+		/**
+		 * The buffer holding the line
+		 */
+		private ByteBuffer bytes;
+		/**
+		 * The index of the first character of the line in the buffer
+		 */
+		private int offset;
+		/**
+		 * The number of characters in the line
+		 */
+		private int length;
+
+		/**
+		 * Creates a view of the inputed range of the buffer.
+		 *
+		 * @param bytes the buffer holding the line
+		 * @param offset the index of the first character in the buffer
+		 * @param length the number of characters
+		 */
+		public Line(ByteBuffer bytes, int offset, int length) {
+			this.bytes = bytes;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		public int length() {
+			return length;
+		}
+
+		public char charAt(int index) {
+			if (index < 0 || index >= length) {
+				throw new StringIndexOutOfBoundsException(index);
+			}
+			return (char) (bytes.get(offset + index) & 0xFF);
+		}
+
+		public CharSequence subSequence(int start, int end) {
+			if (start < 0 || end > length || start > end) {
+				throw new StringIndexOutOfBoundsException("begin " + start + ", end " + end + ", length " + length);
+			}
+			return new Line(bytes, offset + start, end - start);
+		}
+
+		/**
+		 * Decodes the bytes of the line with the inputed charset.
+		 *
+		 * @param charset the charset of the file
+		 * @return the decoded line
+		 */
+		public String decode(Charset charset) {
+			byte[] data = new byte[length];
+			ByteBuffer view = bytes.duplicate();
+			view.position(offset);
+			view.get(data);
+			return new String(data, charset);
+		}
+
+		/**
+		 * Returns the line as a string, which copies its characters.
+		 *
+		 * @return the characters of the line
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString() {
+			return decode(StandardCharsets.ISO_8859_1);
+		}
+	}
+}
@@ -2,6 +2,8 @@ package cs3240.project;
 
 import java.io.IOException;
 
+import cs3240.regex.parser.RegexParser;
+
 /**
  * This class simply holds the main
  * method for the project, which runs
@@ -69,6 +71,10 @@ public class RegexProject {
 		}
 		
 		System.out.println("Program End");
+		if (Boolean.getBoolean("minire.regexcache.stats")) {
+			// Report how often the compiled regular expressions were reused
+			System.err.println(RegexParser.getRegexCache());
+		}
 
 	}
 
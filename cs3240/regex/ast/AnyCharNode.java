@@ -1,6 +1,13 @@
 package cs3240.regex.ast;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import cs3240.regex.automaton.ByteClasses;
 import cs3240.regex.automaton.NFA;
+import cs3240.regex.automaton.NFABuilder;
 import cs3240.regex.automaton.NFAState;
+import cs3240.regex.derivative.Term;
+import cs3240.regex.derivative.TermFactory;
 
 /**
  * This class represents when the ANY_CHAR
@@ -63,4 +70,94 @@ public class AnyCharNode extends RegexAstNode {
 		return nfa;
 	}
 
+	/**
+	 * Adds a fragment that matches any printable
+	 * character to the inputed builder.
+	 * 
+	 * @param builder the builder to add the states to
+	 * @return a fragment which matches any printable character
+	 * 
+	 * @see RegexAstNode#generateFragment(NFABuilder)
+	 */
+	@Override
+	public NFABuilder.Fragment generateFragment(NFABuilder builder) {
+		int start_state = builder.newState();
+		int end_state = builder.newState();
+		for (char c = PRINTABLE_CHAR_START_VAL; c <= PRINTABLE_CHAR_END_VAL; ++c) {
+			builder.addTransition(start_state, c, end_state);
+		}
+		NFABuilder.Fragment fragment = builder.newFragment(start_state);
+		fragment.addTerminatingState(end_state);
+		return fragment;
+	}
+
+	/**
+	 * Returns the position sets for a single position
+	 * that matches any ASCII printable character.
+	 * 
+	 * @return the position sets of any printable character
+	 * 
+	 * @see RegexAstNode#generatePositions()
+	 */
+	@Override
+	public PositionSets generatePositions() {
+		return new PositionSets(getSingleCharacters());
+	}
+
+	/**
+	 * Returns every ASCII printable character.
+	 * 
+	 * @return the printable characters
+	 * 
+	 * @see RegexAstNode#getSingleCharacters()
+	 */
+	@Override
+	public Collection<Character> getSingleCharacters() {
+		ArrayList<Character> characters = new ArrayList<Character>();
+		for (char c = PRINTABLE_CHAR_START_VAL; c <= PRINTABLE_CHAR_END_VAL; ++c) {
+			characters.add(Character.valueOf(c));
+		}
+		return characters;
+	}
+
+	/**
+	 * Returns the literal information for any printable 
+	 * character, which has too many characters to be known exactly.
+	 * 
+	 * @return the literal information of any printable character
+	 * 
+	 * @see RegexAstNode#analyzeLiterals()
+	 */
+	@Override
+	public LiteralInfo analyzeLiterals() {
+		return LiteralInfo.unknown();
+	}
+
+	/**
+	 * Refines the character classes so that the ASCII
+	 * printable characters are in different classes than
+	 * the other characters.
+	 * 
+	 * @param classes the character classes to refine
+	 * 
+	 * @see RegexAstNode#addCharacterClasses(ByteClasses)
+	 */
+	@Override
+	public void addCharacterClasses(ByteClasses classes) {
+		classes.addCharacterRange(PRINTABLE_CHAR_START_VAL, PRINTABLE_CHAR_END_VAL);
+	}
+
+	/**
+	 * Creates the term that matches any ASCII
+	 * printable character.
+	 * 
+	 * @param factory the factory to create the term with
+	 * @return a term matching any printable character
+	 * 
+	 * @see RegexAstNode#toTerm(TermFactory)
+	 */
+	@Override
+	public Term toTerm(TermFactory factory) {
+		return factory.characterRange(PRINTABLE_CHAR_START_VAL, PRINTABLE_CHAR_END_VAL);
+	}
 }
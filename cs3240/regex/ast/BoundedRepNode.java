@@ -0,0 +1,299 @@
+package cs3240.regex.ast;
+import java.util.ArrayList;
+
+import cs3240.regex.automaton.NFA;
+import cs3240.regex.automaton.NFABuilder;
+import cs3240.regex.automaton.NFAState;
+import cs3240.regex.derivative.Term;
+import cs3240.regex.derivative.TermFactory;
+
+/**
+ * This class represents the bounded repetition operators
+ * {m}, {m,} and {m,n} in the regular expression language.
+ * Specifically, this class will take in a regular expression
+ * node, and then generate an NFA that matches to any string
+ * containing at least the minimum and at most the maximum
+ * number of repetitions of the regular expression.
+ *
+ * The repetitions are unrolled into copies of the child, but the
+ * copies are laid out so that the automaton stays linear in the
+ * number of repetitions. The copies after the minimum are not
+ * separate optional expressions, which would let each copy be
+ * followed by any later copy, but are chained so that each copy
+ * can only be followed by the next copy or end the match. A pattern
+ * like .{1000} then builds a DFA with one state per repetition.
+ */
+public class BoundedRepNode extends RegexAstNode {
+
+	/** The maximum value of the bounds of a repetition. */
+	public static final int MAX_REPETITION = 1000;
+
+	/** The value of the maximum for a repetition without an upper bound. */
+	public static final int UNBOUNDED = -1;
+
+	/** The minimum number of repetitions. */
+	private int min;
+
+	/** The maximum number of repetitions, or UNBOUNDED. */
+	private int max;
+
+	/**
+	 * The main constructor for the BoundedRepNode.
+	 * It takes in a RegexAstNode, and sets that node
+	 * as the lone child node. The value of the node is
+	 * set to the bounds of the repetition.
+	 *
+	 * @param node the RegexAstNode whose regular expression is to be repeated
+	 * @param min the minimum number of repetitions
+	 * @param max the maximum number of repetitions, or UNBOUNDED
+	 */
+	public BoundedRepNode(RegexAstNode node, int min, int max) {
+		super();
+		this.leftChild = node;
+		this.min = min;
+		this.max = max;
+		// Write the bounds the same way for equal repetitions, so the value is canonical
+		if (max == UNBOUNDED) {
+			this.value = "{" + min + ",}";
+		} else if (min == max) {
+			this.value = "{" + min + "}";
+		} else {
+			this.value = "{" + min + "," + max + "}";
+		}
+	}
+
+	/**
+	 * Returns the minimum number of repetitions.
+	 *
+	 * @return the minimum number of repetitions
+	 */
+	public int getMin() {
+		return min;
+	}
+
+	/**
+	 * Returns the maximum number of repetitions.
+	 *
+	 * @return the maximum number of repetitions, or UNBOUNDED
+	 */
+	public int getMax() {
+		return max;
+	}
+
+	/**
+	 * Generates an NFA which matches to the bounded
+	 * repetitions of the regular expression represented
+	 * by the child NFA. A copy of the child NFA is chained
+	 * for each repetition, and the ends of the copies after
+	 * the minimum are kept as terminating states. Without an
+	 * upper bound, the last copy can be repeated.
+	 *
+	 * @return an NFA that matches to the bounded repetitions of the child NFA
+	 *
+	 * @see RegexAstNode#generateNFA()
+	 */
+	@Override
+	public NFA generateNFA() {
+		if (max == 0) {
+			return new EpsilonNode().generateNFA();
+		}
+		int copies = (max == UNBOUNDED) ? Math.max(min, 1) : max;
+		NFA nfa = this.leftChild.generateNFA();
+		if (copies == 1 && max == UNBOUNDED) {
+			nfa.allowOneOrMoreRep();
+		}
+		// The ends of the copies that can end the match, which are made terminating once every copy is added
+		ArrayList<NFAState> optional_ends = new ArrayList<NFAState>();
+		for (int i = 2; i <= copies; ++i) {
+			NFA copy = this.leftChild.generateNFA();
+			if (i == copies && max == UNBOUNDED) {
+				copy.allowOneOrMoreRep(); // Allow the last copy to repeat
+			}
+			if (i > min) {
+				optional_ends.addAll(nfa.getTerminatingStates()); // i - 1 repetitions are enough
+			}
+			nfa.concatenate(copy);
+		}
+		for (NFAState state: optional_ends) {
+			nfa.addTerminatingState(state);
+		}
+
+		if (min == 0) {
+			// Add a terminating start state, so no repetitions are also matched
+			NFAState new_start = new NFAState();
+			new_start.addEpsilonTransition(nfa.getStartState());
+			nfa.addTerminatingState(new_start);
+			nfa.setStartState(new_start);
+		}
+		return nfa;
+	}
+
+	/**
+	 * Adds a fragment that matches the strings of the child
+	 * repeated from the minimum to the maximum number of times
+	 * to the inputed builder, the same way as {@link #generateNFA()}.
+	 * 
+	 * @param builder the builder to add the states to
+	 * @return a fragment which matches the bounded repetition of the child
+	 * 
+	 * @see RegexAstNode#generateFragment(NFABuilder)
+	 */
+	@Override
+	public NFABuilder.Fragment generateFragment(NFABuilder builder) {
+		if (max == 0) {
+			return new EpsilonNode().generateFragment(builder);
+		}
+		int copies = (max == UNBOUNDED) ? Math.max(min, 1) : max;
+		NFABuilder.Fragment fragment = this.leftChild.generateFragment(builder);
+		if (copies == 1 && max == UNBOUNDED) {
+			fragment.allowOneOrMoreRep();
+		}
+		// The ends of the copies that can end the match, which are made terminating once every copy is added
+		ArrayList<Integer> optional_ends = new ArrayList<Integer>();
+		for (int i = 2; i <= copies; ++i) {
+			NFABuilder.Fragment copy = this.leftChild.generateFragment(builder);
+			if (i == copies && max == UNBOUNDED) {
+				copy.allowOneOrMoreRep(); // Allow the last copy to repeat
+			}
+			if (i > min) {
+				for (int state: fragment.getTerminatingStates()) {
+					optional_ends.add(Integer.valueOf(state)); // i - 1 repetitions are enough
+				}
+			}
+			fragment.concatenate(copy);
+		}
+		for (Integer state: optional_ends) {
+			fragment.addTerminatingState(state.intValue());
+		}
+
+		if (min == 0) {
+			// Add a terminating start state, so no repetitions are also matched
+			int new_start = builder.newState();
+			builder.addEpsilonTransition(new_start, fragment.getStartState());
+			fragment.addTerminatingState(new_start);
+			fragment.setStartState(new_start);
+		}
+		return fragment;
+	}
+
+	/**
+	 * Computes the position sets for the bounded
+	 * repetitions of the regular expression represented
+	 * by the child node. The sets are built from the
+	 * last copy to the first, with the copies after the
+	 * minimum nested, as in (X(X(X)?)?)?.
+	 *
+	 * @return the position sets of the bounded repetitions of the child
+	 *
+	 * @see RegexAstNode#generatePositions()
+	 */
+	@Override
+	public PositionSets generatePositions() {
+		PositionSets positions;
+		int required = min;
+		if (max == UNBOUNDED) {
+			positions = this.leftChild.generatePositions();
+			if (min == 0) {
+				positions.allowZeroOrMoreRep();
+				return positions;
+			}
+			positions.allowOneOrMoreRep(); // The last required copy can repeat
+			required = min - 1;
+		} else {
+			positions = new PositionSets(true);
+			for (int i = min; i < max; ++i) {
+				positions = PositionSets.union(PositionSets.concatenate(this.leftChild.generatePositions(), positions),
+						new PositionSets(true));
+			}
+		}
+		for (int i = 0; i < required; ++i) {
+			positions = PositionSets.concatenate(this.leftChild.generatePositions(), positions);
+		}
+		return positions;
+	}
+
+	/**
+	 * Computes the literal information for the bounded
+	 * repetitions of the regular expression represented
+	 * by the child node, from the same nested form as
+	 * the position sets.
+	 *
+	 * @return the literal information of the bounded repetitions of the child
+	 *
+	 * @see RegexAstNode#analyzeLiterals()
+	 */
+	@Override
+	public LiteralInfo analyzeLiterals() {
+		LiteralInfo child = this.leftChild.analyzeLiterals();
+		LiteralInfo info;
+		if (max == UNBOUNDED) {
+			info = LiteralInfo.zeroOrMore(child);
+		} else {
+			info = LiteralInfo.epsilon();
+			for (int i = min; i < max; ++i) {
+				info = LiteralInfo.union(LiteralInfo.concatenate(child, info), LiteralInfo.epsilon());
+			}
+		}
+		for (int i = 0; i < min; ++i) {
+			info = LiteralInfo.concatenate(child, info);
+		}
+		return info;
+	}
+
+	/**
+	 * Creates the term for the bounded repetitions of the
+	 * regular expression represented by the child node.
+	 * The terms are shared by the factory, so the child term
+	 * is only created once for every repetition.
+	 *
+	 * @param factory the factory to create the term with
+	 * @return a term for the bounded repetitions of the child term
+	 *
+	 * @see RegexAstNode#toTerm(TermFactory)
+	 */
+	@Override
+	public Term toTerm(TermFactory factory) {
+		Term child = this.leftChild.toTerm(factory);
+		Term term;
+		if (max == UNBOUNDED) {
+			term = factory.star(child);
+		} else {
+			term = factory.epsilon();
+			for (int i = min; i < max; ++i) {
+				term = factory.union(factory.concat(child, term), factory.epsilon());
+			}
+		}
+		for (int i = 0; i < min; ++i) {
+			term = factory.concat(child, term);
+		}
+		return term;
+	}
+
+	/**
+	 * Returns the optimized repetition of the optimized child.
+	 * Repetitions that can be written with the other operators
+	 * are replaced, since X{0,} matches the same strings as X*,
+	 * X{1,} matches the same strings as X+, and X{1} matches the
+	 * same strings as X. A repetition of X* is X*, as long as it
+	 * allows at least one repetition.
+	 *
+	 * @return the optimized repetition
+	 *
+	 * @see RegexAstNode#optimize()
+	 */
+	@Override
+	public RegexAstNode optimize() {
+		RegexAstNode child = this.leftChild.optimize();
+		if (max == 0 || child instanceof EpsilonNode) {
+			return new EpsilonNode();
+		}
+		if (child instanceof ZeroOrMoreRepNode || (min == 1 && max == 1)) {
+			return child;
+		}
+		if (max == UNBOUNDED && min <= 1) {
+			RegexAstNode rep = (min == 0) ? new ZeroOrMoreRepNode(child) : new OneOrMoreRepNode(child);
+			return rep.optimize();
+		}
+		return new BoundedRepNode(child, min, max);
+	}
+}
@@ -0,0 +1,128 @@
+package cs3240.regex.ast;
+
+import cs3240.regex.automaton.ByteClasses;
+import cs3240.regex.automaton.NFA;
+import cs3240.regex.automaton.NFABuilder;
+import cs3240.regex.derivative.Term;
+import cs3240.regex.derivative.TermFactory;
+
+/**
+ * This class represents a case-insensitive regular expression,
+ * written with an i after the closing quote, such as 'ment'i.
+ * It is only used as the root of an AST, and matches a letter
+ * in either case wherever the child matches the letter.
+ *
+ * The automata of the child are not changed. Instead, the character
+ * classes of the regular expression put each letter in the same class
+ * as its other case (see {@link ByteClasses#foldCase()}), so the
+ * transition for a letter is followed for both cases while the input
+ * is mapped to classes, and the automata have the same number of
+ * states and transitions as the automata of the child.
+ */
+public class CaseFoldNode extends RegexAstNode {
+
+	/**
+	 * The main constructor for the CaseFoldNode. It takes
+	 * in a RegexAstNode, and sets that node as the lone child
+	 * node, whose regular expression is matched without case.
+	 *
+	 * @param node the RegexAstNode whose regular expression is matched without case
+	 */
+	public CaseFoldNode(RegexAstNode node) {
+		super();
+		this.leftChild = node;
+	}
+
+	/**
+	 * Generates the NFA of the child, which matches
+	 * without case once it uses the case-folded classes.
+	 *
+	 * @return the NFA of the child
+	 *
+	 * @see RegexAstNode#generateNFA()
+	 */
+	@Override
+	public NFA generateNFA() {
+		return this.leftChild.generateNFA();
+	}
+
+	/**
+	 * Adds the fragment of the child to the inputed builder,
+	 * whose classes match each letter with its other case.
+	 * 
+	 * @param builder the builder to add the states to
+	 * @return the fragment of the child
+	 * 
+	 * @see RegexAstNode#generateFragment(NFABuilder)
+	 */
+	@Override
+	public NFABuilder.Fragment generateFragment(NFABuilder builder) {
+		return this.leftChild.generateFragment(builder);
+	}
+
+	/**
+	 * Computes the position sets of the child, which
+	 * match without case once they use the case-folded classes.
+	 *
+	 * @return the position sets of the child
+	 *
+	 * @see RegexAstNode#generatePositions()
+	 */
+	@Override
+	public PositionSets generatePositions() {
+		return this.leftChild.generatePositions();
+	}
+
+	/**
+	 * Creates the term of the child. The character sets of
+	 * the terms are sets of classes, so the term matches
+	 * without case once it uses the case-folded classes.
+	 *
+	 * @param factory the factory to create the term with
+	 * @return the term of the child
+	 *
+	 * @see RegexAstNode#toTerm(TermFactory)
+	 */
+	@Override
+	public Term toTerm(TermFactory factory) {
+		return this.leftChild.toTerm(factory);
+	}
+
+	/**
+	 * Returns no literal information, since the literals
+	 * of the child only match the input in one case.
+	 *
+	 * @return the unknown literal information
+	 *
+	 * @see RegexAstNode#analyzeLiterals()
+	 */
+	@Override
+	public LiteralInfo analyzeLiterals() {
+		return LiteralInfo.unknown();
+	}
+
+	/**
+	 * Returns the case-insensitive match of the optimized child.
+	 *
+	 * @return the optimized case-insensitive match
+	 *
+	 * @see RegexAstNode#optimize()
+	 */
+	@Override
+	public RegexAstNode optimize() {
+		return new CaseFoldNode(this.leftChild.optimize());
+	}
+
+	/**
+	 * Returns the character classes of the child, where
+	 * each letter is in the same class as its other case.
+	 *
+	 * @return the case-folded character classes of the regex
+	 *
+	 * @see RegexAstNode#getByteClasses()
+	 */
+	@Override
+	public ByteClasses getByteClasses() {
+		return super.getByteClasses().foldCase();
+	}
+}
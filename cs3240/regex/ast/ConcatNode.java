@@ -1,5 +1,12 @@
 package cs3240.regex.ast;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
 import cs3240.regex.automaton.NFA;
+import cs3240.regex.automaton.NFABuilder;
+import cs3240.regex.derivative.Term;
+import cs3240.regex.derivative.TermFactory;
 
 /**
  * This class represents the concatenation 
@@ -48,4 +55,152 @@ public class ConcatNode extends RegexAstNode {
 		return nfa;
 	}
 
+	/**
+	 * Adds a fragment that is the concatenation of the fragments
+	 * of the left and right child nodes to the inputed builder.
+	 * 
+	 * @param builder the builder to add the states to
+	 * @return a fragment which matches the concatenation of the child nodes
+	 * 
+	 * @see RegexAstNode#generateFragment(NFABuilder)
+	 */
+	@Override
+	public NFABuilder.Fragment generateFragment(NFABuilder builder) {
+		NFABuilder.Fragment fragment = leftChild.generateFragment(builder);
+		fragment.concatenate(rightChild.generateFragment(builder));
+		return fragment;
+	}
+
+	/**
+	 * Computes the position sets for the concatenation of 
+	 * the two regular expressions represented by the left
+	 * and right child nodes.
+	 * 
+	 * @return the position sets of the concatenation
+	 * 
+	 * @see RegexAstNode#generatePositions()
+	 */
+	@Override
+	public PositionSets generatePositions() {
+		return PositionSets.concatenate(leftChild.generatePositions(), rightChild.generatePositions());
+	}
+
+	/**
+	 * Computes the literal information for the concatenation 
+	 * of the two regular expressions represented by the left
+	 * and right child nodes.
+	 * 
+	 * @return the literal information of the concatenation
+	 * 
+	 * @see RegexAstNode#analyzeLiterals()
+	 */
+	@Override
+	public LiteralInfo analyzeLiterals() {
+		return LiteralInfo.concatenate(leftChild.analyzeLiterals(), rightChild.analyzeLiterals());
+	}
+
+	/**
+	 * Creates the term for the concatenation of the two
+	 * regular expressions represented by the left and
+	 * right child nodes.
+	 * 
+	 * @param factory the factory to create the term with
+	 * @return a term for the concatenation of the child terms
+	 * 
+	 * @see RegexAstNode#toTerm(TermFactory)
+	 */
+	@Override
+	public Term toTerm(TermFactory factory) {
+		return factory.concat(leftChild.toTerm(factory), rightChild.toTerm(factory));
+	}
+
+	/**
+	 * Returns the optimized concatenation of the optimized
+	 * factors of the concatenation, see {@link #concatenate(List)}.
+	 * 
+	 * @return the optimized concatenation
+	 * 
+	 * @see RegexAstNode#optimize()
+	 */
+	@Override
+	public RegexAstNode optimize() {
+		ArrayList<RegexAstNode> factors = new ArrayList<RegexAstNode>();
+		for (RegexAstNode factor: getFactors(this)) {
+			factors.add(factor.optimize());
+		}
+		return concatenate(factors);
+	}
+	
+	/**
+	 * Returns the factors of the inputed node, which are the nodes
+	 * that are not concatenations in the chain of concatenations
+	 * rooted at the node, from left to right. A node that is not a
+	 * concatenation is its only factor. The chain is walked without
+	 * recursion, so deeply nested chains can be flattened.
+	 * 
+	 * @param node the root of the chain of concatenations
+	 * @return the factors of the node
+	 */
+	static ArrayList<RegexAstNode> getFactors(RegexAstNode node) {
+		ArrayList<RegexAstNode> factors = new ArrayList<RegexAstNode>();
+		ArrayDeque<RegexAstNode> stack = new ArrayDeque<RegexAstNode>();
+		stack.push(node);
+		while (!stack.isEmpty()) {
+			RegexAstNode top = stack.pop();
+			if (top instanceof ConcatNode) {
+				stack.push(top.rightChild);
+				stack.push(top.leftChild);
+			} else {
+				factors.add(top);
+			}
+		}
+		return factors;
+	}
+	
+	/**
+	 * Returns a node for the concatenation of the inputed nodes. The
+	 * nodes are flattened into their factors, and epsilon factors and
+	 * a repetition X* directly after another X* are removed. The
+	 * factors are joined into a balanced tree, which generates the 
+	 * same NFA as a chain but can be walked with less recursion.
+	 * 
+	 * @param nodes the nodes to concatenate, from left to right
+	 * @return the concatenation of the nodes, which is an epsilon node if there are no factors
+	 */
+	static RegexAstNode concatenate(List<RegexAstNode> nodes) {
+		ArrayList<RegexAstNode> factors = new ArrayList<RegexAstNode>();
+		String last_star = null; // The canonical form of the last factor if it is a X*, or null
+		for (RegexAstNode node: nodes) {
+			for (RegexAstNode factor: getFactors(node)) {
+				if (factor instanceof EpsilonNode) {
+					continue;
+				}
+				String star = (factor instanceof ZeroOrMoreRepNode) ? factor.getCanonicalForm() : null;
+				if (star == null || !star.equals(last_star)) {
+					factors.add(factor);
+				}
+				last_star = star;
+			}
+		}
+		if (factors.isEmpty()) {
+			return new EpsilonNode();
+		}
+		return balance(factors, 0, factors.size());
+	}
+	
+	/**
+	 * Joins the factors in the inputed range into a balanced tree of concatenations.
+	 * 
+	 * @param factors the factors to join
+	 * @param from the index of the first factor
+	 * @param to the index after the last factor
+	 * @return the concatenation of the factors
+	 */
+	private static RegexAstNode balance(List<RegexAstNode> factors, int from, int to) {
+		if (to - from == 1) {
+			return factors.get(from);
+		}
+		int middle = (from + to) >>> 1;
+		return new ConcatNode(balance(factors, from, middle), balance(factors, middle, to));
+	}
 }
@@ -4,7 +4,10 @@
 package cs3240.regex.ast;
 
 import cs3240.regex.automaton.NFA;
+import cs3240.regex.automaton.NFABuilder;
 import cs3240.regex.automaton.NFAState;
+import cs3240.regex.derivative.Term;
+import cs3240.regex.derivative.TermFactory;
 
 /**
  * An epsilon node simply represents the
@@ -41,4 +44,60 @@ public class EpsilonNode extends RegexAstNode {
 		return nfa;
 	}
 
+	/**
+	 * Adds a fragment that only matches the
+	 * empty string to the inputed builder.
+	 * 
+	 * @param builder the builder to add the states to
+	 * @return a fragment which matches the empty string
+	 * 
+	 * @see RegexAstNode#generateFragment(NFABuilder)
+	 */
+	@Override
+	public NFABuilder.Fragment generateFragment(NFABuilder builder) {
+		int start_state = builder.newState();
+		int end_state = builder.newState();
+		builder.addEpsilonTransition(start_state, end_state);
+		NFABuilder.Fragment fragment = builder.newFragment(start_state);
+		fragment.addTerminatingState(end_state);
+		return fragment;
+	}
+
+	/**
+	 * Returns the position sets for the empty string,
+	 * which has no positions but is nullable.
+	 * 
+	 * @return the position sets of the empty string
+	 * 
+	 * @see RegexAstNode#generatePositions()
+	 */
+	@Override
+	public PositionSets generatePositions() {
+		return new PositionSets(true);
+	}
+
+	/**
+	 * Returns the literal information for the empty string.
+	 * 
+	 * @return the literal information of the empty string
+	 * 
+	 * @see RegexAstNode#analyzeLiterals()
+	 */
+	@Override
+	public LiteralInfo analyzeLiterals() {
+		return LiteralInfo.epsilon();
+	}
+
+	/**
+	 * Returns the term that matches only the empty string.
+	 * 
+	 * @param factory the factory to create the term with
+	 * @return the empty string term
+	 * 
+	 * @see RegexAstNode#toTerm(TermFactory)
+	 */
+	@Override
+	public Term toTerm(TermFactory factory) {
+		return factory.epsilon();
+	}
 }
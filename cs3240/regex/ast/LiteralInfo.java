@@ -0,0 +1,303 @@
+package cs3240.regex.ast;
+import java.util.Collection;
+import java.util.TreeSet;
+
+/**
+ * This class holds the literal strings that are known about
+ * the strings matched by the regular expression represented
+ * by a node in the AST. Each set is a set of alternatives,
+ * where one of the strings in the set must appear in every
+ * match. The sets are:
+ *
+ * exact - every match is one of the strings, or null if the matches are not known exactly
+ * prefixes - every match starts with one of the strings
+ * suffixes - every match ends with one of the strings
+ * factors - every match contains one of the strings
+ *
+ * A set that contains the empty string carries no information.
+ * The sets are kept small, and once a set would have more than
+ * {@link #MAX_SET_SIZE} strings it is replaced by a set with
+ * only the empty string. The factors of the root node can be
+ * used to skip input that can not contain a match without
+ * running the DFA.
+ */
+public class LiteralInfo {
+
+	/** The largest number of strings kept in a set. */
+	public static final int MAX_SET_SIZE = 16;
+
+	/** The strings that are exactly matched, or null if they are not known. */
+	private TreeSet<String> exact;
+
+	/** The strings that every match starts with one of. */
+	private TreeSet<String> prefixes;
+
+	/** The strings that every match ends with one of. */
+	private TreeSet<String> suffixes;
+
+	/** The strings that every match contains one of. */
+	private TreeSet<String> factors;
+
+	/**
+	 * Creates the literal information for a regular expression
+	 * that matches exactly the inputed strings. If there are too
+	 * many strings, nothing is known about the matched strings.
+	 *
+	 * @param strings the strings matched by the regular expression
+	 */
+	private LiteralInfo(TreeSet<String> strings) {
+		if (strings == null || strings.size() > MAX_SET_SIZE) {
+			this.exact = null;
+			this.prefixes = unknownSet();
+			this.suffixes = unknownSet();
+			this.factors = unknownSet();
+		} else {
+			this.exact = strings;
+			this.prefixes = strings;
+			this.suffixes = strings;
+			this.factors = strings;
+		}
+	}
+
+	/**
+	 * Returns the literal information for a regular expression
+	 * that matches a single character from the inputed characters.
+	 *
+	 * @param characters the characters that can be matched
+	 * @return the literal information of the characters
+	 */
+	public static LiteralInfo characters(Collection<Character> characters) {
+		TreeSet<String> strings = new TreeSet<String>();
+		for (Character c: characters) {
+			strings.add(String.valueOf(c.charValue()));
+		}
+		return new LiteralInfo(strings);
+	}
+
+	/**
+	 * Returns the literal information for a regular
+	 * expression that only matches the empty string.
+	 *
+	 * @return the literal information of the empty string
+	 */
+	public static LiteralInfo epsilon() {
+		TreeSet<String> strings = new TreeSet<String>();
+		strings.add("");
+		return new LiteralInfo(strings);
+	}
+
+	/**
+	 * Returns the literal information for a regular expression
+	 * that nothing is known about.
+	 *
+	 * @return the literal information with no information
+	 */
+	public static LiteralInfo unknown() {
+		return new LiteralInfo(null);
+	}
+
+	/**
+	 * Returns the literal information for the concatenation of the
+	 * regular expressions with the inputed information. A factor can
+	 * also come from where a suffix of the left expression meets
+	 * a prefix of the right expression.
+	 *
+	 * @param left the information of the left-side regular expression
+	 * @param right the information of the right-side regular expression
+	 * @return the literal information of the concatenation
+	 */
+	public static LiteralInfo concatenate(LiteralInfo left, LiteralInfo right) {
+		if (left.exact != null && right.exact != null) {
+			TreeSet<String> strings = cross(left.exact, right.exact);
+			if (strings != null) {
+				return new LiteralInfo(strings);
+			}
+		}
+
+		LiteralInfo info = unknown();
+		// The prefixes can only be extended if the left expression is known exactly
+		info.prefixes = left.prefixes;
+		if (left.exact != null) {
+			info.prefixes = best(info.prefixes, cross(left.exact, right.prefixes));
+		}
+		info.suffixes = right.suffixes;
+		if (right.exact != null) {
+			info.suffixes = best(info.suffixes, cross(left.suffixes, right.exact));
+		}
+		info.factors = best(left.factors, right.factors);
+		info.factors = best(info.factors, cross(left.suffixes, right.prefixes));
+		info.factors = best(info.factors, best(info.prefixes, info.suffixes));
+		return info;
+	}
+
+	/**
+	 * Returns the literal information for the union of the
+	 * regular expressions with the inputed information.
+	 *
+	 * @param left the information of the left-side regular expression
+	 * @param right the information of the right-side regular expression
+	 * @return the literal information of the union
+	 */
+	public static LiteralInfo union(LiteralInfo left, LiteralInfo right) {
+		if (left.exact != null && right.exact != null) {
+			// The empty string is a real match in an exact set, so it is kept
+			TreeSet<String> strings = new TreeSet<String>(left.exact);
+			strings.addAll(right.exact);
+			return new LiteralInfo(strings);
+		}
+		LiteralInfo info = unknown();
+		info.prefixes = union(left.prefixes, right.prefixes);
+		info.suffixes = union(left.suffixes, right.suffixes);
+		info.factors = union(left.factors, right.factors);
+		return info;
+	}
+
+	/**
+	 * Returns the literal information for one or more repetitions
+	 * of the regular expression with the inputed information.
+	 * Every match still starts with a match of the expression,
+	 * so the prefixes, suffixes, and factors are kept.
+	 *
+	 * @param info the information of the repeated regular expression
+	 * @return the literal information of the repetition
+	 */
+	public static LiteralInfo oneOrMore(LiteralInfo info) {
+		LiteralInfo repInfo = unknown();
+		repInfo.prefixes = info.prefixes;
+		repInfo.suffixes = info.suffixes;
+		repInfo.factors = info.factors;
+		return repInfo;
+	}
+
+	/**
+	 * Returns the literal information for zero or more repetitions
+	 * of the regular expression with the inputed information. Since
+	 * the empty string is matched, nothing is known about the matches.
+	 *
+	 * @param info the information of the repeated regular expression
+	 * @return the literal information of the repetition
+	 */
+	public static LiteralInfo zeroOrMore(LiteralInfo info) {
+		return unknown();
+	}
+
+	/**
+	 * Returns the literals that every match contains at least
+	 * one of, or null if there are no such literals.
+	 *
+	 * @return the required literals, or null if there are none
+	 */
+	public Collection<String> getRequiredLiterals() {
+		if (factors.contains("")) {
+			return null;
+		}
+		return new TreeSet<String>(factors);
+	}
+
+	/**
+	 * Returns the literals that every match ends with one
+	 * of, or null if there are no such literals.
+	 *
+	 * @return the required suffixes, or null if there are none
+	 */
+	public Collection<String> getRequiredSuffixes() {
+		if (suffixes.contains("")) {
+			return null;
+		}
+		return new TreeSet<String>(suffixes);
+	}
+
+	/**
+	 * Returns the strings that are exactly matched.
+	 *
+	 * @return the exactly matched strings, or null if they are not known
+	 */
+	public Collection<String> getExact() {
+		return (exact == null) ? null : new TreeSet<String>(exact);
+	}
+
+	/**
+	 * Returns the set with only the empty string,
+	 * which carries no information.
+	 *
+	 * @return the set with the empty string
+	 */
+	private static TreeSet<String> unknownSet() {
+		TreeSet<String> set = new TreeSet<String>();
+		set.add("");
+		return set;
+	}
+
+	/**
+	 * Returns the set of every string from the first set
+	 * followed by a string from the second set.
+	 *
+	 * @param first the first set of strings
+	 * @param second the second set of strings
+	 * @return the concatenated strings, or null if there would be too many
+	 */
+	private static TreeSet<String> cross(TreeSet<String> first, TreeSet<String> second) {
+		if (first.size() * second.size() > MAX_SET_SIZE) {
+			return null;
+		}
+		TreeSet<String> strings = new TreeSet<String>();
+		for (String s: first) {
+			for (String t: second) {
+				strings.add(s + t);
+			}
+		}
+		return strings;
+	}
+
+	/**
+	 * Returns the union of the two sets, or a set with
+	 * only the empty string if the union has too many strings.
+	 *
+	 * @param first the first set of strings
+	 * @param second the second set of strings
+	 * @return the union of the sets
+	 */
+	private static TreeSet<String> union(TreeSet<String> first, TreeSet<String> second) {
+		if (first.contains("") || second.contains("")) {
+			return unknownSet();
+		}
+		TreeSet<String> strings = new TreeSet<String>(first);
+		strings.addAll(second);
+		return (strings.size() > MAX_SET_SIZE) ? unknownSet() : strings;
+	}
+
+	/**
+	 * Returns the set that is better for skipping input, which
+	 * is the set whose shortest string is longer, or the smaller
+	 * set if the shortest strings have the same length.
+	 *
+	 * @param first a set of strings
+	 * @param second a set of strings, or null
+	 * @return the better set
+	 */
+	private static TreeSet<String> best(TreeSet<String> first, TreeSet<String> second) {
+		if (second == null) {
+			return first;
+		}
+		int firstLength = shortestLength(first);
+		int secondLength = shortestLength(second);
+		if (firstLength != secondLength) {
+			return (firstLength > secondLength) ? first : second;
+		}
+		return (second.size() < first.size()) ? second : first;
+	}
+
+	/**
+	 * Returns the length of the shortest string in the set.
+	 *
+	 * @param set a non-empty set of strings
+	 * @return the length of the shortest string
+	 */
+	private static int shortestLength(TreeSet<String> set) {
+		int length = Integer.MAX_VALUE;
+		for (String s: set) {
+			length = Math.min(length, s.length());
+		}
+		return length;
+	}
+}
@@ -1,5 +1,8 @@
 package cs3240.regex.ast;
 import cs3240.regex.automaton.NFA;
+import cs3240.regex.automaton.NFABuilder;
+import cs3240.regex.derivative.Term;
+import cs3240.regex.derivative.TermFactory;
 
 /**
  * This class represents the one or more repetition
@@ -48,4 +51,83 @@ public class OneOrMoreRepNode extends RegexAstNode {
 		nfa.allowOneOrMoreRep(); // Allow one or more repetitions for the child NFA
 		return nfa;
 	}
+
+	/**
+	 * Adds a fragment that matches one or more repetitions
+	 * of the child fragment to the inputed builder.
+	 * 
+	 * @param builder the builder to add the states to
+	 * @return a fragment which matches one or more repetitions of the child
+	 * 
+	 * @see RegexAstNode#generateFragment(NFABuilder)
+	 */
+	@Override
+	public NFABuilder.Fragment generateFragment(NFABuilder builder) {
+		NFABuilder.Fragment fragment = this.leftChild.generateFragment(builder);
+		fragment.allowOneOrMoreRep();
+		return fragment;
+	}
+
+	/**
+	 * Computes the position sets for one or more
+	 * repetitions of the regular expression represented
+	 * by the child node.
+	 * 
+	 * @return the position sets of one or more repetitions of the child
+	 * 
+	 * @see RegexAstNode#generatePositions()
+	 */
+	@Override
+	public PositionSets generatePositions() {
+		PositionSets positions = this.leftChild.generatePositions();
+		positions.allowOneOrMoreRep(); // Allow one or more repetitions for the child positions
+		return positions;
+	}
+
+	/**
+	 * Computes the literal information for one or more
+	 * repetitions of the regular expression represented
+	 * by the child node.
+	 * 
+	 * @return the literal information of one or more repetitions of the child
+	 * 
+	 * @see RegexAstNode#analyzeLiterals()
+	 */
+	@Override
+	public LiteralInfo analyzeLiterals() {
+		return LiteralInfo.oneOrMore(this.leftChild.analyzeLiterals());
+	}
+
+	/**
+	 * Creates the term for one or more repetitions of
+	 * the regular expression represented by the child node.
+	 * 
+	 * @param factory the factory to create the term with
+	 * @return a term for one or more repetitions of the child term
+	 * 
+	 * @see RegexAstNode#toTerm(TermFactory)
+	 */
+	@Override
+	public Term toTerm(TermFactory factory) {
+		return factory.plus(this.leftChild.toTerm(factory));
+	}
+
+	/**
+	 * Returns the optimized repetition of the optimized child.
+	 * Nested repetitions are collapsed, since (X+)+ matches the 
+	 * same strings as X+, and (X*)+ matches the same strings as X*.
+	 * 
+	 * @return the optimized repetition
+	 * 
+	 * @see RegexAstNode#optimize()
+	 */
+	@Override
+	public RegexAstNode optimize() {
+		RegexAstNode child = this.leftChild.optimize();
+		if (child instanceof ZeroOrMoreRepNode || child instanceof OneOrMoreRepNode
+				|| child instanceof EpsilonNode) {
+			return child;
+		}
+		return new OneOrMoreRepNode(child);
+	}
 }
@@ -0,0 +1,198 @@
+package cs3240.regex.ast;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import cs3240.regex.automaton.NFAState;
+
+/**
+ * This class holds the sets used to build a position
+ * automaton (Glushkov automaton) for the regular expression
+ * represented by a node in the AST. Each character position
+ * in the regular expression is given a single NFAState, and a
+ * transition into a position is made for every character that
+ * the position matches.
+ *
+ * The sets hold whether the regular expression matches the
+ * empty string (nullable), the positions that can match the
+ * first character of a string (first), and the positions that
+ * can match the last character of a string (last). The follow
+ * transitions between positions are added to the NFAStates
+ * while the sets are built, so no epsilon transitions are needed.
+ */
+public class PositionSets {
+
+	/** A boolean on whether the regular expression matches the empty string. */
+	private boolean nullable;
+
+	/** The positions that can match the first character of a string. */
+	private ArrayList<Position> first;
+
+	/** The positions that can match the last character of a string. */
+	private ArrayList<Position> last;
+
+	/**
+	 * Creates the sets for a regular expression
+	 * with no positions.
+	 *
+	 * @param nullable a boolean on whether the regular expression matches the empty string
+	 */
+	public PositionSets(boolean nullable) {
+		this.nullable = nullable;
+		this.first = new ArrayList<Position>();
+		this.last = new ArrayList<Position>();
+	}
+
+	/**
+	 * Creates the sets for a regular expression that
+	 * matches a single character from the inputed characters.
+	 * A new NFAState is created for the position.
+	 *
+	 * @param characters the characters matched by the position
+	 */
+	public PositionSets(Collection<Character> characters) {
+		this(false);
+		Position position = new Position(new NFAState(), characters);
+		first.add(position);
+		last.add(position);
+	}
+
+	/**
+	 * Returns the sets for the concatenation of the regular
+	 * expressions represented by the inputed sets, and adds
+	 * the transitions from the last positions of the left
+	 * expression to the first positions of the right expression.
+	 *
+	 * @param left the sets of the left-side regular expression
+	 * @param right the sets of the right-side regular expression
+	 * @return the sets of the concatenation
+	 */
+	public static PositionSets concatenate(PositionSets left, PositionSets right) {
+		addFollowTransitions(left.last, right.first);
+
+		PositionSets sets = new PositionSets(left.nullable && right.nullable);
+		// The right expression can match the first character if the left can be empty
+		sets.first.addAll(left.first);
+		if (left.nullable) {
+			sets.first.addAll(right.first);
+		}
+		// The left expression can match the last character if the right can be empty
+		sets.last.addAll(right.last);
+		if (right.nullable) {
+			sets.last.addAll(left.last);
+		}
+		return sets;
+	}
+
+	/**
+	 * Returns the sets for the union of the regular
+	 * expressions represented by the inputed sets.
+	 *
+	 * @param left the sets of the left-side regular expression
+	 * @param right the sets of the right-side regular expression
+	 * @return the sets of the union
+	 */
+	public static PositionSets union(PositionSets left, PositionSets right) {
+		PositionSets sets = new PositionSets(left.nullable || right.nullable);
+		sets.first.addAll(left.first);
+		sets.first.addAll(right.first);
+		sets.last.addAll(left.last);
+		sets.last.addAll(right.last);
+		return sets;
+	}
+
+	/**
+	 * Modifies the sets to allow one or more repetitions of
+	 * the regular expression, by adding the transitions
+	 * from the last positions back to the first positions.
+	 */
+	public void allowOneOrMoreRep() {
+		addFollowTransitions(last, first);
+	}
+
+	/**
+	 * Modifies the sets to allow zero or more repetitions of
+	 * the regular expression, by adding the transitions
+	 * from the last positions back to the first positions.
+	 */
+	public void allowZeroOrMoreRep() {
+		addFollowTransitions(last, first);
+		nullable = true;
+	}
+
+	/**
+	 * Adds the transitions from the inputed state to the
+	 * first positions, and sets the last positions as the
+	 * terminating states, as well as the inputed state if the
+	 * regular expression matches the empty string. The inputed
+	 * state then acts as the start state of the position automaton.
+	 *
+	 * @param start_state the start state of the position automaton
+	 * @return the terminating states of the position automaton
+	 */
+	public ArrayList<NFAState> complete(NFAState start_state) {
+		ArrayList<Position> start = new ArrayList<Position>();
+		start.add(new Position(start_state, null));
+		addFollowTransitions(start, first);
+
+		ArrayList<NFAState> terminatingStates = new ArrayList<NFAState>();
+		if (nullable) {
+			terminatingStates.add(start_state);
+		}
+		for (Position position: last) {
+			terminatingStates.add(position.state);
+		}
+		return terminatingStates;
+	}
+
+	/**
+	 * Returns whether the regular expression matches the empty string.
+	 *
+	 * @return true if the regular expression is nullable
+	 */
+	public boolean isNullable() {
+		return nullable;
+	}
+
+	/**
+	 * Adds a transition from each position in the from list
+	 * to each position in the to list, for every character
+	 * that the position in the to list matches.
+	 *
+	 * @param from the positions to transition from
+	 * @param to the positions to transition to
+	 */
+	private static void addFollowTransitions(ArrayList<Position> from, ArrayList<Position> to) {
+		for (Position dest: to) {
+			for (Character c: dest.characters) {
+				for (Position src: from) {
+					src.state.addTransition(c.charValue(), dest.state);
+				}
+			}
+		}
+	}
+
+	/**
+	 * This class represents a single character position
+	 * in the regular expression, which is the NFAState
+	 * for the position and the characters it matches.
+	 */
+	private static class Position {
+
+		/** The NFAState for the position. */
+		private NFAState state;
+
+		/** The characters matched by the position. */
+		private Collection<Character> characters;
+
+		/**
+		 * Creates a position for the inputed state and characters.
+		 *
+		 * @param state the NFAState for the position
+		 * @param characters the characters matched by the position
+		 */
+		public Position(NFAState state, Collection<Character> characters) {
+			this.state = state;
+			this.characters = characters;
+		}
+	}
+}
@@ -1,6 +1,13 @@
 package cs3240.regex.ast;
+import java.util.Collection;
+import java.util.Collections;
+
+import cs3240.regex.automaton.ByteClasses;
 import cs3240.regex.automaton.NFA;
+import cs3240.regex.automaton.NFABuilder;
 import cs3240.regex.automaton.NFAState;
+import cs3240.regex.derivative.Term;
+import cs3240.regex.derivative.TermFactory;
 
 /**
  * This class represent the base regular expression
@@ -50,4 +57,88 @@ public class ReCharNode extends RegexAstNode {
 		return nfa;
 	}
 
+	/**
+	 * Adds a fragment that matches to the character stored
+	 * in the value field to the inputed builder.
+	 * 
+	 * @param builder the builder to add the states to
+	 * @return a fragment which matches to the specified character
+	 * 
+	 * @see RegexAstNode#generateFragment(NFABuilder)
+	 */
+	@Override
+	public NFABuilder.Fragment generateFragment(NFABuilder builder) {
+		int start_state = builder.newState();
+		int end_state = builder.newState();
+		builder.addTransition(start_state, value.charAt(0), end_state);
+		NFABuilder.Fragment fragment = builder.newFragment(start_state);
+		fragment.addTerminatingState(end_state);
+		return fragment;
+	}
+
+	/**
+	 * Returns the position sets for a single position
+	 * that matches the character stored in the value field.
+	 * 
+	 * @return the position sets of the character
+	 * 
+	 * @see RegexAstNode#generatePositions()
+	 */
+	@Override
+	public PositionSets generatePositions() {
+		return new PositionSets(Collections.singletonList(Character.valueOf(value.charAt(0))));
+	}
+
+	/**
+	 * Returns the literal information for the character 
+	 * stored in the value field, which is matched exactly.
+	 * 
+	 * @return the literal information of the character
+	 * 
+	 * @see RegexAstNode#analyzeLiterals()
+	 */
+	@Override
+	public LiteralInfo analyzeLiterals() {
+		return LiteralInfo.characters(Collections.singletonList(Character.valueOf(value.charAt(0))));
+	}
+
+	/**
+	 * Refines the character classes so that the character
+	 * stored in the value field is in a class of its own.
+	 * 
+	 * @param classes the character classes to refine
+	 * 
+	 * @see RegexAstNode#addCharacterClasses(ByteClasses)
+	 */
+	@Override
+	public void addCharacterClasses(ByteClasses classes) {
+		classes.addCharacter(value.charAt(0));
+	}
+
+	/**
+	 * Creates the term that matches the character
+	 * stored in the value field.
+	 * 
+	 * @param factory the factory to create the term with
+	 * @return a term matching the character
+	 * 
+	 * @see RegexAstNode#toTerm(TermFactory)
+	 */
+	@Override
+	public Term toTerm(TermFactory factory) {
+		return factory.character(value.charAt(0));
+	}
+
+	/**
+	 * Returns the character stored in the value field,
+	 * which is the only character the node matches.
+	 * 
+	 * @return the character of the node
+	 * 
+	 * @see RegexAstNode#getSingleCharacters()
+	 */
+	@Override
+	public Collection<Character> getSingleCharacters() {
+		return Collections.singletonList(Character.valueOf(value.charAt(0)));
+	}
 }
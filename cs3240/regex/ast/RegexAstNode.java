@@ -1,5 +1,13 @@
 package cs3240.regex.ast;
+import java.util.Collection;
+
+import cs3240.regex.automaton.ByteClasses;
 import cs3240.regex.automaton.NFA;
+import cs3240.regex.automaton.NFAArena;
+import cs3240.regex.automaton.NFABuilder;
+import cs3240.regex.automaton.NFAState;
+import cs3240.regex.derivative.Term;
+import cs3240.regex.derivative.TermFactory;
 
 /**
  * This abstract class represents the implementation 
@@ -121,4 +129,194 @@ public abstract class RegexAstNode {
 	 * @return the NFA represented by the node
 	 */
 	public abstract NFA generateNFA();
+	
+	/**
+	 * This method adds the states of the NFA that represents the 
+	 * regex given by the AST to the inputed builder, and returns the 
+	 * fragment holding them. The NFA is the same as the one from 
+	 * {@link #generateNFA()}, but it is built straight into the arrays 
+	 * of an arena instead of a graph of NFAStates.
+	 * 
+	 * This method should be implemented by all subclasses.
+	 * @param builder the builder to add the states to
+	 * @return the fragment of the NFA represented by the node
+	 */
+	public abstract NFABuilder.Fragment generateFragment(NFABuilder builder);
+	
+	/**
+	 * This method builds the arena holding the NFA that represents 
+	 * the regex given by the AST, where the given node acts as the root 
+	 * of the AST. The terminating states get the inputed type, and the 
+	 * transitions are grouped by the classes of {@link #getByteClasses()}.
+	 * 
+	 * @param type the type of the terminating states
+	 * @return the arena holding the NFA represented by the node
+	 */
+	public NFAArena generateArena(String type) {
+		NFABuilder builder = new NFABuilder(getByteClasses());
+		return builder.toArena(generateFragment(builder), type);
+	}
+	
+	/**
+	 * This method computes the sets used to build the position 
+	 * automaton for the regex given by the AST, where the given node
+	 * acts as the root of the AST. A new NFAState is created for each
+	 * character position, and the transitions between the positions
+	 * that can follow each other are added while the sets are computed.
+	 * 
+	 * This method should be implemented by all subclasses.
+	 * @return the position sets represented by the node
+	 * @see PositionSets
+	 */
+	public abstract PositionSets generatePositions();
+	
+	/**
+	 * This method creates the term that represents the regex given 
+	 * by the AST, where the given node acts as the root of the AST.
+	 * The term can be used to build a DFA from derivatives, see
+	 * {@link cs3240.regex.derivative.DerivativeCompiler}.
+	 * 
+	 * This method should be implemented by all subclasses.
+	 * @param factory the factory to create the term with
+	 * @return the term represented by the node
+	 */
+	public abstract Term toTerm(TermFactory factory);
+	
+	/**
+	 * This method computes the literal strings that are known about
+	 * the strings matched by the regex given by the AST, where the given
+	 * node acts as the root of the AST. The required literals of the root
+	 * node must appear in every match, so input without them can be skipped.
+	 * 
+	 * This method should be implemented by all subclasses.
+	 * @return the literal information represented by the node
+	 * @see LiteralInfo
+	 */
+	public abstract LiteralInfo analyzeLiterals();
+	
+	/**
+	 * This method returns an AST that matches the same strings as the
+	 * AST rooted at the node, but generates an automaton with fewer
+	 * states. The returned AST can share nodes with the original AST,
+	 * so the original AST should not be used afterwards.
+	 * 
+	 * By default, the node is returned unchanged. Nodes with children
+	 * should override this method.
+	 * 
+	 * @return the optimized AST
+	 */
+	public RegexAstNode optimize() {
+		return this;
+	}
+	
+	/**
+	 * Returns the characters matched by the node if the node
+	 * matches exactly one character from a set of characters,
+	 * such as a character or a character set. Such nodes can be 
+	 * merged into a single character set in a union.
+	 * 
+	 * By default, null is returned. Nodes that match a single
+	 * character should override this method.
+	 * 
+	 * @return the characters the node matches, or null if the node does not match a single character
+	 */
+	public Collection<Character> getSingleCharacters() {
+		return null;
+	}
+	
+	/**
+	 * Returns a canonical string form of the regex given by the AST,
+	 * where the given node acts as the root of the AST. Regexes that
+	 * only differ in how they are written, such as the order of the
+	 * characters in a set, have the same canonical form, so the form
+	 * can be used as a key for the automata compiled from the regex.
+	 * 
+	 * @return the canonical form of the regex
+	 */
+	public String getCanonicalForm() {
+		StringBuilder builder = new StringBuilder();
+		appendCanonicalForm(builder);
+		return builder.toString();
+	}
+	
+	/**
+	 * Appends the canonical form of the AST rooted at the node to the
+	 * inputed builder. By default, the form is the name of the node 
+	 * type, the value of the node prefixed by its length, and the forms
+	 * of the children. Nodes whose value is not canonical should override
+	 * this method.
+	 * 
+	 * @param builder the builder to append the canonical form to
+	 */
+	protected void appendCanonicalForm(StringBuilder builder) {
+		builder.append(getClass().getSimpleName()).append('(');
+		builder.append(value.length()).append(':').append(value);
+		if (leftChild != null) {
+			builder.append(',');
+			leftChild.appendCanonicalForm(builder);
+		}
+		if (rightChild != null) {
+			builder.append(',');
+			rightChild.appendCanonicalForm(builder);
+		}
+		builder.append(')');
+	}
+	
+	/**
+	 * This method generates the position automaton (Glushkov automaton)
+	 * that represents the regex given by the AST, where the given node 
+	 * acts as the root of the AST. Unlike the NFA from {@link #generateNFA()}, 
+	 * the NFA has no epsilon transitions, and only has a start state and
+	 * one state for each character position in the regex.
+	 * 
+	 * @return the position automaton represented by the node
+	 */
+	public NFA generatePositionNFA() {
+		NFAState start_state = new NFAState();
+		PositionSets positions = generatePositions();
+		
+		// Create the NFA with the start state and the terminating positions
+		NFA nfa = new NFA();
+		nfa.setStartState(start_state);
+		for (NFAState state: positions.complete(start_state)) {
+			nfa.addTerminatingState(state);
+		}
+		return nfa;
+	}
+	
+	/**
+	 * Refines the inputed character classes so that no
+	 * character class contains both a character that is matched 
+	 * by an element of the AST rooted at the node and a character
+	 * that is not matched by that element.
+	 * 
+	 * By default, the classes are refined by the children of the node.
+	 * Nodes that match characters should override this method.
+	 * 
+	 * @param classes the character classes to refine
+	 */
+	public void addCharacterClasses(ByteClasses classes) {
+		if (leftChild != null) {
+			leftChild.addCharacterClasses(classes);
+		}
+		if (rightChild != null) {
+			rightChild.addCharacterClasses(classes);
+		}
+	}
+	
+	/**
+	 * Returns the character classes for the regex given by 
+	 * the AST, where the given node acts as the root of the AST.
+	 * The printable characters are never in the same class as the
+	 * other characters, and two printable characters are only in 
+	 * the same class if the regex can not tell them apart.
+	 * 
+	 * @return the character classes of the regex
+	 */
+	public ByteClasses getByteClasses() {
+		ByteClasses classes = new ByteClasses();
+		classes.addCharacterRange((char) 32, (char) 126); // Separate the printable characters
+		addCharacterClasses(classes);
+		return classes;
+	}
 }
@@ -1,6 +1,12 @@
 package cs3240.regex.ast;
+import java.util.Collection;
+
+import cs3240.regex.automaton.ByteClasses;
 import cs3240.regex.automaton.NFA;
+import cs3240.regex.automaton.NFABuilder;
 import cs3240.regex.automaton.NFAState;
+import cs3240.regex.derivative.Term;
+import cs3240.regex.derivative.TermFactory;
 
 /**
  * This class is a special sub-class of 
@@ -101,8 +107,101 @@ public class SetNode extends RegexAstNode {
 		nfa.addTerminatingState(end_state);
 		return nfa;
 	}
+
+	/**
+	 * Adds a fragment that matches any character
+	 * in the set to the inputed builder.
+	 * 
+	 * @param builder the builder to add the states to
+	 * @return a fragment which matches any character in the set
+	 * 
+	 * @see RegexAstNode#generateFragment(NFABuilder)
+	 */
+	@Override
+	public NFABuilder.Fragment generateFragment(NFABuilder builder) {
+		int start_state = builder.newState();
+		int end_state = builder.newState();
+		for (Character c: this.set.getCharactersInSet()) {
+			builder.addTransition(start_state, c.charValue(), end_state);
+		}
+		NFABuilder.Fragment fragment = builder.newFragment(start_state);
+		fragment.addTerminatingState(end_state);
+		return fragment;
+	}
 	
 	
+	/**
+	 * Returns the position sets for a single position
+	 * that matches any character in the character set.
+	 * 
+	 * @return the position sets of the character set
+	 * 
+	 * @see RegexAstNode#generatePositions()
+	 */
+	@Override
+	public PositionSets generatePositions() {
+		return new PositionSets(this.set.getCharactersInSet());
+	}
+
+	/**
+	 * Returns the literal information for a single character
+	 * from the character set, which is known exactly if the
+	 * set is small.
+	 * 
+	 * @return the literal information of the character set
+	 * 
+	 * @see RegexAstNode#analyzeLiterals()
+	 */
+	@Override
+	public LiteralInfo analyzeLiterals() {
+		return LiteralInfo.characters(this.set.getCharactersInSet());
+	}
+	
+	/**
+	 * Returns the characters in the character set.
+	 * 
+	 * @return the characters of the set
+	 * 
+	 * @see RegexAstNode#getSingleCharacters()
+	 */
+	@Override
+	public Collection<Character> getSingleCharacters() {
+		return this.set.getCharactersInSet();
+	}
+	
+	/**
+	 * Appends the characters in the character set in increasing order,
+	 * so sets with the same characters have the same canonical form no
+	 * matter how they were written. This also covers negative sets, 
+	 * whose character set already has the excluded characters removed.
+	 * 
+	 * @param builder the builder to append the canonical form to
+	 * 
+	 * @see RegexAstNode#appendCanonicalForm(StringBuilder)
+	 */
+	@Override
+	protected void appendCanonicalForm(StringBuilder builder) {
+		builder.append("SetNode[");
+		for (Character c: this.set.getCharactersInSet()) {
+			builder.append(c.charValue());
+		}
+		builder.append(']');
+	}
+	
+	/**
+	 * Refines the character classes so that the characters
+	 * in the character set are in different classes than 
+	 * the characters outside of the set.
+	 * 
+	 * @param classes the character classes to refine
+	 * 
+	 * @see RegexAstNode#addCharacterClasses(ByteClasses)
+	 */
+	@Override
+	public void addCharacterClasses(ByteClasses classes) {
+		classes.addCharacters(this.set.getCharactersInSet());
+	}
+	
 	/**
 	 * Returns the CharacterSet stored in the node
 	 * 
@@ -140,4 +239,17 @@ public class SetNode extends RegexAstNode {
 		super.setValue(value);
 	}
 
+	/**
+	 * Creates the term that matches any character
+	 * in the character set.
+	 * 
+	 * @param factory the factory to create the term with
+	 * @return a term matching a character in the set
+	 * 
+	 * @see RegexAstNode#toTerm(TermFactory)
+	 */
+	@Override
+	public Term toTerm(TermFactory factory) {
+		return factory.characters(this.set.getCharactersInSet());
+	}
 }
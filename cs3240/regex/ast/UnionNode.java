@@ -1,5 +1,16 @@
 package cs3240.regex.ast;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.TreeSet;
+
 import cs3240.regex.automaton.NFA;
+import cs3240.regex.automaton.NFABuilder;
+import cs3240.regex.derivative.Term;
+import cs3240.regex.derivative.TermFactory;
 
 /**
  * This class represents the union 
@@ -45,4 +56,239 @@ public class UnionNode extends RegexAstNode {
 		nfa.union(this.rightChild.generateNFA());
 		return nfa;
 	}
+
+	/**
+	 * Adds a fragment that is the union of the fragments of
+	 * the left and right child nodes to the inputed builder.
+	 * 
+	 * @param builder the builder to add the states to
+	 * @return a fragment which matches the union of the child nodes
+	 * 
+	 * @see RegexAstNode#generateFragment(NFABuilder)
+	 */
+	@Override
+	public NFABuilder.Fragment generateFragment(NFABuilder builder) {
+		NFABuilder.Fragment fragment = this.leftChild.generateFragment(builder);
+		fragment.union(this.rightChild.generateFragment(builder));
+		return fragment;
+	}
+
+	/**
+	 * Computes the position sets for the union of the
+	 * two regular expressions represented by the left
+	 * and right child nodes.
+	 * 
+	 * @return the position sets of the union
+	 * 
+	 * @see RegexAstNode#generatePositions()
+	 */
+	@Override
+	public PositionSets generatePositions() {
+		return PositionSets.union(this.leftChild.generatePositions(), this.rightChild.generatePositions());
+	}
+
+	/**
+	 * Computes the literal information for the union of the
+	 * two regular expressions represented by the left
+	 * and right child nodes.
+	 * 
+	 * @return the literal information of the union
+	 * 
+	 * @see RegexAstNode#analyzeLiterals()
+	 */
+	@Override
+	public LiteralInfo analyzeLiterals() {
+		return LiteralInfo.union(this.leftChild.analyzeLiterals(), this.rightChild.analyzeLiterals());
+	}
+
+	/**
+	 * Creates the term for the union of the two regular
+	 * expressions represented by the left and right child nodes.
+	 * 
+	 * @param factory the factory to create the term with
+	 * @return a term for the union of the child terms
+	 * 
+	 * @see RegexAstNode#toTerm(TermFactory)
+	 */
+	@Override
+	public Term toTerm(TermFactory factory) {
+		return factory.union(this.leftChild.toTerm(factory), this.rightChild.toTerm(factory));
+	}
+
+	/**
+	 * Returns the optimized union of the optimized
+	 * alternatives of the union, see {@link #alternation(List)}.
+	 * 
+	 * @return the optimized union
+	 * 
+	 * @see RegexAstNode#optimize()
+	 */
+	@Override
+	public RegexAstNode optimize() {
+		ArrayList<RegexAstNode> alternatives = new ArrayList<RegexAstNode>();
+		for (RegexAstNode alternative: getAlternatives(this)) {
+			alternatives.add(alternative.optimize());
+		}
+		return alternation(alternatives);
+	}
+	
+	/**
+	 * Returns the alternatives of the inputed node, which are the
+	 * nodes that are not unions in the chain of unions rooted at 
+	 * the node, from left to right. A node that is not a union is
+	 * its only alternative. The chain is walked without recursion.
+	 * 
+	 * @param node the root of the chain of unions
+	 * @return the alternatives of the node
+	 */
+	static ArrayList<RegexAstNode> getAlternatives(RegexAstNode node) {
+		ArrayList<RegexAstNode> alternatives = new ArrayList<RegexAstNode>();
+		ArrayDeque<RegexAstNode> stack = new ArrayDeque<RegexAstNode>();
+		stack.push(node);
+		while (!stack.isEmpty()) {
+			RegexAstNode top = stack.pop();
+			if (top instanceof UnionNode) {
+				stack.push(top.rightChild);
+				stack.push(top.leftChild);
+			} else {
+				alternatives.add(top);
+			}
+		}
+		return alternatives;
+	}
+	
+	/**
+	 * Returns a node for the union of the inputed optimized nodes.
+	 * The nodes are flattened into their alternatives, and then:
+	 * 
+	 * duplicate alternatives are removed
+	 * alternatives that start with the same factor are joined into
+	 * the factor followed by the union of the rest of the alternatives
+	 * alternatives that match a single printable character are merged into a set
+	 * 
+	 * The alternatives are joined into a balanced tree of unions,
+	 * which generates an NFA with as many states as a chain.
+	 * 
+	 * @param nodes the optimized nodes to join
+	 * @return the union of the nodes
+	 */
+	static RegexAstNode alternation(List<RegexAstNode> nodes) {
+		// Remove the duplicate alternatives, keeping the first of each
+		LinkedHashMap<String, RegexAstNode> unique = new LinkedHashMap<String, RegexAstNode>();
+		for (RegexAstNode node: nodes) {
+			for (RegexAstNode alternative: getAlternatives(node)) {
+				String form = alternative.getCanonicalForm();
+				if (!unique.containsKey(form)) {
+					unique.put(form, alternative);
+				}
+			}
+		}
+		
+		// Group the alternatives by their first factor
+		LinkedHashMap<String, ArrayList<RegexAstNode>> groups = new LinkedHashMap<String, ArrayList<RegexAstNode>>();
+		for (RegexAstNode alternative: unique.values()) {
+			String first = ConcatNode.getFactors(alternative).get(0).getCanonicalForm();
+			if (!groups.containsKey(first)) {
+				groups.put(first, new ArrayList<RegexAstNode>());
+			}
+			groups.get(first).add(alternative);
+		}
+		ArrayList<RegexAstNode> alternatives = new ArrayList<RegexAstNode>();
+		for (ArrayList<RegexAstNode> group: groups.values()) {
+			if (group.size() == 1) {
+				alternatives.add(group.get(0));
+				continue;
+			}
+			// Factor the first factor out of the alternatives: ab|ac => a(b|c)
+			RegexAstNode prefix = ConcatNode.getFactors(group.get(0)).get(0);
+			ArrayList<RegexAstNode> rests = new ArrayList<RegexAstNode>();
+			for (RegexAstNode alternative: group) {
+				List<RegexAstNode> factors = ConcatNode.getFactors(alternative);
+				rests.add(ConcatNode.concatenate(factors.subList(1, factors.size())));
+			}
+			alternatives.add(ConcatNode.concatenate(Arrays.asList(prefix, alternation(rests))));
+		}
+		
+		// Merge the alternatives that match a single printable character into a set
+		TreeSet<Character> characters = new TreeSet<Character>();
+		int first_index = -1; // The index of the first single character alternative
+		int num_merged = 0;
+		for (int i = 0; i < alternatives.size(); ++i) {
+			Collection<Character> single = alternatives.get(i).getSingleCharacters();
+			if (single != null && isPrintable(single)) {
+				characters.addAll(single);
+				if (first_index == -1) {
+					first_index = i;
+				}
+				++num_merged;
+			}
+		}
+		if (num_merged > 1) {
+			ArrayList<RegexAstNode> merged = new ArrayList<RegexAstNode>();
+			for (int i = 0; i < alternatives.size(); ++i) {
+				if (i == first_index) {
+					merged.add(createSet(characters));
+				} else if (alternatives.get(i).getSingleCharacters() == null
+						|| !isPrintable(alternatives.get(i).getSingleCharacters())) {
+					merged.add(alternatives.get(i));
+				}
+			}
+			alternatives = merged;
+		}
+		return balance(alternatives, 0, alternatives.size());
+	}
+	
+	/**
+	 * Checks to see if every inputed character is an ASCII 
+	 * printable character, which can be put in a character set.
+	 * 
+	 * @param characters the characters to check
+	 * @return true if every character is printable
+	 */
+	private static boolean isPrintable(Collection<Character> characters) {
+		for (Character c: characters) {
+			if (c.charValue() < 32 || c.charValue() > 126) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Creates a set node matching the inputed printable characters.
+	 * 
+	 * @param characters the printable characters of the set
+	 * @return a set node matching the characters
+	 */
+	private static SetNode createSet(Collection<Character> characters) {
+		SetNode node = new SetNode();
+		StringBuilder builder = new StringBuilder("[");
+		try {
+			for (Character c: characters) {
+				node.addCharacter(c.charValue());
+				builder.append(c.charValue());
+			}
+		} catch (Exception e) {
+			// The characters are checked to be printable before the set is created
+			throw new IllegalArgumentException(e.getMessage());
+		}
+		node.setValue(builder.append(']').toString());
+		return node;
+	}
+	
+	/**
+	 * Joins the alternatives in the inputed range into a balanced tree of unions.
+	 * 
+	 * @param alternatives the alternatives to join
+	 * @param from the index of the first alternative
+	 * @param to the index after the last alternative
+	 * @return the union of the alternatives
+	 */
+	private static RegexAstNode balance(List<RegexAstNode> alternatives, int from, int to) {
+		if (to - from == 1) {
+			return alternatives.get(from);
+		}
+		int middle = (from + to) >>> 1;
+		return new UnionNode(balance(alternatives, from, middle), balance(alternatives, middle, to));
+	}
 }
@@ -1,5 +1,10 @@
 package cs3240.regex.ast;
+import java.util.ArrayList;
+
 import cs3240.regex.automaton.NFA;
+import cs3240.regex.automaton.NFABuilder;
+import cs3240.regex.derivative.Term;
+import cs3240.regex.derivative.TermFactory;
 
 
 /**
@@ -45,4 +50,94 @@ public class ZeroOrMoreRepNode extends RegexAstNode {
 		return nfa;
 	}
 
+	/**
+	 * Adds a fragment that matches zero or more repetitions
+	 * of the child fragment to the inputed builder.
+	 * 
+	 * @param builder the builder to add the states to
+	 * @return a fragment which matches zero or more repetitions of the child
+	 * 
+	 * @see RegexAstNode#generateFragment(NFABuilder)
+	 */
+	@Override
+	public NFABuilder.Fragment generateFragment(NFABuilder builder) {
+		NFABuilder.Fragment fragment = this.leftChild.generateFragment(builder);
+		fragment.allowZeroOrMoreRep();
+		return fragment;
+	}
+
+	/**
+	 * Computes the position sets for zero or more
+	 * repetitions of the regular expression represented
+	 * by the child node.
+	 * 
+	 * @return the position sets of zero or more repetitions of the child
+	 * 
+	 * @see RegexAstNode#generatePositions()
+	 */
+	@Override
+	public PositionSets generatePositions() {
+		PositionSets positions = this.leftChild.generatePositions();
+		positions.allowZeroOrMoreRep(); // Allow zero or more repetitions of the child positions
+		return positions;
+	}
+
+	/**
+	 * Computes the literal information for zero or more
+	 * repetitions of the regular expression represented
+	 * by the child node.
+	 * 
+	 * @return the literal information of zero or more repetitions of the child
+	 * 
+	 * @see RegexAstNode#analyzeLiterals()
+	 */
+	@Override
+	public LiteralInfo analyzeLiterals() {
+		return LiteralInfo.zeroOrMore(this.leftChild.analyzeLiterals());
+	}
+
+	/**
+	 * Creates the term for zero or more repetitions of
+	 * the regular expression represented by the child node.
+	 * 
+	 * @param factory the factory to create the term with
+	 * @return a term for zero or more repetitions of the child term
+	 * 
+	 * @see RegexAstNode#toTerm(TermFactory)
+	 */
+	@Override
+	public Term toTerm(TermFactory factory) {
+		return factory.star(this.leftChild.toTerm(factory));
+	}
+
+	/**
+	 * Returns the optimized repetition of the optimized child.
+	 * Nested repetitions are collapsed, since (X*)* and (X+)* match
+	 * the same strings as X*, and epsilon alternatives of a repeated
+	 * union are removed, since (X|)* matches the same strings as X*.
+	 * 
+	 * @return the optimized repetition
+	 * 
+	 * @see RegexAstNode#optimize()
+	 */
+	@Override
+	public RegexAstNode optimize() {
+		RegexAstNode child = this.leftChild.optimize();
+		if (child instanceof ZeroOrMoreRepNode || child instanceof OneOrMoreRepNode) {
+			child = child.getLeftChild();
+		}
+		if (child instanceof UnionNode) {
+			ArrayList<RegexAstNode> alternatives = new ArrayList<RegexAstNode>();
+			for (RegexAstNode alternative: UnionNode.getAlternatives(child)) {
+				if (!(alternative instanceof EpsilonNode)) {
+					alternatives.add(alternative);
+				}
+			}
+			child = alternatives.isEmpty() ? new EpsilonNode() : UnionNode.alternation(alternatives);
+		}
+		if (child instanceof EpsilonNode) {
+			return child; // The only repetition of the empty string is the empty string
+		}
+		return new ZeroOrMoreRepNode(child);
+	}
 }
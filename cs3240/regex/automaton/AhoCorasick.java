@@ -0,0 +1,169 @@
+package cs3240.regex.automaton;
+import java.util.Collection;
+
+/**
+ * This class finds occurrences of a set of literal strings
+ * in a text with the Aho-Corasick algorithm. The literals are
+ * stored in a trie, and the failure links of the trie are used
+ * to build a DFA over the characters with values from 0 to 255,
+ * so the text is scanned once with one table lookup per character.
+ * Characters with values above 255 can not be part of a literal.
+ *
+ * The scanner is used as a prefilter: if every match of a
+ * regular expression contains one of the literals, a match can
+ * only start at or before the start of the last occurrence.
+ */
+public class AhoCorasick {
+
+	/** The number of characters that have transitions. */
+	private static final int NUM_CHARS = 256;
+
+	/** The transitions of the DFA, with NUM_CHARS entries for each node of the trie. */
+	private int[] table;
+
+	/** The length of the shortest literal that ends at each node, or 0 if none does. */
+	private int[] shortest;
+
+	/** The number of nodes in the trie. */
+	private int num_nodes;
+
+	/**
+	 * Creates a scanner for the inputed literals.
+	 *
+	 * @param literals the non-empty literals to search for
+	 * @throws IllegalArgumentException if a literal is empty or has a character above 255
+	 */
+	public AhoCorasick(Collection<String> literals) {
+		int max_nodes = 1;
+		for (String literal: literals) {
+			max_nodes += literal.length();
+		}
+		this.table = new int[max_nodes * NUM_CHARS];
+		this.shortest = new int[max_nodes];
+		this.num_nodes = 1; // The root of the trie is node 0
+
+		/*
+		 * Build the trie of the literals. A transition of 0 means there is no
+		 * transition yet, since no transition in the trie leads back to the root.
+		 */
+		for (String literal: literals) {
+			if (literal.isEmpty()) {
+				throw new IllegalArgumentException("Empty literal");
+			}
+			int node = 0;
+			for (int i = 0; i < literal.length(); ++i) {
+				char c = literal.charAt(i);
+				if (c >= NUM_CHARS) {
+					throw new IllegalArgumentException("Literal character out of range: " + literal);
+				}
+				if (table[node * NUM_CHARS + c] == 0) {
+					table[node * NUM_CHARS + c] = num_nodes++;
+				}
+				node = table[node * NUM_CHARS + c];
+			}
+			if (shortest[node] == 0 || literal.length() < shortest[node]) {
+				shortest[node] = literal.length();
+			}
+		}
+
+		/*
+		 * Visit the nodes in breadth-first order, so the failure node of each
+		 * node is complete before the node. A missing transition is replaced
+		 * by the transition of the failure node, and each node also ends the
+		 * literals that end at its failure node.
+		 */
+		int[] failure = new int[num_nodes];
+		int[] queue = new int[num_nodes];
+		int head = 0;
+		int tail = 0;
+		for (int c = 0; c < NUM_CHARS; ++c) {
+			int child = table[c];
+			if (child != 0) {
+				failure[child] = 0;
+				queue[tail++] = child;
+			}
+		}
+		while (head < tail) {
+			int node = queue[head++];
+			int fail = failure[node];
+			if (shortest[fail] != 0 && (shortest[node] == 0 || shortest[fail] < shortest[node])) {
+				shortest[node] = shortest[fail];
+			}
+			for (int c = 0; c < NUM_CHARS; ++c) {
+				int child = table[node * NUM_CHARS + c];
+				if (child != 0) {
+					failure[child] = table[fail * NUM_CHARS + c];
+					queue[tail++] = child;
+				} else {
+					table[node * NUM_CHARS + c] = table[fail * NUM_CHARS + c];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the index where the last occurrence of a literal
+	 * starts in the inputed range of the text. When several
+	 * occurrences end at the same character, the shortest one
+	 * is used, since it starts last.
+	 *
+	 * @param text the text to search
+	 * @param from the index of the first character to search
+	 * @param to the index after the last character to search
+	 * @return the start index of the last occurrence, or -1 if no literal occurs
+	 */
+	public int lastMatchStart(CharSequence text, int from, int to) {
+		int last = -1;
+		int node = 0;
+		for (int i = from; i < to; ++i) {
+			char c = text.charAt(i);
+			node = (c < NUM_CHARS) ? table[node * NUM_CHARS + c] : 0;
+			// A longer literal ending later can still start before the last start
+			if (shortest[node] != 0 && i + 1 - shortest[node] > last) {
+				last = i + 1 - shortest[node];
+			}
+		}
+		return last;
+	}
+
+	/**
+	 * Returns the indexes after the end of every occurrence of
+	 * a literal in the inputed range of the text, in increasing
+	 * order. An index is only returned once, even if several 
+	 * literals end at the same character.
+	 *
+	 * @param text the text to search
+	 * @param from the index of the first character to search
+	 * @param to the index after the last character to search
+	 * @return the end indexes of the occurrences
+	 */
+	public int[] matchEnds(CharSequence text, int from, int to) {
+		int[] ends = new int[16];
+		int num_ends = 0;
+		int node = 0;
+		for (int i = from; i < to; ++i) {
+			char c = text.charAt(i);
+			node = (c < NUM_CHARS) ? table[node * NUM_CHARS + c] : 0;
+			if (shortest[node] != 0) {
+				if (num_ends == ends.length) {
+					int[] newEnds = new int[2 * num_ends];
+					System.arraycopy(ends, 0, newEnds, 0, num_ends);
+					ends = newEnds;
+				}
+				ends[num_ends++] = i + 1;
+			}
+		}
+		int[] result = new int[num_ends];
+		System.arraycopy(ends, 0, result, 0, num_ends);
+		return result;
+	}
+
+	/**
+	 * Returns the number of nodes in the trie of the literals.
+	 *
+	 * @return the number of nodes
+	 */
+	public int getNodeCount() {
+		return num_nodes;
+	}
+}
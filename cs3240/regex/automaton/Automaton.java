@@ -0,0 +1,60 @@
+package cs3240.regex.automaton;
+
+/**
+ * This interface represents a deterministic automaton
+ * that is traversed one character at a time from its
+ * start state. States are identified by integer ids, 
+ * and one id is reserved for the error state, which is
+ * reached once the input can no longer be matched.
+ */
+public interface Automaton {
+	
+	/**
+	 * Returns the id of the start state of the automaton.
+	 * 
+	 * @return the start state id
+	 */
+	public int getStartID();
+	
+	/**
+	 * Returns the id of the error state of the automaton.
+	 * 
+	 * @return the error state id
+	 */
+	public int getErrorStateID();
+	
+	/**
+	 * Returns the next state found by following the transition 
+	 * for the inputed character from the inputed state.
+	 * 
+	 * @param state_id the id of the a state in the automaton to transition from
+	 * @param c the character transition to follow
+	 * @return an integer for the id of state seen by following the transition
+	 */
+	public int followTransition(int state_id, char c);
+	
+	/**
+	 * Follows the transitions for the characters in the inputed 
+	 * range of the input, starting from the inputed state, and returns
+	 * the state that is reached. The walk stops early once the 
+	 * error state is reached.
+	 * 
+	 * @param input the characters to follow the transitions for
+	 * @param from the index of the first character to follow
+	 * @param to the index after the last character to follow
+	 * @param state_id the id of the state to start from
+	 * @return the id of the state reached after following the transitions, or the error state id
+	 */
+	public int walk(CharSequence input, int from, int to, int state_id);
+	
+	/**
+	 * Checks to see if the inputed state is a terminating state, 
+	 * and if it is, it then returns the data associated with the 
+	 * terminating state. If the state is not terminating, then 
+	 * null is returned.
+	 * 
+	 * @param state_id the id of the state to check if it is terminating
+	 * @return the data associated with the state if it is terminating, or null if the state is not terminating
+	 */
+	public String isTerminatingState(int state_id);
+}
@@ -0,0 +1,314 @@
+package cs3240.regex.automaton;
+
+import java.util.Collection;
+
+/**
+ * This class represents a partition of the characters
+ * with values 0 to 255 into equivalence classes, where
+ * two characters are in the same class if no regular
+ * expression distinguishes between them. Automata that
+ * are built with the classes only need one transition
+ * per class instead of one transition per character.
+ *
+ * The partition starts with every character in a single
+ * class, and is refined each time a set of characters is
+ * added, so that each class is either completely inside
+ * or completely outside of every added set. The classes are
+ * numbered in the order of their lowest character, so the
+ * character 0 is always in class 0. Characters above 255 are 
+ * treated as part of class 0, so the character 0 should
+ * never be added to a set.
+ */
+public class ByteClasses {
+
+	/** The number of characters that are mapped to a class. */
+	private static final int NUM_BYTES = 256;
+
+	/** The ASCII value of the first ASCII printable character. */
+	private static final char PRINTABLE_CHAR_START_VAL = 32;
+
+	/** The ASCII value of the last ASCII printable character. */
+	private static final char PRINTABLE_CHAR_END_VAL = 126;
+
+	/** The class of each character, stored as an unsigned byte. */
+	private byte[] classOf;
+
+	/** The number of classes in the partition. */
+	private int num_classes;
+
+	/** A character in each class, which is printable if the class has a printable character. */
+	private char[] representatives;
+
+	/**
+	 * The default constructor for ByteClasses that
+	 * puts all the characters in a single class.
+	 */
+	public ByteClasses() {
+		this.classOf = new byte[NUM_BYTES];
+		this.num_classes = 1;
+		this.representatives = new char[] { PRINTABLE_CHAR_START_VAL };
+	}
+
+	/**
+	 * Returns the classes where each ASCII printable
+	 * character is in its own class, and all the other
+	 * characters share a single class.
+	 *
+	 * @return the ByteClasses with a class for each printable character
+	 */
+	public static ByteClasses printableCharacters() {
+		ByteClasses classes = new ByteClasses();
+		int num_printable = PRINTABLE_CHAR_END_VAL - PRINTABLE_CHAR_START_VAL + 1;
+		classes.num_classes = num_printable + 1;
+		classes.representatives = new char[classes.num_classes];
+		// Class 0 holds the non-printable characters, and is represented by the character 0
+		for (char c = PRINTABLE_CHAR_START_VAL; c <= PRINTABLE_CHAR_END_VAL; ++c) {
+			int class_id = c - PRINTABLE_CHAR_START_VAL + 1;
+			classes.classOf[c] = (byte) class_id;
+			classes.representatives[class_id] = c;
+		}
+		return classes;
+	}
+
+	/**
+	 * Refines the classes so that the inputed character
+	 * is in a class of its own.
+	 *
+	 * @param c the character to add
+	 */
+	public void addCharacter(char c) {
+		addCharacterRange(c, c);
+	}
+
+	/**
+	 * Refines the classes so that the characters in the
+	 * range from the start character to the end character
+	 * are not in the same class as any character outside
+	 * of the range.
+	 *
+	 * @param startChar the start character in the range
+	 * @param endChar the end character in the range
+	 */
+	public void addCharacterRange(char startChar, char endChar) {
+		boolean[] inSet = new boolean[NUM_BYTES];
+		for (int c = startChar; c <= endChar && c < NUM_BYTES; ++c) {
+			inSet[c] = true;
+		}
+		refine(inSet);
+	}
+
+	/**
+	 * Refines the classes so that the inputed characters
+	 * are not in the same class as any other character.
+	 *
+	 * @param characters a collection of characters
+	 */
+	public void addCharacters(Collection<Character> characters) {
+		boolean[] inSet = new boolean[NUM_BYTES];
+		for (Character c: characters) {
+			if (c.charValue() < NUM_BYTES) {
+				inSet[c.charValue()] = true;
+			}
+		}
+		refine(inSet);
+	}
+
+	/**
+	 * Refines the classes so that two characters are only in
+	 * the same class if they are also in the same class of the
+	 * inputed classes. This is used to find the classes for an
+	 * automaton that combines several automata.
+	 *
+	 * @param other the classes to refine by
+	 */
+	public void addClasses(ByteClasses other) {
+		boolean[] inSet = new boolean[NUM_BYTES];
+		// Every class of the other classes except one has to be added as a set
+		for (int class_id = 1; class_id < other.num_classes; ++class_id) {
+			for (int c = 0; c < NUM_BYTES; ++c) {
+				inSet[c] = ((other.classOf[c] & 0xFF) == class_id);
+			}
+			refine(inSet);
+		}
+	}
+
+	/**
+	 * Returns the coarsest classes that are refined by each class
+	 * together with the other case of every ASCII letter in the class.
+	 * Each letter is then in the same class as its other case, so an
+	 * automaton with a transition for either case of a letter follows
+	 * it for both cases, and the other characters are kept apart the
+	 * same way as in these classes.
+	 *
+	 * @return the case-folded classes
+	 */
+	public ByteClasses foldCase() {
+		ByteClasses folded = new ByteClasses();
+		boolean[] inSet = new boolean[NUM_BYTES];
+		for (int class_id = 0; class_id < num_classes; ++class_id) {
+			for (int c = 0; c < NUM_BYTES; ++c) {
+				inSet[c] = false;
+			}
+			for (int c = 0; c < NUM_BYTES; ++c) {
+				if ((classOf[c] & 0xFF) == class_id) {
+					inSet[c] = true;
+					inSet[otherCase(c)] = true;
+				}
+			}
+			folded.refine(inSet);
+		}
+		return folded;
+	}
+
+	/**
+	 * Returns the other case of the inputed character if it is
+	 * an ASCII letter, or the character itself otherwise.
+	 *
+	 * @param c a character
+	 * @return the other case of the character
+	 */
+	private static int otherCase(int c) {
+		if (c >= 'a' && c <= 'z') {
+			return c - 'a' + 'A';
+		} else if (c >= 'A' && c <= 'Z') {
+			return c - 'A' + 'a';
+		}
+		return c;
+	}
+
+	/**
+	 * Splits every class that contains characters both
+	 * inside and outside of the inputed set.
+	 *
+	 * @param inSet a boolean for each character on whether it is in the set
+	 */
+	private void refine(boolean[] inSet) {
+		/*
+		 * The new class of a character is identified by its old class and whether
+		 * it is in the set. The new classes are numbered in the order they are seen.
+		 */
+		int[] newClass = new int[2 * num_classes];
+		for (int i = 0; i < newClass.length; ++i) {
+			newClass[i] = -1;
+		}
+		int count = 0;
+		for (int c = 0; c < NUM_BYTES; ++c) {
+			int key = 2 * (classOf[c] & 0xFF) + (inSet[c] ? 1 : 0);
+			if (newClass[key] == -1) {
+				newClass[key] = count++;
+			}
+			classOf[c] = (byte) newClass[key];
+		}
+		num_classes = count;
+		chooseRepresentatives();
+	}
+
+	/**
+	 * Picks a character in each class as its representative,
+	 * preferring printable characters.
+	 */
+	private void chooseRepresentatives() {
+		representatives = new char[num_classes];
+		boolean[] printable = new boolean[num_classes];
+		for (int c = 0; c < NUM_BYTES; ++c) {
+			int class_id = classOf[c] & 0xFF;
+			if (!printable[class_id]) {
+				representatives[class_id] = (char) c;
+				printable[class_id] = (c >= PRINTABLE_CHAR_START_VAL && c <= PRINTABLE_CHAR_END_VAL);
+			}
+		}
+	}
+
+	/**
+	 * Returns the classes with the inputed class of each character,
+	 * as returned by {@link #getClassMap()}. This is used to restore
+	 * the classes of a DFA Table that was read back from a file.
+	 *
+	 * @param classMap the class of each character with a value from 0 to 255
+	 * @return the ByteClasses with the inputed classes
+	 * @throws IllegalArgumentException if the classes are not numbered in the order of their lowest character
+	 */
+	static ByteClasses fromClassMap(byte[] classMap) {
+		if (classMap.length != NUM_BYTES) {
+			throw new IllegalArgumentException("Class map must have " + NUM_BYTES + " entries");
+		}
+		ByteClasses classes = new ByteClasses();
+		int count = 0;
+		for (int c = 0; c < NUM_BYTES; ++c) {
+			int class_id = classMap[c] & 0xFF;
+			if (class_id > count) {
+				throw new IllegalArgumentException("Class " + class_id + " is out of order");
+			} else if (class_id == count) {
+				++count;
+			}
+			classes.classOf[c] = (byte) class_id;
+		}
+		classes.num_classes = count;
+		classes.chooseRepresentatives();
+		return classes;
+	}
+
+	/**
+	 * Returns the class of the inputed character.
+	 *
+	 * @param c a character
+	 * @return the class of the character
+	 */
+	public int getClass(char c) {
+		return (c < NUM_BYTES) ? (classOf[c] & 0xFF) : 0;
+	}
+
+	/**
+	 * Returns a copy of the class of each character with 
+	 * a value from 0 to 255, stored as an unsigned byte.
+	 * 
+	 * @return an array holding the class of each character
+	 */
+	byte[] getClassMap() {
+		return classOf.clone();
+	}
+
+	/**
+	 * Returns the number of classes.
+	 *
+	 * @return the number of classes
+	 */
+	public int getNumClasses() {
+		return num_classes;
+	}
+
+	/**
+	 * Returns a character that is in the inputed class, which
+	 * will be a printable character if the class contains one.
+	 * Following the transition for this character is the same as
+	 * following the transition for any other character in the class.
+	 *
+	 * @param class_id the class
+	 * @return a character in the class
+	 */
+	public char getRepresentative(int class_id) {
+		return representatives[class_id];
+	}
+
+	/**
+	 * Returns a string representation of the classes,
+	 * listing the printable characters in each class.
+	 *
+	 * @return the string representation of the ByteClasses
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("ByteClasses [");
+		for (int i = 0; i < num_classes; ++i) {
+			builder.append(i).append(": ");
+			for (char c = PRINTABLE_CHAR_START_VAL; c <= PRINTABLE_CHAR_END_VAL; ++c) {
+				if ((classOf[c] & 0xFF) == i) {
+					builder.append(c);
+				}
+			}
+			builder.append((i + 1 < num_classes) ? ", " : "]");
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,170 @@
+package cs3240.regex.automaton;
+
+/**
+ * This class represents a DFA that is compiled into bytecode
+ * once it has been used to match enough input. Until then, the
+ * transitions are followed in the DFATable. After the number of
+ * characters walked passes the compile threshold, the DFA is compiled
+ * into a {@link DFAMatcher} with the {@link DFABytecodeCompiler}, and
+ * the matcher is used for every following walk. If the DFA can not be
+ * compiled, or is of a shape the compiled code is slower for, the
+ * DFATable keeps being used. Single transitions are always followed in
+ * the DFATable, which is faster than the compiled code for them.
+ *
+ * This class is not thread-safe.
+ */
+public class CompiledDFA implements Automaton {
+
+	/** The default number of characters walked before the DFA is compiled. */
+	public static final long DEFAULT_COMPILE_THRESHOLD = 1L << 16;
+
+	/** The DFA that is compiled. */
+	private DFATable dfa;
+
+	/** The number of characters walked before the DFA is compiled. */
+	private long compileThreshold;
+
+	/** The number of characters walked so far with the DFATable. */
+	private long walkedChars;
+
+	/** The compiled matcher, or null if the DFA has not been compiled. */
+	private DFAMatcher matcher;
+
+	/** A boolean on whether the DFA could not be compiled. */
+	private boolean compileFailed;
+
+	/**
+	 * Creates a compiled DFA for the inputed DFA, which is
+	 * compiled after the default number of characters are walked.
+	 *
+	 * @param dfa the DFA to compile
+	 */
+	public CompiledDFA(DFATable dfa) {
+		this(dfa, DEFAULT_COMPILE_THRESHOLD);
+	}
+
+	/**
+	 * Creates a compiled DFA for the inputed DFA, which is
+	 * compiled once more than the inputed number of characters
+	 * are walked. A threshold of 0 compiles the DFA on the first walk.
+	 *
+	 * @param dfa the DFA to compile
+	 * @param compileThreshold the number of characters walked before the DFA is compiled
+	 */
+	public CompiledDFA(DFATable dfa, long compileThreshold) {
+		this.dfa = dfa;
+		this.compileThreshold = compileThreshold;
+	}
+
+	/**
+	 * Returns the start state id for the DFA.
+	 *
+	 * @return the start state id
+	 * @see Automaton#getStartID()
+	 */
+	public int getStartID() {
+		return dfa.getStartID();
+	}
+
+	/**
+	 * Returns the error state id for the DFA.
+	 *
+	 * @return the error state id
+	 * @see Automaton#getErrorStateID()
+	 */
+	public int getErrorStateID() {
+		return dfa.getErrorStateID();
+	}
+
+	/**
+	 * Returns the next state found by following the transition
+	 * for the inputed character from the inputed state in the
+	 * DFATable. The character does not count towards the compile
+	 * threshold.
+	 *
+	 * @param state_id the id of the a state in the DFA to transition from
+	 * @param c the character transition to follow
+	 * @return an integer for the id of state seen by following the transition
+	 * @see Automaton#followTransition(int, char)
+	 */
+	public int followTransition(int state_id, char c) {
+		return dfa.followTransition(state_id, c);
+	}
+
+	/**
+	 * Follows the transitions for the characters in the inputed
+	 * range of the input, starting from the inputed state. The
+	 * compiled matcher is used once the DFA has been compiled.
+	 *
+	 * @param input the characters to follow the transitions for
+	 * @param from the index of the first character to follow
+	 * @param to the index after the last character to follow
+	 * @param state_id the id of the state to start from
+	 * @return the id of the state reached after following the transitions, or the error state id
+	 * @see Automaton#walk(CharSequence, int, int, int)
+	 */
+	public int walk(CharSequence input, int from, int to, int state_id) {
+		if (matcher != null) {
+			return matcher.walk(input, from, to, state_id);
+		}
+		if (!compileFailed) {
+			walkedChars += to - from;
+			if (walkedChars > compileThreshold) {
+				compile();
+				if (matcher != null) {
+					return matcher.walk(input, from, to, state_id);
+				}
+			}
+		}
+		return dfa.walk(input, from, to, state_id);
+	}
+
+	/**
+	 * Checks to see if the inputed state is a terminating state,
+	 * and if it is, it then returns the data associated with the
+	 * terminating state. If the state is not terminating, then
+	 * null is returned.
+	 *
+	 * @param state_id the id of the state to check if it is terminating
+	 * @return the data associated with the state if it is terminating, or null if the state is not terminating
+	 * @see Automaton#isTerminatingState(int)
+	 */
+	public String isTerminatingState(int state_id) {
+		return dfa.isTerminatingState(state_id);
+	}
+
+	/**
+	 * Returns whether the DFA has been compiled.
+	 *
+	 * @return true if the compiled matcher is being used
+	 */
+	public boolean isCompiled() {
+		return matcher != null;
+	}
+
+	/**
+	 * Returns the DFA that is compiled.
+	 *
+	 * @return the DFATable of the compiled DFA
+	 */
+	public DFATable getDFATable() {
+		return dfa;
+	}
+
+	/**
+	 * Compiles the DFA into a matcher. If the DFA is too large, has
+	 * a state with more than one range of characters, or the matcher
+	 * can not be defined, the DFATable is used instead.
+	 */
+	private void compile() {
+		try {
+			matcher = DFABytecodeCompiler.compile(dfa);
+		} catch (Exception e) {
+			matcher = null;
+		} catch (LinkageError e) {
+			// The generated class was rejected by the JVM
+			matcher = null;
+		}
+		compileFailed = (matcher == null);
+	}
+}
@@ -0,0 +1,268 @@
+package cs3240.regex.automaton;
+
+/**
+ * This class holds the properties of a DFA Table that are found
+ * by looking at its transitions once, before it is used to match.
+ * A driver uses them to skip work that can not lead to a match:
+ *
+ * the characters that a match can start with, so the DFA is not
+ * run from positions where no match starts
+ * the minimum and maximum length of a match, so the DFA is not run
+ * from positions too close to the end of the input, and is stopped
+ * once a match can not get any longer
+ * the live states, from which a terminating state can be reached, so
+ * the DFA is stopped as soon as it reaches a state that is not live,
+ * instead of following transitions until it reaches the error state
+ * the terminating states, so the data of a state is only looked up
+ * for the states that have it
+ */
+public class DFAAnalysis {
+
+	/** The value of the maximum length for a DFA that matches strings of any length. */
+	public static final int UNBOUNDED = -1;
+
+	/** The classes of the transition characters of the DFA. */
+	private ByteClasses classes;
+
+	/** A boolean for each class on whether a match can start with a character in the class. */
+	private boolean[] startClasses;
+
+	/** A boolean for each state on whether a terminating state can be reached from it. */
+	private boolean[] live;
+
+	/** A boolean for each state on whether it is a terminating state. */
+	private boolean[] accepting;
+
+	/** The length of the shortest string the DFA accepts, or -1 if it accepts none. */
+	private int minLength;
+
+	/** The length of the longest string the DFA accepts, or UNBOUNDED. */
+	private int maxLength;
+
+	/**
+	 * Analyzes the inputed DFA Table. The transitions are followed
+	 * backwards from the terminating states to find the live states,
+	 * and forwards from the start state to find the lengths.
+	 *
+	 * @param dfa the DFA Table to analyze
+	 */
+	public DFAAnalysis(DFATable dfa) {
+		this.classes = dfa.getByteClasses();
+		int num_states = dfa.getTableSize(); // Identify the number of states (N) in the DFA
+		int num_classes = classes.getNumClasses();
+		int start_id = dfa.getStartID();
+
+		accepting = new boolean[num_states];
+		for (int s = 0; s < num_states; ++s) {
+			accepting[s] = (dfa.isTerminatingState(s) != null);
+		}
+
+		/*
+		 * Store the transitions backwards, with the states that transition into
+		 * each state stored together. Transitions into the error state, which is
+		 * represented by the index N, are left out.
+		 */
+		int[] inStart = new int[num_states + 1];
+		for (int s = 0; s < num_states; ++s) {
+			for (int c = 0; c < num_classes; ++c) {
+				int t = dfa.target(s, c, num_states);
+				if (t != num_states) {
+					++inStart[t + 1];
+				}
+			}
+		}
+		for (int s = 0; s < num_states; ++s) {
+			inStart[s + 1] += inStart[s];
+		}
+		int[] inStates = new int[inStart[num_states]];
+		int[] fill = inStart.clone();
+		for (int s = 0; s < num_states; ++s) {
+			for (int c = 0; c < num_classes; ++c) {
+				int t = dfa.target(s, c, num_states);
+				if (t != num_states) {
+					inStates[fill[t]++] = s;
+				}
+			}
+		}
+
+		// Find the live states by searching backwards from the terminating states
+		live = new boolean[num_states];
+		int[] queue = new int[num_states];
+		int head = 0;
+		int tail = 0;
+		for (int s = 0; s < num_states; ++s) {
+			if (accepting[s]) {
+				live[s] = true;
+				queue[tail++] = s;
+			}
+		}
+		while (head < tail) {
+			int t = queue[head++];
+			for (int i = inStart[t]; i < inStart[t + 1]; ++i) {
+				int s = inStates[i];
+				if (!live[s]) {
+					live[s] = true;
+					queue[tail++] = s;
+				}
+			}
+		}
+
+		startClasses = new boolean[num_classes];
+		if (num_states == 0 || !live[start_id]) {
+			// The DFA accepts no strings
+			minLength = -1;
+			maxLength = 0;
+			return;
+		}
+		for (int c = 0; c < num_classes; ++c) {
+			int t = dfa.target(start_id, c, num_states);
+			startClasses[c] = (t != num_states && live[t]);
+		}
+
+		/*
+		 * Search forwards from the start state through the live states. The first
+		 * terminating state found gives the minimum length, and the search also
+		 * counts the transitions into each live state that can be reached.
+		 */
+		int[] distance = new int[num_states];
+		for (int s = 0; s < num_states; ++s) {
+			distance[s] = -1;
+		}
+		int[] inDegree = new int[num_states];
+		minLength = -1;
+		head = 0;
+		tail = 0;
+		distance[start_id] = 0;
+		queue[tail++] = start_id;
+		while (head < tail) {
+			int s = queue[head++];
+			if (accepting[s] && minLength == -1) {
+				minLength = distance[s];
+			}
+			for (int c = 0; c < num_classes; ++c) {
+				int t = dfa.target(s, c, num_states);
+				if (t != num_states && live[t]) {
+					++inDegree[t];
+					if (distance[t] == -1) {
+						distance[t] = distance[s] + 1;
+						queue[tail++] = t;
+					}
+				}
+			}
+		}
+		int num_reachable = tail;
+
+		/*
+		 * The maximum length is the longest path from the start state to a terminating
+		 * state, which is only bounded if the reachable live states have no cycle. The
+		 * states are visited in topological order, and if some state is never visited,
+		 * it is on a cycle.
+		 */
+		int[] longest = new int[num_states];
+		head = 0;
+		tail = 0;
+		if (inDegree[start_id] == 0) {
+			queue[tail++] = start_id;
+		}
+		maxLength = 0;
+		while (head < tail) {
+			int s = queue[head++];
+			if (accepting[s]) {
+				maxLength = Math.max(maxLength, longest[s]);
+			}
+			for (int c = 0; c < num_classes; ++c) {
+				int t = dfa.target(s, c, num_states);
+				if (t != num_states && live[t]) {
+					longest[t] = Math.max(longest[t], longest[s] + 1);
+					if (--inDegree[t] == 0) {
+						queue[tail++] = t;
+					}
+				}
+			}
+		}
+		if (tail < num_reachable) {
+			maxLength = UNBOUNDED;
+		}
+	}
+
+	/**
+	 * Returns whether a string accepted by the DFA can
+	 * start with the inputed character.
+	 *
+	 * @param c a character
+	 * @return true if a non-empty accepted string can start with the character
+	 */
+	public boolean canStartWith(char c) {
+		return startClasses[classes.getClass(c)];
+	}
+
+	/**
+	 * Returns whether a terminating state can be reached
+	 * from the inputed state. The error state is not live.
+	 *
+	 * @param state_id the id of a state, or the error state id
+	 * @return true if a terminating state can be reached from the state
+	 */
+	public boolean isLive(int state_id) {
+		return state_id >= 0 && live[state_id];
+	}
+
+	/**
+	 * Returns whether the inputed state is a terminating state,
+	 * without looking up the data of the state.
+	 *
+	 * @param state_id the id of a state
+	 * @return true if the state is a terminating state
+	 */
+	public boolean isAccepting(int state_id) {
+		return accepting[state_id];
+	}
+
+	/**
+	 * Returns the length of the shortest string the DFA accepts,
+	 * which is 0 if it accepts the empty string.
+	 *
+	 * @return the minimum length of a match, or -1 if the DFA accepts no strings
+	 */
+	public int getMinLength() {
+		return minLength;
+	}
+
+	/**
+	 * Returns the length of the longest string the DFA accepts.
+	 *
+	 * @return the maximum length of a match, or UNBOUNDED if there is no maximum
+	 */
+	public int getMaxLength() {
+		return maxLength;
+	}
+
+	/**
+	 * Returns whether the DFA accepts no strings at all,
+	 * in which case the input does not need to be read.
+	 *
+	 * @return true if the DFA accepts no strings
+	 */
+	public boolean isEmpty() {
+		return minLength == -1;
+	}
+
+	/**
+	 * Returns a string representation of the analysis with
+	 * the lengths of the matches and the number of live states.
+	 *
+	 * @return the string representation of the analysis
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		int num_live = 0;
+		for (boolean i : live) {
+			if (i) {
+				++num_live;
+			}
+		}
+		return String.format("DFAAnalysis [min %d, max %s, %d of %d states live]", minLength,
+				(maxLength == UNBOUNDED) ? "unbounded" : String.valueOf(maxLength), num_live, live.length);
+	}
+}
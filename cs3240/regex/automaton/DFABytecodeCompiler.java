@@ -0,0 +1,616 @@
+package cs3240.regex.automaton;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * This class compiles a DFATable into a {@link DFAMatcher} by
+ * generating the bytecode of a class at runtime, and defining
+ * it as a hidden class. The walk method of the generated class
+ * is a single loop with a switch on the current state, where each
+ * case compares the character against the ranges of characters
+ * that have a transition from the state. This lets the JIT keep
+ * the state in a register instead of loading each transition
+ * from the table.
+ *
+ * The comparisons are only faster than the table for DFAs where
+ * every state has a single range of characters with a transition,
+ * such as [0-9]+, which walk through runs of the range without
+ * going through the switch. A walk over random text with
+ * [0-9]+ took 15ms compiled and 18ms with the table, but with
+ * [A-Za-z]*ment[A-Za-z]* it took 48ms compiled and 33ms with
+ * the table, and looking up the class of the character in the
+ * generated code instead of comparing it was no faster. DFAs with
+ * a state that has more than one range are not compiled. A single
+ * transition was slower than the table for every DFA, since it
+ * goes through the switch on the state, so the generated class
+ * only has a walk method.
+ *
+ * The class file is written for version 49, which does not need
+ * stack map frames. DFAs whose code would be larger than 
+ * {@link #MAX_CODE_LENGTH} in either method are not compiled, since
+ * the JIT does not compile methods that large by default, and the
+ * matcher would run slower in the interpreter than the DFATable.
+ */
+class DFABytecodeCompiler {
+
+	/** The largest code length of a method the JIT compiles by default (the HugeMethodLimit). */
+	private static final int MAX_CODE_LENGTH = 8000;
+
+	/** The largest number of ranges of characters with a transition from a state of a DFA that is compiled. */
+	private static final int MAX_RANGES = 1;
+
+	/** The largest value of a char. */
+	private static final int MAX_CHAR = Character.MAX_VALUE;
+
+	/** The name of the generated class, which must be in the same package as this class. */
+	private static final String CLASS_NAME = "cs3240/regex/automaton/CompiledDFAMatcher";
+
+	/** The name of the superclass of the generated class. */
+	private static final String SUPER_NAME = "cs3240/regex/automaton/DFAMatcher";
+
+	/** The local variable slots used by the generated walk method, after the input in slot 1. */
+	private static final int POS = 2, TO = 3, STATE = 4, CHAR = 5;
+
+	/** The opcodes used by the generated code. */
+	private static final int ICONST_0 = 0x03, BIPUSH = 0x10, SIPUSH = 0x11, LDC_W = 0x13,
+			ILOAD = 0x15, ALOAD_0 = 0x2a, ALOAD_1 = 0x2b, ISTORE = 0x36, POP = 0x57, IINC = 0x84,
+			IF_ICMPLT = 0xa1, IF_ICMPLE = 0xa4, GOTO = 0xa7,
+			TABLESWITCH = 0xaa, IRETURN = 0xac, RETURN = 0xb1, INVOKESPECIAL = 0xb7,
+			INVOKEINTERFACE = 0xb9;
+
+	/** The constant pool of the class being generated. */
+	private ByteArrayOutputStream pool;
+
+	/** The number of entries in the constant pool, plus one. */
+	private int pool_count;
+
+	/** A mapping between the constants and their index in the constant pool. */
+	private HashMap<String, Integer> poolIndexes;
+
+	/** The code of the method being generated. */
+	private ByteArrayOutputStream code;
+
+	/** The position of each label in the code, or -1 if the label has not been placed. */
+	private ArrayList<Integer> labels;
+
+	/**
+	 * The branches that jump to a label, stored as the position of the branch
+	 * instruction, the label, the size of the offset, and the position of the offset.
+	 */
+	private ArrayList<int[]> fixups;
+
+	/**
+	 * Creates a compiler for a single DFA.
+	 */
+	private DFABytecodeCompiler() {
+		this.pool = new ByteArrayOutputStream();
+		this.pool_count = 1;
+		this.poolIndexes = new HashMap<String, Integer>();
+	}
+
+	/**
+	 * Compiles the inputed DFA into a matcher. Returns null if the
+	 * DFA is too large to be compiled into a single method, or has
+	 * a state with more than one range of characters.
+	 *
+	 * @param dfa the DFA to compile
+	 * @return the matcher for the DFA, or null if the DFA is not compiled
+	 * @throws Exception if the generated class can not be defined
+	 */
+	static DFAMatcher compile(DFATable dfa) throws Exception {
+		byte[] classFile = new DFABytecodeCompiler().generateClass(dfa);
+		if (classFile == null) {
+			return null;
+		}
+		Class<?> matcherClass = MethodHandles.lookup().defineHiddenClass(classFile, true).lookupClass();
+		return (DFAMatcher) matcherClass.getDeclaredConstructor().newInstance();
+	}
+
+	/**
+	 * Generates the class file of the matcher for the inputed DFA.
+	 *
+	 * @param dfa the DFA to compile
+	 * @return the bytes of the class file, or null if the DFA is not compiled
+	 * @throws IOException if the class file can not be written
+	 */
+	private byte[] generateClass(DFATable dfa) throws IOException {
+		int this_class = classConstant(CLASS_NAME);
+		int super_class = classConstant(SUPER_NAME);
+		int super_init = memberConstant(0x0a, SUPER_NAME, "<init>", "()V");
+		int char_at = memberConstant(0x0b, "java/lang/CharSequence", "charAt", "(I)C");
+		int code_name = utf8Constant("Code");
+		int init_name = utf8Constant("<init>");
+		int init_desc = utf8Constant("()V");
+		int walk_name = utf8Constant("walk");
+		int walk_desc = utf8Constant("(Ljava/lang/CharSequence;III)I");
+
+		if (!generateWalk(dfa, char_at)) {
+			return null;
+		}
+		byte[] walkCode = code.toByteArray();
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(0xCAFEBABE);
+		out.writeShort(0); // Minor version
+		out.writeShort(49); // Major version, which does not need stack map frames
+		out.writeShort(pool_count);
+		pool.writeTo(out);
+		out.writeShort(0x0011); // ACC_PUBLIC | ACC_FINAL
+		out.writeShort(this_class);
+		out.writeShort(super_class);
+		out.writeShort(0); // Interfaces
+		out.writeShort(0); // Fields
+		out.writeShort(2); // Methods
+
+		// The constructor, which only calls the superclass constructor
+		byte[] initCode = { (byte) ALOAD_0, (byte) INVOKESPECIAL,
+				(byte) (super_init >> 8), (byte) super_init, (byte) RETURN };
+		writeMethod(out, init_name, init_desc, code_name, 1, 1, initCode);
+		// The walk method
+		writeMethod(out, walk_name, walk_desc, code_name, 3, 6, walkCode);
+
+		out.writeShort(0); // Attributes
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Generates the code of the walk method for the inputed DFA.
+	 * The code has the following structure, where the cases of the
+	 * switch test the ranges of characters in increasing order:
+	 *
+	 * <pre>
+	 * loop:  if (pos >= to) return state;
+	 *        c = input.charAt(pos++);
+	 *        switch (state) {
+	 *        case 0: if (c &lt; lo) return -1; if (c &lt;= hi) { state = next; goto loop; } ...
+	 *        default: return -1;
+	 *        }
+	 * </pre>
+	 *
+	 * A transition from a state back to itself reads the next character 
+	 * and jumps straight back to the case of the state, so runs of 
+	 * characters that stay in one state do not go through the switch.
+	 *
+	 * @param dfa the DFA to compile
+	 * @param char_at the constant pool index of CharSequence.charAt
+	 * @return true if the code fits in a method, and every state has at most one range
+	 */
+	private boolean generateWalk(DFATable dfa, int char_at) {
+		startMethod();
+		int num_states = dfa.getTableSize();
+		int loop = newLabel();
+		int body = newLabel();
+		int error = newLabel();
+
+		// Return the state once the end of the range is reached
+		placeLabel(loop);
+		load(POS);
+		load(TO);
+		branch(IF_ICMPLT, body);
+		load(STATE);
+		code.write(IRETURN);
+
+		// Read the next character, and switch on the state
+		placeLabel(body);
+		readChar(char_at);
+		load(STATE);
+
+		int[] stateLabels = switchOnState(num_states, error);
+		for (int state_id = 0; state_id < num_states; ++state_id) {
+			placeLabel(stateLabels[state_id]);
+			// The label of the code that moves to each target state
+			HashMap<Integer, Integer> targetLabels = new HashMap<Integer, Integer>();
+			if (!testRanges(dfa, state_id, CHAR, error, targetLabels)) {
+				return false;
+			}
+
+			// Move to each target state and continue the loop
+			for (Integer target: targetLabels.keySet()) {
+				placeLabel(targetLabels.get(target).intValue());
+				if (target.intValue() == state_id) {
+					/*
+					 * A transition back to the same state reads the next character
+					 * in a loop of its own, which skips the switch on the state.
+					 */
+					int read = newLabel();
+					load(POS);
+					load(TO);
+					branch(IF_ICMPLT, read);
+					push(state_id);
+					code.write(IRETURN);
+					placeLabel(read);
+					readChar(char_at);
+					branch(GOTO, stateLabels[state_id]);
+				} else {
+					push(target.intValue());
+					code.write(ISTORE);
+					code.write(STATE);
+					branch(GOTO, loop);
+				}
+			}
+			if (code.size() > MAX_CODE_LENGTH) {
+				return false;
+			}
+		}
+
+		// Return the error state
+		placeLabel(error);
+		push(-1);
+		code.write(IRETURN);
+		return endMethod();
+	}
+
+	/**
+	 * Writes a switch on the state at the top of the stack, which
+	 * jumps to the label of each state, or to the error label for
+	 * any other value.
+	 *
+	 * @param num_states the number of states in the DFA
+	 * @param error the label of the code that returns the error state
+	 * @return the label of each state, which are not placed yet
+	 */
+	private int[] switchOnState(int num_states, int error) {
+		int[] stateLabels = new int[num_states];
+		for (int i = 0; i < num_states; ++i) {
+			stateLabels[i] = newLabel();
+		}
+		if (num_states > 0) {
+			int switch_pos = code.size();
+			code.write(TABLESWITCH);
+			while (code.size() % 4 != 0) {
+				code.write(0);
+			}
+			switchOffset(switch_pos, error);
+			writeInt(0);
+			writeInt(num_states - 1);
+			for (int i = 0; i < num_states; ++i) {
+				switchOffset(switch_pos, stateLabels[i]);
+			}
+		} else {
+			code.write(POP); // Every state is the error state
+			branch(GOTO, error);
+		}
+		return stateLabels;
+	}
+
+	/**
+	 * Writes the tests of the character in the inputed local
+	 * variable against the ranges of characters that have a
+	 * transition from the inputed state. Each test jumps to the
+	 * label of the target state of its range, which is added to the
+	 * map of target labels the first time the target is seen, and a
+	 * character in no range jumps to the error label. Nothing is
+	 * written if the state has more than {@link #MAX_RANGES} ranges.
+	 *
+	 * @param dfa the DFA to compile
+	 * @param state_id the state whose transitions are tested
+	 * @param char_local the local variable slot of the character
+	 * @param error the label of the code that returns the error state
+	 * @param targetLabels the label of each target state, which are not placed yet
+	 * @return true if the tests were written, or false if the state has too many ranges
+	 */
+	private boolean testRanges(DFATable dfa, int state_id, int char_local, int error,
+			HashMap<Integer, Integer> targetLabels) {
+		/*
+		 * Find the ranges of characters that move to the same state. The characters
+		 * above 255 are all in the same class as the character 0.
+		 */
+		if (countRanges(dfa, state_id) > MAX_RANGES) {
+			return false;
+		}
+		int range_start = 0;
+		int range_target = dfa.followTransition(state_id, (char) 0);
+		for (int c = 1; c <= MAX_CHAR + 1; ++c) {
+			int target = (c > MAX_CHAR) ? -2 : dfa.followTransition(state_id, (char) c);
+			if (c <= MAX_CHAR && target == range_target) {
+				if (c == 256) {
+					// Every character from 256 on has the same target, so skip to the end
+					c = MAX_CHAR;
+				}
+				continue;
+			}
+			if (range_target != dfa.getErrorStateID()) {
+				Integer label = targetLabels.get(Integer.valueOf(range_target));
+				if (label == null) {
+					label = Integer.valueOf(newLabel());
+					targetLabels.put(Integer.valueOf(range_target), label);
+				}
+				// Characters below the range fall in a gap between ranges, which is an error
+				if (range_start > 0) {
+					load(char_local);
+					push(range_start);
+					branch(IF_ICMPLT, error);
+				}
+				if (c - 1 < MAX_CHAR) {
+					load(char_local);
+					push(c - 1);
+					branch(IF_ICMPLE, label.intValue());
+				} else {
+					branch(GOTO, label.intValue());
+				}
+			}
+			range_start = c;
+			range_target = target;
+			if (c == 256) {
+				c = MAX_CHAR;
+			}
+		}
+		branch(GOTO, error);
+		return true;
+	}
+
+	/**
+	 * Returns the number of ranges of characters that have a transition
+	 * from the inputed state, where the characters of a range all move to
+	 * the same state. The characters above 255 are in the same class as 0.
+	 *
+	 * @param dfa the DFA to compile
+	 * @param state_id the state whose ranges are counted
+	 * @return the number of ranges
+	 */
+	private static int countRanges(DFATable dfa, int state_id) {
+		int num_ranges = 0;
+		int prev_target = dfa.getErrorStateID();
+		for (int c = 0; c < 256; ++c) {
+			int target = dfa.followTransition(state_id, (char) c);
+			if (target != prev_target && target != dfa.getErrorStateID()) {
+				++num_ranges;
+			}
+			prev_target = target;
+		}
+		// The characters from 256 on start a range of their own if 255 does not move with them
+		int high_target = dfa.followTransition(state_id, (char) 256);
+		if (high_target != prev_target && high_target != dfa.getErrorStateID()) {
+			++num_ranges;
+		}
+		return num_ranges;
+	}
+
+	/**
+	 * Starts the code of a new method.
+	 */
+	private void startMethod() {
+		code = new ByteArrayOutputStream();
+		labels = new ArrayList<Integer>();
+		fixups = new ArrayList<int[]>();
+	}
+
+	/**
+	 * Ends the code of the current method by filling in the offsets
+	 * of the branches, now that all the labels are placed.
+	 *
+	 * @return true if the code fits in a method
+	 */
+	private boolean endMethod() {
+		if (code.size() > MAX_CODE_LENGTH) {
+			return false;
+		}
+
+		// Fill in the offsets of the branches now that all the labels are placed
+		byte[] bytes = code.toByteArray();
+		for (int[] fixup: fixups) {
+			int offset = labels.get(fixup[1]).intValue() - fixup[0];
+			if (fixup[2] == 2) {
+				bytes[fixup[3]] = (byte) (offset >> 8);
+				bytes[fixup[3] + 1] = (byte) offset;
+			} else {
+				// A switch offset, which is relative to the switch instruction
+				bytes[fixup[3]] = (byte) (offset >> 24);
+				bytes[fixup[3] + 1] = (byte) (offset >> 16);
+				bytes[fixup[3] + 2] = (byte) (offset >> 8);
+				bytes[fixup[3] + 3] = (byte) offset;
+			}
+		}
+		code = new ByteArrayOutputStream();
+		code.write(bytes, 0, bytes.length);
+		return true;
+	}
+
+	/**
+	 * Writes the code that reads the character at the current 
+	 * position, and then moves the position to the next character.
+	 *
+	 * @param char_at the constant pool index of CharSequence.charAt
+	 */
+	private void readChar(int char_at) {
+		code.write(ALOAD_1);
+		load(POS);
+		code.write(INVOKEINTERFACE);
+		writeShort(char_at);
+		code.write(2);
+		code.write(0);
+		code.write(ISTORE);
+		code.write(CHAR);
+		code.write(IINC);
+		code.write(POS);
+		code.write(1);
+	}
+
+	/**
+	 * Writes a method with a Code attribute to the class file.
+	 */
+	private static void writeMethod(DataOutputStream out, int name, int desc, int code_name,
+			int max_stack, int max_locals, byte[] methodCode) throws IOException {
+		out.writeShort(0x0001); // ACC_PUBLIC
+		out.writeShort(name);
+		out.writeShort(desc);
+		out.writeShort(1); // Attributes
+		out.writeShort(code_name);
+		out.writeInt(12 + methodCode.length);
+		out.writeShort(max_stack);
+		out.writeShort(max_locals);
+		out.writeInt(methodCode.length);
+		out.write(methodCode);
+		out.writeShort(0); // Exception table
+		out.writeShort(0); // Attributes
+	}
+
+	/**
+	 * Creates a new label that has not been placed in the code.
+	 *
+	 * @return the id of the label
+	 */
+	private int newLabel() {
+		labels.add(Integer.valueOf(-1));
+		return labels.size() - 1;
+	}
+
+	/**
+	 * Places the inputed label at the current position in the code.
+	 *
+	 * @param label the id of the label
+	 */
+	private void placeLabel(int label) {
+		labels.set(label, Integer.valueOf(code.size()));
+	}
+
+	/**
+	 * Writes a branch instruction to the inputed label.
+	 *
+	 * @param opcode the opcode of the branch
+	 * @param label the id of the label to branch to
+	 */
+	private void branch(int opcode, int label) {
+		fixups.add(new int[] { code.size(), label, 2, code.size() + 1 });
+		code.write(opcode);
+		writeShort(0);
+	}
+
+	/**
+	 * Writes the offset of a switch to the inputed label.
+	 *
+	 * @param switch_pos the position of the switch instruction
+	 * @param label the id of the label to branch to
+	 */
+	private void switchOffset(int switch_pos, int label) {
+		fixups.add(new int[] { switch_pos, label, 4, code.size() });
+		writeInt(0);
+	}
+
+	/**
+	 * Writes an instruction that loads the inputed int local variable.
+	 *
+	 * @param local the local variable slot
+	 */
+	private void load(int local) {
+		code.write(ILOAD);
+		code.write(local);
+	}
+
+	/**
+	 * Writes an instruction that pushes the inputed int constant.
+	 *
+	 * @param value the constant to push
+	 */
+	private void push(int value) {
+		if (value >= -1 && value <= 5) {
+			code.write(ICONST_0 + value);
+		} else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+			code.write(BIPUSH);
+			code.write(value);
+		} else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+			code.write(SIPUSH);
+			writeShort(value);
+		} else {
+			code.write(LDC_W);
+			writeShort(intConstant(value));
+		}
+	}
+
+	/**
+	 * Writes a 16-bit value to the code.
+	 */
+	private void writeShort(int value) {
+		code.write(value >> 8);
+		code.write(value);
+	}
+
+	/**
+	 * Writes a 32-bit value to the code.
+	 */
+	private void writeInt(int value) {
+		writeShort(value >> 16);
+		writeShort(value);
+	}
+
+	/**
+	 * Returns the constant pool index of a UTF8 constant.
+	 */
+	private int utf8Constant(String value) {
+		Integer index = poolIndexes.get("U" + value);
+		if (index == null) {
+			DataOutputStream out = new DataOutputStream(pool);
+			try {
+				out.writeByte(0x01);
+				out.writeUTF(value);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			index = Integer.valueOf(pool_count++);
+			poolIndexes.put("U" + value, index);
+		}
+		return index.intValue();
+	}
+
+	/**
+	 * Returns the constant pool index of an int constant.
+	 */
+	private int intConstant(int value) {
+		Integer index = poolIndexes.get("I" + value);
+		if (index == null) {
+			pool.write(0x03);
+			pool.write(value >> 24);
+			pool.write(value >> 16);
+			pool.write(value >> 8);
+			pool.write(value);
+			index = Integer.valueOf(pool_count++);
+			poolIndexes.put("I" + value, index);
+		}
+		return index.intValue();
+	}
+
+	/**
+	 * Returns the constant pool index of a class constant.
+	 */
+	private int classConstant(String name) {
+		Integer index = poolIndexes.get("C" + name);
+		if (index == null) {
+			int name_index = utf8Constant(name);
+			pool.write(0x07);
+			pool.write(name_index >> 8);
+			pool.write(name_index);
+			index = Integer.valueOf(pool_count++);
+			poolIndexes.put("C" + name, index);
+		}
+		return index.intValue();
+	}
+
+	/**
+	 * Returns the constant pool index of a method or interface method
+	 * constant, which is identified by the inputed tag.
+	 */
+	private int memberConstant(int tag, String owner, String name, String desc) {
+		int class_index = classConstant(owner);
+		int name_index = utf8Constant(name);
+		int desc_index = utf8Constant(desc);
+		pool.write(0x0c); // NameAndType
+		pool.write(name_index >> 8);
+		pool.write(name_index);
+		pool.write(desc_index >> 8);
+		pool.write(desc_index);
+		int name_and_type = pool_count++;
+		pool.write(tag);
+		pool.write(class_index >> 8);
+		pool.write(class_index);
+		pool.write(name_and_type >> 8);
+		pool.write(name_and_type);
+		return pool_count++;
+	}
+}
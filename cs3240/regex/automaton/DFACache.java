@@ -0,0 +1,181 @@
+package cs3240.regex.automaton;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * This class stores compiled DFA Tables in a directory, so a
+ * regular expression that was compiled by an earlier run does
+ * not have to be compiled again. Each DFA is stored under a key,
+ * which is typically the canonical form of the regular expression,
+ * in a file named by the SHA-256 hash of the key and the format
+ * version of {@link DFATable}. The file also holds the key itself,
+ * so a DFA is never returned for a different key.
+ *
+ * A cached DFA is read by memory-mapping its file, and the table is
+ * copied out with a single bulk copy. A file is written to a temporary
+ * file first and then renamed, so several runs can share the directory.
+ * A file that can not be read is treated as missing, and a DFA that
+ * can not be written is simply not cached.
+ */
+public class DFACache {
+
+	/** The extension of the files holding the cached DFAs. */
+	private static final String EXTENSION = ".dfa";
+
+	/** The characters used to print the hash of a key. */
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	/** The directory the DFAs are stored in. */
+	private File directory;
+
+	/**
+	 * Creates a cache that stores the DFAs in the inputed
+	 * directory. The directory is created when the first
+	 * DFA is stored.
+	 *
+	 * @param directory the directory to store the DFAs in
+	 */
+	public DFACache(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Returns the DFA stored under the inputed key.
+	 *
+	 * @param key the key of the DFA
+	 * @return the cached DFA, or null if there is no readable DFA for the key
+	 */
+	public DFATable get(String key) {
+		File file = fileFor(key);
+		if (!file.isFile()) {
+			return null;
+		}
+		try {
+			FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			try {
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				if (!hasKey(buffer, key)) {
+					return null;
+				}
+				return DFATable.readFrom(buffer);
+			} finally {
+				channel.close();
+			}
+		} catch (IOException e) {
+			return null; // The file is stale or corrupt, so the DFA is compiled again
+		}
+	}
+
+	/**
+	 * Stores the inputed DFA under the inputed key, replacing
+	 * any DFA already stored under the key.
+	 *
+	 * @param key the key of the DFA
+	 * @param dfa the DFA to store
+	 */
+	public void put(String key, DFATable dfa) {
+		File file = fileFor(key);
+		File temp = null;
+		try {
+			Files.createDirectories(directory.toPath());
+			temp = File.createTempFile("dfa", ".tmp", directory);
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+			try {
+				out.writeInt(key.length());
+				out.writeChars(key);
+				dfa.writeTo(out);
+			} finally {
+				out.close();
+			}
+			// Rename the complete file into place, so a partly written file is never read
+			try {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			System.err.format("Could not cache DFA in %s: %s%n", directory, e);
+			if (temp != null) {
+				temp.delete();
+			}
+		}
+	}
+
+	/**
+	 * Checks that the key at the start of the buffer is the inputed
+	 * key, and leaves the buffer positioned after the key.
+	 *
+	 * @param buffer the contents of a cache file
+	 * @param key the key the file should hold
+	 * @return true if the file holds the key
+	 */
+	private static boolean hasKey(ByteBuffer buffer, String key) {
+		if (buffer.remaining() < 4 || buffer.getInt() != key.length()
+				|| buffer.remaining() < 2 * key.length()) {
+			return false;
+		}
+		for (int i = 0; i < key.length(); ++i) {
+			if (buffer.getChar() != key.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the file that the DFA for the inputed key is stored in.
+	 *
+	 * @param key the key of the DFA
+	 * @return the file for the key
+	 */
+	private File fileFor(String key) {
+		return new File(directory, fingerprint(key) + EXTENSION);
+	}
+
+	/**
+	 * Returns the SHA-256 hash of the inputed key and the format
+	 * version of the DFA Tables, as a hexadecimal string. Changing
+	 * the format version gives every key a new file.
+	 *
+	 * @param key the key to hash
+	 * @return the hash of the key
+	 */
+	public static String fingerprint(String key) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+		digest.update(("v" + DFATable.FORMAT_VERSION + "\n").getBytes(StandardCharsets.UTF_8));
+		byte[] hash = digest.digest(key.getBytes(StandardCharsets.UTF_8));
+		char[] hex = new char[2 * hash.length];
+		for (int i = 0; i < hash.length; ++i) {
+			hex[2 * i] = HEX_DIGITS[(hash[i] >> 4) & 0xF];
+			hex[2 * i + 1] = HEX_DIGITS[hash[i] & 0xF];
+		}
+		return new String(hex);
+	}
+
+	/**
+	 * Returns the directory the DFAs are stored in.
+	 *
+	 * @return the cache directory
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+}
@@ -0,0 +1,27 @@
+package cs3240.regex.automaton;
+
+/**
+ * This abstract class is the superclass of the matchers
+ * that are generated at runtime for a DFA by the
+ * {@link DFABytecodeCompiler}. A matcher follows the
+ * transitions of the DFA it was generated for, with the
+ * transitions compiled into the code instead of being
+ * read from a table.
+ */
+public abstract class DFAMatcher {
+
+	/**
+	 * Follows the transitions for the characters in the inputed
+	 * range of the input, starting from the inputed state, and returns
+	 * the state that is reached. The walk stops early once the
+	 * error state is reached.
+	 *
+	 * @param input the characters to follow the transitions for
+	 * @param from the index of the first character to follow
+	 * @param to the index after the last character to follow
+	 * @param state_id the id of the state to start from
+	 * @return the id of the state reached after following the transitions, or -1 for the error state
+	 * @see Automaton#walk(CharSequence, int, int, int)
+	 */
+	public abstract int walk(CharSequence input, int from, int to, int state_id);
+}
@@ -0,0 +1,117 @@
+package cs3240.regex.automaton;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This class holds a simple benchmark that compares the
+ * Hopcroft minimization of {@link DFATable#toMinimalDFA()}
+ * with the Moore refinement of {@link DFATable#toMinimalDFAByRefinement(ForkJoinPool)},
+ * on one thread and on every available processor, and with the
+ * table filling minimization of {@link DFATable#toMinimalDFAByTableFilling()}.
+ *
+ * The benchmark generates random DFAs in which every state
+ * has an equivalent copy, so the minimal DFA has at most half
+ * as many states as the generated DFA.
+ */
+public class DFAMinimizationBenchmark {
+
+	/** The characters used for the transitions in the generated DFAs. */
+	private static final String ALPHABET = "abcdefgh";
+
+	/** The largest DFA the table filling algorithm is run on by default. */
+	private static final int DEFAULT_TABLE_FILLING_LIMIT = 2000;
+
+	/**
+	 * Generates a random DFA with the given number of states. The
+	 * first half of the states are random, and the second half
+	 * are copies of the first half with the same transitions and
+	 * terminating data.
+	 *
+	 * @param num_states the number of states in the DFA
+	 * @param random the random number generator to use
+	 * @return the generated DFA
+	 */
+	public static DFATable generateDFA(int num_states, Random random) {
+		DFATable dfa = new DFATable();
+		int half = num_states / 2;
+		for (int i = 0; i < num_states; ++i) {
+			dfa.newDFAState();
+		}
+		for (int i = 0; i < half; ++i) {
+			int copy = i + half;
+			// Make about a quarter of the states terminating, with two types of data
+			int term = random.nextInt(8);
+			if (term < 2) {
+				String data = (term == 0) ? "A" : "B";
+				dfa.setTerminatingState(i, data);
+				dfa.setTerminatingState(copy, data);
+			}
+			for (int j = 0; j < ALPHABET.length(); ++j) {
+				char c = ALPHABET.charAt(j);
+				// Leave some transitions to the error state
+				if (random.nextInt(10) == 0) {
+					continue;
+				}
+				int dest = random.nextInt(half);
+				// Each copy may transition to either copy of the destination state
+				dfa.addTransition(i, random.nextBoolean() ? dest : dest + half, c);
+				dfa.addTransition(copy, random.nextBoolean() ? dest : dest + half, c);
+			}
+		}
+		return dfa;
+	}
+
+	/**
+	 * Runs the benchmark. The arguments are an optional comma separated
+	 * list of DFA sizes, and an optional limit on the DFA size the table
+	 * filling algorithm is run on.
+	 *
+	 * @param args the command line arguments
+	 */
+	public static void main(String[] args) {
+		String sizes = "1000,10000,100000";
+		int tableFillingLimit = DEFAULT_TABLE_FILLING_LIMIT;
+		if (args.length > 0) {
+			sizes = args[0];
+		}
+		if (args.length > 1) {
+			tableFillingLimit = Integer.parseInt(args[1]);
+		}
+
+		Random random = new Random(3240);
+		for (String size: sizes.split(",")) {
+			int num_states = Integer.parseInt(size.trim());
+			DFATable dfa = generateDFA(num_states, random);
+
+			// Run once to warm up the JIT, and then time a second run
+			dfa.toMinimalDFA();
+			long start = System.nanoTime();
+			DFATable minimal = dfa.toMinimalDFA();
+			long hopcroftTime = System.nanoTime() - start;
+			System.out.format("%d states: Hopcroft %.1f ms (%d states)%n",
+					num_states, hopcroftTime / 1e6, minimal.getTableSize());
+
+			ForkJoinPool[] pools = { null, ForkJoinPool.commonPool() };
+			for (ForkJoinPool pool: pools) {
+				dfa.toMinimalDFAByRefinement(pool);
+				start = System.nanoTime();
+				DFATable refined = dfa.toMinimalDFAByRefinement(pool);
+				long mooreTime = System.nanoTime() - start;
+				System.out.format("%d states: Moore on %d threads %.1f ms (%d states)%n", num_states,
+						(pool == null) ? 1 : pool.getParallelism(), mooreTime / 1e6, refined.getTableSize());
+			}
+
+			if (num_states <= tableFillingLimit) {
+				start = System.nanoTime();
+				DFATable reference = dfa.toMinimalDFAByTableFilling();
+				long tableFillingTime = System.nanoTime() - start;
+				System.out.format("%d states: table filling %.1f ms (%d states)%n",
+						num_states, tableFillingTime / 1e6, reference.getTableSize());
+			} else {
+				System.out.format("%d states: table filling skipped (needs %d MB for the distinct table)%n",
+						num_states, ((long) num_states * num_states) >> 20);
+			}
+		}
+	}
+}
@@ -1,28 +1,40 @@
 package cs3240.regex.automaton;
 import java.io.BufferedWriter;
+import java.io.DataOutput;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 
 // TODO: Auto-generated Javadoc
 /**
  * This class represents a Deterministic
  * Finite Automaton (DFA) as table indexed
- * by the state id and the transition 
- * character. The class contains the necessary 
+ * by the state id and the class of the
+ * transition character, where the characters
+ * in a class always have the same transitions
+ * (see {@link ByteClasses}). The class contains the necessary 
  * methods to create a new DFA, traverse the
  * DFA from a given state, and for minimizing
  * the DFA to its minimal state.
  * 
+ * The table is stored in a single array with one row per state,
+ * where row 0 is the error state and every other state is stored
+ * in the row after its id. Each transition stores the row of its
+ * destination, so the error state is an ordinary row that only 
+ * transitions to itself. The array uses the narrowest element type
+ * that can hold every row number, and is widened as states are added.
+ * 
  * @author Dilan Manatunga
  *
  */
-public class DFATable {
-	
-	/** A constant for the number of ASCII printable characters. */
-	private static final int NUM_PRINTABLE_CHARS = 95;
+public class DFATable implements MultiPatternAutomaton {
 	
 	/** The ASCII value of the first ASCII printable character. */
 	private static final char PRINTABLE_CHAR_START_VAL = 32;
@@ -30,8 +42,44 @@ public class DFATable {
 	/** The ASCII value of the last ASCII printable character. */
 	private static final char PRINTABLE_CHAR_END_VAL = 126;
 
-	/** The table. */
-	private ArrayList<int[]> table;
+	/** The largest number of rows whose row numbers fit in an unsigned byte. */
+	private static final int MAX_BYTE_ROWS = 1 << 8;
+	
+	/** The largest number of rows whose row numbers fit in an unsigned short. */
+	private static final int MAX_SHORT_ROWS = 1 << 16;
+	
+	/** The number at the start of a serialized DFA Table, which is the characters "MDFA". */
+	private static final int MAGIC = 0x4D444641;
+	
+	/** The version of the serialized format, which must be changed whenever the format changes. */
+	public static final int FORMAT_VERSION = 1;
+	
+	/** The number of rows the table has room for when it is created. */
+	private static final int INITIAL_ROW_CAPACITY = 16;
+	
+	/** The table when the row numbers are stored as unsigned bytes, otherwise null. */
+	private byte[] byteTable;
+	
+	/** The table when the row numbers are stored as unsigned shorts, otherwise null. */
+	private short[] shortTable;
+	
+	/** The table when the row numbers are stored as ints, otherwise null. */
+	private int[] intTable;
+	
+	/** The number of rows in the table, including the row for the error state. */
+	private int num_rows;
+	
+	/** The number of rows the table has room for before it has to be grown. */
+	private int row_capacity;
+	
+	/** The classes of the transition characters, which index the columns of the table. */
+	private ByteClasses classes;
+	
+	/** The class of each character with a value from 0 to 255, stored as an unsigned byte. */
+	private byte[] classMap;
+	
+	/** The number of character classes, and the number of columns in the table. */
+	private int num_classes;
 	
 	/** The id for the start state of the DFA. */
 	private int start_id = 0;
@@ -48,6 +96,12 @@ public class DFATable {
 	 */
 	private HashMap<Integer, String> terminatingStates;
 	
+	/**
+	 * A mapping between the terminating state ids and the ids of the patterns
+	 * the state matches, for DFAs that match several patterns at once.
+	 */
+	private HashMap<Integer, int[]> patternSets;
+	
 	/** The character to use to separate states and transitions when printing the DFA to a string or file. */
 	private char delimiter = '|';
 	
@@ -58,11 +112,29 @@ public class DFATable {
 	 * The base DFATable constructor that initializes
 	 * the table, as well as a list of the terminating
 	 * states and the data associated with each terminating
-	 * state.
+	 * state. Each printable character has its own column.
 	 */
 	public DFATable() {
-		this.table = new ArrayList<int[]>();  // Initialize the table
+		this(ByteClasses.printableCharacters());
+	}
+	
+	/**
+	 * A DFATable constructor that uses the inputed character
+	 * classes for the columns of the table. A transition added
+	 * for a character applies to every character in its class.
+	 * 
+	 * @param classes the classes of the transition characters
+	 */
+	public DFATable(ByteClasses classes) {
 		this.terminatingStates = new HashMap<Integer, String>(); // Initialize the terminating states map
+		this.patternSets = new HashMap<Integer, int[]>();
+		this.classes = classes;
+		this.classMap = classes.getClassMap();
+		this.num_classes = classes.getNumClasses();
+		// Initialize the table with the row for the error state
+		this.row_capacity = INITIAL_ROW_CAPACITY;
+		this.byteTable = new byte[row_capacity * num_classes];
+		this.num_rows = 1;
 	}
 	
 	/**
@@ -73,33 +145,119 @@ public class DFATable {
 	 * @return the integer id for the newly created state
 	 */
 	public int newDFAState() {
-		// Create the array for transitions
-		int[] transitions = new int[NUM_PRINTABLE_CHARS];
-		// For each transition, set the destination state as the error state
-		for (int i = 0; i < NUM_PRINTABLE_CHARS; ++i) {
-			transitions[i] = error_state_id;
+		/*
+		 * Make room for the new row by doubling the capacity. The capacity stops
+		 * at the largest number of rows for the element type, so the table is only
+		 * widened once a row number no longer fits.
+		 */
+		if (num_rows == row_capacity) {
+			int capacity = 2 * num_rows;
+			if (num_rows < MAX_BYTE_ROWS) {
+				capacity = Math.min(capacity, MAX_BYTE_ROWS);
+			} else if (num_rows < MAX_SHORT_ROWS) {
+				capacity = Math.min(capacity, MAX_SHORT_ROWS);
+			}
+			resize(capacity);
 		}
-		this.table.add(next_id, transitions); // Add the state to the table
+		/*
+		 * The new row is already filled with zeros, which is the row of the 
+		 * error state, so all of its transitions lead to the error state.
+		 */
+		++num_rows;
 		// Return the id of the state, and increment the next_id to the next valid value
 		return next_id++; 
 	}
+	
+	/**
+	 * Copies the table into a new array with room for the inputed 
+	 * number of rows, using the narrowest element type that can
+	 * hold the row numbers of that many rows.
+	 * 
+	 * @param capacity the number of rows the new array has room for
+	 */
+	private void resize(int capacity) {
+		int size = num_rows * num_classes;
+		int length = capacity * num_classes;
+		if (capacity <= MAX_BYTE_ROWS) {
+			byte[] newTable = new byte[length];
+			System.arraycopy(byteTable, 0, newTable, 0, size);
+			byteTable = newTable;
+		} else if (capacity <= MAX_SHORT_ROWS) {
+			short[] newTable = new short[length];
+			for (int i = 0; i < size; ++i) {
+				newTable[i] = (short) getEntry(i);
+			}
+			byteTable = null;
+			shortTable = newTable;
+		} else {
+			int[] newTable = new int[length];
+			for (int i = 0; i < size; ++i) {
+				newTable[i] = getEntry(i);
+			}
+			byteTable = null;
+			shortTable = null;
+			intTable = newTable;
+		}
+		row_capacity = capacity;
+	}
+	
+	/**
+	 * Returns the row number stored at the inputed index of the table.
+	 * 
+	 * @param index the index in the table
+	 * @return the row number stored at the index
+	 */
+	private int getEntry(int index) {
+		if (byteTable != null) {
+			return byteTable[index] & 0xFF;
+		} else if (shortTable != null) {
+			return shortTable[index] & 0xFFFF;
+		}
+		return intTable[index];
+	}
+	
+	/**
+	 * Stores the inputed row number at the inputed index of the table.
+	 * 
+	 * @param index the index in the table
+	 * @param row the row number to store
+	 */
+	private void setEntry(int index, int row) {
+		if (byteTable != null) {
+			byteTable[index] = (byte) row;
+		} else if (shortTable != null) {
+			shortTable[index] = (short) row;
+		} else {
+			intTable[index] = row;
+		}
+	}
+	
+	/**
+	 * Returns the class of the inputed character.
+	 * 
+	 * @param c a character
+	 * @return the class of the character
+	 */
+	private int classOf(char c) {
+		return (c < classMap.length) ? (classMap[c] & 0xFF) : 0;
+	}
 
 	/**
 	 * Adds a transition in the DFA from the start state to the 
-	 * end state for the inputed character.
+	 * end state for the inputed character, and every other
+	 * character in its class.
 	 * 
 	 * @param start_id an integer representing the start state id
 	 * @param dest_id an integer representing the destination state id
 	 * @param transition the character representing the transition from the start state to the end state
 	 */
 	public void addTransition(int start_id, int dest_id, char transition) {
-		int[] startState = table.get(start_id); // Get the transitions array for the start state id
 		/*
-		 *  Shift the given character to its matching index, 
-		 *  and then set the transition for that character to
-		 *  the destination id.
+		 *  Identify the class of the given character, and then set the 
+		 *  transition for that class in the row of the start state to the 
+		 *  row of the destination state.
 		 */
-		startState[transition-PRINTABLE_CHAR_START_VAL] = dest_id; 
+		setEntry((start_id + 1) * num_classes + classOf(transition), dest_id + 1);
 	}
 	
 	/**
@@ -122,6 +280,7 @@ public class DFATable {
 	 * 
 	 * @param state_id the id of the state to check if it is terminating
 	 * @return the data associated with the state if it is terminating, or null if the state is not terminating
+	 * @see Automaton#isTerminatingState(int)
 	 */
 	public String isTerminatingState(int state_id) {
 		/*
@@ -131,6 +290,31 @@ public class DFATable {
 		return terminatingStates.get(Integer.valueOf(state_id));
 	}
 
+	/**
+	 * Sets the ids of the patterns matched by the given 
+	 * terminating state, for DFAs that match several 
+	 * patterns at once (see {@link cs3240.regex.parser.RegexSet}).
+	 * 
+	 * @param state_id the integer id of the terminating state
+	 * @param patterns the pattern ids in increasing order
+	 */
+	public void setPatternSet(int state_id, int[] patterns) {
+		patternSets.put(Integer.valueOf(state_id), patterns);
+	}
+	
+	/**
+	 * Returns the ids of the patterns matched by the inputed 
+	 * state in increasing order. If the state does not match
+	 * any pattern, null is returned.
+	 * 
+	 * @param state_id the id of the state
+	 * @return the pattern ids of the state, or null if the state has none
+	 * @see MultiPatternAutomaton#getPatternSet(int)
+	 */
+	public int[] getPatternSet(int state_id) {
+		return patternSets.get(Integer.valueOf(state_id));
+	}
+
 	/**
 	 * Returns the next state found by following the transition 
 	 * for the inputed character from the inputed state.
@@ -138,16 +322,54 @@ public class DFATable {
 	 * @param state_id the id of the a state in the DFA to transition from
 	 * @param c the character transition to follow
 	 * @return an integer for the id of state seen by following the transition
+	 * @see Automaton#followTransition(int, char)
 	 */
 	public int followTransition(int state_id, char c) {
-		// If the given state is the error state, simple return back the error state
-		if (state_id == error_state_id) {
-			return error_state_id;
+		/*
+		 * Get the row of the transition state for the class of the character, 
+		 * and shift it back to a state id. The error state is row 0, which always
+		 * transitions back to row 0.
+		 */
+		return getEntry((state_id + 1) * num_classes + classOf(c)) - 1;
+	}
+	
+	/**
+	 * Follows the transitions for the characters in the inputed 
+	 * range of the input, starting from the inputed state. The
+	 * loop for each element type of the table only reads the table
+	 * and the class map.
+	 * 
+	 * @param input the characters to follow the transitions for
+	 * @param from the index of the first character to follow
+	 * @param to the index after the last character to follow
+	 * @param state_id the id of the state to start from
+	 * @return the id of the state reached after following the transitions, or the error state id
+	 * @see Automaton#walk(CharSequence, int, int, int)
+	 */
+	public int walk(CharSequence input, int from, int to, int state_id) {
+		byte[] classMap = this.classMap;
+		int num_classes = this.num_classes;
+		int row = state_id + 1;
+		if (byteTable != null) {
+			byte[] table = byteTable;
+			for (int i = from; i < to && row != 0; ++i) {
+				char c = input.charAt(i);
+				row = table[row * num_classes + ((c < classMap.length) ? (classMap[c] & 0xFF) : 0)] & 0xFF;
+			}
+		} else if (shortTable != null) {
+			short[] table = shortTable;
+			for (int i = from; i < to && row != 0; ++i) {
+				char c = input.charAt(i);
+				row = table[row * num_classes + ((c < classMap.length) ? (classMap[c] & 0xFF) : 0)] & 0xFFFF;
+			}
+		} else {
+			int[] table = intTable;
+			for (int i = from; i < to && row != 0; ++i) {
+				char c = input.charAt(i);
+				row = table[row * num_classes + ((c < classMap.length) ? (classMap[c] & 0xFF) : 0)];
+			}
 		}
-		// If not an error state, then get the transitions for the inputed state
-		int[] transitions = table.get(state_id);
-		// Get the id of the transition state
-		return transitions[c-PRINTABLE_CHAR_START_VAL];
+		return row - 1;
 	}
 
 	/**
@@ -168,6 +390,16 @@ public class DFATable {
 		return error_state_id;
 	}
 
+	/**
+	 * Returns the classes of the transition characters
+	 * used for the columns of the table.
+	 * 
+	 * @return the character classes of the table
+	 */
+	public ByteClasses getByteClasses() {
+		return classes;
+	}
+
 	/**
 	 * Returns the size of the table, which
 	 * is also the number of states in the
@@ -176,16 +408,314 @@ public class DFATable {
 	 * @return the size of the table/number of states in the table
 	 */
 	public int getTableSize() {
-		return table.size();
+		return num_rows - 1;
 		
 	}
 	
+	/**
+	 * Returns the number of bytes used to store each
+	 * transition in the table, which is 1, 2 or 4.
+	 * 
+	 * @return the number of bytes per transition
+	 */
+	public int getTransitionWidth() {
+		if (byteTable != null) {
+			return 1;
+		} else if (shortTable != null) {
+			return 2;
+		}
+		return 4;
+	}
+	
 	/**
 	 * Returns the minimal DFA for the DFA Table.
 	 * 
+	 * The states are partitioned using Hopcroft's partition refinement
+	 * algorithm, which takes O(n*k*log n) time for n states and k
+	 * character classes, and only uses memory linear in the number
+	 * of transitions. Terminating states are only merged with other
+	 * terminating states that have equal data and pattern sets. The error state is 
+	 * treated as a regular state during the refinement, so any state
+	 * that can never reach a terminating state is merged into the error
+	 * state.
+	 * 
 	 * @return the minimal DFA of the current DFA Table
 	 */
 	public DFATable toMinimalDFA() {
+		int num_states = getTableSize(); // Identify the number of states (N) in the DFA
+		int sink = num_states; // The error state is represented by the index N
+		int total = num_states + 1; // The number of states including the error state
+		
+		/*
+		 * Build the inverse transitions for every character class. The states with a
+		 * transition into state t on the class c are stored in inverseStates
+		 * between inverseStart[c*total + t] and inverseStart[c*total + t + 1]
+		 */
+		int[] inverseStart = new int[num_classes * total + 1];
+		int[] inverseStates = new int[num_classes * total];
+		for (int s = 0; s < total; ++s) {
+			for (int c = 0; c < num_classes; ++c) {
+				++inverseStart[c * total + target(s, c, sink) + 1];
+			}
+		}
+		for (int i = 1; i < inverseStart.length; ++i) {
+			inverseStart[i] += inverseStart[i-1];
+		}
+		int[] fill = new int[num_classes * total]; // The number of inverse transitions added per list
+		for (int s = 0; s < total; ++s) {
+			for (int c = 0; c < num_classes; ++c) {
+				int list = c * total + target(s, c, sink);
+				inverseStates[inverseStart[list] + fill[list]++] = s;
+			}
+		}
+		fill = null;
+		
+		/*
+		 * The partition is stored as a permutation of the states, where each
+		 * block owns a contiguous range [blockStart, blockEnd) of the permutation.
+		 */
+		int[] elements = new int[total];    // The permutation of the states
+		int[] location = new int[total];    // The index of each state in the permutation
+		int[] blockOf = new int[total];     // The block each state belongs to
+		int[] blockStart = new int[total];  // The first index of each block in the permutation
+		int[] blockEnd = new int[total];    // The index after the last element of each block
+		int[] marked = new int[total];      // The number of marked states at the front of each block
+		int num_blocks = 0;
+		
+		// Create the initial partition
+		int[] initialBlock = new int[total];
+		num_blocks = initialPartition(initialBlock);
+		int[] blockSize = new int[total];
+		for (int s = 0; s < total; ++s) {
+			++blockSize[initialBlock[s]];
+		}
+		for (int b = 0, start = 0; b < num_blocks; ++b) {
+			blockStart[b] = start;
+			blockEnd[b] = start;
+			start += blockSize[b];
+		}
+		for (int s = 0; s < total; ++s) {
+			int b = initialBlock[s];
+			elements[blockEnd[b]] = s;
+			location[s] = blockEnd[b]++;
+			blockOf[s] = b;
+		}
+		initialBlock = null;
+		blockSize = null;
+		
+		// The blocks that still have to be used as splitters
+		int[] worklist = new int[total];
+		boolean[] inWorklist = new boolean[total];
+		int worklistSize = 0;
+		for (int b = 0; b < num_blocks; ++b) {
+			worklist[worklistSize++] = b;
+			inWorklist[b] = true;
+		}
+		
+		int[] splitter = new int[total]; // A copy of the states in the splitter block
+		int[] touched = new int[total];  // The blocks with marked states
+		while (worklistSize > 0) {
+			int splitBlock = worklist[--worklistSize];
+			inWorklist[splitBlock] = false;
+			// Copy the splitter, since the block may itself be split while it is used
+			int splitterSize = 0;
+			for (int i = blockStart[splitBlock]; i < blockEnd[splitBlock]; ++i) {
+				splitter[splitterSize++] = elements[i];
+			}
+			
+			for (int c = 0; c < num_classes; ++c) {
+				int num_touched = 0;
+				// Mark every state that has a transition into the splitter on the character
+				for (int i = 0; i < splitterSize; ++i) {
+					int list = c * total + splitter[i];
+					for (int e = inverseStart[list]; e < inverseStart[list+1]; ++e) {
+						int s = inverseStates[e];
+						int b = blockOf[s];
+						int markIndex = blockStart[b] + marked[b];
+						if (location[s] >= markIndex) {
+							// Move the state to the marked front of its block
+							int other = elements[markIndex];
+							elements[markIndex] = s;
+							elements[location[s]] = other;
+							location[other] = location[s];
+							location[s] = markIndex;
+							if (marked[b]++ == 0) {
+								touched[num_touched++] = b;
+							}
+						}
+					}
+				}
+				
+				// Split every block that was only partially marked
+				for (int i = 0; i < num_touched; ++i) {
+					int b = touched[i];
+					int num_marked = marked[b];
+					marked[b] = 0;
+					if (num_marked == blockEnd[b] - blockStart[b]) {
+						continue; // The whole block was marked, so it is not split
+					}
+					// The marked states become the new block
+					int newBlock = num_blocks++;
+					blockStart[newBlock] = blockStart[b];
+					blockEnd[newBlock] = blockStart[b] + num_marked;
+					blockStart[b] = blockEnd[newBlock];
+					for (int j = blockStart[newBlock]; j < blockEnd[newBlock]; ++j) {
+						blockOf[elements[j]] = newBlock;
+					}
+					/*
+					 * If the original block is still waiting to be used as a splitter, both 
+					 * halves must be used. Otherwise, using the smaller half is enough.
+					 */
+					if (inWorklist[b] || num_marked <= blockEnd[b] - blockStart[b]) {
+						worklist[worklistSize++] = newBlock;
+						inWorklist[newBlock] = true;
+					} else {
+						worklist[worklistSize++] = b;
+						inWorklist[b] = true;
+					}
+				}
+			}
+		}
+		
+		return quotient(blockOf, num_blocks);
+	}
+	
+	/**
+	 * Returns the minimal DFA for the DFA Table, found with Moore's
+	 * partition refinement run on the threads of the inputed pool
+	 * (see {@link ParallelMinimizer}). The minimal DFA is the same as 
+	 * the one returned by {@link #toMinimalDFA()}, but only a few ints
+	 * are kept per state, and each round is split between the threads.
+	 * 
+	 * @param pool the pool to run the refinement on, or null to run it on the calling thread
+	 * @return the minimal DFA of the current DFA Table
+	 */
+	public DFATable toMinimalDFAByRefinement(ForkJoinPool pool) {
+		return ParallelMinimizer.minimize(this, pool);
+	}
+	
+	/**
+	 * Creates the initial partition for minimizing the DFA, where the
+	 * non-terminating states and the error state form one block and the
+	 * terminating states are grouped by their data and pattern set. The
+	 * error state is represented by the index N, for N states.
+	 * 
+	 * @param blockOf an array of N + 1 entries to store the block of each state in
+	 * @return the number of blocks
+	 */
+	int initialPartition(int[] blockOf) {
+		int num_states = getTableSize();
+		int num_blocks = 0;
+		HashMap<TerminatingLabel, Integer> dataBlocks = new HashMap<TerminatingLabel, Integer>();
+		for (int s = 0; s <= num_states; ++s) {
+			TerminatingLabel label = (s == num_states) ? new TerminatingLabel(null, null) 
+					: new TerminatingLabel(isTerminatingState(s), getPatternSet(s));
+			Integer block = dataBlocks.get(label);
+			if (block == null) {
+				block = Integer.valueOf(num_blocks++);
+				dataBlocks.put(label, block);
+			}
+			blockOf[s] = block.intValue();
+		}
+		return num_blocks;
+	}
+	
+	/**
+	 * Returns the DFA whose states are the blocks of the inputed
+	 * partition of the states, which must be a partition of
+	 * equivalent states. The states are numbered in the order their
+	 * first state appears in the DFA, so the start state stays the
+	 * start state, and the block of the error state is left out.
+	 * 
+	 * @param blockOf the block of each state, with the error state at the index N
+	 * @param num_blocks the number of blocks
+	 * @return the DFA of the blocks
+	 */
+	DFATable quotient(int[] blockOf, int num_blocks) {
+		int num_states = getTableSize();
+		DFATable minimalDFA = new DFATable(classes); // Create the new minimal DFA
+		int sinkBlock = blockOf[num_states];
+		if (blockOf[start_id] == sinkBlock) {
+			// No terminating state can be reached, so the DFA only has a start state
+			minimalDFA.newDFAState();
+			return minimalDFA;
+		}
+		
+		// A mapping that maps a block to its corresponding state id in the minimal DFA
+		int[] blockToNewid = new int[num_blocks];
+		for (int b = 0; b < num_blocks; ++b) {
+			blockToNewid[b] = error_state_id;
+		}
+		// A mapping that maps a state id in the minimal DFA to its corresponding state id in the original DFA
+		int[] newidtoOrigTable = new int[num_blocks];
+		/*
+		 * Loop through the original states, and create a new state for each
+		 * block the first time a state in the block is seen. Since the start 
+		 * state is seen first, it will remain the start state.
+		 */
+		for (int i = 0; i < num_states; ++i) {
+			int b = blockOf[i];
+			if (b != sinkBlock && blockToNewid[b] == error_state_id) {
+				int new_id = minimalDFA.newDFAState();
+				blockToNewid[b] = new_id;
+				newidtoOrigTable[new_id] = i;
+				String data = isTerminatingState(i);
+				if (data != null) {
+					minimalDFA.setTerminatingState(new_id, data);
+				}
+				int[] patterns = getPatternSet(i);
+				if (patterns != null) {
+					minimalDFA.setPatternSet(new_id, patterns);
+				}
+			}
+		}
+		
+		// Loop through the states in the minimal DFA and add their transitions
+		for (int i = 0; i < minimalDFA.getTableSize(); ++i) {
+			int orig_id = newidtoOrigTable[i];
+			for (int class_id = 0; class_id < num_classes; ++class_id) {
+				char c = classes.getRepresentative(class_id);
+				int next_id = followTransition(orig_id, c);
+				if (next_id != error_state_id) {
+					// Transitions into the error state's block are left out
+					int new_Nextid = blockToNewid[blockOf[next_id]];
+					if (new_Nextid != error_state_id) {
+						minimalDFA.addTransition(i, new_Nextid, c);
+					}
+				}
+			}
+		}
+		
+		return minimalDFA;
+	}
+	
+	/**
+	 * Returns the index of the state reached by following the transition 
+	 * for the given character class, where the error state is 
+	 * represented by the inputed sink index.
+	 * 
+	 * @param state_id the index of the state, or the sink index
+	 * @param c the transition character class
+	 * @param sink the index used to represent the error state
+	 * @return the index of the state reached by following the transition
+	 */
+	int target(int state_id, int c, int sink) {
+		if (state_id == sink) {
+			return sink;
+		}
+		int next_row = getEntry((state_id + 1) * num_classes + c);
+		return (next_row == 0) ? sink : next_row - 1;
+	}
+	
+	/**
+	 * Returns the minimal DFA for the DFA Table using the table filling 
+	 * algorithm. This algorithm needs an NxN table of booleans and several
+	 * passes over all the pairs of states, so it should only be used
+	 * for small DFAs. It is kept as a reference for {@link #toMinimalDFA()}.
+	 * 
+	 * @return the minimal DFA of the current DFA Table
+	 */
+	public DFATable toMinimalDFAByTableFilling() {
 		int num_states = getTableSize(); // Identify the number of states (N) in the DFA
 		/*
 		 * Create an NxN table of booleans in the DFA, where if the index i, j
@@ -202,14 +732,17 @@ public class DFATable {
 			for (int j = i+1; j < num_states; ++j) {
 				// Check to see if state j is terminating
 				String jTermData = isTerminatingState(j);
-				if (iTermData == null && jTermData != null) {
-					/*
-					 *  If state i is not terminating and state j is terminating,
-					 *  then states i and j are distinct
-					 */
-					isDistinct[i][j] = true;
-					isDistinct[j][i] = true;
-				} else if (jTermData == null || !iTermData.equals(jTermData)) {
+				if (iTermData == null) {
+					if (jTermData != null) {
+						/*
+						 *  If state i is not terminating and state j is terminating,
+						 *  then states i and j are distinct
+						 */
+						isDistinct[i][j] = true;
+						isDistinct[j][i] = true;
+					}
+				} else if (jTermData == null || !iTermData.equals(jTermData) 
+						|| !Arrays.equals(getPatternSet(i), getPatternSet(j))) {
 					/*
 					 * At this stage, we know sate i is terminating, so if state j 
 					 * is not terminating or if state i and state j contain different
@@ -237,8 +770,9 @@ public class DFATable {
 						 *  Note: To be efficient we could have moved the transitions loop outside
 						 *	the j-states loop in-order to only identify i_trans once
 						 */
-						// Loop through all the possible transition characters
-						for (char c = PRINTABLE_CHAR_START_VAL; c <= PRINTABLE_CHAR_END_VAL; ++c) {
+						// Loop through all the possible transition character classes
+						for (int class_id = 0; class_id < num_classes; ++class_id) {
+							char c = classes.getRepresentative(class_id);
 							// Follow the transition for character c from both states and j
 							int i_trans = followTransition(i, c); 
 							int j_trans = followTransition(j, c);
@@ -270,7 +804,7 @@ public class DFATable {
 		boolean[] beenMerged = new boolean[num_states]; // A boolean array indicating if the given state has been merged
 		
 
-		DFATable minimalDFA = new DFATable(); // Create the new minimal DFA
+		DFATable minimalDFA = new DFATable(classes); // Create the new minimal DFA
 		
 		 // A mapping that maps a state id in the original DFA to its corresponding state id in the minimal DFA
 		int[] origToNewidtable = new int[num_states];
@@ -290,6 +824,10 @@ public class DFATable {
 				if (data != null) {
 					minimalDFA.setTerminatingState(new_id, data);
 				}
+				int[] patterns = getPatternSet(i);
+				if (patterns != null) {
+					minimalDFA.setPatternSet(new_id, patterns);
+				}
 				
 				// Save that the new_id in the minimal DFA corresponds to state i in the original DFA
 				newidtoOrigTable[new_id] = i; 
@@ -313,8 +851,9 @@ public class DFATable {
 		for (int i = 0; i < minimal_numStates; ++i) {
 			// Identify which state in the original DFA the minimal DFA state corresponds to
 			int orig_id = newidtoOrigTable[i];
-			// Loop through the possible character transition values
-			for (char c = PRINTABLE_CHAR_START_VAL; c <= PRINTABLE_CHAR_END_VAL; ++c) {
+			// Loop through the possible character transition classes
+			for (int class_id = 0; class_id < num_classes; ++class_id) {
+				char c = classes.getRepresentative(class_id);
 				// Follow the transition for the given character c
 				int next_id = followTransition(orig_id, c);
 				if (next_id != error_state_id) {
@@ -352,12 +891,11 @@ public class DFATable {
 		builder.append("TERM_DATA\n");
 		
 		// Loop through the states in the DFA
-		for (int i = start_id; i < table.size(); ++i) {
+		for (int i = start_id; i < getTableSize(); ++i) {
 			builder.append(i).append(delimiter); // Print the state id
-			int[] transitions = table.get(i); // Get the transitions for the given state
-			// Loop through all the possible transitions
-			for (int j = 0; j < NUM_PRINTABLE_CHARS; ++j) {
-				int next_state = transitions[j]; // Get the state seen by following the transition
+			// Loop through all the possible printable character transitions
+			for (char c = PRINTABLE_CHAR_START_VAL; c <= PRINTABLE_CHAR_END_VAL; ++c) {
+				int next_state = followTransition(i, c); // Get the state seen by following the transition
 				if (next_state == error_state_id) {
 					// If the next state is an error state, print out an empty space
 					builder.append(empty_space).append(delimiter);
@@ -398,4 +936,261 @@ public class DFATable {
 			System.err.format("IOException: %s", e);
 		}	
 	}
+	
+	/**
+	 * Writes the DFA in a binary format that can be read back with
+	 * {@link #readFrom(ByteBuffer)}. The format is:
+	 * 
+	 * magic number and format version
+	 * number of classes, followed by the class of each character from 0 to 255
+	 * number of rows and transition width, followed by the rows of the table
+	 * number of distinct terminating data strings, followed by each string
+	 * number of terminating states, followed by each state id and the index of its data
+	 * number of pattern sets, followed by each state id, number of patterns and pattern ids
+	 * 
+	 * The rows are written with the transition width of the table, so the table
+	 * can be read back with a single bulk copy. Every value is big-endian.
+	 * 
+	 * @param out the output to write the DFA to
+	 * @throws IOException if the DFA can not be written
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		out.writeInt(num_classes);
+		out.write(classMap);
+		
+		int width = getTransitionWidth();
+		out.writeInt(num_rows);
+		out.writeInt(width);
+		int size = num_rows * num_classes;
+		if (width == 1) {
+			out.write(byteTable, 0, size);
+		} else {
+			for (int i = 0; i < size; ++i) {
+				if (width == 2) {
+					out.writeShort(shortTable[i]);
+				} else {
+					out.writeInt(intTable[i]);
+				}
+			}
+		}
+		
+		/*
+		 * Most terminating states share the same data, so each distinct string is
+		 * written once, and the terminating states refer to it by its index.
+		 */
+		ArrayList<String> strings = new ArrayList<String>();
+		HashMap<String, Integer> stringIndex = new HashMap<String, Integer>();
+		for (String data: terminatingStates.values()) {
+			if (data != null && !stringIndex.containsKey(data)) {
+				stringIndex.put(data, Integer.valueOf(strings.size()));
+				strings.add(data);
+			}
+		}
+		out.writeInt(strings.size());
+		for (String data: strings) {
+			out.writeInt(data.length());
+			out.writeChars(data);
+		}
+		out.writeInt(terminatingStates.size());
+		for (Map.Entry<Integer, String> entry: terminatingStates.entrySet()) {
+			out.writeInt(entry.getKey().intValue());
+			out.writeInt((entry.getValue() == null) ? -1 : stringIndex.get(entry.getValue()).intValue());
+		}
+		
+		out.writeInt(patternSets.size());
+		for (Map.Entry<Integer, int[]> entry: patternSets.entrySet()) {
+			int[] patterns = entry.getValue();
+			out.writeInt(entry.getKey().intValue());
+			out.writeInt(patterns.length);
+			for (int pattern: patterns) {
+				out.writeInt(pattern);
+			}
+		}
+	}
+	
+	/**
+	 * Reads a DFA that was written by {@link #writeTo(DataOutput)} from
+	 * the current position of the inputed buffer, which is typically a
+	 * memory-mapped file. The table is copied out of the buffer into a
+	 * single array, so no objects are created for each state. The buffer
+	 * is left positioned after the DFA.
+	 * 
+	 * @param buffer the buffer to read the DFA from
+	 * @return the DFA that was read
+	 * @throws IOException if the buffer does not hold a DFA written with the current format version
+	 */
+	public static DFATable readFrom(ByteBuffer buffer) throws IOException {
+		try {
+			if (buffer.getInt() != MAGIC) {
+				throw new IOException("Not a serialized DFA Table");
+			}
+			int version = buffer.getInt();
+			if (version != FORMAT_VERSION) {
+				throw new IOException("Unsupported DFA Table format version " + version);
+			}
+			int num_classes = buffer.getInt();
+			byte[] classMap = new byte[256];
+			buffer.get(classMap);
+			DFATable dfa;
+			try {
+				dfa = new DFATable(ByteClasses.fromClassMap(classMap));
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Invalid class map: " + e.getMessage());
+			}
+			if (dfa.num_classes != num_classes) {
+				throw new IOException("Class map does not have " + num_classes + " classes");
+			}
+			
+			/*
+			 * Copy the rows straight into the array for the stored width. The
+			 * table has no spare rows, so it is grown again if states are added.
+			 * A table is always written at the narrowest width for its rows,
+			 * which resize() relies on when it grows a table, so any other 
+			 * width is rejected.
+			 */
+			int num_rows = buffer.getInt();
+			int width = buffer.getInt();
+			int max_rows = (width == 1) ? MAX_BYTE_ROWS : (width == 2) ? MAX_SHORT_ROWS : Integer.MAX_VALUE;
+			int min_rows = (width == 1) ? 1 : (width == 2) ? MAX_BYTE_ROWS + 1 : MAX_SHORT_ROWS + 1;
+			if (num_rows < min_rows || num_rows > max_rows || (width != 1 && width != 2 && width != 4)
+					|| (long) num_rows * num_classes * width > buffer.remaining()) {
+				throw new IOException("Invalid table size");
+			}
+			int size = num_rows * num_classes;
+			dfa.byteTable = null;
+			if (width == 1) {
+				dfa.byteTable = new byte[size];
+				buffer.get(dfa.byteTable);
+			} else if (width == 2) {
+				dfa.shortTable = new short[size];
+				buffer.asShortBuffer().get(dfa.shortTable);
+				buffer.position(buffer.position() + 2 * size);
+			} else {
+				dfa.intTable = new int[size];
+				buffer.asIntBuffer().get(dfa.intTable);
+				buffer.position(buffer.position() + 4 * size);
+			}
+			dfa.num_rows = num_rows;
+			dfa.row_capacity = num_rows;
+			dfa.next_id = num_rows - 1;
+			for (int i = 0; i < size; ++i) {
+				int row = dfa.getEntry(i);
+				if (row < 0 || row >= num_rows) {
+					throw new IOException("Transition to row " + row + " is out of range");
+				}
+			}
+			
+			String[] strings = new String[readLength(buffer, 4)];
+			for (int i = 0; i < strings.length; ++i) {
+				char[] chars = new char[readLength(buffer, 2)];
+				buffer.asCharBuffer().get(chars);
+				buffer.position(buffer.position() + 2 * chars.length);
+				strings[i] = new String(chars);
+			}
+			int num_terminating = buffer.getInt();
+			for (int i = 0; i < num_terminating; ++i) {
+				int state_id = dfa.checkStateID(buffer.getInt());
+				int index = buffer.getInt();
+				dfa.setTerminatingState(state_id, (index == -1) ? null : strings[index]);
+			}
+			int num_pattern_sets = buffer.getInt();
+			for (int i = 0; i < num_pattern_sets; ++i) {
+				int state_id = dfa.checkStateID(buffer.getInt());
+				int[] patterns = new int[readLength(buffer, 4)];
+				buffer.asIntBuffer().get(patterns);
+				buffer.position(buffer.position() + 4 * patterns.length);
+				dfa.setPatternSet(state_id, patterns);
+			}
+			return dfa;
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Serialized DFA Table is truncated");
+		} catch (IndexOutOfBoundsException e) {
+			throw new IOException("Serialized DFA Table is corrupt");
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Serialized DFA Table is corrupt");
+		}
+	}
+	
+	/**
+	 * Reads the number of elements that follow in the buffer, and
+	 * checks that the buffer is long enough to hold them.
+	 * 
+	 * @param buffer the buffer to read the number from
+	 * @param element_size the smallest number of bytes each element takes
+	 * @return the number of elements
+	 * @throws IOException if the number is negative or the elements do not fit in the buffer
+	 */
+	private static int readLength(ByteBuffer buffer, int element_size) throws IOException {
+		int length = buffer.getInt();
+		if (length < 0 || (long) length * element_size > buffer.remaining()) {
+			throw new IOException("Serialized DFA Table is truncated");
+		}
+		return length;
+	}
+	
+	/**
+	 * Checks that the inputed id is the id of a state in the DFA.
+	 * 
+	 * @param state_id the id to check
+	 * @return the id of the state
+	 * @throws IOException if there is no state with the id
+	 */
+	private int checkStateID(int state_id) throws IOException {
+		if (state_id < start_id || state_id >= getTableSize()) {
+			throw new IOException("State " + state_id + " is out of range");
+		}
+		return state_id;
+	}
+	
+	/**
+	 * The data and pattern set of a state, which are used to 
+	 * group the states in the initial partition when minimizing.
+	 */
+	private static class TerminatingLabel {
+		
+		/** The data associated with the state, or null if it is not terminating. */
+		private String data;
+		
+		/** The pattern ids of the state, or null if it has none. */
+		private int[] patterns;
+		
+		/**
+		 * Creates a label with the inputed data and pattern set.
+		 * 
+		 * @param data the data associated with the state
+		 * @param patterns the pattern ids of the state
+		 */
+		public TerminatingLabel(String data, int[] patterns) {
+			this.data = data;
+			this.patterns = patterns;
+		}
+		
+		/**
+		 * Returns a hash of the data and the pattern ids.
+		 * 
+		 * @return hash code for the label
+		 */
+		@Override
+		public int hashCode() {
+			return 31 * ((data == null) ? 0 : data.hashCode()) + Arrays.hashCode(patterns);
+		}
+		
+		/**
+		 * Checks if the inputed object is a label with equal data and pattern ids.
+		 * 
+		 * @param obj the object to compare to
+		 * @return true if the labels are equal
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof TerminatingLabel)) {
+				return false;
+			}
+			TerminatingLabel other = (TerminatingLabel) obj;
+			return ((data == null) ? other.data == null : data.equals(other.data))
+					&& Arrays.equals(patterns, other.patterns);
+		}
+	}
 }
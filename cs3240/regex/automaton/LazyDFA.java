@@ -0,0 +1,297 @@
+package cs3240.regex.automaton;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * This class represents a DFA that is built lazily from
+ * an NFA while it is being traversed. A DFA state, and each
+ * of its transitions, is only created the first time it is
+ * reached, so the DFA never contains states that the input
+ * does not need.
+ * 
+ * The created states are kept in a cache with a memory budget.
+ * When adding a state would exceed the budget, the whole cache
+ * is flushed and the DFA is rebuilt on demand from the state
+ * being traversed. This bounds the memory used on regular
+ * expressions whose DFA grows exponentially.
+ * 
+ * Because of flushing, a state id is only guaranteed to stay valid
+ * until the next call to {@link #followTransition(int, char)}, 
+ * except for the id returned by that call and the start state id.
+ * This class is not thread-safe.
+ */
+public class LazyDFA implements Automaton {
+	
+	/** The default memory budget for the state cache, in bytes. */
+	public static final long DEFAULT_CACHE_SIZE = 8L << 20;
+	
+	/** The value stored for transitions that have not been computed yet. */
+	private static final int UNKNOWN = -2;
+	
+	/** The estimated memory used by a state, not counting its NFA state set and transitions. */
+	private static final long STATE_OVERHEAD = 16 + 120;
+	
+	/** The id for the start state of the DFA. */
+	private int start_id = 0;
+	
+	/** The id for the error state of the DFA. */
+	private int error_state_id = -1;
+	
+	/** The states of the NFA the DFA is built from. */
+	private NFAArena arena;
+	
+	/** The classes of the transition characters, which index the transitions of a state. */
+	private ByteClasses classes;
+	
+	/** The number of character classes. */
+	private int num_classes;
+	
+	/** The epsilon closure of the NFA start state. */
+	private NFAStateBitSet startSet;
+	
+	/** A set that is reused to compute the state set reached by a transition. */
+	private NFAStateBitSet nextSet;
+	
+	/** The memory budget for the state cache, in bytes. */
+	private long cacheSize;
+	
+	/** The estimated memory used by the states in the cache, in bytes. */
+	private long usedBytes;
+	
+	/** The number of times the cache has been flushed. */
+	private int flushCount;
+	
+	/** The transitions for each cached state, indexed by the state id. */
+	private ArrayList<int[]> table;
+	
+	/** The set of NFA states that each cached state represents. */
+	private ArrayList<NFAStateBitSet> stateSets;
+	
+	/** The terminating data for each cached state, or null if the state is not terminating. */
+	private ArrayList<String> terminatingData;
+	
+	/** A mapping between a set of NFA states and the id of its cached state. */
+	private HashMap<NFAStateBitSet, Integer> stateIds;
+	
+	/**
+	 * Creates a lazy DFA for the inputed NFA with the
+	 * default memory budget for the state cache.
+	 * 
+	 * @param nfa the NFA to build the DFA from
+	 */
+	public LazyDFA(NFA nfa) {
+		this(nfa, DEFAULT_CACHE_SIZE);
+	}
+	
+	/**
+	 * Creates a lazy DFA for the inputed NFA which flushes its
+	 * state cache whenever the cached states would use more than
+	 * the inputed number of bytes. The cache always holds at least
+	 * the start state and the state being traversed to.
+	 * 
+	 * @param nfa the NFA to build the DFA from
+	 * @param cacheSize the memory budget for the state cache, in bytes
+	 */
+	public LazyDFA(NFA nfa, long cacheSize) {
+		this(nfa.toArena(), cacheSize);
+	}
+	
+	/**
+	 * Creates a lazy DFA for the NFA held by the inputed arena, with
+	 * the inputed memory budget for the state cache. The DFA uses its
+	 * own copy of the arena, so an arena can be shared by lazy DFAs
+	 * that are used from different threads.
+	 * 
+	 * @param arena the arena holding the NFA to build the DFA from
+	 * @param cacheSize the memory budget for the state cache, in bytes
+	 */
+	public LazyDFA(NFAArena arena, long cacheSize) {
+		this.arena = arena.copy();
+		this.classes = arena.getByteClasses();
+		this.num_classes = classes.getNumClasses();
+		this.cacheSize = cacheSize;
+		this.table = new ArrayList<int[]>();
+		this.stateSets = new ArrayList<NFAStateBitSet>();
+		this.terminatingData = new ArrayList<String>();
+		this.stateIds = new HashMap<NFAStateBitSet, Integer>();
+		
+		int num_states = arena.getStateCount();
+		this.nextSet = new NFAStateBitSet(num_states);
+		this.startSet = new NFAStateBitSet(num_states);
+		this.arena.addClosure(startSet, arena.getStartState());
+		addState(startSet);
+	}
+	
+	/**
+	 * Returns the start state id for the DFA.
+	 * 
+	 * @return the start state id
+	 * @see Automaton#getStartID()
+	 */
+	public int getStartID() {
+		return start_id;
+	}
+	
+	/**
+	 * Returns the error state id for the DFA.
+	 * 
+	 * @return the error state id
+	 * @see Automaton#getErrorStateID()
+	 */
+	public int getErrorStateID() {
+		return error_state_id;
+	}
+	
+	/**
+	 * Returns the next state found by following the transition 
+	 * for the inputed character from the inputed state. If the
+	 * transition has not been followed before, the next state 
+	 * is computed from the NFA and added to the cache.
+	 * 
+	 * @param state_id the id of the a state in the DFA to transition from
+	 * @param c the character transition to follow
+	 * @return an integer for the id of state seen by following the transition
+	 * @see Automaton#followTransition(int, char)
+	 */
+	public int followTransition(int state_id, char c) {
+		// The error state always leads to the error state
+		if (state_id == error_state_id) {
+			return error_state_id;
+		}
+		int class_id = classes.getClass(c);
+		int[] transitions = table.get(state_id);
+		int next_id = transitions[class_id];
+		if (next_id != UNKNOWN) {
+			return next_id;
+		}
+		
+		// Compute the set of NFA states reached by following the transition
+		nextSet.clear();
+		arena.move(stateSets.get(state_id), class_id, nextSet);
+		if (nextSet.isEmpty()) {
+			next_id = error_state_id;
+		} else {
+			Integer id = stateIds.get(nextSet);
+			if (id != null) {
+				next_id = id.intValue();
+			} else {
+				NFAStateBitSet set = nextSet.copy();
+				if (usedBytes + stateCost(set) > cacheSize) {
+					/*
+					 * The new state does not fit in the cache, so flush the cache. 
+					 * The transition is not recorded, since the state it belongs to
+					 * has been removed from the cache. The set may be the start set,
+					 * which the flush has added back, so it is looked up again.
+					 */
+					flush();
+					id = stateIds.get(set);
+					return (id != null) ? id.intValue() : addState(set);
+				}
+				next_id = addState(set);
+			}
+		}
+		transitions[class_id] = next_id;
+		return next_id;
+	}
+	
+	/**
+	 * Follows the transitions for the characters in the inputed 
+	 * range of the input, starting from the inputed state.
+	 * 
+	 * @param input the characters to follow the transitions for
+	 * @param from the index of the first character to follow
+	 * @param to the index after the last character to follow
+	 * @param state_id the id of the state to start from
+	 * @return the id of the state reached after following the transitions, or the error state id
+	 * @see Automaton#walk(CharSequence, int, int, int)
+	 */
+	public int walk(CharSequence input, int from, int to, int state_id) {
+		for (int i = from; i < to && state_id != error_state_id; ++i) {
+			state_id = followTransition(state_id, input.charAt(i));
+		}
+		return state_id;
+	}
+	
+	/**
+	 * Checks to see if the inputed state is a terminating state, 
+	 * and if it is, it then returns the data associated with the 
+	 * terminating state. If the state is not terminating, then 
+	 * null is returned.
+	 * 
+	 * @param state_id the id of the state to check if it is terminating
+	 * @return the data associated with the state if it is terminating, or null if the state is not terminating
+	 * @see Automaton#isTerminatingState(int)
+	 */
+	public String isTerminatingState(int state_id) {
+		if (state_id == error_state_id) {
+			return null;
+		}
+		return terminatingData.get(state_id);
+	}
+	
+	/**
+	 * Returns the number of states currently in the cache.
+	 * 
+	 * @return the number of cached states
+	 */
+	public int getCacheStateCount() {
+		return table.size();
+	}
+	
+	/**
+	 * Returns the number of times the state cache has been flushed.
+	 * 
+	 * @return the number of cache flushes
+	 */
+	public int getFlushCount() {
+		return flushCount;
+	}
+	
+	/**
+	 * Adds a state for the inputed set of NFA states to the cache,
+	 * with all of its transitions not computed yet.
+	 * 
+	 * @param set the set of NFA states the state represents
+	 * @return the id of the new state
+	 */
+	private int addState(NFAStateBitSet set) {
+		int[] transitions = new int[num_classes];
+		for (int i = 0; i < num_classes; ++i) {
+			transitions[i] = UNKNOWN;
+		}
+		int id = table.size();
+		table.add(transitions);
+		stateSets.add(set);
+		int term_state = arena.findTerminatingState(set);
+		terminatingData.add(term_state == -1 ? null : arena.getType(term_state));
+		stateIds.put(set, Integer.valueOf(id));
+		usedBytes += stateCost(set);
+		return id;
+	}
+	
+	/**
+	 * Removes all the states from the cache, and then adds
+	 * the start state back so that it keeps its id.
+	 */
+	private void flush() {
+		table.clear();
+		stateSets.clear();
+		terminatingData.clear();
+		stateIds.clear();
+		usedBytes = 0;
+		++flushCount;
+		addState(startSet);
+	}
+	
+	/**
+	 * Returns the estimated number of bytes used by a cached state
+	 * for the inputed set of NFA states.
+	 * 
+	 * @param set the set of NFA states
+	 * @return the estimated memory used by the state, in bytes
+	 */
+	private long stateCost(NFAStateBitSet set) {
+		return STATE_OVERHEAD + 4 * num_classes + set.memoryUsage();
+	}
+}
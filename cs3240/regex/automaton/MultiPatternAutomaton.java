@@ -0,0 +1,20 @@
+package cs3240.regex.automaton;
+
+/**
+ * This interface represents a deterministic automaton that
+ * matches several patterns at once, where each terminating
+ * state records the ids of the patterns matched by the input
+ * that reaches it (see {@link cs3240.regex.parser.RegexSet}).
+ */
+public interface MultiPatternAutomaton extends Automaton {
+	/**
+	 * Returns the ids of the patterns matched by the inputed
+	 * state in increasing order. If the state does not match
+	 * any pattern, null is returned. The returned array should
+	 * not be modified.
+	 *
+	 * @param state_id the id of the state
+	 * @return the pattern ids of the state, or null if the state has none
+	 */
+	public int[] getPatternSet(int state_id);
+}
@@ -2,8 +2,8 @@ package cs3240.regex.automaton;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.HashSet;
+import java.util.concurrent.ForkJoinPool;
 
 // TODO: Auto-generated Javadoc
 /**
@@ -20,11 +20,8 @@ import java.util.Queue;
  */
 public class NFA {
 	
-	/** The ASCII value of the first ASCII printable character. */
-	private static final char PRINTABLE_CHAR_START_VAL = 32;
-	
-	/** The ASCII value of the last ASCII printable character. */
-	private static final char PRINTABLE_CHAR_END_VAL = 126;
+	/** The default maximum number of states in a DFA built from an NFA before the NFA is simulated instead. */
+	public static final int DEFAULT_MAX_DFA_STATES = 10000;
 	
 	/** The start state in the automaton. */
 	private NFAState startState;
@@ -32,6 +29,12 @@ public class NFA {
 	/** A list of the terminating states in the automaton. */
 	private ArrayList<NFAState> terminatingStates;
 	
+	/** The reachable states of the automaton ordered by their index, or null if it has not been indexed. */
+	private NFAState[] states;
+	
+	/** The classes of the transition characters used by the DFAs built from the automaton, or null for the default classes. */
+	private ByteClasses classes;
+	
 	/**
 	 * The main constructor for an NFA 
 	 * that simply creates an empty automaton. 
@@ -152,6 +155,21 @@ public class NFA {
 		}
 	}
 	
+	/**
+	 * Sets the pattern id of all the terminating states. 
+	 * When the NFA is combined with the NFAs of other patterns, 
+	 * the states of the DFA built from the combined NFA record 
+	 * the ids of the patterns they match (see {@link DFATable#getPatternSet(int)}).
+	 *  
+	 * @param pattern the pattern id each terminating state should have
+	 */
+	public void setTerminatingStatesPattern(int pattern) {
+		// Loop through the terminating states and set their pattern id
+		for (NFAState state: terminatingStates) {
+			state.setPattern(pattern);
+		}
+	}
+	
 	/**
 	 * Returns the start state of the NFA.
 	 *
@@ -179,6 +197,115 @@ public class NFA {
 		return terminatingStates;
 	}
 
+	/**
+	 * Gives each state that can be reached from the start state
+	 * a dense index, starting from 0 for the start state, so 
+	 * that sets of states can be stored as NFAStateBitSets. 
+	 * The indexes are only valid until another NFA that shares 
+	 * states with this NFA is indexed.
+	 * 
+	 * @return an array of the reachable states, ordered by their index
+	 */
+	NFAState[] indexStates() {
+		ArrayList<NFAState> reachable = new ArrayList<NFAState>();
+		HashSet<NFAState> seen = new HashSet<NFAState>();
+		reachable.add(startState);
+		seen.add(startState);
+		// Follow the transitions in breadth first order, starting at the start state
+		for (int i = 0; i < reachable.size(); ++i) {
+			NFAState state = reachable.get(i);
+			for (NFAState next: state.epsilonTargets()) {
+				if (seen.add(next)) {
+					reachable.add(next);
+				}
+			}
+			for (NFAStateSet set: state.getTransitions()) {
+				for (NFAState next: set.getNFAStates()) {
+					if (seen.add(next)) {
+						reachable.add(next);
+					}
+				}
+			}
+		}
+		
+		states = reachable.toArray(new NFAState[reachable.size()]);
+		for (int i = 0; i < states.length; ++i) {
+			states[i].index = i;
+		}
+		return states;
+	}
+	
+	/**
+	 * Indexes the states of the NFA, and copies them into an
+	 * {@link NFAArena} with an {@link NFABuilder}, which stores the
+	 * transitions in flat arrays grouped by the character classes of
+	 * the NFA. The arena does not change when the NFA is changed afterwards.
+	 * 
+	 * @return an arena holding the reachable states of the NFA
+	 */
+	public NFAArena toArena() {
+		NFAState[] states = indexStates();
+		NFABuilder builder = new NFABuilder(getByteClasses());
+		for (int i = 0; i < states.length; ++i) {
+			builder.newState();
+		}
+		for (int i = 0; i < states.length; ++i) {
+			for (Character c: states[i].getTransitionCharacters()) {
+				for (NFAState target: states[i].followTransition(c.charValue()).getNFAStates()) {
+					builder.addTransition(i, c.charValue(), target.index);
+				}
+			}
+			for (NFAState target: states[i].epsilonTargets()) {
+				builder.addEpsilonTransition(i, target.index);
+			}
+			if (states[i].isTerminating()) {
+				builder.setTerminating(i, states[i].getType(), states[i].getPattern());
+			}
+		}
+		return builder.toArena(startState.index);
+	}
+	
+	/**
+	 * Returns the number of states that can be reached
+	 * from the start state of the NFA.
+	 * 
+	 * @return the number of reachable states in the NFA
+	 */
+	public int getStateCount() {
+		return indexStates().length;
+	}
+
+	/**
+	 * Returns the classes of the transition characters
+	 * that are used by the DFAs built from the NFA.
+	 * 
+	 * @return the character classes of the NFA
+	 */
+	public ByteClasses getByteClasses() {
+		// Most NFAs are only pieces of a larger NFA, so the default classes are only created when needed
+		if (classes == null) {
+			classes = ByteClasses.printableCharacters();
+		}
+		return classes;
+	}
+
+	/**
+	 * Sets the classes of the transition characters that
+	 * are used by the DFAs built from the NFA. The transitions
+	 * of the characters in a class are followed for every
+	 * character in the class, so each character in a class
+	 * should have the same transitions in the NFA, unless the
+	 * NFA is meant to match the class as a whole, such as the
+	 * case-folded classes of a case-insensitive NFA. The classes
+	 * should be set once the NFA is complete. By default, each
+	 * printable character has its own class.
+	 * 
+	 * @param classes the new character classes of the NFA
+	 */
+	public void setByteClasses(ByteClasses classes) {
+		this.classes = classes;
+	}
+
 	/**
 	 * This method returns a DFA that is created
 	 * by converting the NFA instance to a DFA.
@@ -186,51 +313,102 @@ public class NFA {
 	 * @return the DFATable from converting the NFA to a DFA 
 	 */
 	public DFATable toDFA() {
-		DFATable dfa = new DFATable(); // Create the DFA to store the converted NFA in
+		return toDFA(Integer.MAX_VALUE);
+	}
+
+	/**
+	 * This method returns a DFA that is created by converting
+	 * the NFA instance to a DFA, unless the DFA would have more
+	 * than the inputed number of states. In that case, the
+	 * conversion is stopped and null is returned, so the NFA
+	 * can be simulated instead (see {@link PikeVM}). If the 
+	 * minire.dfa.threads property is more than one, the DFA is
+	 * built on that many threads (see {@link ParallelDeterminizer}).
+	 * 
+	 * @param maxStates the maximum number of states in the DFA
+	 * @return the DFATable from converting the NFA to a DFA, or null if the DFA has too many states
+	 */
+	public DFATable toDFA(int maxStates) {
+		return toDFA(maxStates, ParallelDeterminizer.getDefaultPool());
+	}
+
+	/**
+	 * This method returns a DFA that is created by converting
+	 * the NFA instance to a DFA, the same way as {@link #toDFA(int)},
+	 * but computing the transitions on the threads of the inputed
+	 * pool. The DFA is the same whichever pool is used.
+	 * 
+	 * @param maxStates the maximum number of states in the DFA
+	 * @param pool the pool to compute the transitions on, or null to build the DFA on the calling thread
+	 * @return the DFATable from converting the NFA to a DFA, or null if the DFA has too many states
+	 */
+	public DFATable toDFA(int maxStates, ForkJoinPool pool) {
+		// Copy the NFA into flat arrays
+		return toDFA(toArena(), maxStates, pool);
+	}
+
+	/**
+	 * This method returns a DFA that is created by converting the
+	 * NFA held by the inputed arena to a DFA, the same way as
+	 * {@link #toDFA(int, ForkJoinPool)}.
+	 * 
+	 * @param arena the arena holding the NFA
+	 * @param maxStates the maximum number of states in the DFA
+	 * @param pool the pool to compute the transitions on, or null to build the DFA on the calling thread
+	 * @return the DFATable from converting the NFA to a DFA, or null if the DFA has too many states
+	 */
+	static DFATable toDFA(NFAArena arena, int maxStates, ForkJoinPool pool) {
+		if (pool != null) {
+			return ParallelDeterminizer.determinize(arena, maxStates, pool);
+		}
+		ByteClasses classes = arena.getByteClasses();
+		DFATable dfa = new DFATable(classes); // Create the DFA to store the converted NFA in
+		int num_states = arena.getStateCount();
 		// A mapping between a set NFA states and their corresponding DFA state
-		HashMap<NFAStateSet, Integer> dfaStates = new HashMap<NFAStateSet, Integer>();
+		HashMap<NFAStateBitSet, Integer> dfaStates = new HashMap<NFAStateBitSet, Integer>();
+		// The set of NFA states for each DFA state, indexed by the DFA state id
+		ArrayList<NFAStateBitSet> stateSets = new ArrayList<NFAStateBitSet>();
 		
-		// A queue of the NFA state sets that need to be analyzed
-		Queue<NFAStateSet> stateQueue = new LinkedList<NFAStateSet>();
 		/*
 		 * Identify the start state in the DFA by doing an epsilon closure
 		 * on the NFA start state to identify the start state set
 		 */
-		NFAStateSet start_set = epsilon_closure(new NFAStateSet(startState));
+		NFAStateBitSet start_set = new NFAStateBitSet(num_states);
+		arena.addClosure(start_set, arena.getStartState());
 		
 		// Create the start state for the DFA
 		int start_id = dfa.newDFAState();
 		// Map the start state set to the DFA start state
 		dfaStates.put(start_set, Integer.valueOf(start_id));
-		stateQueue.add(start_set); // Add the start state state set to the DFA
+		stateSets.add(start_set);
 		
 		// Check to see if the start state set has a terminating state
-		NFAState termState = hasTerminatingState(start_set);
-		if (termState != null) {
-			/*
-			 * If it has a terminating state, then set the
-			 * corresponding DFA state as terminating, and
-			 * store the type of the NFA state in the corresponding
-			 * DFA state.
-			 */
-			dfa.setTerminatingState(start_id, termState.getType());
-		}
+		setTerminatingState(dfa, start_id, arena, start_set);
 		
-		// Continue looping until all necessary NFA state sets have been processed 
-		while (!stateQueue.isEmpty()) {
-			// Get the next state set to analyze as well as the id of the corresponding DFA state
-			NFAStateSet state_set = stateQueue.poll();  
-			int state_id = dfaStates.get(state_set).intValue();
-			// Loop through all the possible transitions
-			for (char c = PRINTABLE_CHAR_START_VAL; c <= PRINTABLE_CHAR_END_VAL; ++c) {
+		/*
+		 * A set that is reused to compute the state set reached by each 
+		 * transition. It is only copied when it is a new state set.
+		 */
+		NFAStateBitSet nextState_set = new NFAStateBitSet(num_states);
+		/*
+		 * Continue looping until all necessary NFA state sets have been processed. 
+		 * The DFA states are created in the order the state sets are first seen,
+		 * so the state sets are processed in the order of their DFA state ids.
+		 */
+		for (int state_id = 0; state_id < stateSets.size(); ++state_id) {
+			NFAStateBitSet state_set = stateSets.get(state_id);
+			// Loop through the transitions for each character class
+			for (int class_id = 0; class_id < classes.getNumClasses(); ++class_id) {
 				/*
 				 * For each transition, perform a move on the state set, and then
 				 * an epsilon closure on the state set resulting from the move. 
 				 * This leads to a new state that set that will contain all the states
 				 * that can be reached by following the given transition from one
 				 * or more of the NFAStates in the state_set that is being processed. 
+				 * The arena does both in a single pass.
 				 */
-				NFAStateSet nextState_set = epsilon_closure(move(state_set, c));
+				nextState_set.clear();
+				arena.move(state_set, class_id, nextState_set);
 				// Check to see that state set is not empty
 				if (!nextState_set.isEmpty()) {
 					// See if the state set already has a corresponding DFA state
@@ -239,28 +417,20 @@ public class NFA {
 					if (dfaStateID == null) {
 						/*
 						 * The state set does not have a corresponding DFA state,
-						 * so create a state in the DFA for this state set 
+						 * so create a state in the DFA for this state set, and
+						 * store a copy of the state set so it can be processed.
+						 * Stop if the DFA would have too many states.
 						 */
+						if (stateSets.size() >= maxStates) {
+							return null;
+						}
 						nextState_id = dfa.newDFAState();
-						// Add a mapping between this state set and the id of the DFA state
-						dfaStates.put(nextState_set, Integer.valueOf(nextState_id));
-						/*
-						 * Add this state set to the queue, since we know it has never
-						 * been seen before because we had to create a DFA state for it.
-						 */
-						stateQueue.add(nextState_set);
+						NFAStateBitSet new_set = nextState_set.copy();
+						dfaStates.put(new_set, Integer.valueOf(nextState_id));
+						stateSets.add(new_set);
 
-						// Check to see if the start state set has a terminating state
-						termState = hasTerminatingState(nextState_set);
-						if (termState != null) {
-							/*
-							 * If it has a terminating state, then set the
-							 * corresponding DFA state as terminating, and
-							 * store the type of the NFA state in the corresponding
-							 * DFA state.
-							 */
-							dfa.setTerminatingState(nextState_id, termState.getType());
-						}
+						// Check to see if the state set has a terminating state
+						setTerminatingState(dfa, nextState_id, arena, new_set);
 					} else {
 						/*
 						 * If the state set has been seen before, then simply get out the
@@ -274,7 +444,7 @@ public class NFA {
 					 * for the current state set to the DFA state for the state 
 					 * set been by following the transition for the character. 
 					 */
-					dfa.addTransition(state_id, nextState_id, c);
+					dfa.addTransition(state_id, nextState_id, classes.getRepresentative(class_id));
 				}
 			}
 		}
@@ -282,97 +452,75 @@ public class NFA {
 	}
 	
 	/**
-	 * This method performs an epsilon closure operation
-	 * on a given set of states. The epsilon closure
-	 * operation takes in a set of NFA states
-	 * and then returns a new set of NFA states which 
-	 * are all the states that can be reached by following 
-	 * epsilon transitions. This set will always at least
-	 * contain the states in the inputed NFA state set.
+	 * Sets the inputed DFA state as terminating if its set of NFA
+	 * states has a terminating state. The DFA state gets the type
+	 * of the terminating NFA state with the lowest index, and the
+	 * pattern ids of all of the terminating NFA states.
 	 * 
-	 * @param set a set of NFAState instances
-	 * @return the NFAStateSet found by performing an epsilon-closure on the inputed set
+	 * @param dfa the DFA being built
+	 * @param state_id the id of the DFA state
+	 * @param arena the arena holding the NFA states
+	 * @param set the set of NFA states of the DFA state
 	 */
-	private NFAStateSet epsilon_closure(NFAStateSet set) {
-		// Create the closure set and the original states to the set
-		NFAStateSet closureSet = new NFAStateSet(); 
-		closureSet.addStates(set);
-		
-		/*
-		 * Create a queue of states in which we need to follow their
-		 * epsilon transitions.
-		 */
-		Queue<NFAState> closureQueue = new LinkedList<NFAState>();
-		// Add the original states to the queue
-		closureQueue.addAll(set.getNFAStates());
-		// Continue looping till we have processed all the states that exist in the queue
-		while (!closureQueue.isEmpty()) {
-			// Remove the next state to process
-			NFAState state = closureQueue.poll();
-			// Loop through the states seen by following the epsilon transition
-			for (NFAState e_state: state.getEpsilonTransitions().getNFAStates()) {
-				if (!closureSet.hasState(e_state)) {
-					/*
-					 * If the closure set does not already have a state in the 
-					 * epsilon transition set, then add that state to the closure
-					 * set as well as the queue, since we must also follow
-					 * that states epsilon transition.
-					 */
-					closureSet.addState(e_state);
-					closureQueue.add(e_state);
-				}
+	static void setTerminatingState(DFATable dfa, int state_id, NFAArena arena, NFAStateBitSet set) {
+		int term_state = arena.findTerminatingState(set);
+		if (term_state != -1) {
+			/*
+			 * If it has a terminating state, then set the
+			 * corresponding DFA state as terminating, and
+			 * store the type of the NFA state in the corresponding
+			 * DFA state.
+			 */
+			dfa.setTerminatingState(state_id, arena.getType(term_state));
+			int[] patterns = arena.getTerminatingPatterns(set);
+			if (patterns != null) {
+				dfa.setPatternSet(state_id, patterns);
 			}
 		}
-		return closureSet;
 	}
 	
 	/**
-	 * This method performs a move operation
-	 * on a set of NFA states. The move operation
-	 * takes in a set of NFA states and a character
-	 * representing a transition, and then identifies
-	 * all the NFA states that can be reached by
-	 * following the given character transition
-	 * for each state in the set.
+	 * Returns a new NFA that matches the reverse of every 
+	 * string matched by the NFA. Each state is copied with 
+	 * its transitions reversed, the copy of the start state is
+	 * the only terminating state, and a new start state has 
+	 * an epsilon transition to the copy of each terminating state. 
+	 * The new NFA has the same character classes, and its terminating
+	 * state has the type of a terminating state of the NFA.
 	 * 
-	 * @param set a set of NFA states
-	 * @param c the character to transition on 
-	 * @return a set of NFA states that can be reached by following the transition for each state in the inputed set
+	 * @return the reversed NFA
 	 */
-	private NFAStateSet move(NFAStateSet set, char c) {
-		NFAStateSet moveSet = new NFAStateSet(); // Create the move set
-		// Loop through each NFA state in the inputed set
-		for (NFAState state: set.getNFAStates()) {
-			// Follow the transition from the state in the set for the inputed character
-			NFAStateSet transitionStates = state.followTransition(c);
-			// Check to see if any states are seen by following the transition
-			if (transitionStates != null && !transitionStates.isEmpty()) {
-				// Add the states seen by following the transition to the move set
-				moveSet.addStates(transitionStates);
-			}
+	public NFA reverse() {
+		NFAState[] states = indexStates();
+		NFAState[] reversed = new NFAState[states.length];
+		for (int i = 0; i < states.length; ++i) {
+			reversed[i] = new NFAState();
 		}
-		return moveSet;
-	}
-	
-	/**
-	 * Checks to see if the set contains a terminating
-	 * state. If it does, then the first terminating 
-	 * seen is returned. If it doesn't contain a 
-	 * terminating state, then null is returned.
-	 * 
-	 * @param set a set of NFA states
-	 * @return the first identified terminating NFAState, or null if no terminating state is seen
-	 */
-	private NFAState hasTerminatingState(NFAStateSet set) {
-		// Loop through states in the set
-		for (NFAState state: set.getNFAStates()) {
-			if (state.isTerminating()) {
-				// If the state is terminating, return it
-				return state;
+		
+		NFA nfa = new NFA();
+		NFAState start = new NFAState();
+		nfa.setStartState(start);
+		String type = null;
+		for (int i = 0; i < states.length; ++i) {
+			// Add each transition from the copy of its destination back to the copy of its source
+			for (Character c: states[i].getTransitionCharacters()) {
+				for (NFAState target: states[i].followTransition(c.charValue()).getNFAStates()) {
+					reversed[target.index].addTransition(c.charValue(), reversed[i]);
+				}
+			}
+			for (NFAState target: states[i].epsilonTargets()) {
+				reversed[target.index].addEpsilonTransition(reversed[i]);
+			}
+			// The reversed NFA starts where the NFA could stop
+			if (states[i].isTerminating()) {
+				start.addEpsilonTransition(reversed[i]);
+				type = states[i].getType();
 			}
 		}
-		// If no terminating state was seen, return null
-		return null;
+		nfa.addTerminatingState(reversed[startState.index]);
+		nfa.setTerminatingStatesType(type);
+		nfa.classes = getByteClasses();
+		return nfa;
 	}
 	
 	/**
@@ -391,13 +539,25 @@ public class NFA {
 	/**
 	 * This static method takes in a collection of NFAs 
 	 * and then returns a new NFA that is the union
-	 * of all the NFAs within the collection.
+	 * of all the NFAs within the collection. The 
+	 * character classes of the new NFA tell apart
+	 * every character that any of the NFAs tell apart,
+	 * so transitions are added to the NFAs in the collection
+	 * that relied on their classes to match a class as a whole.
 	 * 
 	 * @param nfas the NFAs to union together
 	 * @return a new NFA that is the union of all the NFAs in the collection
 	 */
 	public static NFA union(Collection<NFA> nfas) {
 		NFA nfa = new NFA(); // Create the NFA that will be returned
+		nfa.classes = new ByteClasses();
+		for (NFA addNFA: nfas) {
+			// Keep apart the characters the NFA in the collection tells apart
+			nfa.classes.addClasses(addNFA.getByteClasses());
+		}
+		for (NFA addNFA: nfas) {
+			addNFA.expandClasses(nfa.classes);
+		}
 		// Create and set the start state for the new NFA
 		NFAState startState = new NFAState();
 		nfa.setStartState(startState);
@@ -418,4 +578,53 @@ public class NFA {
 		return nfa;
 	}
 	
+	/**
+	 * Adds transitions to the NFA so that it matches the same
+	 * strings with the inputed classes, which must tell apart
+	 * every character that the classes of the NFA tell apart.
+	 * The transitions of all the characters in a class of the
+	 * NFA are added for a character of each of the inputed 
+	 * classes inside the class, which is how the transitions 
+	 * are followed with the classes of the NFA.
+	 * 
+	 * @param finer the classes the NFA will be used with
+	 */
+	private void expandClasses(ByteClasses finer) {
+		ByteClasses coarse = getByteClasses();
+		if (coarse.getNumClasses() == finer.getNumClasses()) {
+			return; // The inputed classes are the same as the classes of the NFA
+		}
+		// The characters of the inputed classes inside each class of the NFA
+		ArrayList<ArrayList<Character>> members = new ArrayList<ArrayList<Character>>();
+		for (int class_id = 0; class_id < coarse.getNumClasses(); ++class_id) {
+			members.add(new ArrayList<Character>());
+		}
+		for (int class_id = 0; class_id < finer.getNumClasses(); ++class_id) {
+			char c = finer.getRepresentative(class_id);
+			members.get(coarse.getClass(c)).add(Character.valueOf(c));
+		}
+		
+		for (NFAState state: indexStates()) {
+			// Collect the targets of the transitions of each class, before any transition is added
+			HashMap<Integer, HashSet<NFAState>> targets = new HashMap<Integer, HashSet<NFAState>>();
+			for (Character c: state.getTransitionCharacters()) {
+				Integer class_id = Integer.valueOf(coarse.getClass(c.charValue()));
+				HashSet<NFAState> classTargets = targets.get(class_id);
+				if (classTargets == null) {
+					classTargets = new HashSet<NFAState>();
+					targets.put(class_id, classTargets);
+				}
+				classTargets.addAll(state.followTransition(c.charValue()).getNFAStates());
+			}
+			for (Integer class_id: targets.keySet()) {
+				for (Character c: members.get(class_id.intValue())) {
+					for (NFAState target: targets.get(class_id)) {
+						state.addTransition(c.charValue(), target);
+					}
+				}
+			}
+		}
+		classes = finer;
+	}
+	
 }
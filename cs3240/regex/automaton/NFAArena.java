@@ -0,0 +1,466 @@
+package cs3240.regex.automaton;
+
+import java.util.Arrays;
+
+/**
+ * This class represents an NFA stored in flat arrays instead of
+ * a graph of NFAState objects. An arena is built by an {@link NFABuilder},
+ * either straight from the Abstract Syntax Tree of a regular expression
+ * or from the indexed states of an NFA. Each state is a dense index, and
+ * the transitions of every state are stored one after the other in shared
+ * arrays, with the transitions of state i from edgeStart[i] to
+ * edgeStart[i + 1]. The character transitions are grouped by character
+ * class (see {@link ByteClasses}) and sorted by class for each state, so
+ * following a transition is a scan of a few array entries, without boxing
+ * the character or allocating anything.
+ *
+ * The epsilon closures are computed by following the epsilon transitions
+ * each time they are needed. The subset construction and the lazy DFA
+ * were as fast or faster this way than with the closures stored, which
+ * also take memory. The PikeVM takes the closure of every active state
+ * for every character, and is about a quarter faster on small NFAs with
+ * stored closures, so {@link #withStoredClosures()} gives an arena that
+ * stores the closure of every state as a list of indexes, unless the
+ * closures would add up to far more entries than the NFA has transitions.
+ *
+ * The arena reuses a work stack, and is not thread-safe, but
+ * {@link #copy()} gives an arena sharing the same arrays that can
+ * be used from another thread at the same time.
+ */
+public class NFAArena {
+
+	/** The number of closure entries stored per state before the closures are computed on demand instead. */
+	private static final int CLOSURE_BUDGET_PER_STATE = 16;
+
+	/** The number of closure entries that are always stored, however few states there are. */
+	private static final int MIN_CLOSURE_BUDGET = 1 << 20;
+
+	/** The classes of the transition characters. */
+	private ByteClasses classes;
+
+	/** The number of states in the arena. */
+	private int numStates;
+
+	/** The index of the start state. */
+	private int start;
+
+	/** The start of the character transitions of each state in the edge arrays. */
+	private int[] edgeStart;
+
+	/** The character class of each character transition, sorted by class for each state. */
+	private int[] edgeClass;
+
+	/** The index of the state reached by each character transition. */
+	private int[] edgeTarget;
+
+	/** The start of the epsilon transitions of each state in the epsilon target array. */
+	private int[] epsilonStart;
+
+	/** The index of the state reached by each epsilon transition. */
+	private int[] epsilonTarget;
+
+	/** The start of the epsilon closure of each state in the closure array, or null if the closures are not stored this way. */
+	private int[] closureStart;
+
+	/** The indexes of the states in the epsilon closure of each state, or null if the closures are not stored this way. */
+	private int[] closureStates;
+
+	/** A boolean for each state on whether it is a terminating state. */
+	private boolean[] terminating;
+
+	/** The type of each state. */
+	private String[] type;
+
+	/** The pattern id of each state, or -1. */
+	private int[] pattern;
+
+	/** A stack used when computing epsilon closures, or null until it is needed. */
+	private int[] stack;
+
+	/**
+	 * Creates an arena holding the inputed arrays, which are built
+	 * by an {@link NFABuilder}, without stored closures.
+	 *
+	 * @param classes the classes of the transition characters of the NFA
+	 * @param numStates the number of states
+	 * @param start the index of the start state
+	 * @param edgeStart the start of the character transitions of each state
+	 * @param edgeClass the character class of each character transition
+	 * @param edgeTarget the index of the state reached by each character transition
+	 * @param epsilonStart the start of the epsilon transitions of each state
+	 * @param epsilonTarget the index of the state reached by each epsilon transition
+	 * @param terminating whether each state is a terminating state
+	 * @param type the type of each state
+	 * @param pattern the pattern id of each state, or -1
+	 */
+	NFAArena(ByteClasses classes, int numStates, int start, int[] edgeStart, int[] edgeClass, int[] edgeTarget,
+			int[] epsilonStart, int[] epsilonTarget, boolean[] terminating, String[] type, int[] pattern) {
+		this.classes = classes;
+		this.numStates = numStates;
+		this.start = start;
+		this.edgeStart = edgeStart;
+		this.edgeClass = edgeClass;
+		this.edgeTarget = edgeTarget;
+		this.epsilonStart = epsilonStart;
+		this.epsilonTarget = epsilonTarget;
+		this.terminating = terminating;
+		this.type = type;
+		this.pattern = pattern;
+	}
+
+	/**
+	 * A private constructor that creates an arena sharing the
+	 * arrays of the inputed arena, with its own work stack.
+	 *
+	 * @param arena the arena to share the arrays of
+	 */
+	private NFAArena(NFAArena arena) {
+		this.classes = arena.classes;
+		this.numStates = arena.numStates;
+		this.start = arena.start;
+		this.edgeStart = arena.edgeStart;
+		this.edgeClass = arena.edgeClass;
+		this.edgeTarget = arena.edgeTarget;
+		this.epsilonStart = arena.epsilonStart;
+		this.epsilonTarget = arena.epsilonTarget;
+		this.closureStart = arena.closureStart;
+		this.closureStates = arena.closureStates;
+		this.terminating = arena.terminating;
+		this.type = arena.type;
+		this.pattern = arena.pattern;
+	}
+
+	/**
+	 * Returns an arena that shares the arrays of this arena but
+	 * has its own work stack, so the two can be used from different
+	 * threads at the same time. The arrays are never changed once
+	 * the arena is built, so sharing them is safe.
+	 *
+	 * @return a copy of the arena for use by another thread
+	 */
+	public NFAArena copy() {
+		return new NFAArena(this);
+	}
+
+	/**
+	 * Returns a DFA that is created by converting the NFA held by the
+	 * arena to a DFA, unless the DFA would have more than the inputed
+	 * number of states, in which case null is returned. The DFA is built
+	 * the same way as {@link NFA#toDFA(int)}.
+	 *
+	 * @param maxStates the maximum number of states in the DFA
+	 * @return the DFATable from converting the NFA to a DFA, or null if the DFA has too many states
+	 */
+	public DFATable toDFA(int maxStates) {
+		return NFA.toDFA(this, maxStates, ParallelDeterminizer.getDefaultPool());
+	}
+
+	/**
+	 * Returns an arena that shares the arrays of this arena, and also
+	 * stores the epsilon closure of every state as a list of indexes,
+	 * unless the closures would have more entries than the budget, in
+	 * which case they are still computed on demand.
+	 *
+	 * @return an arena with the closures stored, which may be this arena
+	 */
+	public NFAArena withStoredClosures() {
+		return withStoredClosures(Math.max((long) CLOSURE_BUDGET_PER_STATE * numStates, MIN_CLOSURE_BUDGET));
+	}
+
+	/**
+	 * Returns an arena that shares the arrays of this arena, and
+	 * also stores the epsilon closure of every state as a list of
+	 * indexes, unless the closures would have more entries than the
+	 * inputed budget.
+	 *
+	 * @param budget the largest number of closure entries to store
+	 * @return an arena with the closures stored, which may be this arena
+	 */
+	NFAArena withStoredClosures(long budget) {
+		if (closureStates != null) {
+			return this;
+		}
+		int[] starts = new int[numStates + 1];
+		IntList entries = new IntList();
+		int[] seen = new int[numStates]; // The state whose closure last reached each state, plus one
+		int[] stack = new int[numStates];
+		for (int i = 0; i < numStates; ++i) {
+			starts[i] = entries.size();
+			int top = 0;
+			stack[top++] = i;
+			seen[i] = i + 1;
+			while (top > 0) {
+				int state = stack[--top];
+				entries.add(state);
+				for (int e = epsilonStart[state]; e < epsilonStart[state + 1]; ++e) {
+					int next = epsilonTarget[e];
+					if (seen[next] != i + 1) {
+						seen[next] = i + 1;
+						stack[top++] = next;
+					}
+				}
+			}
+			if (entries.size() > budget) {
+				return this;
+			}
+		}
+		starts[numStates] = entries.size();
+		NFAArena arena = new NFAArena(this);
+		arena.closureStart = starts;
+		arena.closureStates = entries.toArray();
+		return arena;
+	}
+
+	/**
+	 * Adds the inputed state, and all the states in its epsilon
+	 * closure, to the inputed set. The set must be closed, which is
+	 * the case for any set built only by this method and by
+	 * {@link #move(NFAStateBitSet, int, NFAStateBitSet)}, so if the
+	 * state is already in the set, so is its closure.
+	 *
+	 * @param set a closed set of states
+	 * @param state the index of the state to add
+	 */
+	public void addClosure(NFAStateBitSet set, int state) {
+		if (set.contains(state)) {
+			return;
+		}
+		set.add(state);
+		if (closureStates != null) {
+			for (int k = closureStart[state]; k < closureStart[state + 1]; ++k) {
+				set.add(closureStates[k]);
+			}
+			return;
+		}
+		if (stack == null) {
+			stack = new int[numStates];
+		}
+		int top = 0;
+		stack[top++] = state;
+		while (top > 0) {
+			int next = stack[--top];
+			for (int e = epsilonStart[next]; e < epsilonStart[next + 1]; ++e) {
+				if (set.add(epsilonTarget[e])) {
+					stack[top++] = epsilonTarget[e];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the inputed state, and all the states in its epsilon
+	 * closure, to the inputed closed set of states, the same way
+	 * as {@link #addClosure(NFAStateBitSet, int)}.
+	 *
+	 * @param set a closed set of states
+	 * @param state the index of the state to add
+	 */
+	public void addClosure(SparseStateSet set, int state) {
+		if (!set.add(state)) {
+			return;
+		}
+		if (closureStates != null) {
+			for (int k = closureStart[state]; k < closureStart[state + 1]; ++k) {
+				set.add(closureStates[k]);
+			}
+			return;
+		}
+		if (stack == null) {
+			stack = new int[numStates];
+		}
+		int top = 0;
+		stack[top++] = state;
+		while (top > 0) {
+			int next = stack[--top];
+			for (int e = epsilonStart[next]; e < epsilonStart[next + 1]; ++e) {
+				if (set.add(epsilonTarget[e])) {
+					stack[top++] = epsilonTarget[e];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the epsilon closure of the states reached by following the
+	 * transitions for the inputed character class from the states in
+	 * the inputed set to the inputed move set. This is the move and the
+	 * epsilon closure of the subset construction done in a single pass.
+	 *
+	 * @param set a set of states
+	 * @param class_id the character class to transition on
+	 * @param moveSet the closed set to add the states reached by the transition to
+	 */
+	public void move(NFAStateBitSet set, int class_id, NFAStateBitSet moveSet) {
+		for (int i = set.nextIndex(0); i >= 0; i = set.nextIndex(i + 1)) {
+			// The transitions of a state are sorted by class, so stop after the class
+			for (int e = edgeStart[i]; e < edgeStart[i + 1] && edgeClass[e] <= class_id; ++e) {
+				if (edgeClass[e] == class_id) {
+					addClosure(moveSet, edgeTarget[e]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the epsilon closure of the states reached by following the
+	 * transitions for the inputed character class from the states in
+	 * the inputed set to the inputed move set, the same way as
+	 * {@link #move(NFAStateBitSet, int, NFAStateBitSet)}.
+	 *
+	 * @param set a set of states
+	 * @param class_id the character class to transition on
+	 * @param moveSet the closed set to add the states reached by the transition to
+	 */
+	public void move(SparseStateSet set, int class_id, SparseStateSet moveSet) {
+		for (int i = 0; i < set.size(); ++i) {
+			int state = set.get(i);
+			for (int e = edgeStart[state]; e < edgeStart[state + 1] && edgeClass[e] <= class_id; ++e) {
+				if (edgeClass[e] == class_id) {
+					addClosure(moveSet, edgeTarget[e]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the lowest index of a terminating state in the inputed set.
+	 *
+	 * @param set a set of states
+	 * @return the index of the first terminating state, or -1 if the set has no terminating state
+	 */
+	public int findTerminatingState(NFAStateBitSet set) {
+		for (int i = set.nextIndex(0); i >= 0; i = set.nextIndex(i + 1)) {
+			if (terminating[i]) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the pattern ids of the terminating states
+	 * in the set, in increasing order and without duplicates.
+	 *
+	 * @param set a set of states
+	 * @return the pattern ids of the terminating states, or null if none of them have a pattern id
+	 */
+	public int[] getTerminatingPatterns(NFAStateBitSet set) {
+		IntList patterns = new IntList();
+		for (int i = set.nextIndex(0); i >= 0; i = set.nextIndex(i + 1)) {
+			if (terminating[i] && pattern[i] >= 0) {
+				patterns.add(pattern[i]);
+			}
+		}
+		if (patterns.size() == 0) {
+			return null;
+		}
+		int[] ids = patterns.toArray();
+		Arrays.sort(ids);
+		int num_ids = 0;
+		for (int i = 0; i < ids.length; ++i) {
+			if (i == 0 || ids[i] != ids[i - 1]) {
+				ids[num_ids++] = ids[i];
+			}
+		}
+		return Arrays.copyOf(ids, num_ids);
+	}
+
+	/**
+	 * Returns a boolean on whether the inputed state is a terminating state.
+	 *
+	 * @param state the index of a state
+	 * @return true if the state is terminating
+	 */
+	public boolean isTerminating(int state) {
+		return terminating[state];
+	}
+
+	/**
+	 * Returns the type of the inputed state.
+	 *
+	 * @param state the index of a state
+	 * @return the string type of the state
+	 */
+	public String getType(int state) {
+		return type[state];
+	}
+
+	/**
+	 * Returns the index of the start state.
+	 *
+	 * @return the index of the start state
+	 */
+	public int getStartState() {
+		return start;
+	}
+
+	/**
+	 * Returns the number of states in the arena.
+	 *
+	 * @return the number of states
+	 */
+	public int getStateCount() {
+		return numStates;
+	}
+
+	/**
+	 * Returns the classes of the transition characters.
+	 *
+	 * @return the character classes of the arena
+	 */
+	public ByteClasses getByteClasses() {
+		return classes;
+	}
+
+	/**
+	 * Returns a boolean on whether the epsilon closure of each
+	 * state is stored as a list of indexes.
+	 *
+	 * @return true if the closures are stored
+	 */
+	public boolean hasStoredClosures() {
+		return closureStates != null;
+	}
+
+	/**
+	 * A simple growable list of ints, used to build the arrays of the arena.
+	 */
+	private static class IntList {
+
+		/** The values in the list. */
+		private int[] values = new int[16];
+
+		/** The number of values in the list. */
+		private int size;
+
+		/**
+		 * Adds a value to the end of the list.
+		 *
+		 * @param value the value to add
+		 */
+		public void add(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, 2 * size);
+			}
+			values[size++] = value;
+		}
+
+		/**
+		 * Returns the number of values in the list.
+		 *
+		 * @return the size of the list
+		 */
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * Returns an array holding the values in the list.
+		 *
+		 * @return the values in the list
+		 */
+		public int[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+}
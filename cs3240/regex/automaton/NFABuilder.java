@@ -0,0 +1,337 @@
+package cs3240.regex.automaton;
+
+import java.util.Arrays;
+
+/**
+ * This class builds an {@link NFAArena} directly, without a graph
+ * of NFAState objects. The states are dense indexes given out in
+ * the order they are created, and the transitions are appended to
+ * flat arrays, with the character of each transition replaced by its
+ * class. The Abstract Syntax Tree of a regular expression builds its
+ * NFA out of {@link Fragment}s, which have the same operations as
+ * the {@link NFA} class, but only hold the index of their start state
+ * and the indexes of their terminating states.
+ */
+public class NFABuilder {
+
+	/** The classes of the transition characters. */
+	private ByteClasses classes;
+
+	/** The number of states created so far. */
+	private int numStates;
+
+	/** The source, character class and target of each character transition, as three entries. */
+	private int[] edges = new int[48];
+
+	/** The number of entries used in the edge array. */
+	private int edgeCount;
+
+	/** The source and target of each epsilon transition, as two entries. */
+	private int[] epsilons = new int[32];
+
+	/** The number of entries used in the epsilon array. */
+	private int epsilonCount;
+
+	/** A boolean for each state on whether it is a terminating state. */
+	private boolean[] terminating = new boolean[16];
+
+	/** The type of each state. */
+	private String[] type = new String[16];
+
+	/** The pattern id of each state, or -1. */
+	private int[] pattern = new int[16];
+
+	/**
+	 * Creates a builder for an NFA whose character
+	 * transitions are grouped by the inputed classes.
+	 *
+	 * @param classes the classes of the transition characters
+	 */
+	public NFABuilder(ByteClasses classes) {
+		this.classes = classes;
+	}
+
+	/**
+	 * Creates a new non-terminating state that has no transitions.
+	 *
+	 * @return the index of the new state
+	 */
+	public int newState() {
+		if (numStates == terminating.length) {
+			terminating = Arrays.copyOf(terminating, 2 * numStates);
+			type = Arrays.copyOf(type, 2 * numStates);
+			pattern = Arrays.copyOf(pattern, 2 * numStates);
+		}
+		pattern[numStates] = -1;
+		return numStates++;
+	}
+
+	/**
+	 * Adds a transition from one state to another for the inputed
+	 * character. A transition that is the same as the last one added,
+	 * once the character is replaced by its class, is not added again.
+	 *
+	 * @param from the index of the state to transition from
+	 * @param c the character to transition on
+	 * @param to the index of the state to transition to
+	 */
+	public void addTransition(int from, char c, int to) {
+		int class_id = classes.getClass(c);
+		if (edgeCount > 0 && edges[edgeCount - 3] == from && edges[edgeCount - 2] == class_id
+				&& edges[edgeCount - 1] == to) {
+			return;
+		}
+		if (edgeCount == edges.length) {
+			edges = Arrays.copyOf(edges, 2 * edgeCount);
+		}
+		edges[edgeCount++] = from;
+		edges[edgeCount++] = class_id;
+		edges[edgeCount++] = to;
+	}
+
+	/**
+	 * Adds an epsilon transition from one state to another.
+	 *
+	 * @param from the index of the state to transition from
+	 * @param to the index of the state to transition to
+	 */
+	public void addEpsilonTransition(int from, int to) {
+		if (epsilonCount == epsilons.length) {
+			epsilons = Arrays.copyOf(epsilons, 2 * epsilonCount);
+		}
+		epsilons[epsilonCount++] = from;
+		epsilons[epsilonCount++] = to;
+	}
+
+	/**
+	 * Makes the inputed state a terminating state with
+	 * the inputed type and pattern id.
+	 *
+	 * @param state the index of the state
+	 * @param stateType the type of the state
+	 * @param patternId the pattern id of the state, or -1
+	 */
+	public void setTerminating(int state, String stateType, int patternId) {
+		terminating[state] = true;
+		type[state] = stateType;
+		pattern[state] = patternId;
+	}
+
+	/**
+	 * Creates a fragment of the NFA that starts at the
+	 * inputed state and has no terminating states yet.
+	 *
+	 * @param start the index of the start state of the fragment
+	 * @return the new fragment
+	 */
+	public Fragment newFragment(int start) {
+		return new Fragment(start);
+	}
+
+	/**
+	 * Makes the terminating states of the inputed fragment the
+	 * terminating states of the NFA, with the inputed type, and
+	 * builds the arena of the NFA that starts at the fragment's start.
+	 *
+	 * @param nfa the fragment holding the whole NFA
+	 * @param stateType the type of the terminating states
+	 * @return the arena holding the NFA
+	 */
+	public NFAArena toArena(Fragment nfa, String stateType) {
+		for (int i = 0; i < nfa.numEnds; ++i) {
+			setTerminating(nfa.ends[i], stateType, -1);
+		}
+		return toArena(nfa.start);
+	}
+
+	/**
+	 * Builds the arena holding the states created so far, starting
+	 * at the inputed state. The transitions of each state are sorted
+	 * by class and then by target, without duplicates.
+	 *
+	 * @param start the index of the start state
+	 * @return the arena holding the NFA
+	 */
+	public NFAArena toArena(int start) {
+		// Count the transitions of each state, and then place them in the order of their source
+		int[] edgeStart = new int[numStates + 1];
+		for (int e = 0; e < edgeCount; e += 3) {
+			++edgeStart[edges[e] + 1];
+		}
+		for (int i = 0; i < numStates; ++i) {
+			edgeStart[i + 1] += edgeStart[i];
+		}
+		long[] sorted = new long[edgeCount / 3]; // The class and target of each transition, in one value
+		int[] next = Arrays.copyOf(edgeStart, numStates);
+		for (int e = 0; e < edgeCount; e += 3) {
+			sorted[next[edges[e]]++] = ((long) edges[e + 1] << 32) | edges[e + 2];
+		}
+
+		// Sort the transitions of each state, and drop the copies that are next to each other
+		int[] edgeClass = new int[sorted.length];
+		int[] edgeTarget = new int[sorted.length];
+		int num_edges = 0;
+		for (int i = 0; i < numStates; ++i) {
+			int from = edgeStart[i];
+			int to = edgeStart[i + 1];
+			Arrays.sort(sorted, from, to);
+			edgeStart[i] = num_edges;
+			for (int e = from; e < to; ++e) {
+				if (e == from || sorted[e] != sorted[e - 1]) {
+					edgeClass[num_edges] = (int) (sorted[e] >>> 32);
+					edgeTarget[num_edges] = (int) sorted[e];
+					++num_edges;
+				}
+			}
+		}
+		edgeStart[numStates] = num_edges;
+
+		// Place the epsilon transitions in the order of their source, keeping the order they were added in
+		int[] epsilonStart = new int[numStates + 1];
+		for (int e = 0; e < epsilonCount; e += 2) {
+			++epsilonStart[epsilons[e] + 1];
+		}
+		for (int i = 0; i < numStates; ++i) {
+			epsilonStart[i + 1] += epsilonStart[i];
+		}
+		int[] epsilonTarget = new int[epsilonCount / 2];
+		next = Arrays.copyOf(epsilonStart, numStates);
+		for (int e = 0; e < epsilonCount; e += 2) {
+			epsilonTarget[next[epsilons[e]]++] = epsilons[e + 1];
+		}
+
+		return new NFAArena(classes, numStates, start, edgeStart, Arrays.copyOf(edgeClass, num_edges),
+				Arrays.copyOf(edgeTarget, num_edges), epsilonStart, epsilonTarget, Arrays.copyOf(terminating, numStates),
+				Arrays.copyOf(type, numStates), Arrays.copyOf(pattern, numStates));
+	}
+
+	/**
+	 * This class represents a piece of the NFA being built, with a
+	 * start state and a list of terminating states, which stop being
+	 * terminating once the fragment is concatenated with another one.
+	 * The operations change the fragment the same way the operations
+	 * of the same name change an {@link NFA}.
+	 */
+	public class Fragment {
+
+		/** The index of the start state of the fragment. */
+		private int start;
+
+		/** The indexes of the terminating states of the fragment. */
+		private int[] ends = new int[2];
+
+		/** The number of terminating states of the fragment. */
+		private int numEnds;
+
+		/**
+		 * Creates a fragment with the inputed start state and no terminating states.
+		 *
+		 * @param start the index of the start state
+		 */
+		private Fragment(int start) {
+			this.start = start;
+		}
+
+		/**
+		 * Changes the fragment to be the concatenation of
+		 * itself with the inputed fragment.
+		 *
+		 * @param fragment the fragment to concatenate on to this fragment
+		 */
+		public void concatenate(Fragment fragment) {
+			for (int i = 0; i < numEnds; ++i) {
+				addEpsilonTransition(ends[i], fragment.start);
+			}
+			numEnds = 0;
+			addTerminatingStates(fragment);
+		}
+
+		/**
+		 * Changes the fragment to be the union of
+		 * itself with the inputed fragment.
+		 *
+		 * @param fragment the fragment to union with this fragment
+		 */
+		public void union(Fragment fragment) {
+			int new_start = newState();
+			addEpsilonTransition(new_start, start);
+			addEpsilonTransition(new_start, fragment.start);
+			start = new_start;
+			addTerminatingStates(fragment);
+		}
+
+		/**
+		 * Changes the fragment to allow one or more
+		 * repetitions of the strings it matched.
+		 */
+		public void allowOneOrMoreRep() {
+			for (int i = 0; i < numEnds; ++i) {
+				addEpsilonTransition(ends[i], start);
+			}
+		}
+
+		/**
+		 * Changes the fragment to allow zero or more
+		 * repetitions of the strings it matched.
+		 */
+		public void allowZeroOrMoreRep() {
+			int new_start = newState();
+			for (int i = 0; i < numEnds; ++i) {
+				addEpsilonTransition(ends[i], start);
+			}
+			addEpsilonTransition(new_start, start);
+			addTerminatingState(new_start);
+			start = new_start;
+		}
+
+		/**
+		 * Adds a terminating state to the fragment.
+		 *
+		 * @param state the index of the state
+		 */
+		public void addTerminatingState(int state) {
+			if (numEnds == ends.length) {
+				ends = Arrays.copyOf(ends, 2 * numEnds);
+			}
+			ends[numEnds++] = state;
+		}
+
+		/**
+		 * Adds the terminating states of the inputed fragment to this fragment.
+		 *
+		 * @param fragment the fragment whose terminating states are added
+		 */
+		public void addTerminatingStates(Fragment fragment) {
+			for (int i = 0; i < fragment.numEnds; ++i) {
+				addTerminatingState(fragment.ends[i]);
+			}
+		}
+
+		/**
+		 * Returns the terminating states of the fragment.
+		 *
+		 * @return a copy of the indexes of the terminating states
+		 */
+		public int[] getTerminatingStates() {
+			return Arrays.copyOf(ends, numEnds);
+		}
+
+		/**
+		 * Returns the start state of the fragment.
+		 *
+		 * @return the index of the start state
+		 */
+		public int getStartState() {
+			return start;
+		}
+
+		/**
+		 * Sets a new start state for the fragment.
+		 *
+		 * @param start the index of the new start state
+		 */
+		public void setStartState(int start) {
+			this.start = start;
+		}
+	}
+}
@@ -1,5 +1,8 @@
 package cs3240.regex.automaton;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Set;
 
 // TODO: Auto-generated Javadoc
 /**
@@ -17,10 +20,10 @@ public class NFAState {
 	/** A static variable containing the id last used when creating an NFAState instance. */
 	private static int last_used_id = -1;
 	
-	/** A mapping between a transition character and the set of states reached by following the transition. */
+	/** A mapping between a transition character and the set of states reached by following the transition, or null if there are none. */
 	private HashMap<Character, NFAStateSet> transitions;
 	
-	/** A set of NFAStates seen when following the epsilon transition. */
+	/** A set of NFAStates seen when following the epsilon transition, or null until the first one is added. */
 	private NFAStateSet epsilon_transitions;
 	
 	/** A boolean on whether the state is a terminating state. */
@@ -29,22 +32,28 @@ public class NFAState {
 	/** A string indicating the type of state. */
 	private String type;
 	
+	/** The id of the pattern the state belongs to when several patterns are matched at once, or -1. */
+	private int pattern = -1;
+	
 	/** An integer that represent a unique ID for the state. */
 	private int id;
 	
+	/** The dense index of the state in the NFA that was last indexed, see {@link NFA#indexStates()}. */
+	int index = -1;
+	
 	/**
 	 * The main constructor for an NFAState that
 	 * creates a non-terminating instance that has
 	 * no transitions. The ID of the state will be
-	 * the next available ID.
+	 * the next available ID. The transition tables
+	 * are only created once a transition is added,
+	 * since most states only have one kind of transition.
 	 */
 	public NFAState() {
 		// Increment the last_used_id to the id value of the state
 		NFAState.last_used_id++; 
-		// Set the ID and initialize the transitions
+		// Set the ID of the state
 		this.id = NFAState.last_used_id; 
-		this.transitions = new HashMap<Character, NFAStateSet>();
-		this.epsilon_transitions = new NFAStateSet();
 	}
 	
 	/**
@@ -56,6 +65,9 @@ public class NFAState {
 	 */
 	public void addTransition(char c, NFAState state) {
 		Character c_obj = Character.valueOf(c);
+		if (transitions == null) {
+			transitions = new HashMap<Character, NFAStateSet>(4);
+		}
 		// Attempt to get the state set for the given transition
 		NFAStateSet set = transitions.get(c_obj);
 		if (set == null) {
@@ -75,7 +87,7 @@ public class NFAState {
 	 * @param state the NFAState seen by following the epsilon transition
 	 */
 	public void addEpsilonTransition(NFAState state) {
-		epsilon_transitions.addState(state);
+		getEpsilonTransitions().addState(state);
 	}
 	
 	/**
@@ -89,7 +101,33 @@ public class NFAState {
 	 * @return a set of states seen by following the transition. Returns null if no states seen by following the transition, or the transition for the character does not exist.
 	 */
 	public NFAStateSet followTransition(char c) {
-		return transitions.get(Character.valueOf(c));
+		return (transitions == null) ? null : transitions.get(Character.valueOf(c));
+	}
+	
+	/**
+	 * Returns the state sets seen by following
+	 * each of the character transitions.
+	 *
+	 * @return a collection of the state sets for each character transition
+	 */
+	public Collection<NFAStateSet> getTransitions() {
+		if (transitions == null) {
+			return Collections.emptyList();
+		}
+		return transitions.values();
+	}
+	
+	/**
+	 * Returns the characters that have a transition
+	 * from the NFAState instance.
+	 *
+	 * @return the set of transition characters
+	 */
+	public Set<Character> getTransitionCharacters() {
+		if (transitions == null) {
+			return Collections.emptySet();
+		}
+		return transitions.keySet();
 	}
 	
 	/**
@@ -99,8 +137,24 @@ public class NFAState {
 	 * @return a set of the states seen by following the epsilon transition
 	 */
 	public NFAStateSet getEpsilonTransitions() {
+		if (epsilon_transitions == null) {
+			epsilon_transitions = new NFAStateSet();
+		}
 		return epsilon_transitions;
 	}
+	
+	/**
+	 * Returns the states seen by following an epsilon transition,
+	 * without creating the epsilon transition set if there is none.
+	 *
+	 * @return a collection of the states seen by following the epsilon transition
+	 */
+	Collection<NFAState> epsilonTargets() {
+		if (epsilon_transitions == null) {
+			return Collections.emptyList();
+		}
+		return epsilon_transitions.getNFAStates();
+	}
 
 	/**
 	 * Returns a boolean on whether the state is
@@ -148,27 +202,44 @@ public class NFAState {
 	public void setType(String type) {
 		this.type = type;
 	}
+
+	/**
+	 * Returns the id of the pattern the state belongs to, which
+	 * is -1 unless the state is matched as part of a {@link cs3240.regex.parser.RegexSet}.
+	 *
+	 * @return the pattern id of the state, or -1
+	 */
+	public int getPattern() {
+		return pattern;
+	}
+
+	/**
+	 * Set the id of the pattern the state belongs to.
+	 *
+	 * @param pattern the pattern id to set
+	 */
+	public void setPattern(int pattern) {
+		this.pattern = pattern;
+	}
 	
 	/**
 	 * Returns an integer hash for the NFAState instance.
+	 * Since the ID of each state is unique, the hash is
+	 * simply the ID, which does not change when the state
+	 * is set as terminating or given a type.
 	 * 
 	 * @return hash code for the NFAState
 	 * @see java.lang.Object#hashCode()
 	 */
 	@Override
 	public int hashCode() {
-		// Eclipse's standard implementation for hash-code 
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + id;
-		result = prime * result + (terminating ? 1231 : 1237);
-		result = prime * result + ((type == null) ? 0 : type.hashCode());
-		return result;
+		return id;
 	}
 
 	/**
 	 * Identifies whether the inputed object is
 	 * considered to equal the NFAState instance.
+	 * Two states are equal if they have the same ID.
 	 *
 	 * @param obj the obj
 	 * @return true if the objects are equal
@@ -176,31 +247,13 @@ public class NFAState {
 	 */
 	@Override
 	public boolean equals(Object obj) {
-		// Eclipse's standard implementation for hash-code 
 		if (this == obj) {
 			return true;
 		}
-		if (obj == null) {
-			return false;
-		}
 		if (!(obj instanceof NFAState)) {
 			return false;
 		}
-		NFAState other = (NFAState) obj;
-		if (id != other.id) {
-			return false;
-		}
-		if (terminating != other.terminating) {
-			return false;
-		}
-		if (type == null) {
-			if (other.type != null) {
-				return false;
-			}
-		} else if (!type.equals(other.type)) {
-			return false;
-		}
-		return true;
+		return id == ((NFAState) obj).id;
 	}
 
 	/**
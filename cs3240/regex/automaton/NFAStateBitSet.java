@@ -0,0 +1,206 @@
+package cs3240.regex.automaton;
+
+import java.util.Arrays;
+
+/**
+ * This class represents a set of NFAStates as a bit set
+ * indexed by the dense index each state is given when its
+ * NFA is indexed (see {@link NFA#indexStates()}). The hash
+ * code of the set is updated as states are added, so the 
+ * set can be looked up in a hash map without walking 
+ * through its states, and two sets are compared a word 
+ * at a time.
+ */
+public class NFAStateBitSet {
+	
+	/** The words of the bit set, where bit i is set if the state with index i is in the set. */
+	private long[] words;
+	
+	/** The number of states in the set. */
+	private int size;
+	
+	/** The hash code of the set, which is the sum of the mixed indexes of its states. */
+	private int hash;
+	
+	/**
+	 * Creates an empty set that can hold the states
+	 * with an index lower than the inputed capacity.
+	 * 
+	 * @param capacity the number of indexed states in the NFA
+	 */
+	public NFAStateBitSet(int capacity) {
+		this.words = new long[(capacity + 63) >>> 6];
+	}
+	
+	/**
+	 * A private constructor that creates a copy of the inputed set.
+	 * 
+	 * @param set the set to copy
+	 */
+	private NFAStateBitSet(NFAStateBitSet set) {
+		this.words = set.words.clone();
+		this.size = set.size;
+		this.hash = set.hash;
+	}
+	
+	/**
+	 * Adds the state with the inputed index to the set.
+	 * 
+	 * @param index the index of the state to add
+	 * @return true if the state was not already in the set
+	 */
+	public boolean add(int index) {
+		int word = index >>> 6;
+		long bit = 1L << index;
+		if ((words[word] & bit) != 0) {
+			return false;
+		}
+		words[word] |= bit;
+		++size;
+		hash += mix(index);
+		return true;
+	}
+	
+	/**
+	 * Indicates whether the state with the inputed index is in the set.
+	 * 
+	 * @param index the index of the state
+	 * @return true if the state is in the set
+	 */
+	public boolean contains(int index) {
+		return (words[index >>> 6] & (1L << index)) != 0;
+	}
+	
+	/**
+	 * Returns the lowest index of a state in the set that is greater 
+	 * than or equal to the inputed index, or -1 if there is no such state.
+	 * 
+	 * @param from the index to start searching from
+	 * @return the index of the next state in the set, or -1 if there is none
+	 */
+	public int nextIndex(int from) {
+		int word = from >>> 6;
+		if (word >= words.length) {
+			return -1;
+		}
+		long bits = words[word] & (-1L << from);
+		while (bits == 0) {
+			if (++word == words.length) {
+				return -1;
+			}
+			bits = words[word];
+		}
+		return (word << 6) + Long.numberOfTrailingZeros(bits);
+	}
+	
+	/**
+	 * Removes all the states from the set.
+	 */
+	public void clear() {
+		if (size != 0) {
+			Arrays.fill(words, 0L);
+			size = 0;
+			hash = 0;
+		}
+	}
+	
+	/**
+	 * Returns the number of states in the set.
+	 * 
+	 * @return the number of states in the set
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Returns a true or false on whether the set is empty.
+	 *
+	 * @return true if the set is empty
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	/**
+	 * Creates a copy of the set.
+	 * 
+	 * @return a copy of the set
+	 */
+	public NFAStateBitSet copy() {
+		return new NFAStateBitSet(this);
+	}
+	
+	/**
+	 * Returns the estimated number of bytes used by the set.
+	 * 
+	 * @return the estimated memory used by the set, in bytes
+	 */
+	public long memoryUsage() {
+		return 40 + 8L * words.length;
+	}
+	
+	/**
+	 * Spreads the bits of a state index, so that sets with
+	 * nearby states do not end up with similar hash codes.
+	 * 
+	 * @param index the index of a state
+	 * @return the mixed index
+	 */
+	private static int mix(int index) {
+		int h = index * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Returns an integer hash for the set, which is 
+	 * kept up to date as states are added.
+	 * 
+	 * @return the hash code value for this set
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	/**
+	 * Identifies whether the inputed object is
+	 * considered to be equal to the set. Two sets
+	 * are equal if they contain the same states.
+	 *
+	 * @param obj the obj
+	 * @return true if the objects are equal
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof NFAStateBitSet)) {
+			return false;
+		}
+		NFAStateBitSet other = (NFAStateBitSet) obj;
+		return size == other.size && hash == other.hash && Arrays.equals(words, other.words);
+	}
+
+	/**
+	 * Returns a string representation of the set,
+	 * which lists the indexes of its states.
+	 * 
+	 * @return the string representation of the set
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("NFAStateBitSet [");
+		for (int i = nextIndex(0); i >= 0; i = nextIndex(i + 1)) {
+			builder.append(i).append(',');
+		}
+		if (size > 0) {
+			builder.setLength(builder.length() - 1);
+		}
+		return builder.append(']').toString();
+	}
+}
@@ -0,0 +1,558 @@
+package cs3240.regex.automaton;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * This class represents a DFA Table whose transitions and terminating
+ * labels are stored in a single buffer outside of the Java heap, which
+ * is either allocated directly or mapped from a file. The garbage
+ * collector never scans or copies the buffer, so very large DFAs, such
+ * as the DFAs of a {@link cs3240.regex.parser.RegexSet} with hundreds of
+ * thousands of states, add almost nothing to the heap. A table mapped
+ * from a file is shared through the page cache by every process that
+ * maps the same file.
+ *
+ * The table is read-only once it is created. The buffer holds:
+ *
+ * magic number, format version, number of classes, number of rows,
+ * transition width, number of data strings and number of labels
+ * the class of each character from 0 to 255
+ * the rows of the table, laid out as in {@link DFATable}, padded to 4 bytes
+ * the label index of each row, or -1 if the row is not terminating
+ * each data string, as its length followed by its characters
+ * each label, as the index of its data string and the length and ids of its pattern set
+ *
+ * A label is a distinct pair of terminating data and pattern set, so the
+ * labels are few even when the states are many. They are decoded once when
+ * the table is opened, and the transitions are read straight from the buffer
+ * while matching. Every value is big-endian.
+ */
+public class OffHeapDFATable implements MultiPatternAutomaton {
+
+	/** The magic number at the start of the buffer. */
+	private static final int MAGIC = 0x4D44464F;
+
+	/** The version of the layout of the buffer. */
+	public static final int FORMAT_VERSION = 1;
+
+	/** The number of bytes before the rows of the table. */
+	private static final int HEADER_SIZE = 7 * 4 + 256;
+
+	/** The number of characters that are mapped to a class. */
+	private static final int NUM_BYTES = 256;
+
+	/** The buffer holding the table. */
+	private ByteBuffer buffer;
+
+	/** The class of each character from 0 to 255, copied out of the buffer. */
+	private byte[] classMap;
+
+	/** The classes of the transition characters. */
+	private ByteClasses classes;
+
+	/** The number of classes, which is the length of each row. */
+	private int num_classes;
+
+	/** The number of rows, including the row of the error state. */
+	private int num_rows;
+
+	/** The number of bytes used to store each transition, which is 1, 2 or 4. */
+	private int width;
+
+	/** The offset of the label index of the first row in the buffer. */
+	private int rowLabelsOffset;
+
+	/** The terminating data of each label. */
+	private String[] labelData;
+
+	/** The pattern set of each label, or null if the label has none. */
+	private int[][] labelPatterns;
+
+	/** One more than the largest pattern id of any label. */
+	private int patternCount;
+
+	/**
+	 * Creates a table over the inputed buffer, which must hold a
+	 * table laid out as described in {@link OffHeapDFATable}.
+	 * The header and labels are checked and decoded, and every
+	 * transition is checked to lead to a row of the table.
+	 *
+	 * @param buffer the buffer holding the table, starting at position 0
+	 * @throws IOException if the buffer does not hold a valid table
+	 */
+	private OffHeapDFATable(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		ByteBuffer reader = buffer.duplicate();
+		reader.position(0);
+		try {
+			if (reader.getInt() != MAGIC) {
+				throw new IOException("Not an off-heap DFA Table");
+			}
+			int version = reader.getInt();
+			if (version != FORMAT_VERSION) {
+				throw new IOException("Unsupported off-heap DFA Table format version " + version);
+			}
+			num_classes = reader.getInt();
+			num_rows = reader.getInt();
+			width = reader.getInt();
+			int num_strings = reader.getInt();
+			int num_labels = reader.getInt();
+			classMap = new byte[NUM_BYTES];
+			reader.get(classMap);
+			try {
+				classes = ByteClasses.fromClassMap(classMap);
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Invalid class map: " + e.getMessage());
+			}
+			long table_size = (long) num_rows * num_classes * width;
+			if (classes.getNumClasses() != num_classes || num_rows < 1 || (width != 1 && width != 2 && width != 4)
+					|| num_strings < 0 || num_labels < 0 || HEADER_SIZE + table_size + 4L * num_rows > buffer.limit()) {
+				throw new IOException("Invalid off-heap DFA Table header");
+			}
+			rowLabelsOffset = (int) (HEADER_SIZE + ((table_size + 3) & ~3L));
+
+			// Check every transition, so the rows reached while matching are always in the table
+			int size = num_rows * num_classes;
+			for (int i = 0; i < size; ++i) {
+				int row = getEntry(i);
+				if (row < 0 || row >= num_rows) {
+					throw new IOException("Transition to row " + row + " is out of range");
+				}
+			}
+
+			// Check each count against the bytes left before allocating, so a corrupt count is not allocated
+			reader.position(rowLabelsOffset + 4 * num_rows);
+			if (4L * num_strings + 8L * num_labels > reader.remaining()) {
+				throw new IOException("Off-heap DFA Table is truncated");
+			}
+			String[] strings = new String[num_strings];
+			for (int i = 0; i < num_strings; ++i) {
+				int length = reader.getInt();
+				if (length < 0 || 2L * length > reader.remaining()) {
+					throw new IOException("Off-heap DFA Table is truncated");
+				}
+				char[] chars = new char[length];
+				reader.asCharBuffer().get(chars);
+				reader.position(reader.position() + 2 * chars.length);
+				strings[i] = new String(chars);
+			}
+			labelData = new String[num_labels];
+			labelPatterns = new int[num_labels][];
+			for (int i = 0; i < num_labels; ++i) {
+				int string_index = reader.getInt();
+				labelData[i] = (string_index == -1) ? null : strings[string_index];
+				int num_patterns = reader.getInt();
+				if (num_patterns < -1 || 4L * num_patterns > reader.remaining()) {
+					throw new IOException("Off-heap DFA Table is truncated");
+				} else if (num_patterns != -1) {
+					labelPatterns[i] = new int[num_patterns];
+					reader.asIntBuffer().get(labelPatterns[i]);
+					reader.position(reader.position() + 4 * num_patterns);
+					for (int pattern: labelPatterns[i]) {
+						if (pattern < 0) {
+							throw new IOException("Pattern id " + pattern + " is out of range");
+						}
+						patternCount = Math.max(patternCount, pattern + 1);
+					}
+				}
+			}
+			for (int row = 0; row < num_rows; ++row) {
+				int label = buffer.getInt(rowLabelsOffset + 4 * row);
+				if (label < -1 || label >= num_labels) {
+					throw new IOException("Label " + label + " is out of range");
+				}
+			}
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Off-heap DFA Table is truncated");
+		} catch (IndexOutOfBoundsException e) {
+			throw new IOException("Off-heap DFA Table is corrupt");
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Off-heap DFA Table is corrupt");
+		}
+	}
+
+	/**
+	 * Returns a copy of the inputed DFA Table stored in a buffer
+	 * allocated directly, outside of the heap. The buffer is freed
+	 * once the returned table is no longer used.
+	 *
+	 * @param dfa the DFA Table to copy
+	 * @return the off-heap copy of the DFA Table
+	 * @throws IllegalArgumentException if the DFA Table is too large to fit in a buffer
+	 */
+	public static OffHeapDFATable copyOf(DFATable dfa) {
+		try {
+			return create(dfa, null);
+		} catch (IOException e) {
+			// Nothing is read from a file, and the table just written is valid
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Writes the inputed DFA Table to the inputed file, and returns
+	 * the table mapped from the file. The table is written straight
+	 * into the mapped file, so it is never copied on the heap.
+	 *
+	 * @param dfa the DFA Table to write
+	 * @param file the file to write the table to, which is replaced if it exists
+	 * @return the table mapped from the file
+	 * @throws IOException if the file can not be written
+	 * @throws IllegalArgumentException if the DFA Table is too large to fit in a buffer
+	 */
+	public static OffHeapDFATable write(DFATable dfa, File file) throws IOException {
+		return create(dfa, file);
+	}
+
+	/**
+	 * Maps the table in the inputed file, which was written by
+	 * {@link #write(DFATable, File)} or {@link #writeTo(File)}. The
+	 * file can be mapped by several processes at once, and its pages
+	 * are only read from the disk once.
+	 *
+	 * @param file the file holding the table
+	 * @return the table mapped from the file
+	 * @throws IOException if the file can not be read or does not hold a valid table
+	 */
+	public static OffHeapDFATable map(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			// The mapping stays valid after the channel is closed
+			return new OffHeapDFATable(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Writes the table to the inputed file, so it can be
+	 * mapped with {@link #map(File)}.
+	 *
+	 * @param file the file to write the table to, which is replaced if it exists
+	 * @throws IOException if the file can not be written
+	 */
+	public void writeTo(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		try {
+			ByteBuffer contents = buffer.duplicate();
+			contents.clear();
+			while (contents.hasRemaining()) {
+				channel.write(contents);
+			}
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Lays out the inputed DFA Table in a new buffer, which is either
+	 * allocated directly or mapped from the inputed file, and returns
+	 * the table over the buffer.
+	 *
+	 * @param dfa the DFA Table to lay out
+	 * @param file the file to map the buffer from, or null to allocate it directly
+	 * @return the table over the new buffer
+	 * @throws IOException if the file can not be written
+	 */
+	private static OffHeapDFATable create(DFATable dfa, File file) throws IOException {
+		int num_states = dfa.getTableSize();
+		int num_rows = num_states + 1;
+		int num_classes = dfa.getByteClasses().getNumClasses();
+		int width = dfa.getTransitionWidth();
+
+		/*
+		 * The states with the same data and pattern set share a label, which are
+		 * the blocks of the initial partition used for minimizing. The block of the
+		 * error state holds the states that are not terminating, so it has no label.
+		 */
+		int[] blockOf = new int[num_rows];
+		int num_blocks = dfa.initialPartition(blockOf);
+		int[] labelOfBlock = new int[num_blocks];
+		for (int b = 0; b < num_blocks; ++b) {
+			labelOfBlock[b] = -1;
+		}
+		ArrayList<Integer> labelStates = new ArrayList<Integer>(); // A state with each label
+		ArrayList<String> strings = new ArrayList<String>();
+		HashMap<String, Integer> stringIndex = new HashMap<String, Integer>();
+		long labels_size = 0;
+		for (int s = 0; s < num_states; ++s) {
+			int b = blockOf[s];
+			if (b == blockOf[num_states] || labelOfBlock[b] != -1) {
+				continue;
+			}
+			labelOfBlock[b] = labelStates.size();
+			labelStates.add(Integer.valueOf(s));
+			String data = dfa.isTerminatingState(s);
+			if (data != null && !stringIndex.containsKey(data)) {
+				stringIndex.put(data, Integer.valueOf(strings.size()));
+				strings.add(data);
+			}
+			int[] patterns = dfa.getPatternSet(s);
+			labels_size += 8 + ((patterns == null) ? 0 : 4L * patterns.length);
+		}
+		long strings_size = 0;
+		for (String data: strings) {
+			strings_size += 4 + 2L * data.length();
+		}
+		long table_size = (long) num_rows * num_classes * width;
+		long row_labels_offset = HEADER_SIZE + ((table_size + 3) & ~3L);
+		long size = row_labels_offset + 4L * num_rows + strings_size + labels_size;
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("DFA Table is too large to store off the heap");
+		}
+
+		ByteBuffer buffer;
+		if (file == null) {
+			buffer = ByteBuffer.allocateDirect((int) size);
+		} else {
+			FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			try {
+				buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			} finally {
+				channel.close();
+			}
+		}
+
+		buffer.putInt(MAGIC);
+		buffer.putInt(FORMAT_VERSION);
+		buffer.putInt(num_classes);
+		buffer.putInt(num_rows);
+		buffer.putInt(width);
+		buffer.putInt(strings.size());
+		buffer.putInt(labelStates.size());
+		buffer.put(dfa.getByteClasses().getClassMap());
+
+		// Row 0 is the error state, which only transitions to itself
+		for (int row = 0; row < num_rows; ++row) {
+			for (int class_id = 0; class_id < num_classes; ++class_id) {
+				int next_row = 0;
+				if (row > 0) {
+					int next_id = dfa.target(row - 1, class_id, num_states);
+					next_row = (next_id == num_states) ? 0 : next_id + 1;
+				}
+				if (width == 1) {
+					buffer.put((byte) next_row);
+				} else if (width == 2) {
+					buffer.putShort((short) next_row);
+				} else {
+					buffer.putInt(next_row);
+				}
+			}
+		}
+		while (buffer.position() < row_labels_offset) {
+			buffer.put((byte) 0);
+		}
+
+		buffer.putInt(-1); // The error state is not terminating
+		for (int s = 0; s < num_states; ++s) {
+			buffer.putInt((blockOf[s] == blockOf[num_states]) ? -1 : labelOfBlock[blockOf[s]]);
+		}
+		for (String data: strings) {
+			buffer.putInt(data.length());
+			for (int i = 0; i < data.length(); ++i) {
+				buffer.putChar(data.charAt(i));
+			}
+		}
+		for (Integer state: labelStates) {
+			String data = dfa.isTerminatingState(state.intValue());
+			buffer.putInt((data == null) ? -1 : stringIndex.get(data).intValue());
+			int[] patterns = dfa.getPatternSet(state.intValue());
+			if (patterns == null) {
+				buffer.putInt(-1);
+			} else {
+				buffer.putInt(patterns.length);
+				for (int pattern: patterns) {
+					buffer.putInt(pattern);
+				}
+			}
+		}
+
+		if (buffer instanceof MappedByteBuffer) {
+			((MappedByteBuffer) buffer).force();
+		}
+		buffer.clear();
+		return new OffHeapDFATable(buffer.asReadOnlyBuffer());
+	}
+
+	/**
+	 * Returns the row number stored at the inputed index of the table.
+	 *
+	 * @param index the index in the table
+	 * @return the row number stored at the index
+	 */
+	private int getEntry(int index) {
+		if (width == 1) {
+			return buffer.get(HEADER_SIZE + index) & 0xFF;
+		} else if (width == 2) {
+			return buffer.getShort(HEADER_SIZE + 2 * index) & 0xFFFF;
+		}
+		return buffer.getInt(HEADER_SIZE + 4 * index);
+	}
+
+	/**
+	 * Returns the class of the inputed character.
+	 *
+	 * @param c a character
+	 * @return the class of the character
+	 */
+	private int classOf(char c) {
+		return (c < NUM_BYTES) ? (classMap[c] & 0xFF) : 0;
+	}
+
+	/**
+	 * Returns the start state id for the table.
+	 *
+	 * @return the start state id
+	 * @see Automaton#getStartID()
+	 */
+	public int getStartID() {
+		return 0;
+	}
+
+	/**
+	 * Returns the error state id for the table.
+	 *
+	 * @return the error state id
+	 * @see Automaton#getErrorStateID()
+	 */
+	public int getErrorStateID() {
+		return -1;
+	}
+
+	/**
+	 * Returns the next state found by following the transition
+	 * for the inputed character from the inputed state.
+	 *
+	 * @param state_id the id of the a state in the DFA to transition from
+	 * @param c the character transition to follow
+	 * @return an integer for the id of state seen by following the transition
+	 * @see Automaton#followTransition(int, char)
+	 */
+	public int followTransition(int state_id, char c) {
+		return getEntry((state_id + 1) * num_classes + classOf(c)) - 1;
+	}
+
+	/**
+	 * Follows the transitions for the characters in the inputed
+	 * range of the input, starting from the inputed state. The
+	 * loop for each transition width only reads the buffer and
+	 * the class map.
+	 *
+	 * @param input the characters to follow the transitions for
+	 * @param from the index of the first character to follow
+	 * @param to the index after the last character to follow
+	 * @param state_id the id of the state to start from
+	 * @return the id of the state reached after following the transitions, or the error state id
+	 * @see Automaton#walk(CharSequence, int, int, int)
+	 */
+	public int walk(CharSequence input, int from, int to, int state_id) {
+		ByteBuffer buffer = this.buffer;
+		byte[] classMap = this.classMap;
+		int num_classes = this.num_classes;
+		int row = state_id + 1;
+		if (width == 1) {
+			for (int i = from; i < to && row != 0; ++i) {
+				char c = input.charAt(i);
+				row = buffer.get(HEADER_SIZE + row * num_classes + ((c < NUM_BYTES) ? (classMap[c] & 0xFF) : 0)) & 0xFF;
+			}
+		} else if (width == 2) {
+			for (int i = from; i < to && row != 0; ++i) {
+				char c = input.charAt(i);
+				row = buffer.getShort(HEADER_SIZE + 2 * (row * num_classes + ((c < NUM_BYTES) ? (classMap[c] & 0xFF) : 0))) & 0xFFFF;
+			}
+		} else {
+			for (int i = from; i < to && row != 0; ++i) {
+				char c = input.charAt(i);
+				row = buffer.getInt(HEADER_SIZE + 4 * (row * num_classes + ((c < NUM_BYTES) ? (classMap[c] & 0xFF) : 0)));
+			}
+		}
+		return row - 1;
+	}
+
+	/**
+	 * Checks to see if the inputed state is a terminating state,
+	 * and if it is, it then returns the data associated with the
+	 * terminating state. If the state is not terminating, then
+	 * null is returned.
+	 *
+	 * @param state_id the id of the state to check if it is terminating
+	 * @return the data associated with the state if it is terminating, or null if the state is not terminating
+	 * @see Automaton#isTerminatingState(int)
+	 */
+	public String isTerminatingState(int state_id) {
+		int label = buffer.getInt(rowLabelsOffset + 4 * (state_id + 1));
+		return (label == -1) ? null : labelData[label];
+	}
+
+	/**
+	 * Returns the ids of the patterns matched by the inputed
+	 * state in increasing order. If the state does not match
+	 * any pattern, null is returned.
+	 *
+	 * @param state_id the id of the state
+	 * @return the pattern ids of the state, or null if the state has none
+	 * @see MultiPatternAutomaton#getPatternSet(int)
+	 */
+	public int[] getPatternSet(int state_id) {
+		int label = buffer.getInt(rowLabelsOffset + 4 * (state_id + 1));
+		return (label == -1) ? null : labelPatterns[label];
+	}
+
+	/**
+	 * Returns one more than the largest pattern id of any
+	 * state, which is 0 if no state has a pattern set.
+	 *
+	 * @return the number of pattern ids used by the table
+	 */
+	public int getPatternCount() {
+		return patternCount;
+	}
+
+	/**
+	 * Returns the classes of the transition characters
+	 * used for the columns of the table.
+	 *
+	 * @return the character classes of the table
+	 */
+	public ByteClasses getByteClasses() {
+		return classes;
+	}
+
+	/**
+	 * Returns the number of states in the table.
+	 *
+	 * @return the number of states in the table
+	 */
+	public int getTableSize() {
+		return num_rows - 1;
+	}
+
+	/**
+	 * Returns the number of bytes used to store each
+	 * transition in the table, which is 1, 2 or 4.
+	 *
+	 * @return the number of bytes per transition
+	 */
+	public int getTransitionWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the number of bytes of the buffer holding the table.
+	 *
+	 * @return the size of the table in bytes
+	 */
+	public int getSizeInBytes() {
+		return buffer.limit();
+	}
+}
@@ -0,0 +1,246 @@
+package cs3240.regex.automaton;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class converts an NFA to a DFA with the subset construction,
+ * computing the transitions of many DFA states at once on the threads
+ * of a {@link ForkJoinPool}.
+ *
+ * The DFA states are processed in chunks of consecutive ids. The move
+ * and epsilon closure for every state and character class in a chunk
+ * are independent of each other, so they are computed in parallel. While
+ * computing them, the workers look up each state set in the map of the
+ * state sets that already have a DFA state, which is only read during
+ * this step, so only the state sets that are new are kept. The new state
+ * sets are then given their ids on the calling thread, in the order of
+ * their DFA state and character class. This is the same order that
+ * {@link NFA#toDFA(int)} finds them in, so the DFA built is exactly the
+ * same, with the same state ids, whichever number of threads is used.
+ */
+public class ParallelDeterminizer {
+
+	/** The number of threads used to build DFAs by default, set by the minire.dfa.threads property. */
+	public static final int DEFAULT_THREADS = Integer.getInteger("minire.dfa.threads", 1).intValue();
+
+	/** The number of DFA states whose transitions are computed in one step. */
+	private static final int CHUNK_SIZE = 1024;
+
+	/** The number of transitions a task computes itself instead of splitting them between two tasks. */
+	private static final int TASK_THRESHOLD = 64;
+
+	/** The value stored for a transition to the error state. */
+	private static final int NO_STATE = -1;
+
+	/** The value stored for a transition to a state set that did not have a DFA state yet. */
+	private static final int NEW_STATE = -2;
+
+	/** The pool shared by the DFAs built with the default number of threads, or null until it is needed. */
+	private static ForkJoinPool defaultPool;
+
+	/**
+	 * Returns the pool used to build DFAs when no pool is given,
+	 * which has the number of threads set by the minire.dfa.threads
+	 * property. The pool is created the first time it is needed.
+	 *
+	 * @return the default pool, or null if DFAs are built on a single thread
+	 */
+	public static synchronized ForkJoinPool getDefaultPool() {
+		if (DEFAULT_THREADS <= 1) {
+			return null;
+		}
+		if (defaultPool == null) {
+			defaultPool = new ForkJoinPool(DEFAULT_THREADS);
+		}
+		return defaultPool;
+	}
+
+	/**
+	 * Converts the inputed NFA to a DFA, computing the transitions
+	 * on the threads of the inputed pool, unless the DFA would have
+	 * more than the inputed number of states.
+	 *
+	 * @param nfa the NFA to convert
+	 * @param maxStates the maximum number of states in the DFA
+	 * @param pool the pool to compute the transitions on
+	 * @return the DFATable from converting the NFA to a DFA, or null if the DFA has too many states
+	 */
+	public static DFATable determinize(NFA nfa, int maxStates, ForkJoinPool pool) {
+		return determinize(nfa.toArena(), maxStates, pool);
+	}
+
+	/**
+	 * Converts the NFA held by the inputed arena to a DFA, the same
+	 * way as {@link #determinize(NFA, int, ForkJoinPool)}.
+	 *
+	 * @param arena the arena holding the NFA to convert
+	 * @param maxStates the maximum number of states in the DFA
+	 * @param pool the pool to compute the transitions on
+	 * @return the DFATable from converting the NFA to a DFA, or null if the DFA has too many states
+	 */
+	public static DFATable determinize(NFAArena arena, int maxStates, ForkJoinPool pool) {
+		ByteClasses classes = arena.getByteClasses();
+		int num_classes = classes.getNumClasses();
+		DFATable dfa = new DFATable(classes);
+		HashMap<NFAStateBitSet, Integer> dfaStates = new HashMap<NFAStateBitSet, Integer>();
+		ArrayList<NFAStateBitSet> stateSets = new ArrayList<NFAStateBitSet>();
+
+		// Create the start state from the epsilon closure of the NFA start state
+		NFAStateBitSet start_set = new NFAStateBitSet(arena.getStateCount());
+		arena.addClosure(start_set, arena.getStartState());
+		int start_id = dfa.newDFAState();
+		dfaStates.put(start_set, Integer.valueOf(start_id));
+		stateSets.add(start_set);
+		NFA.setTerminatingState(dfa, start_id, arena, start_set);
+
+		// The result of each transition of a chunk, indexed by the state and the class
+		int[] next_ids = new int[CHUNK_SIZE * num_classes];
+		NFAStateBitSet[] new_sets = new NFAStateBitSet[CHUNK_SIZE * num_classes];
+		int from = 0;
+		while (from < stateSets.size()) {
+			int to = Math.min(stateSets.size(), from + CHUNK_SIZE);
+			int num_moves = (to - from) * num_classes;
+
+			// Compute the transitions of the states in the chunk
+			MoveTask task = new MoveTask(arena, dfaStates, stateSets, from, num_classes, next_ids, new_sets, 0, num_moves);
+			if (num_moves <= TASK_THRESHOLD) {
+				task.compute();
+			} else {
+				pool.invoke(task);
+			}
+
+			/*
+			 * Give the new state sets their DFA states in the order of the transitions,
+			 * which is the order they are found in when the transitions are computed
+			 * one at a time. A state set may be reached by several transitions of the
+			 * chunk, so it is looked up again in case an earlier transition added it.
+			 */
+			for (int m = 0; m < num_moves; ++m) {
+				int next_id = next_ids[m];
+				if (next_id == NO_STATE) {
+					continue;
+				}
+				if (next_id == NEW_STATE) {
+					NFAStateBitSet set = new_sets[m];
+					new_sets[m] = null;
+					Integer id = dfaStates.get(set);
+					if (id != null) {
+						next_id = id.intValue();
+					} else {
+						if (stateSets.size() >= maxStates) {
+							return null;
+						}
+						next_id = dfa.newDFAState();
+						dfaStates.put(set, Integer.valueOf(next_id));
+						stateSets.add(set);
+						NFA.setTerminatingState(dfa, next_id, arena, set);
+					}
+				}
+				dfa.addTransition(from + m / num_classes, next_id, classes.getRepresentative(m % num_classes));
+			}
+			from = to;
+		}
+		return dfa;
+	}
+
+	/**
+	 * A task that computes a range of the transitions of a chunk
+	 * of DFA states, splitting the range between two tasks while
+	 * it has more than a few transitions.
+	 */
+	private static class MoveTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		/** The arena holding the NFA states, which is copied by each task that computes transitions. */
+		private NFAArena arena;
+
+		/** The map of the state sets that have a DFA state, which is only read. */
+		private HashMap<NFAStateBitSet, Integer> dfaStates;
+
+		/** The state set of each DFA state, which is only read. */
+		private ArrayList<NFAStateBitSet> stateSets;
+
+		/** The id of the first DFA state in the chunk. */
+		private int firstState;
+
+		/** The number of character classes. */
+		private int numClasses;
+
+		/** The id of the state reached by each transition, or NO_STATE or NEW_STATE. */
+		private int[] nextIds;
+
+		/** The state set reached by each transition to a new state set. */
+		private NFAStateBitSet[] newSets;
+
+		/** The index of the first transition of the range. */
+		private int from;
+
+		/** The index after the last transition of the range. */
+		private int to;
+
+		/**
+		 * Creates a task that computes the inputed range of the
+		 * transitions of the chunk starting at the inputed state.
+		 *
+		 * @param arena the arena holding the NFA states
+		 * @param dfaStates the map of the state sets that have a DFA state
+		 * @param stateSets the state set of each DFA state
+		 * @param firstState the id of the first DFA state in the chunk
+		 * @param numClasses the number of character classes
+		 * @param nextIds the array to store the state reached by each transition in
+		 * @param newSets the array to store the new state sets in
+		 * @param from the index of the first transition to compute
+		 * @param to the index after the last transition to compute
+		 */
+		public MoveTask(NFAArena arena, HashMap<NFAStateBitSet, Integer> dfaStates, ArrayList<NFAStateBitSet> stateSets,
+				int firstState, int numClasses, int[] nextIds, NFAStateBitSet[] newSets, int from, int to) {
+			this.arena = arena;
+			this.dfaStates = dfaStates;
+			this.stateSets = stateSets;
+			this.firstState = firstState;
+			this.numClasses = numClasses;
+			this.nextIds = nextIds;
+			this.newSets = newSets;
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * Computes the transitions in the range, or splits
+		 * the range in two if it has too many transitions.
+		 *
+		 * @see java.util.concurrent.RecursiveAction#compute()
+		 */
+		@Override
+		protected void compute() {
+			if (to - from > TASK_THRESHOLD) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new MoveTask(arena, dfaStates, stateSets, firstState, numClasses, nextIds, newSets, from, middle),
+						new MoveTask(arena, dfaStates, stateSets, firstState, numClasses, nextIds, newSets, middle, to));
+				return;
+			}
+			NFAArena local = arena.copy();
+			NFAStateBitSet set = new NFAStateBitSet(local.getStateCount());
+			for (int m = from; m < to; ++m) {
+				set.clear();
+				local.move(stateSets.get(firstState + m / numClasses), m % numClasses, set);
+				if (set.isEmpty()) {
+					nextIds[m] = NO_STATE;
+					continue;
+				}
+				// Only keep the state set if it does not have a DFA state yet
+				Integer id = dfaStates.get(set);
+				if (id != null) {
+					nextIds[m] = id.intValue();
+				} else {
+					nextIds[m] = NEW_STATE;
+					newSets[m] = set.copy();
+				}
+			}
+		}
+	}
+}
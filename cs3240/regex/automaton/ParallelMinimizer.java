@@ -0,0 +1,300 @@
+package cs3240.regex.automaton;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * This class minimizes a DFA Table with Moore's partition refinement,
+ * running each round on the threads of a {@link ForkJoinPool}.
+ *
+ * The refinement starts from the same initial partition as
+ * {@link DFATable#toMinimalDFA()}. In each round, the signature of a
+ * state is its block followed by the block of the state reached by each
+ * character class, and the states are split into new blocks by their
+ * signatures. The rounds stop once a round does not split any block, and
+ * the partition is then the same partition Hopcroft's algorithm finds, so
+ * the minimal DFA is the same as the one of {@link DFATable#toMinimalDFA()}.
+ *
+ * The signatures are never stored. Each round hashes the signature of
+ * every state in parallel, and then the states are added in parallel to
+ * an open addressing table, where a state either claims an empty slot
+ * with a compare-and-set or finds a state with an equal signature, which
+ * is compared by reading the blocks of both states again. So the memory
+ * used is a few ints per state, whatever the number of classes. The
+ * number of rounds is at most the number of states, but for most DFAs
+ * it is close to the length of the longest path without a cycle, so this
+ * suits very large DFAs that are not too deep, such as the DFAs of
+ * {@link cs3240.regex.parser.RegexSet}.
+ */
+public class ParallelMinimizer {
+
+	/** The number of states a task handles itself instead of splitting them between two tasks. */
+	private static final int TASK_THRESHOLD = 4096;
+
+	/** The value of an empty slot of the table. */
+	private static final int EMPTY = -1;
+
+	/** The phase that hashes the signature of each state. */
+	private static final int HASH_PHASE = 0;
+
+	/** The phase that empties the slots of the table. */
+	private static final int CLEAR_PHASE = 1;
+
+	/** The phase that finds the representative state of the signature of each state. */
+	private static final int INTERN_PHASE = 2;
+
+	/** The phase that gives each state the new block of its representative. */
+	private static final int RENUMBER_PHASE = 3;
+
+	/** The DFA being minimized. */
+	private DFATable dfa;
+
+	/** The pool the rounds are run on, or null to run them on the calling thread. */
+	private ForkJoinPool pool;
+
+	/** The number of character classes. */
+	private int numClasses;
+
+	/** The number of states, including the error state, which has the last index. */
+	private int total;
+
+	/** The block of each state in the current partition. */
+	private int[] blockOf;
+
+	/** The block of each state in the next partition. */
+	private int[] nextBlock;
+
+	/** The hash of the signature of each state. */
+	private int[] hashes;
+
+	/** The first state found with the same signature as each state. */
+	private int[] representative;
+
+	/** The open addressing table of the states with distinct signatures. */
+	private AtomicIntegerArray slots;
+
+	/** The mask used to wrap an index into the table. */
+	private int mask;
+
+	/**
+	 * Creates a minimizer for the inputed DFA.
+	 *
+	 * @param dfa the DFA to minimize
+	 * @param pool the pool to run the rounds on, or null
+	 */
+	private ParallelMinimizer(DFATable dfa, ForkJoinPool pool) {
+		this.dfa = dfa;
+		this.pool = pool;
+		this.numClasses = dfa.getByteClasses().getNumClasses();
+		this.total = dfa.getTableSize() + 1;
+		this.blockOf = new int[total];
+		this.nextBlock = new int[total];
+		this.hashes = new int[total];
+		this.representative = new int[total];
+		int capacity = Integer.highestOneBit(total) << 2; // At most half of the slots are ever used
+		this.slots = new AtomicIntegerArray(capacity);
+		this.mask = capacity - 1;
+	}
+
+	/**
+	 * Returns the minimal DFA for the inputed DFA, refining the
+	 * partition of its states on the threads of the inputed pool.
+	 *
+	 * @param dfa the DFA to minimize
+	 * @param pool the pool to run the rounds on, or null to run them on the calling thread
+	 * @return the minimal DFA of the DFA
+	 */
+	public static DFATable minimize(DFATable dfa, ForkJoinPool pool) {
+		ParallelMinimizer minimizer = new ParallelMinimizer(dfa, pool);
+		int num_blocks = minimizer.refine();
+		return dfa.quotient(minimizer.blockOf, num_blocks);
+	}
+
+	/**
+	 * Refines the initial partition until a round does not split any block.
+	 *
+	 * @return the number of blocks in the final partition
+	 */
+	private int refine() {
+		int num_blocks = dfa.initialPartition(blockOf);
+		while (true) {
+			runPhase(HASH_PHASE, total);
+			runPhase(CLEAR_PHASE, slots.length());
+			runPhase(INTERN_PHASE, total);
+			/*
+			 * Number the new blocks in the order of their first state, which only
+			 * touches the representatives, and then give the other states the block
+			 * of their representative in parallel.
+			 */
+			int num_new = 0;
+			for (int s = 0; s < total; ++s) {
+				if (representative[s] == s) {
+					nextBlock[s] = num_new++;
+				}
+			}
+			runPhase(RENUMBER_PHASE, total);
+			int[] temp = blockOf;
+			blockOf = nextBlock;
+			nextBlock = temp;
+			// The partition only gets finer, so it is stable once the number of blocks stays the same
+			if (num_new == num_blocks) {
+				return num_blocks;
+			}
+			num_blocks = num_new;
+		}
+	}
+
+	/**
+	 * Runs the inputed phase over the indexes from 0 to the inputed length.
+	 *
+	 * @param phase the phase to run
+	 * @param length the number of indexes
+	 */
+	private void runPhase(int phase, int length) {
+		if (pool == null || length <= TASK_THRESHOLD) {
+			runRange(phase, 0, length);
+		} else {
+			pool.invoke(new PhaseTask(phase, 0, length));
+		}
+	}
+
+	/**
+	 * Runs the inputed phase over a range of indexes.
+	 *
+	 * @param phase the phase to run
+	 * @param from the first index
+	 * @param to the index after the last index
+	 */
+	private void runRange(int phase, int from, int to) {
+		switch (phase) {
+		case HASH_PHASE:
+			for (int s = from; s < to; ++s) {
+				hashes[s] = hashSignature(s);
+			}
+			break;
+		case CLEAR_PHASE:
+			for (int i = from; i < to; ++i) {
+				slots.set(i, EMPTY);
+			}
+			break;
+		case INTERN_PHASE:
+			for (int s = from; s < to; ++s) {
+				representative[s] = intern(s);
+			}
+			break;
+		default:
+			for (int s = from; s < to; ++s) {
+				if (representative[s] != s) {
+					nextBlock[s] = nextBlock[representative[s]];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the hash of the signature of the inputed state.
+	 *
+	 * @param s the index of the state
+	 * @return the hash of the signature
+	 */
+	private int hashSignature(int s) {
+		int sink = total - 1;
+		int h = blockOf[s];
+		for (int c = 0; c < numClasses; ++c) {
+			h = 31 * h + blockOf[dfa.target(s, c, sink)];
+		}
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Checks to see if the inputed states have the same signature.
+	 *
+	 * @param a the index of a state
+	 * @param b the index of another state
+	 * @return true if the signatures are equal
+	 */
+	private boolean sameSignature(int a, int b) {
+		if (hashes[a] != hashes[b] || blockOf[a] != blockOf[b]) {
+			return false;
+		}
+		int sink = total - 1;
+		for (int c = 0; c < numClasses; ++c) {
+			if (blockOf[dfa.target(a, c, sink)] != blockOf[dfa.target(b, c, sink)]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Adds the inputed state to the table, unless a state with
+	 * the same signature is already in the table.
+	 *
+	 * @param s the index of the state
+	 * @return the state in the table with the same signature, which is the state itself if it was added
+	 */
+	private int intern(int s) {
+		int slot = hashes[s] & mask;
+		while (true) {
+			int other = slots.get(slot);
+			if (other == EMPTY) {
+				if (slots.compareAndSet(slot, EMPTY, s)) {
+					return s;
+				}
+				continue; // Another state claimed the slot first, so check it
+			}
+			if (sameSignature(s, other)) {
+				return other;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	/**
+	 * A task that runs a phase over a range of indexes, splitting
+	 * the range between two tasks while it is large.
+	 */
+	private class PhaseTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		/** The phase to run. */
+		private int phase;
+
+		/** The first index of the range. */
+		private int from;
+
+		/** The index after the last index of the range. */
+		private int to;
+
+		/**
+		 * Creates a task that runs the inputed phase over the inputed range.
+		 *
+		 * @param phase the phase to run
+		 * @param from the first index
+		 * @param to the index after the last index
+		 */
+		public PhaseTask(int phase, int from, int to) {
+			this.phase = phase;
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * Runs the phase over the range, or splits the range in two.
+		 *
+		 * @see java.util.concurrent.RecursiveAction#compute()
+		 */
+		@Override
+		protected void compute() {
+			if (to - from <= TASK_THRESHOLD) {
+				runRange(phase, from, to);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new PhaseTask(phase, from, middle), new PhaseTask(phase, middle, to));
+		}
+	}
+}
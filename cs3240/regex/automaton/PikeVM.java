@@ -0,0 +1,177 @@
+package cs3240.regex.automaton;
+
+/**
+ * This class matches input by simulating an NFA directly,
+ * instead of converting it to a DFA. The simulation keeps
+ * the set of NFA states that are active, and for each input
+ * character, moves every active state forward at the same
+ * time. The memory used only depends on the size of the NFA,
+ * and the time is linear in the length of the input, so it
+ * can be used for regular expressions whose DFA would be too large.
+ *
+ * The transitions of the NFA are copied into an {@link NFAArena},
+ * where the character transitions of each state are grouped by the
+ * character class (see {@link ByteClasses}) and the epsilon closure
+ * of each state is computed ahead of time. The active states are
+ * kept in a {@link SparseStateSet}.
+ *
+ * The automaton only has two state ids besides the error state:
+ * the start state, and the current set of active states. So the
+ * id returned by {@link #followTransition(int, char)} or
+ * {@link #walk(CharSequence, int, int, int)} is only valid until
+ * the next call to either method, except for the start state id.
+ * This class is not thread-safe.
+ */
+public class PikeVM implements Automaton {
+
+	/** The id of the start state. */
+	private static final int START_ID = 0;
+
+	/** The id of the current set of active states. */
+	private static final int CURRENT_ID = 1;
+
+	/** The id of the error state, which is reached once no states are active. */
+	private static final int ERROR_ID = -1;
+
+	/** The classes of the transition characters. */
+	private ByteClasses classes;
+
+	/** The states of the NFA, with their transitions in flat arrays. */
+	private NFAArena arena;
+
+	/** The epsilon closure of the NFA start state. */
+	private SparseStateSet startSet;
+
+	/** The current set of active states. */
+	private SparseStateSet currentSet;
+
+	/** A set that is reused to compute the next set of active states. */
+	private SparseStateSet nextSet;
+
+	/**
+	 * Creates a matcher that simulates the inputed NFA, with
+	 * the epsilon closure of every state stored in its arena.
+	 *
+	 * @param nfa the NFA to simulate
+	 */
+	public PikeVM(NFA nfa) {
+		this(nfa.toArena().withStoredClosures());
+	}
+
+	/**
+	 * Creates a matcher that simulates the NFA held by the inputed
+	 * arena. The matcher uses its own copy of the arena, so an arena
+	 * can be shared by matchers that are used from different threads.
+	 * The matcher is faster if the arena stores its closures, see
+	 * {@link NFAArena#withStoredClosures()}.
+	 *
+	 * @param arena the arena holding the NFA to simulate
+	 */
+	public PikeVM(NFAArena arena) {
+		this.classes = arena.getByteClasses();
+		this.arena = arena.copy();
+		int num_states = arena.getStateCount();
+		this.startSet = new SparseStateSet(num_states);
+		this.currentSet = new SparseStateSet(num_states);
+		this.nextSet = new SparseStateSet(num_states);
+		this.arena.addClosure(startSet, arena.getStartState());
+	}
+
+	/**
+	 * Returns the start state id.
+	 *
+	 * @return the start state id
+	 * @see Automaton#getStartID()
+	 */
+	public int getStartID() {
+		return START_ID;
+	}
+
+	/**
+	 * Returns the error state id.
+	 *
+	 * @return the error state id
+	 * @see Automaton#getErrorStateID()
+	 */
+	public int getErrorStateID() {
+		return ERROR_ID;
+	}
+
+	/**
+	 * Moves the states active in the inputed state forward for the
+	 * inputed character, and returns the id of the new set of active
+	 * states, or the error state id if no states are active.
+	 *
+	 * @param state_id the start state id, or the id of the current set of active states
+	 * @param c the character transition to follow
+	 * @return the id of the new set of active states
+	 * @see Automaton#followTransition(int, char)
+	 */
+	public int followTransition(int state_id, char c) {
+		if (state_id == ERROR_ID) {
+			return ERROR_ID;
+		}
+		SparseStateSet set = (state_id == START_ID) ? startSet : currentSet;
+		step(set, classes.getClass(c));
+		return (currentSet.size() == 0) ? ERROR_ID : CURRENT_ID;
+	}
+
+	/**
+	 * Follows the transitions for the characters in the inputed
+	 * range of the input, starting from the inputed state.
+	 *
+	 * @param input the characters to follow the transitions for
+	 * @param from the index of the first character to follow
+	 * @param to the index after the last character to follow
+	 * @param state_id the id of the state to start from
+	 * @return the id of the state reached after following the transitions, or the error state id
+	 * @see Automaton#walk(CharSequence, int, int, int)
+	 */
+	public int walk(CharSequence input, int from, int to, int state_id) {
+		for (int i = from; i < to && state_id != ERROR_ID; ++i) {
+			state_id = followTransition(state_id, input.charAt(i));
+		}
+		return state_id;
+	}
+
+	/**
+	 * Checks to see if the inputed state has an active terminating
+	 * NFA state, and if it does, returns the type of the terminating
+	 * state with the lowest index. If it does not, null is returned.
+	 *
+	 * @param state_id the id of the state to check if it is terminating
+	 * @return the data associated with the state if it is terminating, or null if the state is not terminating
+	 * @see Automaton#isTerminatingState(int)
+	 */
+	public String isTerminatingState(int state_id) {
+		if (state_id == ERROR_ID) {
+			return null;
+		}
+		SparseStateSet set = (state_id == START_ID) ? startSet : currentSet;
+		int lowest = -1;
+		for (int i = 0; i < set.size(); ++i) {
+			int index = set.get(i);
+			if (arena.isTerminating(index) && (lowest == -1 || index < lowest)) {
+				lowest = index;
+			}
+		}
+		return (lowest == -1) ? null : arena.getType(lowest);
+	}
+
+	/**
+	 * Computes the states reached by following the transitions for
+	 * the inputed character class from the states in the inputed set,
+	 * and makes them the current set of active states.
+	 *
+	 * @param set the active states to move forward
+	 * @param class_id the character class to follow
+	 */
+	private void step(SparseStateSet set, int class_id) {
+		nextSet.clear();
+		arena.move(set, class_id, nextSet);
+		// Swap the next set in as the current set
+		SparseStateSet temp = currentSet;
+		currentSet = nextSet;
+		nextSet = temp;
+	}
+}
@@ -0,0 +1,243 @@
+package cs3240.regex.automaton;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * This class represents the product of several DFA Tables, which
+ * runs all of the DFAs at once over the same input. Each state of the
+ * product is a tuple with a state of each component DFA, and follows
+ * the transitions of every component at once, so one walk over the
+ * input gives the result of walking each of the DFAs. A component that
+ * reaches its error state stays in it, and the product only reaches
+ * its error state once every component has.
+ *
+ * The transitions are stored in a {@link DFATable} whose character
+ * classes are the common refinement of the classes of the components.
+ * The component states of each product state are stored in a single
+ * array, so the terminating data of each component can be looked up
+ * for any product state.
+ */
+public class ProductDFA {
+
+	/** The component DFAs. */
+	private DFATable[] dfas;
+
+	/** The transitions between the product states. */
+	private DFATable table;
+
+	/** The state of each component for each product state, with one entry per component for each state. */
+	private int[] components;
+
+	/**
+	 * Creates a product DFA with the inputed transitions and component states.
+	 *
+	 * @param dfas the component DFAs
+	 * @param table the transitions between the product states
+	 * @param components the component states of each product state
+	 */
+	private ProductDFA(DFATable[] dfas, DFATable table, int[] components) {
+		this.dfas = dfas;
+		this.table = table;
+		this.components = components;
+	}
+
+	/**
+	 * Builds the product of the inputed DFAs, by exploring the tuples
+	 * of component states that can be reached from the tuple of start
+	 * states in breadth-first order.
+	 *
+	 * @param dfas the component DFAs
+	 * @param maxStates the maximum number of product states
+	 * @return the product of the DFAs, or null if it would have more than the maximum number of states
+	 */
+	public static ProductDFA create(DFATable[] dfas, int maxStates) {
+		int num_components = dfas.length;
+
+		// Use the classes that every component can tell apart
+		ByteClasses classes = new ByteClasses();
+		for (DFATable dfa: dfas) {
+			classes.addClasses(dfa.getByteClasses());
+		}
+		DFATable table = new DFATable(classes);
+
+		HashMap<StateTuple, Integer> ids = new HashMap<StateTuple, Integer>();
+		ArrayList<int[]> tuples = new ArrayList<int[]>();
+		int[] start = new int[num_components];
+		for (int k = 0; k < num_components; ++k) {
+			start[k] = dfas[k].getStartID();
+		}
+		ids.put(new StateTuple(start), Integer.valueOf(table.newDFAState()));
+		tuples.add(start);
+
+		/*
+		 * The tuples are numbered in the order they are found, so the id of each
+		 * tuple is its index in the list, and the list also serves as the queue.
+		 */
+		for (int state_id = 0; state_id < tuples.size(); ++state_id) {
+			int[] tuple = tuples.get(state_id);
+			for (int class_id = 0; class_id < classes.getNumClasses(); ++class_id) {
+				char c = classes.getRepresentative(class_id);
+				int[] next = new int[num_components];
+				boolean alive = false;
+				for (int k = 0; k < num_components; ++k) {
+					next[k] = dfas[k].followTransition(tuple[k], c);
+					alive |= (next[k] != dfas[k].getErrorStateID());
+				}
+				if (!alive) {
+					continue; // Every component failed, so the transition is to the error state
+				}
+				StateTuple key = new StateTuple(next);
+				Integer dest_id = ids.get(key);
+				if (dest_id == null) {
+					if (tuples.size() == maxStates) {
+						return null;
+					}
+					dest_id = Integer.valueOf(table.newDFAState());
+					ids.put(key, dest_id);
+					tuples.add(next);
+				}
+				table.addTransition(state_id, dest_id.intValue(), c);
+			}
+		}
+
+		int[] components = new int[tuples.size() * num_components];
+		for (int state_id = 0; state_id < tuples.size(); ++state_id) {
+			System.arraycopy(tuples.get(state_id), 0, components, state_id * num_components, num_components);
+		}
+		return new ProductDFA(dfas.clone(), table, components);
+	}
+
+	/**
+	 * Returns the start state id of the product.
+	 *
+	 * @return the start state id
+	 */
+	public int getStartID() {
+		return table.getStartID();
+	}
+
+	/**
+	 * Returns the error state id of the product, which is
+	 * only reached once every component has failed.
+	 *
+	 * @return the error state id
+	 */
+	public int getErrorStateID() {
+		return table.getErrorStateID();
+	}
+
+	/**
+	 * Returns the next product state found by following the transition
+	 * for the inputed character from the inputed product state.
+	 *
+	 * @param state_id the id of a product state
+	 * @param c the character transition to follow
+	 * @return the id of the next product state, or the error state id
+	 */
+	public int followTransition(int state_id, char c) {
+		return table.followTransition(state_id, c);
+	}
+
+	/**
+	 * Returns the state of the inputed component in the inputed
+	 * product state. In the error state of the product, every
+	 * component is in its error state.
+	 *
+	 * @param state_id the id of a product state, or the error state id
+	 * @param component the index of the component
+	 * @return the id of the state of the component
+	 */
+	public int getComponentState(int state_id, int component) {
+		if (state_id == table.getErrorStateID()) {
+			return dfas[component].getErrorStateID();
+		}
+		return components[state_id * dfas.length + component];
+	}
+
+	/**
+	 * Checks to see if the inputed component has reached its
+	 * error state in the inputed product state.
+	 *
+	 * @param state_id the id of a product state, or the error state id
+	 * @param component the index of the component
+	 * @return true if the component is in its error state
+	 */
+	public boolean isFailed(int state_id, int component) {
+		return getComponentState(state_id, component) == dfas[component].getErrorStateID();
+	}
+
+	/**
+	 * Returns the terminating data of the inputed component in
+	 * the inputed product state, or null if the component is not
+	 * in a terminating state.
+	 *
+	 * @param state_id the id of a product state, or the error state id
+	 * @param component the index of the component
+	 * @return the data of the terminating state of the component, or null
+	 */
+	public String isTerminatingState(int state_id, int component) {
+		if (isFailed(state_id, component)) {
+			return null;
+		}
+		return dfas[component].isTerminatingState(getComponentState(state_id, component));
+	}
+
+	/**
+	 * Returns the number of component DFAs.
+	 *
+	 * @return the number of components
+	 */
+	public int getNumComponents() {
+		return dfas.length;
+	}
+
+	/**
+	 * Returns the number of states in the product.
+	 *
+	 * @return the number of product states
+	 */
+	public int getTableSize() {
+		return table.getTableSize();
+	}
+
+	/**
+	 * A tuple of component states, which is used
+	 * to find the id of a product state.
+	 */
+	private static class StateTuple {
+
+		/** The state of each component. */
+		private int[] states;
+
+		/**
+		 * Creates a tuple with the inputed component states.
+		 *
+		 * @param states the state of each component
+		 */
+		public StateTuple(int[] states) {
+			this.states = states;
+		}
+
+		/**
+		 * Returns a hash of the component states.
+		 *
+		 * @return hash code for the tuple
+		 */
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(states);
+		}
+
+		/**
+		 * Checks if the inputed object is a tuple with the same component states.
+		 *
+		 * @param obj the object to compare to
+		 * @return true if the tuples are equal
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			return (obj instanceof StateTuple) && Arrays.equals(states, ((StateTuple) obj).states);
+		}
+	}
+}
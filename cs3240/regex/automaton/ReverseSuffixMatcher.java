@@ -0,0 +1,63 @@
+package cs3240.regex.automaton;
+import java.util.Collection;
+
+/**
+ * This class finds the positions where a match of a regular
+ * expression starts, for regular expressions where every match
+ * ends with one of a set of literals, such as '[A-Za-z]*ment'.
+ * The occurrences of the literals are found with an {@link AhoCorasick}
+ * scanner, and since a match can only end where a literal ends, the
+ * DFA of the reversed regular expression is walked backwards from
+ * the end of each occurrence. Every position where the reversed DFA
+ * is in a terminating state is the start of a match. The walk stops
+ * once the reversed DFA reaches the error state, so the work depends
+ * on the number of occurrences and the length of the matches, instead
+ * of the length of the input.
+ */
+public class ReverseSuffixMatcher {
+
+	/** The scanner for the literals that every match ends with. */
+	private AhoCorasick suffixes;
+
+	/** The DFA matching the reverse of the strings matched by the regular expression. */
+	private Automaton reverseDFA;
+
+	/**
+	 * Creates a matcher for a regular expression whose matches
+	 * all end with one of the inputed literals.
+	 *
+	 * @param suffixes the non-empty literals that every match ends with
+	 * @param reverseDFA a DFA matching the reverse of the strings matched by the regular expression
+	 */
+	public ReverseSuffixMatcher(Collection<String> suffixes, Automaton reverseDFA) {
+		this.suffixes = new AhoCorasick(suffixes);
+		this.reverseDFA = reverseDFA;
+	}
+
+	/**
+	 * Finds the positions in the inputed text where a non-empty
+	 * match of the regular expression starts.
+	 *
+	 * @param text the text to search
+	 * @return a boolean for each position in the text on whether a match starts at it
+	 */
+	public boolean[] findMatchStarts(CharSequence text) {
+		boolean[] starts = new boolean[text.length()];
+		int start_id = reverseDFA.getStartID();
+		int error_id = reverseDFA.getErrorStateID();
+		for (int end: suffixes.matchEnds(text, 0, text.length())) {
+			// Walk backwards from the end of the occurrence until the reversed DFA fails
+			int state_id = start_id;
+			for (int pos = end - 1; pos >= 0; --pos) {
+				state_id = reverseDFA.followTransition(state_id, text.charAt(pos));
+				if (state_id == error_id) {
+					break;
+				}
+				if (reverseDFA.isTerminatingState(state_id) != null) {
+					starts[pos] = true;
+				}
+			}
+		}
+		return starts;
+	}
+}
@@ -0,0 +1,85 @@
+package cs3240.regex.automaton;
+
+/**
+ * This class represents a set of dense state indexes
+ * as a sparse set, which keeps the indexes in the set in
+ * a dense array in the order they were added, and the
+ * position of each index in a sparse array. Adding an
+ * index, checking if an index is in the set, and clearing
+ * the set all take constant time, and the indexes in the
+ * set can be looped through without scanning every state.
+ */
+class SparseStateSet {
+
+	/** The indexes in the set, in the order they were added. */
+	private int[] dense;
+
+	/** The position in the dense array of each index, which is only valid for indexes in the set. */
+	private int[] sparse;
+
+	/** The number of indexes in the set. */
+	private int size;
+
+	/**
+	 * Creates an empty set for indexes from 0 up to,
+	 * but not including, the inputed number of states.
+	 *
+	 * @param num_states the number of states
+	 */
+	SparseStateSet(int num_states) {
+		this.dense = new int[num_states];
+		this.sparse = new int[num_states];
+	}
+
+	/**
+	 * Adds the index to the set.
+	 *
+	 * @param index the index to add
+	 * @return true if the index was not already in the set
+	 */
+	boolean add(int index) {
+		if (contains(index)) {
+			return false;
+		}
+		dense[size] = index;
+		sparse[index] = size++;
+		return true;
+	}
+
+	/**
+	 * Checks to see if the index is in the set.
+	 *
+	 * @param index the index to check
+	 * @return true if the index is in the set
+	 */
+	boolean contains(int index) {
+		int position = sparse[index];
+		return position < size && dense[position] == index;
+	}
+
+	/**
+	 * Returns the index at the inputed position in the set.
+	 *
+	 * @param position a position from 0 up to the size of the set
+	 * @return the index at the position
+	 */
+	int get(int position) {
+		return dense[position];
+	}
+
+	/**
+	 * Returns the number of indexes in the set.
+	 *
+	 * @return the size of the set
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all of the indexes from the set.
+	 */
+	void clear() {
+		size = 0;
+	}
+}
@@ -0,0 +1,115 @@
+package cs3240.regex.derivative;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import cs3240.regex.ast.RegexAstNode;
+import cs3240.regex.automaton.ByteClasses;
+import cs3240.regex.automaton.DFATable;
+
+/**
+ * This class builds a DFA directly from the AST of a regular
+ * expression using Brzozowski derivatives, without building an NFA.
+ * Each state of the DFA is a normalized term, and the transition
+ * for a character class leads to the derivative of the term for
+ * that class. Because equal terms are identified by the
+ * {@link TermFactory}, the DFA is usually close to minimal.
+ */
+public class DerivativeCompiler {
+
+	/**
+	 * Builds the DFA for the regex given by the AST, where the inputed
+	 * node acts as the root of the AST.
+	 *
+	 * @param root the root node of the AST
+	 * @param type the data associated with the terminating states
+	 * @return the DFA matching the regex
+	 */
+	public static DFATable compile(RegexAstNode root, String type) {
+		return compile(root, type, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Builds the DFA for the regex given by the AST, unless the
+	 * DFA would have more than the inputed number of states.
+	 *
+	 * @param root the root node of the AST
+	 * @param type the data associated with the terminating states
+	 * @param maxStates the maximum number of states in the DFA
+	 * @return the DFA matching the regex, or null if the DFA has too many states
+	 */
+	public static DFATable compile(RegexAstNode root, String type, int maxStates) {
+		TermFactory factory = new TermFactory(root.getByteClasses());
+		return compile(factory, root.toTerm(factory), type, maxStates);
+	}
+
+	/**
+	 * Builds the DFA for the inputed term, which may use the
+	 * intersection and complement operators.
+	 *
+	 * @param factory the factory the term was created by
+	 * @param term the term to build the DFA for
+	 * @param type the data associated with the terminating states
+	 * @return the DFA matching the term
+	 */
+	public static DFATable compile(TermFactory factory, Term term, String type) {
+		return compile(factory, term, type, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Builds the DFA for the inputed term, unless the DFA
+	 * would have more than the inputed number of states.
+	 *
+	 * @param factory the factory the term was created by
+	 * @param term the term to build the DFA for
+	 * @param type the data associated with the terminating states
+	 * @param maxStates the maximum number of states in the DFA
+	 * @return the DFA matching the term, or null if the DFA has too many states
+	 */
+	public static DFATable compile(TermFactory factory, Term term, String type, int maxStates) {
+		ByteClasses classes = factory.getByteClasses();
+		DFATable dfa = new DFATable(classes);
+		// A mapping between the terms and their corresponding DFA state
+		HashMap<Term, Integer> dfaStates = new HashMap<Term, Integer>();
+		// The term for each DFA state, indexed by the DFA state id
+		ArrayList<Term> stateTerms = new ArrayList<Term>();
+
+		// The start state is the term itself
+		int start_id = dfa.newDFAState();
+		dfaStates.put(term, Integer.valueOf(start_id));
+		stateTerms.add(term);
+		if (term.isNullable()) {
+			dfa.setTerminatingState(start_id, type);
+		}
+
+		// Process the terms in the order of their DFA state ids
+		for (int state_id = 0; state_id < stateTerms.size(); ++state_id) {
+			Term state_term = stateTerms.get(state_id);
+			for (int class_id = 0; class_id < classes.getNumClasses(); ++class_id) {
+				Term next_term = factory.derivative(state_term, class_id);
+				// The empty set term is the error state, so it needs no transition
+				if (next_term == factory.empty()) {
+					continue;
+				}
+				Integer dfaStateID = dfaStates.get(next_term);
+				int nextState_id;
+				if (dfaStateID == null) {
+					// Create a DFA state for the new term, which is terminating if the term is nullable
+					if (stateTerms.size() >= maxStates) {
+						return null;
+					}
+					nextState_id = dfa.newDFAState();
+					dfaStates.put(next_term, Integer.valueOf(nextState_id));
+					stateTerms.add(next_term);
+					if (next_term.isNullable()) {
+						dfa.setTerminatingState(nextState_id, type);
+					}
+				} else {
+					nextState_id = dfaStateID.intValue();
+				}
+				dfa.addTransition(state_id, nextState_id, classes.getRepresentative(class_id));
+			}
+		}
+		return dfa;
+	}
+}
@@ -0,0 +1,216 @@
+package cs3240.regex.derivative;
+
+import java.util.Arrays;
+
+/**
+ * This class represents a term of a regular expression
+ * that derivatives can be taken of. Terms are immutable,
+ * and are only created by a {@link TermFactory}, which
+ * normalizes each term and makes sure there is only one
+ * instance of every distinct term. So two terms from the
+ * same factory are the same regular expression exactly when
+ * they are the same instance, which is how the factory
+ * identifies the states of the DFA.
+ */
+public class Term {
+
+	/** The type of the term. */
+	private TermType type;
+
+	/** The children of the term, which are only used by the operator types. */
+	private Term[] children;
+
+	/** A bit for each character class matched by a CHAR_SET term. */
+	private long[] classes;
+
+	/** A boolean on whether the term matches the empty string. */
+	private boolean nullable;
+
+	/** The id of the term, which is the order it was created in by its factory. */
+	private int id = -1;
+
+	/** The hash of the term, which only depends on its type, children and classes. */
+	private int hash;
+
+	/** The derivative of the term for each character class, or null if it has not been computed. */
+	Term[] derivatives;
+
+	/**
+	 * Creates a term of the inputed type with
+	 * the inputed children and character classes.
+	 *
+	 * @param type the type of the term
+	 * @param children the children of the term
+	 * @param classes a bit for each character class matched by the term, or null
+	 * @param nullable a boolean on whether the term matches the empty string
+	 */
+	Term(TermType type, Term[] children, long[] classes, boolean nullable) {
+		this.type = type;
+		this.children = children;
+		this.classes = classes;
+		this.nullable = nullable;
+
+		// Compute the hash from the type, the ids of the children and the classes
+		int h = type.ordinal();
+		for (Term child: children) {
+			h = 31 * h + child.id;
+		}
+		if (classes != null) {
+			h = 31 * h + Arrays.hashCode(classes);
+		}
+		this.hash = h;
+	}
+
+	/**
+	 * Returns the type of the term.
+	 *
+	 * @return the type of the term
+	 */
+	public TermType getType() {
+		return type;
+	}
+
+	/**
+	 * Returns the number of children of the term.
+	 *
+	 * @return the number of children
+	 */
+	public int getChildCount() {
+		return children.length;
+	}
+
+	/**
+	 * Returns the child of the term at the inputed position.
+	 *
+	 * @param i the position of the child
+	 * @return the child at the position
+	 */
+	public Term getChild(int i) {
+		return children[i];
+	}
+
+	/**
+	 * Returns whether the CHAR_SET term matches
+	 * the characters in the inputed character class.
+	 *
+	 * @param class_id a character class
+	 * @return true if the term matches the class
+	 */
+	public boolean hasClass(int class_id) {
+		return classes != null && (classes[class_id >>> 6] & (1L << class_id)) != 0;
+	}
+
+	/**
+	 * Returns whether the term matches the empty string.
+	 *
+	 * @return true if the term is nullable
+	 */
+	public boolean isNullable() {
+		return nullable;
+	}
+
+	/**
+	 * Returns the id of the term.
+	 *
+	 * @return the id of the term
+	 */
+	public int getID() {
+		return id;
+	}
+
+	/**
+	 * Sets the id of the term when it is added to its factory.
+	 *
+	 * @param id the id of the term
+	 */
+	void setID(int id) {
+		this.id = id;
+	}
+
+	/**
+	 * Returns the bits for the character classes matched by the term.
+	 *
+	 * @return the bits for the classes, or null if the term is not a CHAR_SET
+	 */
+	long[] getClasses() {
+		return classes;
+	}
+
+	/**
+	 * Returns an integer hash for the term.
+	 *
+	 * @return hash code for the term
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	/**
+	 * Identifies whether the inputed object is the same term. Two
+	 * terms are equal if they have the same type and classes, and
+	 * the same instances as children.
+	 *
+	 * @param obj the obj
+	 * @return true if the objects are equal
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof Term)) {
+			return false;
+		}
+		Term other = (Term) obj;
+		if (hash != other.hash || type != other.type || children.length != other.children.length) {
+			return false;
+		}
+		for (int i = 0; i < children.length; ++i) {
+			if (children[i] != other.children[i]) {
+				return false;
+			}
+		}
+		return Arrays.equals(classes, other.classes);
+	}
+
+	/**
+	 * Returns a string representation of the term, where
+	 * the character classes are written by their ids.
+	 *
+	 * @return the string representation of the term
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		switch (type) {
+			case EMPTY:
+				return "{}";
+			case EPSILON:
+				return "()";
+			case CHAR_SET:
+				StringBuilder builder = new StringBuilder("[");
+				for (int i = 0; i < 64 * classes.length; ++i) {
+					if (hasClass(i)) {
+						builder.append(builder.length() > 1 ? "," : "").append(i);
+					}
+				}
+				return builder.append(']').toString();
+			case CONCAT:
+				return children[0] + "" + children[1];
+			case STAR:
+				return "(" + children[0] + ")*";
+			case NOT:
+				return "~(" + children[0] + ")";
+			default:
+				String op = (type == TermType.UNION) ? "|" : "&";
+				StringBuilder opBuilder = new StringBuilder("(");
+				for (int i = 0; i < children.length; ++i) {
+					opBuilder.append(i > 0 ? op : "").append(children[i]);
+				}
+				return opBuilder.append(')').toString();
+		}
+	}
+}
@@ -0,0 +1,431 @@
+package cs3240.regex.derivative;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+
+import cs3240.regex.automaton.ByteClasses;
+
+/**
+ * This class creates the terms of regular expressions
+ * over a set of character classes, and takes their
+ * Brzozowski derivatives. Each term is normalized when it
+ * is created, by removing the empty set and the empty string
+ * where they do not change the term, and by flattening,
+ * sorting and removing duplicates from the children of unions
+ * and intersections. The normalized terms are then hash-consed,
+ * so equal terms are always the same instance.
+ *
+ * The normalization makes sure that taking derivatives of a
+ * term only leads to a finite number of distinct terms, so the
+ * terms can be used as the states of a DFA.
+ */
+public class TermFactory {
+
+	/** A comparator that orders terms by their id. */
+	private static final Comparator<Term> ID_ORDER = new Comparator<Term>() {
+		public int compare(Term a, Term b) {
+			return (a.getID() < b.getID()) ? -1 : ((a.getID() == b.getID()) ? 0 : 1);
+		}
+	};
+
+	/** An empty array of terms, used as the children of terms without children. */
+	private static final Term[] NO_CHILDREN = new Term[0];
+
+	/** The character classes the terms are defined over. */
+	private ByteClasses classes;
+
+	/** The number of longs used to store a bit for each character class. */
+	private int num_words;
+
+	/** A mapping between each term and its single instance. */
+	private HashMap<Term, Term> terms;
+
+	/** The term that matches no strings. */
+	private Term empty;
+
+	/** The term that matches only the empty string. */
+	private Term epsilon;
+
+	/** The term that matches every string. */
+	private Term universal;
+
+	/**
+	 * Creates a factory for terms over the inputed
+	 * character classes.
+	 *
+	 * @param classes the character classes the terms are defined over
+	 */
+	public TermFactory(ByteClasses classes) {
+		this.classes = classes;
+		this.num_words = (classes.getNumClasses() + 63) >>> 6;
+		this.terms = new HashMap<Term, Term>();
+		this.empty = intern(new Term(TermType.EMPTY, NO_CHILDREN, null, false));
+		this.epsilon = intern(new Term(TermType.EPSILON, NO_CHILDREN, null, true));
+		this.universal = intern(new Term(TermType.NOT, new Term[] { empty }, null, true));
+	}
+
+	/**
+	 * Returns the character classes the terms are defined over.
+	 *
+	 * @return the character classes of the factory
+	 */
+	public ByteClasses getByteClasses() {
+		return classes;
+	}
+
+	/**
+	 * Returns the number of distinct terms created by the factory.
+	 *
+	 * @return the number of terms
+	 */
+	public int getTermCount() {
+		return terms.size();
+	}
+
+	/**
+	 * Returns the term that matches no strings.
+	 *
+	 * @return the empty set term
+	 */
+	public Term empty() {
+		return empty;
+	}
+
+	/**
+	 * Returns the term that matches only the empty string.
+	 *
+	 * @return the empty string term
+	 */
+	public Term epsilon() {
+		return epsilon;
+	}
+
+	/**
+	 * Returns the term that matches every string.
+	 *
+	 * @return the universal term
+	 */
+	public Term universal() {
+		return universal;
+	}
+
+	/**
+	 * Returns the term that matches the inputed character.
+	 *
+	 * @param c a character
+	 * @return the term matching the character
+	 */
+	public Term character(char c) {
+		long[] bits = new long[num_words];
+		setClass(bits, classes.getClass(c));
+		return charSet(bits);
+	}
+
+	/**
+	 * Returns the term that matches a single character
+	 * in the range from the start character to the end character.
+	 *
+	 * @param startChar the start character in the range
+	 * @param endChar the end character in the range
+	 * @return the term matching a character in the range
+	 */
+	public Term characterRange(char startChar, char endChar) {
+		long[] bits = new long[num_words];
+		for (int c = startChar; c <= endChar; ++c) {
+			setClass(bits, classes.getClass((char) c));
+		}
+		return charSet(bits);
+	}
+
+	/**
+	 * Returns the term that matches a single character
+	 * from the inputed characters.
+	 *
+	 * @param characters a collection of characters
+	 * @return the term matching a character in the collection
+	 */
+	public Term characters(Collection<Character> characters) {
+		long[] bits = new long[num_words];
+		for (Character c: characters) {
+			setClass(bits, classes.getClass(c.charValue()));
+		}
+		return charSet(bits);
+	}
+
+	/**
+	 * Returns the term for the concatenation of the two terms.
+	 *
+	 * @param left the left-side term
+	 * @param right the right-side term
+	 * @return the term of the concatenation
+	 */
+	public Term concat(Term left, Term right) {
+		if (left == empty || right == empty) {
+			return empty;
+		}
+		if (left == epsilon) {
+			return right;
+		}
+		if (right == epsilon) {
+			return left;
+		}
+		// Keep concatenations right associative, so equal concatenations have one form
+		if (left.getType() == TermType.CONCAT) {
+			return concat(left.getChild(0), concat(left.getChild(1), right));
+		}
+		return intern(new Term(TermType.CONCAT, new Term[] { left, right }, null,
+				left.isNullable() && right.isNullable()));
+	}
+
+	/**
+	 * Returns the term for zero or more repetitions of the inputed term.
+	 *
+	 * @param term the term to repeat
+	 * @return the term of the repetition
+	 */
+	public Term star(Term term) {
+		if (term == empty || term == epsilon) {
+			return epsilon;
+		}
+		if (term.getType() == TermType.STAR) {
+			return term;
+		}
+		return intern(new Term(TermType.STAR, new Term[] { term }, null, true));
+	}
+
+	/**
+	 * Returns the term for one or more repetitions of the inputed term.
+	 *
+	 * @param term the term to repeat
+	 * @return the term of the repetition
+	 */
+	public Term plus(Term term) {
+		return concat(term, star(term));
+	}
+
+	/**
+	 * Returns the term for the union of the two terms.
+	 *
+	 * @param left the left-side term
+	 * @param right the right-side term
+	 * @return the term of the union
+	 */
+	public Term union(Term left, Term right) {
+		if (left == right || right == empty) {
+			return left;
+		}
+		if (left == empty) {
+			return right;
+		}
+		if (left == universal || right == universal) {
+			return universal;
+		}
+
+		/*
+		 * Flatten the unions of the two terms into a single list,
+		 * merging all of the character sets into one character set.
+		 */
+		ArrayList<Term> operands = new ArrayList<Term>();
+		long[] bits = null;
+		for (Term term: new Term[] { left, right }) {
+			int count = (term.getType() == TermType.UNION) ? term.getChildCount() : 1;
+			for (int i = 0; i < count; ++i) {
+				Term operand = (term.getType() == TermType.UNION) ? term.getChild(i) : term;
+				if (operand.getType() == TermType.CHAR_SET) {
+					if (bits == null) {
+						bits = new long[num_words];
+					}
+					for (int j = 0; j < num_words; ++j) {
+						bits[j] |= operand.getClasses()[j];
+					}
+				} else {
+					operands.add(operand);
+				}
+			}
+		}
+		if (bits != null) {
+			operands.add(charSet(bits));
+		}
+		return operator(TermType.UNION, operands);
+	}
+
+	/**
+	 * Returns the term for the intersection of the two terms.
+	 *
+	 * @param left the left-side term
+	 * @param right the right-side term
+	 * @return the term of the intersection
+	 */
+	public Term and(Term left, Term right) {
+		if (left == right || right == universal) {
+			return left;
+		}
+		if (left == universal) {
+			return right;
+		}
+		if (left == empty || right == empty) {
+			return empty;
+		}
+
+		// Flatten the intersections of the two terms into a single list
+		ArrayList<Term> operands = new ArrayList<Term>();
+		for (Term term: new Term[] { left, right }) {
+			if (term.getType() == TermType.AND) {
+				for (int i = 0; i < term.getChildCount(); ++i) {
+					operands.add(term.getChild(i));
+				}
+			} else {
+				operands.add(term);
+			}
+		}
+		return operator(TermType.AND, operands);
+	}
+
+	/**
+	 * Returns the term for the complement of the inputed term,
+	 * which matches every string not matched by the term.
+	 *
+	 * @param term the term to complement
+	 * @return the term of the complement
+	 */
+	public Term not(Term term) {
+		if (term.getType() == TermType.NOT) {
+			return term.getChild(0);
+		}
+		return intern(new Term(TermType.NOT, new Term[] { term }, null, !term.isNullable()));
+	}
+
+	/**
+	 * Returns the Brzozowski derivative of the inputed term for the
+	 * characters in the inputed class, which is the term that matches
+	 * every string s where the character followed by s is matched by
+	 * the term. The derivatives of each term are saved, so each
+	 * derivative is only computed once.
+	 *
+	 * @param term the term to take the derivative of
+	 * @param class_id the character class to take the derivative for
+	 * @return the derivative of the term
+	 */
+	public Term derivative(Term term, int class_id) {
+		if (term.derivatives == null) {
+			term.derivatives = new Term[classes.getNumClasses()];
+		}
+		Term derivative = term.derivatives[class_id];
+		if (derivative != null) {
+			return derivative;
+		}
+
+		switch (term.getType()) {
+			case EMPTY:
+			case EPSILON:
+				derivative = empty;
+				break;
+			case CHAR_SET:
+				derivative = term.hasClass(class_id) ? epsilon : empty;
+				break;
+			case CONCAT:
+				// D(rs) = D(r)s | D(s) if r is nullable
+				derivative = concat(derivative(term.getChild(0), class_id), term.getChild(1));
+				if (term.getChild(0).isNullable()) {
+					derivative = union(derivative, derivative(term.getChild(1), class_id));
+				}
+				break;
+			case STAR:
+				// D(r*) = D(r)r*
+				derivative = concat(derivative(term.getChild(0), class_id), term);
+				break;
+			case UNION:
+				derivative = empty;
+				for (int i = 0; i < term.getChildCount(); ++i) {
+					derivative = union(derivative, derivative(term.getChild(i), class_id));
+				}
+				break;
+			case AND:
+				derivative = universal;
+				for (int i = 0; i < term.getChildCount(); ++i) {
+					derivative = and(derivative, derivative(term.getChild(i), class_id));
+				}
+				break;
+			case NOT:
+				derivative = not(derivative(term.getChild(0), class_id));
+				break;
+		}
+		term.derivatives[class_id] = derivative;
+		return derivative;
+	}
+
+	/**
+	 * Returns the term for the inputed character classes, or
+	 * the empty set term if there are no classes.
+	 *
+	 * @param bits a bit for each character class
+	 * @return the term matching a character in the classes
+	 */
+	private Term charSet(long[] bits) {
+		for (long word: bits) {
+			if (word != 0) {
+				return intern(new Term(TermType.CHAR_SET, NO_CHILDREN, bits, false));
+			}
+		}
+		return empty;
+	}
+
+	/**
+	 * Returns the union or intersection term of the inputed operands,
+	 * after sorting them by id and removing duplicates.
+	 *
+	 * @param type either UNION or AND
+	 * @param operands the flattened operands
+	 * @return the term of the union or intersection
+	 */
+	private Term operator(TermType type, ArrayList<Term> operands) {
+		Term[] children = operands.toArray(new Term[operands.size()]);
+		Arrays.sort(children, ID_ORDER);
+		int count = 0;
+		for (int i = 0; i < children.length; ++i) {
+			if (count == 0 || children[count - 1] != children[i]) {
+				children[count++] = children[i];
+			}
+		}
+		if (count == 1) {
+			return children[0];
+		}
+		children = Arrays.copyOf(children, count);
+
+		boolean nullable = (type == TermType.AND);
+		for (Term child: children) {
+			nullable = (type == TermType.AND) ? (nullable && child.isNullable()) : (nullable || child.isNullable());
+		}
+		return intern(new Term(type, children, null, nullable));
+	}
+
+	/**
+	 * Sets the bit for the inputed character class.
+	 *
+	 * @param bits a bit for each character class
+	 * @param class_id the class to set
+	 */
+	private static void setClass(long[] bits, int class_id) {
+		bits[class_id >>> 6] |= 1L << class_id;
+	}
+
+	/**
+	 * Returns the single instance of the inputed term, adding
+	 * the term to the factory if it has not been seen before.
+	 *
+	 * @param term a new term
+	 * @return the instance of the term
+	 */
+	private Term intern(Term term) {
+		Term existing = terms.get(term);
+		if (existing != null) {
+			return existing;
+		}
+		term.setID(terms.size());
+		terms.put(term, term);
+		return term;
+	}
+}
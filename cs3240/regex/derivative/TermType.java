@@ -0,0 +1,18 @@
+package cs3240.regex.derivative;
+
+/**
+ * An enumeration class that defines the different
+ * types of terms in a regular expression that derivatives
+ * are taken of. For example, the UNION type means a term
+ * that matches any string matched by one of its children.
+ */
+public enum TermType {
+	EMPTY,						// Matches no strings
+	EPSILON,					// Matches only the empty string
+	CHAR_SET,					// Matches a single character from a set of character classes
+	CONCAT,						// Concatenation of the two children
+	STAR,						// Zero or more repetitions of the child
+	UNION,						// Union of the children
+	AND,						// Intersection of the children
+	NOT							// Complement of the child
+}
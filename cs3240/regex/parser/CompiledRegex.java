@@ -0,0 +1,96 @@
+package cs3240.regex.parser;
+
+import cs3240.regex.automaton.AhoCorasick;
+import cs3240.regex.automaton.Automaton;
+import cs3240.regex.automaton.DFAAnalysis;
+import cs3240.regex.automaton.NFAArena;
+import cs3240.regex.automaton.ReverseSuffixMatcher;
+
+/**
+ * This class holds everything that is compiled from a regular
+ * expression to match it: the automaton, the scanner for the 
+ * literals every match must contain, the matcher for the
+ * starts of matches that end with a literal, and the analysis
+ * of the DFA Table.
+ * 
+ * The compiled regular expressions in the regex cache are shared
+ * by every parser and thread, so they only hold parts that do not
+ * change while matching: the automaton is a DFA Table, or null if
+ * the NFA is matched without one, in which case the NFA is held in
+ * an arena. The automata that change while matching are created
+ * from these parts for each find.
+ */
+public class CompiledRegex {
+	/**
+	 * The automaton that matches the regular expression
+	 */
+	private Automaton automaton;
+	/**
+	 * The NFA of the regular expression, or null if it is matched with a DFA Table
+	 */
+	private NFAArena arena;
+	/**
+	 * The scanner for the literals every match must contain, or null
+	 */
+	private AhoCorasick prefilter;
+	/**
+	 * The matcher for the starts of matches, or null
+	 */
+	private ReverseSuffixMatcher suffixMatcher;
+	/**
+	 * The analysis of the DFA Table of the automaton, or null
+	 */
+	private DFAAnalysis analysis;
+	
+	/**
+	 * Creates a compiled regular expression with the inputed parts.
+	 * 
+	 * @param automaton the automaton that matches the regular expression
+	 * @param prefilter the scanner for the literals every match must contain, or null
+	 * @param suffixMatcher the matcher for the starts of matches, or null
+	 * @param analysis the analysis of the DFA Table of the automaton, or null
+	 */
+	public CompiledRegex(Automaton automaton, AhoCorasick prefilter, ReverseSuffixMatcher suffixMatcher,
+			DFAAnalysis analysis) {
+		this(automaton, null, prefilter, suffixMatcher, analysis);
+	}
+	
+	/**
+	 * Creates a compiled regular expression with the inputed parts,
+	 * whose NFA is kept in the inputed arena.
+	 * 
+	 * @param automaton the automaton that matches the regular expression, or null
+	 * @param arena the NFA of the regular expression, or null
+	 * @param prefilter the scanner for the literals every match must contain, or null
+	 * @param suffixMatcher the matcher for the starts of matches, or null
+	 * @param analysis the analysis of the DFA Table of the automaton, or null
+	 */
+	public CompiledRegex(Automaton automaton, NFAArena arena, AhoCorasick prefilter,
+			ReverseSuffixMatcher suffixMatcher, DFAAnalysis analysis) {
+		this.automaton = automaton;
+		this.arena = arena;
+		this.prefilter = prefilter;
+		this.suffixMatcher = suffixMatcher;
+		this.analysis = analysis;
+	}
+
+	public Automaton getAutomaton() {
+		return automaton;
+	}
+
+	public NFAArena getArena() {
+		return arena;
+	}
+
+	public AhoCorasick getPrefilter() {
+		return prefilter;
+	}
+
+	public ReverseSuffixMatcher getSuffixMatcher() {
+		return suffixMatcher;
+	}
+
+	public DFAAnalysis getAnalysis() {
+		return analysis;
+	}
+}
@@ -0,0 +1,151 @@
+package cs3240.regex.parser;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * This class is a thread-safe cache of compiled regular expressions,
+ * which holds at most a fixed number of expressions and evicts the
+ * least recently used expression when it is full.
+ *
+ * Each entry holds the compilation of the expression as a future, so
+ * when several threads ask for an expression that is not cached, only
+ * the first thread compiles it and the others wait for its result. The
+ * compilation runs outside of the lock, so compiling one expression
+ * does not block the lookups of other expressions. If the compilation
+ * fails, the entry is removed so the next request compiles it again.
+ *
+ * The cached automata are shared by everyone that asks for the same
+ * expression, and should not be run from several threads at once.
+ */
+public class RegexCache {
+
+	/** The default number of expressions held by the cache. */
+	public static final int DEFAULT_CAPACITY = 256;
+
+	/** The compilations of the expressions, from the least to the most recently used. */
+	private LinkedHashMap<String, FutureTask<CompiledRegex>> entries;
+
+	/** The number of requests that found the expression in the cache. */
+	private long hits;
+
+	/** The number of requests that had to compile the expression. */
+	private long misses;
+
+	/** The number of expressions evicted to make room for others. */
+	private long evictions;
+
+	/**
+	 * Creates a cache that holds at most the inputed number
+	 * of expressions.
+	 *
+	 * @param capacity the largest number of expressions in the cache
+	 */
+	public RegexCache(final int capacity) {
+		this.entries = new LinkedHashMap<String, FutureTask<CompiledRegex>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, FutureTask<CompiledRegex>> eldest) {
+				if (size() > capacity) {
+					++evictions;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns the compiled expression for the inputed key. If the
+	 * expression is not in the cache, it is compiled by the inputed
+	 * compiler and added to the cache. If another thread is already
+	 * compiling the expression, this waits for its result instead.
+	 *
+	 * @param key the key of the expression, which must identify everything that affects its compilation
+	 * @param compiler the compiler to use if the expression is not in the cache
+	 * @return the compiled expression
+	 * @throws Exception if the compilation fails or is interrupted
+	 */
+	public CompiledRegex get(String key, Callable<CompiledRegex> compiler) throws Exception {
+		FutureTask<CompiledRegex> task;
+		boolean compile = false;
+		synchronized (this) {
+			task = entries.get(key);
+			if (task == null) {
+				task = new FutureTask<CompiledRegex>(compiler);
+				entries.put(key, task);
+				compile = true;
+				++misses;
+			} else {
+				++hits;
+			}
+		}
+		if (compile) {
+			task.run(); // Compile outside of the lock
+		}
+		try {
+			return task.get();
+		} catch (ExecutionException e) {
+			// Forget the failed compilation, unless it has already been replaced
+			synchronized (this) {
+				if (entries.get(key) == task) {
+					entries.remove(key);
+				}
+			}
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Removes every expression from the cache. The
+	 * counters are not reset.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Returns the number of expressions in the cache,
+	 * including the ones still being compiled.
+	 *
+	 * @return the number of expressions
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Returns a string representation of the cache
+	 * with its size and counters.
+	 *
+	 * @return the string representation of the cache
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public synchronized String toString() {
+		return String.format("RegexCache [size=%d, hits=%d, misses=%d, evictions=%d]",
+				entries.size(), hits, misses, evictions);
+	}
+}
@@ -1,17 +1,26 @@
 package cs3240.regex.parser;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import cs3240.project.Driver;
+import cs3240.project.FusedDriver;
 import cs3240.regex.ast.AnyCharNode;
+import cs3240.regex.ast.BoundedRepNode;
+import cs3240.regex.ast.CaseFoldNode;
 import cs3240.regex.ast.ConcatNode;
+import cs3240.regex.ast.LiteralInfo;
 import cs3240.regex.ast.EpsilonNode;
 import cs3240.regex.ast.NegativeSetNode;
 import cs3240.regex.ast.OneOrMoreRepNode;
@@ -20,8 +29,19 @@ import cs3240.regex.ast.RegexAstNode;
 import cs3240.regex.ast.SetNode;
 import cs3240.regex.ast.UnionNode;
 import cs3240.regex.ast.ZeroOrMoreRepNode;
+import cs3240.regex.automaton.AhoCorasick;
+import cs3240.regex.automaton.Automaton;
+import cs3240.regex.automaton.CompiledDFA;
+import cs3240.regex.automaton.DFAAnalysis;
+import cs3240.regex.automaton.DFACache;
 import cs3240.regex.automaton.DFATable;
+import cs3240.regex.automaton.LazyDFA;
 import cs3240.regex.automaton.NFA;
+import cs3240.regex.automaton.NFAArena;
+import cs3240.regex.automaton.PikeVM;
+import cs3240.regex.automaton.ProductDFA;
+import cs3240.regex.automaton.ReverseSuffixMatcher;
+import cs3240.regex.derivative.DerivativeCompiler;
 import cs3240.regex.scanner.RegexScanner;
 import cs3240.regex.scanner.token.RegexToken;
 import cs3240.regex.scanner.token.RegexTokenType;
@@ -53,6 +73,110 @@ public class RegexParser {
 	 */
 	private RegexToken token;
 	
+	/**
+	 * A boolean on whether regular expressions are compiled to a lazily built DFA
+	 */
+	private boolean lazyDFA = Boolean.getBoolean("minire.lazydfa");
+	
+	/**
+	 * A boolean on whether regular expressions are compiled from a position automaton 
+	 * instead of an NFA with epsilon transitions
+	 */
+	private boolean positionNFA = Boolean.getBoolean("minire.glushkov");
+	
+	/**
+	 * A boolean on whether regular expressions are compiled to a DFA directly
+	 * from derivatives of the Abstract Syntax Tree, without building an NFA
+	 */
+	private boolean derivativeDFA = Boolean.getBoolean("minire.derivative");
+	
+	/**
+	 * A boolean on whether DFA Tables are compiled into bytecode once they have matched enough input
+	 */
+	private boolean compileDFA = Boolean.getBoolean("minire.compile");
+	
+	/**
+	 * The number of characters a DFA Table matches before it is compiled into bytecode
+	 */
+	private long compileThreshold = Long.getLong("minire.compile.threshold", CompiledDFA.DEFAULT_COMPILE_THRESHOLD).longValue();
+	
+	/**
+	 * A boolean on whether regular expressions are matched by simulating the NFA instead of building a DFA
+	 */
+	private boolean pikeVM = Boolean.getBoolean("minire.pikevm");
+	
+	/**
+	 * The maximum number of states in a DFA Table, past which the NFA is simulated instead
+	 */
+	private int maxDFAStates = Integer.getInteger("minire.dfa.maxstates", NFA.DEFAULT_MAX_DFA_STATES).intValue();
+	
+	/**
+	 * A boolean on whether lines are scanned for the literals every match must contain before matching
+	 */
+	private boolean usePrefilter = Boolean.getBoolean("minire.prefilter");
+	
+	/**
+	 * The scanner for the literals every match of the last compiled regular expression must contain, or null
+	 */
+	private AhoCorasick prefilter;
+	
+	/**
+	 * A boolean on whether the starts of matches that end with a literal are found with a reversed DFA
+	 */
+	private boolean useSuffixMatcher = Boolean.getBoolean("minire.reversesuffix");
+	
+	/**
+	 * The matcher for the starts of matches of the last compiled regular expression, or null
+	 */
+	private ReverseSuffixMatcher suffixMatcher;
+	
+	/**
+	 * A boolean on whether DFA Tables are analyzed before matching, so positions and states that can not lead to a match are skipped
+	 */
+	private boolean useDFAAnalysis = Boolean.getBoolean("minire.dfaanalysis");
+	
+	/**
+	 * The analysis of the DFA Table of the last compiled regular expression, or null
+	 */
+	private DFAAnalysis analysis;
+	
+	/**
+	 * A boolean on whether the files searched by find are mapped into memory instead of read with a reader
+	 */
+	private boolean mappedInput = Boolean.getBoolean("minire.mmap");
+	
+	/**
+	 * The cache of DFA Tables compiled by earlier runs, or null if DFAs are not cached
+	 */
+	private DFACache dfaCache = (System.getProperty("minire.cache.dir") == null) ? null
+			: new DFACache(new File(System.getProperty("minire.cache.dir")));
+	
+	/**
+	 * A boolean on whether the finds in an expression that read the same file are run with a single pass
+	 */
+	private boolean fuseFinds = Boolean.getBoolean("minire.fusefinds");
+	
+	/**
+	 * A boolean on whether the Abstract Syntax Tree is optimized before it is compiled
+	 */
+	private boolean optimizeAst = Boolean.getBoolean("minire.optimize");
+	
+	/**
+	 * A boolean on whether the NFA and DFA sizes before and after optimizing are printed
+	 */
+	private boolean optimizeStats = Boolean.getBoolean("minire.optimize.stats");
+	
+	/**
+	 * The cache of compiled regular expressions shared by every parser
+	 */
+	private static final RegexCache regexCache = new RegexCache(
+			Integer.getInteger("minire.regexcache.size", RegexCache.DEFAULT_CAPACITY).intValue());
+	
+	/**
+	 * The memory budget in bytes for the state cache of a lazily built DFA
+	 */
+	private long lazyDFACacheSize = Long.getLong("minire.lazydfa.cachesize", LazyDFA.DEFAULT_CACHE_SIZE).longValue();
+	
 	/**
 	 * The main constructor for the RegexParser class
 	 * that creates a parser for the given regular
@@ -162,7 +286,7 @@ public class RegexParser {
 				break;
 			case REPLACE_OP:
 				match(RegexTokenType.REPLACE_OP);
-				DFATable regex = parseRegex().toDFA();
+				Automaton regex = compileRegex();
 				match(RegexTokenType.WITH_OP);
 				match(RegexTokenType.START_ASCII);
 				RegexToken tok = matchASCII();
@@ -176,7 +300,7 @@ public class RegexParser {
 				break;
 			case RECURSIVE_REPLACE_OP:
 				match(RegexTokenType.RECURSIVE_REPLACE_OP);
-				DFATable regex2 = parseRegex().toDFA();
+				Automaton regex2 = compileRegex();
 				match(RegexTokenType.WITH_OP);
 				match(RegexTokenType.START_ASCII);
 				RegexToken tok2 = matchASCII();
@@ -281,48 +405,36 @@ public class RegexParser {
 				match(RegexTokenType.CLOSE_PAR);
 				return o;
 			case FIND_OP:
-				ArrayList<String> strings = term();
-				
-//				match(RegexTokenType.CLOSE_PAR);
-				
-				ArrayList<Object> binaryOperation = expTail();
-				
-				if (binaryOperation == null) {
-					return strings;
+				ArrayList<Object> binaryOperation = new ArrayList<Object>();
+				binaryOperation.add(parseFind());
+				ArrayList<Object> tail = expTail();
+				if (tail != null) {
+					binaryOperation.addAll(tail);
 				}
 				
-				binaryOperation.add(0, strings);
+				// Run the finds, so every operand is replaced by the strings it found
+				runFinds(binaryOperation);
 				
 				while (binaryOperation.size() > 1) {
-					ArrayList<String> term = (ArrayList<String>) binaryOperation.remove(0);
+					ArrayList<String> left = (ArrayList<String>) binaryOperation.remove(0);
 					RegexToken binOp = (RegexToken) binaryOperation.remove(0);
-					ArrayList<String> tail = (ArrayList<String>) binaryOperation.remove(0);
+					ArrayList<String> right = (ArrayList<String>) binaryOperation.remove(0);
 					
 					switch (binOp.getType()) {
 						case DIFF_OP:
-							for (String i : tail) {
-								if (term.contains(i)) {
-									term.remove(i);
-								}
-							}
+							left = difference(left, right);
 							break;
 						case UNION_OP:
-							for (String i : tail) {
-								if (!term.contains(i)) {
-									term.add(i);
-								}
-							}
+							left = union(left, right);
 							break;
 						case INTERS_OP:
-							ArrayList<String> tmp = (ArrayList<String>) term.clone();
-							for (String i : tmp) {
-								if (!(tail.contains(i))) {
-									term.remove(i);
-								}
-							}
+							left = intersection(left, right);
+							break;
+						default:
+							break;
 					}
 					
-					binaryOperation.add(term);
+					binaryOperation.add(0, left);
 				}
 				
 				return binaryOperation.remove(0);
@@ -345,30 +457,175 @@ public class RegexParser {
 			return null;
 		}
 		
-		ArrayList<String> strings = term();
+		PendingFind find = parseFind();
 		ArrayList<Object> binaryOperation = expTail();
 		
 		if (binaryOperation == null)
 			binaryOperation = new ArrayList<Object>();
 
-		binaryOperation.add(0, strings);
+		binaryOperation.add(0, find);
 		binaryOperation.add(0, binOp);
 		
 		return binaryOperation;
 	}
 	
 	public ArrayList<String> term() throws Exception {
-		
-		//match(RegexTokenType.OPEN_PAR);
-		
+		PendingFind find = parseFind();
+		return findString(find.regex, find.filename);
+	}
+	
+	/**
+	 * Parses a find and compiles its regular expression,
+	 * without running it yet.
+	 * 
+	 * @return the parsed find
+	 * @throws Exception if the find is not syntactically correct
+	 */
+	private PendingFind parseFind() throws Exception {
 		match(RegexTokenType.FIND_OP);
-		DFATable regex = parseRegex().toDFA();
+		Automaton regex = compileRegex();
+		CompiledRegex compiled = new CompiledRegex(regex, prefilter, suffixMatcher, analysis);
 		match(RegexTokenType.IN_OP);
 		String filename = filename();
+		return new PendingFind(compiled, filename);
+	}
+	
+	/**
+	 * Runs the finds in the inputed list of operands, and replaces
+	 * each find by the list of strings it found. If fusing finds is 
+	 * enabled, the finds that read the same file and match with DFA 
+	 * Tables are run together by a {@link FusedDriver}, which reads the
+	 * file once and walks the product of their DFAs. The strings found
+	 * by each find are the same as when it is run on its own.
+	 * 
+	 * @param operands the operands and operators of an expression
+	 * @throws Exception if a file can not be read
+	 */
+	private void runFinds(ArrayList<Object> operands) throws Exception {
+		// Group the indexes of the finds that can be fused by their file
+		HashMap<String, ArrayList<Integer>> groups = new HashMap<String, ArrayList<Integer>>();
+		for (int i = 0; i < operands.size(); ++i) {
+			if (fuseFinds && operands.get(i) instanceof PendingFind) {
+				PendingFind find = (PendingFind) operands.get(i);
+				if (find.regex.getAutomaton() instanceof DFATable) {
+					if (!groups.containsKey(find.filename)) {
+						groups.put(find.filename, new ArrayList<Integer>());
+					}
+					groups.get(find.filename).add(Integer.valueOf(i));
+				}
+			}
+		}
 		
-		//match(RegexTokenType.CLOSE_PAR);
-		
-		return findString(regex, filename);
+		// Run the finds in order, running each group of finds when its first find is reached
+		for (int i = 0; i < operands.size(); ++i) {
+			if (!(operands.get(i) instanceof PendingFind)) {
+				continue;
+			}
+			PendingFind find = (PendingFind) operands.get(i);
+			ArrayList<Integer> group = groups.get(find.filename);
+			if (group != null && group.size() > 1 && group.get(0).intValue() == i && runFused(operands, group)) {
+				continue;
+			}
+			operands.set(i, findString(find.regex, find.filename));
+		}
+	}
+	
+	/**
+	 * Runs the group of finds over the same file with a single 
+	 * {@link FusedDriver}, and replaces each find by the strings 
+	 * it found.
+	 * 
+	 * @param operands the operands and operators of an expression
+	 * @param group the indexes of the finds, which all read the same file and match with DFA Tables
+	 * @return true if the finds were run, or false if the product of their DFAs has too many states
+	 * @throws Exception if the file can not be read
+	 */
+	private boolean runFused(ArrayList<Object> operands, ArrayList<Integer> group) throws Exception {
+		DFATable[] dfas = new DFATable[group.size()];
+		Driver[] drivers = new Driver[group.size()];
+		String filename = null;
+		for (int j = 0; j < group.size(); ++j) {
+			PendingFind find = (PendingFind) operands.get(group.get(j).intValue());
+			dfas[j] = (DFATable) find.regex.getAutomaton();
+			drivers[j] = createDriver(find.regex, find.filename);
+			filename = find.filename;
+		}
+		ProductDFA product = ProductDFA.create(dfas, maxDFAStates);
+		if (product == null) {
+			return false;
+		}
+		FusedDriver fusedDriver = new FusedDriver(filename, product, drivers);
+		fusedDriver.setMappedInput(mappedInput);
+		ArrayList<ArrayList<Driver.Token>> tokens = fusedDriver.run();
+		for (int j = 0; j < group.size(); ++j) {
+			operands.set(group.get(j).intValue(), toStrings(tokens.get(j)));
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns the strings of the left list without the strings of
+	 * the right list. Each string of the right list removes the first
+	 * remaining occurrence of the string from the left list.
+	 * 
+	 * @param left the list to remove the strings from
+	 * @param right the strings to remove
+	 * @return the difference of the lists
+	 */
+	private static ArrayList<String> difference(ArrayList<String> left, ArrayList<String> right) {
+		HashMap<String, Integer> removals = new HashMap<String, Integer>();
+		for (String i : right) {
+			Integer count = removals.get(i);
+			removals.put(i, Integer.valueOf((count == null) ? 1 : count.intValue() + 1));
+		}
+		ArrayList<String> result = new ArrayList<String>();
+		for (String i : left) {
+			Integer count = removals.get(i);
+			if (count != null && count.intValue() > 0) {
+				removals.put(i, Integer.valueOf(count.intValue() - 1));
+			} else {
+				result.add(i);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Returns the strings of the left list, followed by the first
+	 * occurrence of each string of the right list that is not in
+	 * the left list.
+	 * 
+	 * @param left the first list
+	 * @param right the second list
+	 * @return the union of the lists
+	 */
+	private static ArrayList<String> union(ArrayList<String> left, ArrayList<String> right) {
+		ArrayList<String> result = new ArrayList<String>(left);
+		HashSet<String> seen = new HashSet<String>(left);
+		for (String i : right) {
+			if (seen.add(i)) {
+				result.add(i);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Returns the strings of the left list that are also in the right list.
+	 * 
+	 * @param left the first list
+	 * @param right the second list
+	 * @return the intersection of the lists
+	 */
+	private static ArrayList<String> intersection(ArrayList<String> left, ArrayList<String> right) {
+		HashSet<String> inRight = new HashSet<String>(right);
+		ArrayList<String> result = new ArrayList<String>();
+		for (String i : left) {
+			if (inRight.contains(i)) {
+				result.add(i);
+			}
+		}
+		return result;
 	}
 	
 	public String filename() throws Exception {
@@ -389,6 +646,253 @@ public class RegexParser {
 		}
 	}
 	
+	/**
+	 * This method parses the regular expression and then returns
+	 * the automaton used to match it. The scanner for the literals
+	 * every match must contain and the matcher for the starts of 
+	 * matches are also set. The expression is only compiled if it 
+	 * is not in the regex cache, which is shared by every parser and
+	 * is keyed by the canonical form of the expression and the options
+	 * that change how it is compiled. The automata that change while
+	 * matching are not shared, so a new one is created for each call.
+	 * 
+	 * @return the automaton that matches the regular expression
+	 * @throws Exception if regular expression is not syntactically correct
+	 */
+	private Automaton compileRegex() throws Exception {
+		final RegexAstNode root = parseRegexTree();
+		CompiledRegex compiled = regexCache.get(getCacheKey(root), new Callable<CompiledRegex>() {
+			public CompiledRegex call() throws Exception {
+				return compileRegex(root);
+			}
+		});
+		prefilter = compiled.getPrefilter();
+		suffixMatcher = compiled.getSuffixMatcher();
+		analysis = compiled.getAnalysis();
+		return createAutomaton(compiled);
+	}
+	
+	/**
+	 * This method creates the automaton that matches the inputed
+	 * compiled regular expression. A DFA Table is not changed while
+	 * matching, so it is shared, while the compiled DFA, the lazy DFA
+	 * and the Pike VM are created from the DFA Table or the NFA arena.
+	 * 
+	 * @param compiled the compiled regular expression from the regex cache
+	 * @return a new automaton, or the DFA Table of the expression
+	 */
+	private Automaton createAutomaton(CompiledRegex compiled) {
+		if (compiled.getAutomaton() == null) {
+			if (useLazyDFA()) {
+				return new LazyDFA(compiled.getArena(), lazyDFACacheSize);
+			}
+			return new PikeVM(compiled.getArena());
+		}
+		if (compileDFA) {
+			return new CompiledDFA((DFATable) compiled.getAutomaton(), compileThreshold);
+		}
+		return compiled.getAutomaton();
+	}
+	
+	/**
+	 * This method returns whether an NFA that is matched without a
+	 * DFA Table is matched by a lazy DFA, instead of a Pike VM.
+	 * 
+	 * @return true if the NFA is matched by a lazy DFA
+	 */
+	private boolean useLazyDFA() {
+		return lazyDFA && !derivativeDFA && !pikeVM;
+	}
+	
+	/**
+	 * This method returns the key of the regular expression given by
+	 * the Abstract Syntax Tree in the regex cache, which is made of 
+	 * the options that change how the expression is compiled and the
+	 * canonical form of the expression.
+	 * 
+	 * @param root the root node of the abstract syntax tree
+	 * @return the key of the expression
+	 */
+	private String getCacheKey(RegexAstNode root) {
+		return String.format("%b,%b,%b,%b,%d,%b,%d,%b,%b,%b,%d\n%s", lazyDFA, positionNFA, derivativeDFA,
+				compileDFA, compileThreshold, pikeVM, maxDFAStates, usePrefilter, useSuffixMatcher, 
+				useDFAAnalysis, lazyDFACacheSize, root.getCanonicalForm());
+	}
+	
+	/**
+	 * This method compiles the regular expression given by the
+	 * Abstract Syntax Tree to the automaton used to match it.
+	 * The automaton is either a DFA Table, or a DFA that is 
+	 * built lazily while matching if lazy DFAs are enabled.
+	 * If derivative DFAs are enabled, the DFA Table is built
+	 * from the Abstract Syntax Tree without an NFA. If compiled
+	 * DFAs are enabled, the DFA Table is compiled into bytecode
+	 * once it has matched enough input. If the DFA Table would 
+	 * have more states than the maximum, or the Pike VM is enabled, 
+	 * the NFA is simulated directly by a {@link PikeVM} instead.
+	 * 
+	 * If a DFA cache is set, the DFA Tables are looked up in the cache
+	 * by the canonical form of the expression before they are built,
+	 * and stored in the cache after they are built.
+	 * 
+	 * The compiled regular expression only holds the DFA Table, or the
+	 * NFA in an arena if there is no DFA Table, and the automaton is
+	 * created from them by {@link #createAutomaton(CompiledRegex)}.
+	 * 
+	 * @param root the root node of the abstract syntax tree
+	 * @return the compiled regular expression
+	 */
+	private CompiledRegex compileRegex(RegexAstNode root) {
+		LiteralInfo literalInfo = root.analyzeLiterals();
+		AhoCorasick literals = usePrefilter ? createPrefilter(literalInfo.getRequiredLiterals()) : null;
+		ReverseSuffixMatcher matcher = useSuffixMatcher ? createSuffixMatcher(root, literalInfo.getRequiredSuffixes()) : null;
+		DFATable dfa = buildDFA(root);
+		if (dfa == null) {
+			// The NFA is matched without a DFA Table, and the Pike VM is faster with the closures stored
+			NFAArena arena = generateArena(root);
+			if (!useLazyDFA()) {
+				arena = arena.withStoredClosures();
+			}
+			return new CompiledRegex(null, arena, literals, matcher, null);
+		}
+		return new CompiledRegex(dfa, null, literals, matcher, useDFAAnalysis ? new DFAAnalysis(dfa) : null);
+	}
+	
+	/**
+	 * This method compiles the regular expression given by the
+	 * Abstract Syntax Tree to a DFA Table, as described in
+	 * {@link #compileRegex(RegexAstNode)}.
+	 * 
+	 * @param root the root node of the abstract syntax tree
+	 * @return the DFA Table of the regular expression, or null if the NFA is matched without one
+	 */
+	private DFATable buildDFA(RegexAstNode root) {
+		if (pikeVM || (lazyDFA && !derivativeDFA)) {
+			return null;
+		}
+		String key = "forward\n" + root.getCanonicalForm();
+		DFATable dfa = getCachedDFA(key);
+		if (dfa == null) {
+			if (derivativeDFA) {
+				dfa = DerivativeCompiler.compile(root, "Go to Hell!", maxDFAStates);
+			} else {
+				dfa = generateArena(root).toDFA(maxDFAStates);
+			}
+			putCachedDFA(key, dfa);
+		}
+		// If the DFA has too many states, it is null and the NFA is simulated instead
+		return dfa;
+	}
+	
+	/**
+	 * This method creates a scanner for the literals that every
+	 * match of the regular expression must contain, if the 
+	 * expression has such literals.
+	 * 
+	 * @param literals the literals every match contains one of, or null
+	 * @return the scanner for the required literals, or null if there are none
+	 */
+	private AhoCorasick createPrefilter(Collection<String> literals) {
+		if (!isScannable(literals)) {
+			return null;
+		}
+		return new AhoCorasick(literals);
+	}
+	
+	/**
+	 * This method creates a matcher that finds where the matches 
+	 * of the regular expression given by the Abstract Syntax Tree 
+	 * start, by walking the DFA of the reversed expression backwards
+	 * from the literals that every match ends with. 
+	 * 
+	 * @param root the root node of the abstract syntax tree
+	 * @param suffixes the literals every match ends with one of, or null
+	 * @return the matcher for the starts of matches, or null if the expression has no such literals
+	 */
+	private ReverseSuffixMatcher createSuffixMatcher(RegexAstNode root, Collection<String> suffixes) {
+		if (!isScannable(suffixes)) {
+			return null;
+		}
+		String key = "reverse\n" + root.getCanonicalForm();
+		DFATable reverseDFA = getCachedDFA(key);
+		if (reverseDFA == null) {
+			reverseDFA = generateNFA(root).reverse().toDFA(maxDFAStates);
+			if (reverseDFA == null) {
+				return null; // The reversed DFA has too many states
+			}
+			reverseDFA = reverseDFA.toMinimalDFA();
+			putCachedDFA(key, reverseDFA);
+		}
+		return new ReverseSuffixMatcher(suffixes, reverseDFA);
+	}
+	
+	/**
+	 * Returns the DFA Table stored under the inputed key in the
+	 * DFA cache. A DFA with more states than the maximum is not
+	 * used, so the expression is compiled again with the maximum.
+	 * 
+	 * @param key the key of the DFA Table
+	 * @return the cached DFA Table, or null if there is no cache or no usable DFA for the key
+	 */
+	private DFATable getCachedDFA(String key) {
+		if (dfaCache == null) {
+			return null;
+		}
+		DFATable dfa = dfaCache.get(key);
+		if (dfa != null && dfa.getTableSize() > maxDFAStates) {
+			return null;
+		}
+		return dfa;
+	}
+	
+	/**
+	 * Stores the inputed DFA Table under the inputed key in
+	 * the DFA cache, if there is a cache.
+	 * 
+	 * @param key the key of the DFA Table
+	 * @param dfa the DFA Table to store, or null if it could not be built
+	 */
+	private void putCachedDFA(String key, DFATable dfa) {
+		if (dfaCache != null && dfa != null) {
+			dfaCache.put(key, dfa);
+		}
+	}
+	
+	/**
+	 * Checks to see if the literals can be searched for with
+	 * an {@link AhoCorasick} scanner, which only handles 
+	 * characters up to 255.
+	 * 
+	 * @param literals the literals to check, or null
+	 * @return true if the literals are not null and can be scanned for
+	 */
+	private boolean isScannable(Collection<String> literals) {
+		if (literals == null) {
+			return false;
+		}
+		for (String literal: literals) {
+			for (int i = 0; i < literal.length(); ++i) {
+				if (literal.charAt(i) > 255) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * This method parses the regular expression and then
+	 * returns the automaton that a find uses to match it,
+	 * which is compiled with the options of the parser and
+	 * shares the regex cache with every other parser.
+	 *
+	 * @return the automaton that matches the regular expression
+	 * @throws Exception if regular expression is not syntactically correct
+	 */
+	public Automaton parseAutomaton() throws Exception {
+		return compileRegex();
+	}
+
 	/**
 	 * This method parses the regular expression 
 	 * and then if the expression is valid, it 
@@ -399,17 +903,100 @@ public class RegexParser {
 	 */
 	public NFA parseRegex() throws Exception {
 		
+		RegexAstNode root = parseRegexTree(); // Build up an Abstract-Syntax Tree representing the regex
+		return generateNFA(root);
+	}
+	
+	/**
+	 * This method generates the NFA represented by the
+	 * Abstract Syntax Tree with the inputed root node.
+	 * 
+	 * @param root the root node of the abstract syntax tree
+	 * @return the NFA corresponding to the regular expression
+	 */
+	private NFA generateNFA(RegexAstNode root) {
+		// Generate the NFA represented by the root RegexAST Node
+		NFA nfa = positionNFA ? root.generatePositionNFA() : root.generateNFA();
+		nfa.setTerminatingStatesType("Go to Hell!");
+		// Only use a DFA transition for each group of characters the regex can tell apart
+		nfa.setByteClasses(root.getByteClasses());
+		return nfa;
+	}
+	
+	/**
+	 * This method builds the arena holding the NFA represented by the
+	 * Abstract Syntax Tree with the inputed root node. The NFA is built
+	 * straight into the arena, without a graph of NFAStates, unless it is
+	 * a position automaton, whose sets are made of NFAStates.
+	 * 
+	 * @param root the root node of the abstract syntax tree
+	 * @return the arena holding the NFA of the regular expression
+	 */
+	private NFAArena generateArena(RegexAstNode root) {
+		if (positionNFA) {
+			return generateNFA(root).toArena();
+		}
+		return root.generateArena("Go to Hell!");
+	}
+	
+	/**
+	 * This method parses the regular expression, including
+	 * the quotes around it, and then returns the root node of 
+	 * the Abstract Syntax Tree representing the expression.
+	 * If the closing quote is followed by the flag i, the
+	 * expression is matched without case.
+	 * 
+	 * @return the root node of the abstract syntax tree representing the expression
+	 * @throws Exception if regular expression is not syntactically correct
+	 */
+	RegexAstNode parseRegexTree() throws Exception {
+		
 		match(RegexTokenType.START_REGEX);
 		
 		RegexAstNode root = RE(); // Build up an Abstract-Syntax Tree representing the regex
 		// Match to the end of string 
 		
-		match(RegexTokenType.END_REGEX);
-		
-		// Generate the NFA represented by the root RegexAST Node
-		NFA nfa = root.generateNFA();
-		nfa.setTerminatingStatesType("Go to Hell!");
-		return nfa;
+		RegexToken end = match(RegexTokenType.END_REGEX);
+		if (end.getValue().endsWith("i")) {
+			root = new CaseFoldNode(root); // The regex is followed by the case-insensitive flag
+		}
+		return optimize(root);
+	}
+	
+	/**
+	 * This method optimizes the Abstract Syntax Tree, if optimizing
+	 * is enabled, so that it generates an NFA with fewer states. If 
+	 * the stats are enabled, the number of NFA and DFA states before
+	 * and after optimizing are printed to the error stream.
+	 * 
+	 * @param root the root node of the abstract syntax tree
+	 * @return the root node of the optimized tree
+	 * 
+	 * @see RegexAstNode#optimize()
+	 */
+	private RegexAstNode optimize(RegexAstNode root) {
+		if (!optimizeAst) {
+			return root;
+		}
+		RegexAstNode optimized = root.optimize();
+		if (optimizeStats) {
+			System.err.format("Optimized %s: %s -> %s%n", root.getValue(), getStateCounts(root), getStateCounts(optimized));
+		}
+		return optimized;
+	}
+	
+	/**
+	 * This method returns the number of states in the NFA and the DFA
+	 * Table generated from the Abstract Syntax Tree, for the stats.
+	 * 
+	 * @param root the root node of the abstract syntax tree
+	 * @return a string with the number of NFA and DFA states
+	 */
+	private String getStateCounts(RegexAstNode root) {
+		NFA nfa = generateNFA(root);
+		DFATable dfa = nfa.toDFA(maxDFAStates);
+		return String.format("NFA %d states, DFA %s states", nfa.getStateCount(),
+				(dfa == null) ? ">" + maxDFAStates : Integer.toString(dfa.getTableSize()));
 	}
 	
 	/**
@@ -543,12 +1130,59 @@ public class RegexParser {
 				// If the next token is the one or more operator, create that node
 				match(RegexTokenType.ONE_OR_MORE_REP);
 				return new OneOrMoreRepNode(node);
+			case BOUNDED_REP:
+				// If the next token is a bounded repetition operator, create that node with its bounds
+				return boundedRepitition(node, match(RegexTokenType.BOUNDED_REP));
 			default:
 				// Next token is not a repetition operator, so just return node
 				return node;
 		}
 	}
 	
+	/**
+	 * Creates the node for a bounded repetition of the inputed node,
+	 * with the bounds given by the inputed {m}, {m,} or {m,n} token.
+	 * 
+	 * @param node the node representing the expression to be repeated
+	 * @param token the bounded repetition token
+	 * @return the node representing the bounded repetition
+	 * @throws Exception if the bounds are too large, or the upper bound is less than the lower bound
+	 */
+	private RegexAstNode boundedRepitition(RegexAstNode node, RegexToken token) throws Exception {
+		String bounds = token.getValue().substring(1, token.getValue().length() - 1);
+		int comma = bounds.indexOf(',');
+		String min_digits = (comma == -1) ? bounds : bounds.substring(0, comma);
+		String max_digits = (comma == -1) ? bounds : bounds.substring(comma + 1);
+		int min = parseRepititionBound(min_digits, token);
+		int max = max_digits.isEmpty() ? BoundedRepNode.UNBOUNDED : parseRepititionBound(max_digits, token);
+		if (max != BoundedRepNode.UNBOUNDED && max < min) {
+			throw new Exception(String.format("Line %d (col %d): Invalid repetition %s, the upper bound is less than the lower bound",
+					token.getLineNumber(), token.getLinePosition(), token.getValue()));
+		}
+		return new BoundedRepNode(node, min, max);
+	}
+	
+	/**
+	 * Returns the value of a bound of a bounded repetition.
+	 * 
+	 * @param digits the digits of the bound
+	 * @param token the bounded repetition token
+	 * @return the value of the bound
+	 * @throws Exception if the bound is larger than {@link BoundedRepNode#MAX_REPETITION}
+	 */
+	private int parseRepititionBound(String digits, RegexToken token) throws Exception {
+		// Strip the leading zeros, so the length tells if the bound can be too large
+		int start = 0;
+		while (start < digits.length() - 1 && digits.charAt(start) == '0') {
+			++start;
+		}
+		if (digits.length() - start > 9 || Integer.parseInt(digits.substring(start)) > BoundedRepNode.MAX_REPETITION) {
+			throw new Exception(String.format("Line %d (col %d): Invalid repetition %s, the bounds can not be larger than %d",
+					token.getLineNumber(), token.getLinePosition(), token.getValue(), BoundedRepNode.MAX_REPETITION));
+		}
+		return Integer.parseInt(digits.substring(start));
+	}
+	
 	/**
 	 * This method continues parsing the regular expression and
 	 * accounts for the following grammar rule:
@@ -804,19 +1438,246 @@ public class RegexParser {
 		this.regex = regex;
 	}
 	
-	private ArrayList<String> findString(DFATable regex, String file) throws Exception {
-		Driver driver = new Driver(file, regex);
-		ArrayList<Driver.Token> tokens = driver.run();
-		ArrayList<String> strings = new ArrayList<String>();
-		
+	/**
+	 * Returns whether regular expressions are compiled to a lazily built DFA
+	 * 
+	 * @return true if lazily built DFAs are used
+	 */
+	public boolean isLazyDFA() {
+		return lazyDFA;
+	}
+	
+	/**
+	 * Set whether regular expressions are compiled to a lazily built DFA,
+	 * instead of building the complete DFA Table before matching
+	 * 
+	 * @param lazyDFA true if lazily built DFAs should be used
+	 */
+	public void setLazyDFA(boolean lazyDFA) {
+		this.lazyDFA = lazyDFA;
+	}
+	
+	/**
+	 * Returns whether regular expressions are compiled from a position automaton
+	 * 
+	 * @return true if position automata are used
+	 */
+	public boolean isPositionNFA() {
+		return positionNFA;
+	}
+	
+	/**
+	 * Set whether regular expressions are compiled from a position automaton,
+	 * which has no epsilon transitions, instead of an NFA with epsilon transitions
+	 * 
+	 * @param positionNFA true if position automata should be used
+	 */
+	public void setPositionNFA(boolean positionNFA) {
+		this.positionNFA = positionNFA;
+	}
+	
+	/**
+	 * Returns whether regular expressions are compiled to a DFA from derivatives
+	 * 
+	 * @return true if derivative DFAs are used
+	 */
+	public boolean isDerivativeDFA() {
+		return derivativeDFA;
+	}
+	
+	/**
+	 * Set whether regular expressions are compiled to a DFA directly from
+	 * derivatives of the Abstract Syntax Tree, instead of from an NFA.
+	 * This takes priority over lazily built DFAs.
+	 * 
+	 * @param derivativeDFA true if derivative DFAs should be used
+	 */
+	public void setDerivativeDFA(boolean derivativeDFA) {
+		this.derivativeDFA = derivativeDFA;
+	}
+	
+	/**
+	 * Returns whether DFA Tables are compiled into bytecode
+	 * 
+	 * @return true if DFA Tables are compiled
+	 */
+	public boolean isCompileDFA() {
+		return compileDFA;
+	}
+	
+	/**
+	 * Set whether DFA Tables are compiled into bytecode once they have
+	 * matched more characters than the compile threshold
+	 * 
+	 * @param compileDFA true if DFA Tables should be compiled
+	 */
+	public void setCompileDFA(boolean compileDFA) {
+		this.compileDFA = compileDFA;
+	}
+	
+	/**
+	 * Set the number of characters a DFA Table matches before it is compiled into bytecode
+	 * 
+	 * @param compileThreshold the number of characters
+	 */
+	public void setCompileThreshold(long compileThreshold) {
+		this.compileThreshold = compileThreshold;
+	}
+	
+	/**
+	 * Returns whether regular expressions are matched by simulating the NFA
+	 * 
+	 * @return true if the Pike VM is used
+	 */
+	public boolean isPikeVM() {
+		return pikeVM;
+	}
+	
+	/**
+	 * Set whether regular expressions are matched by simulating the NFA 
+	 * with a Pike VM, instead of building a DFA
+	 * 
+	 * @param pikeVM true if the Pike VM should be used
+	 */
+	public void setPikeVM(boolean pikeVM) {
+		this.pikeVM = pikeVM;
+	}
+	
+	/**
+	 * Set the maximum number of states in a DFA Table, past which
+	 * the NFA is simulated with a Pike VM instead
+	 * 
+	 * @param maxDFAStates the maximum number of DFA states
+	 */
+	public void setMaxDFAStates(int maxDFAStates) {
+		this.maxDFAStates = maxDFAStates;
+	}
+	
+	/**
+	 * Set whether lines are scanned for the literals every match must 
+	 * contain, so lines and positions without them can be skipped
+	 * 
+	 * @param usePrefilter true if the literal prefilter should be used
+	 */
+	public void setPrefilter(boolean usePrefilter) {
+		this.usePrefilter = usePrefilter;
+	}
+	
+	/**
+	 * Set whether the starts of matches that end with a literal are found 
+	 * by walking a reversed DFA backwards from the literal, so the DFA 
+	 * is only run from the positions where a match starts
+	 * 
+	 * @param useSuffixMatcher true if the reverse suffix matcher should be used
+	 */
+	public void setSuffixMatcher(boolean useSuffixMatcher) {
+		this.useSuffixMatcher = useSuffixMatcher;
+	}
+	
+	/**
+	 * Set whether DFA Tables are analyzed before matching, so the positions
+	 * a match can not start at are skipped and the DFA is stopped as soon 
+	 * as no terminating state can be reached
+	 * 
+	 * @param useDFAAnalysis true if DFA Tables should be analyzed
+	 */
+	public void setDFAAnalysis(boolean useDFAAnalysis) {
+		this.useDFAAnalysis = useDFAAnalysis;
+	}
+	
+	/**
+	 * Set whether the files searched by find are mapped into memory, so the
+	 * DFA follows the bytes of each line and only the tokens are made into strings
+	 * 
+	 * @param mappedInput true if the files should be mapped
+	 */
+	public void setMappedInput(boolean mappedInput) {
+		this.mappedInput = mappedInput;
+	}
+	
+	/**
+	 * Set the directory that DFA Tables are cached in between runs
+	 * 
+	 * @param directory the cache directory, or null to not cache DFA Tables
+	 */
+	public void setCacheDirectory(File directory) {
+		this.dfaCache = (directory == null) ? null : new DFACache(directory);
+	}
+	
+	/**
+	 * Returns the cache of compiled regular expressions
+	 * that is shared by every parser
+	 * 
+	 * @return the regex cache
+	 */
+	public static RegexCache getRegexCache() {
+		return regexCache;
+	}
+	
+	/**
+	 * Set whether the Abstract Syntax Tree is optimized before it is compiled
+	 * 
+	 * @param optimizeAst true if the tree should be optimized
+	 */
+	public void setOptimizeAst(boolean optimizeAst) {
+		this.optimizeAst = optimizeAst;
+	}
+	
+	/**
+	 * Set whether the finds in an expression that read the same file are
+	 * run together, with a single pass over the file
+	 * 
+	 * @param fuseFinds true if finds over the same file should be fused
+	 */
+	public void setFuseFinds(boolean fuseFinds) {
+		this.fuseFinds = fuseFinds;
+	}
+	
+	/**
+	 * Set the memory budget for the state cache of lazily built DFAs
+	 * 
+	 * @param lazyDFACacheSize the memory budget in bytes
+	 */
+	public void setLazyDFACacheSize(long lazyDFACacheSize) {
+		this.lazyDFACacheSize = lazyDFACacheSize;
+	}
+	
+	private ArrayList<String> findString(CompiledRegex regex, String file) throws Exception {
+		return toStrings(createDriver(regex, file).run());
+	}
+	
+	/**
+	 * Creates the driver that finds the tokens of the compiled
+	 * regular expression in the inputed file.
+	 * 
+	 * @param regex the compiled regular expression
+	 * @param file the name of the file
+	 * @return the driver for the regular expression
+	 */
+	private Driver createDriver(CompiledRegex regex, String file) {
+		Driver driver = new Driver(file, regex.getAutomaton());
+		driver.setPrefilter(regex.getPrefilter());
+		driver.setSuffixMatcher(regex.getSuffixMatcher());
+		driver.setAnalysis(regex.getAnalysis());
+		driver.setMappedInput(mappedInput);
+		return driver;
+	}
+	
+	/**
+	 * Returns the values of the inputed tokens, in order.
+	 * 
+	 * @param tokens the tokens found by a driver
+	 * @return the values of the tokens
+	 */
+	private static ArrayList<String> toStrings(ArrayList<Driver.Token> tokens) {
+		ArrayList<String> strings = new ArrayList<String>(tokens.size());
 		for (Driver.Token i : tokens) {
-			if (!strings.contains(i)) strings.add(i.getValue());
+			strings.add(i.getValue());
 		}
-		
 		return strings;
 	}
 	
-	private boolean replaceString(DFATable regex, RegexToken ASCII, String[] files) throws Exception {
+	private boolean replaceString(Automaton regex, RegexToken ASCII, String[] files) throws Exception {
 		Driver driver = new Driver(files[0], regex);
 		ArrayList<Driver.Token> tokens = driver.run();
 		
@@ -846,4 +1707,33 @@ public class RegexParser {
 		
 		return true;
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * A find whose regular expression has been compiled,
+	 * but that has not been run yet.
+	 * 
+	 * @author Dilan Manatunga
+	 *
+	 */
+	private static class PendingFind {
+		/**
+		 * The compiled regular expression of the find
+		 */
+		private CompiledRegex regex;
+		/**
+		 * The name of the file the find reads
+		 */
+		private String filename;
+		
+		/**
+		 * Creates a find of the inputed regular expression in the inputed file.
+		 * 
+		 * @param regex the compiled regular expression
+		 * @param filename the name of the file
+		 */
+		public PendingFind(CompiledRegex regex, String filename) {
+			this.regex = regex;
+			this.filename = filename;
+		}
+	}
+}
@@ -0,0 +1,301 @@
+package cs3240.regex.parser;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+import cs3240.regex.automaton.DFATable;
+import cs3240.regex.automaton.MultiPatternAutomaton;
+import cs3240.regex.automaton.NFA;
+import cs3240.regex.automaton.OffHeapDFATable;
+import cs3240.regex.automaton.ParallelDeterminizer;
+
+/**
+ * This class matches many regular expressions at once with a
+ * single DFA. The NFA of each regular expression is given the
+ * index of the expression as its pattern id, and the NFAs are
+ * combined into one NFA that is converted to a minimal DFA. Each
+ * terminating state of the DFA records the ids of all the patterns
+ * that match the input that reaches it, so one pass over the input
+ * finds every pattern that matches it, instead of one pass per pattern.
+ *
+ * The DFA of a large set can be kept off the heap (see {@link OffHeapDFATable}),
+ * either by setting minire.regexset.offheap=true, or by writing it to a file
+ * with {@link #writeTable(File)} and mapping the file in each process that
+ * matches the same regular expressions.
+ */
+public class RegexSet {
+
+	/** An empty set of pattern ids, returned when no pattern matches. */
+	private static final int[] NO_PATTERNS = new int[0];
+
+	/** A boolean on whether the DFA is minimized by parallel Moore refinement instead of Hopcroft's algorithm. */
+	private static final boolean MOORE_MINIMIZATION = "moore".equals(System.getProperty("minire.minimize"));
+
+	/** A boolean on whether the minimal DFA is copied off the heap. */
+	private static final boolean OFF_HEAP = Boolean.getBoolean("minire.regexset.offheap");
+
+	/** The regular expressions, indexed by their pattern id. */
+	private ArrayList<String> patterns;
+
+	/** The DFA matching all of the regular expressions. */
+	private MultiPatternAutomaton dfa;
+
+	/**
+	 * Creates a set that matches the inputed regular expressions.
+	 * Each regular expression is written the same way as in a script,
+	 * including the quotes around it, and its pattern id is its index
+	 * in the collection.
+	 *
+	 * @param regexes the regular expressions to match
+	 * @throws Exception if a regular expression is not syntactically correct
+	 */
+	public RegexSet(Collection<String> regexes) throws Exception {
+		this.patterns = new ArrayList<String>(regexes);
+
+		// Build the NFA of each regular expression, and tag it with its pattern id
+		ArrayList<NFA> nfas = new ArrayList<NFA>();
+		for (int pattern = 0; pattern < patterns.size(); ++pattern) {
+			NFA nfa = new RegexParser(patterns.get(pattern)).parseRegex();
+			nfa.setTerminatingStatesPattern(pattern);
+			nfas.add(nfa);
+		}
+
+		/*
+		 * Combine the NFAs and convert them to a single DFA. The terminating
+		 * states are kept apart by their pattern sets when minimizing.
+		 */
+		DFATable combined = NFA.union(nfas).toDFA();
+		DFATable minimal;
+		if (MOORE_MINIMIZATION) {
+			minimal = combined.toMinimalDFAByRefinement(ParallelDeterminizer.getDefaultPool());
+		} else {
+			minimal = combined.toMinimalDFA();
+		}
+		this.dfa = OFF_HEAP ? OffHeapDFATable.copyOf(minimal) : minimal;
+	}
+
+	/**
+	 * Creates a set that matches the inputed regular expressions
+	 * with the DFA mapped from the inputed file, which was written by
+	 * {@link #writeTable(File)} for the same regular expressions in
+	 * the same order. The regular expressions are not compiled again,
+	 * and the DFA is shared with every other process mapping the file.
+	 *
+	 * @param regexes the regular expressions matched by the DFA in the file
+	 * @param table the file holding the DFA
+	 * @throws Exception if the file does not hold a valid DFA, or the DFA has a pattern id outside of the regular expressions
+	 */
+	public RegexSet(Collection<String> regexes, File table) throws Exception {
+		this.patterns = new ArrayList<String>(regexes);
+		OffHeapDFATable mapped = OffHeapDFATable.map(table);
+		if (mapped.getPatternCount() > patterns.size()) {
+			throw new Exception(String.format("DFA Table %s matches %d patterns, but only %d regular expressions were given",
+					table, mapped.getPatternCount(), patterns.size()));
+		}
+		this.dfa = mapped;
+	}
+
+	/**
+	 * Creates a set that matches the regular expressions in the inputed
+	 * file, which has one regular expression on each non-empty line.
+	 *
+	 * @param filename the name of the file with the regular expressions
+	 * @return the set matching the regular expressions in the file
+	 * @throws Exception if the file can not be read or a regular expression is not syntactically correct
+	 */
+	public static RegexSet fromFile(String filename) throws Exception {
+		ArrayList<String> regexes = new ArrayList<String>();
+		BufferedReader fileReader = new BufferedReader(new FileReader(filename));
+		try {
+			String line = fileReader.readLine();
+			while (line != null) {
+				if (!line.trim().isEmpty()) {
+					regexes.add(line.trim());
+				}
+				line = fileReader.readLine();
+			}
+		} finally {
+			fileReader.close();
+		}
+		return new RegexSet(regexes);
+	}
+
+	/**
+	 * Returns the ids of the patterns that match all of the inputed string.
+	 *
+	 * @param value the string to match
+	 * @return the ids of the matching patterns in increasing order, which is empty if none match
+	 */
+	public int[] matches(CharSequence value) {
+		int state_id = dfa.walk(value, 0, value.length(), dfa.getStartID());
+		return patternsOf(state_id);
+	}
+
+	/**
+	 * Finds the tokens in the inputed line, and the patterns that
+	 * match each token. Starting at each non-whitespace character,
+	 * the longest string that is matched by at least one pattern
+	 * is a token, and scanning continues after the token. If no
+	 * pattern matches a string starting at the character, scanning
+	 * continues at the next character.
+	 *
+	 * @param line the line to find the tokens in
+	 * @return the tokens in the line, in the order they appear
+	 */
+	public ArrayList<RegexSet.Match> findAll(CharSequence line) {
+		ArrayList<RegexSet.Match> matches = new ArrayList<RegexSet.Match>();
+		int error_id = dfa.getErrorStateID();
+		int cur_pos = 0;
+		while (cur_pos < line.length()) {
+			// Skip the whitespace before the token
+			if (Character.isWhitespace(line.charAt(cur_pos))) {
+				++cur_pos;
+				continue;
+			}
+
+			// Follow the DFA as far as possible, remembering the last terminating state
+			int state_id = dfa.getStartID();
+			int end_pos = -1;
+			int end_state = error_id;
+			for (int temp_pos = cur_pos; temp_pos < line.length(); ++temp_pos) {
+				state_id = dfa.followTransition(state_id, line.charAt(temp_pos));
+				if (state_id == error_id) {
+					break;
+				}
+				if (dfa.getPatternSet(state_id) != null) {
+					end_pos = temp_pos + 1;
+					end_state = state_id;
+				}
+			}
+
+			if (end_pos == -1) {
+				++cur_pos; // No pattern matches at this position
+			} else {
+				matches.add(new RegexSet.Match(line.subSequence(cur_pos, end_pos).toString(),
+						cur_pos, patternsOf(end_state)));
+				cur_pos = end_pos;
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Returns the pattern ids of the inputed DFA state.
+	 *
+	 * @param state_id the id of a DFA state, or the error state id
+	 * @return the pattern ids of the state, which is empty if it has none
+	 */
+	private int[] patternsOf(int state_id) {
+		if (state_id == dfa.getErrorStateID()) {
+			return NO_PATTERNS;
+		}
+		int[] patternSet = dfa.getPatternSet(state_id);
+		return (patternSet == null) ? NO_PATTERNS : patternSet.clone();
+	}
+
+	/**
+	 * Returns the regular expression with the inputed pattern id.
+	 *
+	 * @param pattern the pattern id
+	 * @return the regular expression
+	 */
+	public String getPattern(int pattern) {
+		return patterns.get(pattern);
+	}
+
+	/**
+	 * Returns the number of regular expressions in the set.
+	 *
+	 * @return the number of patterns
+	 */
+	public int size() {
+		return patterns.size();
+	}
+
+	/**
+	 * Returns the DFA matching all of the regular expressions,
+	 * whose terminating states have pattern sets.
+	 *
+	 * @return the DFA of the set
+	 */
+	public MultiPatternAutomaton getDFA() {
+		return dfa;
+	}
+
+	/**
+	 * Writes the DFA of the set to the inputed file, so it can be
+	 * mapped by {@link #RegexSet(Collection, File)} without compiling
+	 * the regular expressions again.
+	 *
+	 * @param file the file to write the DFA to, which is replaced if it exists
+	 * @throws IOException if the file can not be written
+	 */
+	public void writeTable(File file) throws IOException {
+		if (dfa instanceof OffHeapDFATable) {
+			((OffHeapDFATable) dfa).writeTo(file);
+		} else {
+			OffHeapDFATable.write((DFATable) dfa, file);
+		}
+	}
+
+	/**
+	 * A token found by {@link RegexSet#findAll(CharSequence)},
+	 * with the ids of the patterns that match it.
+	 */
+	public static class Match {
+		/**
+		 * The value of the token
+		 */
+		private String value;
+		/**
+		 * The index of the first character of the token in the line
+		 */
+		private int start;
+		/**
+		 * The ids of the patterns that match the token
+		 */
+		private int[] patterns;
+
+		/**
+		 * Creates a match for the inputed token.
+		 *
+		 * @param value the string value of the token
+		 * @param start the index of the token in the line
+		 * @param patterns the ids of the patterns that match the token
+		 */
+		public Match(String value, int start, int[] patterns) {
+			this.value = value;
+			this.start = start;
+			this.patterns = patterns;
+		}
+
+		public String getValue() {
+			return value;
+		}
+
+		public int getStart() {
+			return start;
+		}
+
+		public int[] getPatterns() {
+			return patterns.clone();
+		}
+
+		/**
+		 * Returns a string representation of the match with
+		 * the token value and the ids of the matching patterns.
+		 *
+		 * @return the string representation of the match
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString() {
+			return String.format("\"%s\" => %s", value, Arrays.toString(patterns));
+		}
+	}
+}
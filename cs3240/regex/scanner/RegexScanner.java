@@ -227,6 +227,12 @@ public class RegexScanner {
 				inRegex = false;
 				curPos++;
 				curPosInLine++;
+				if (isCaseFoldFlag()) {
+					// Keep the case-insensitive flag after the quote in the value of the token
+					token.setValue("'i");
+					curPos++;
+					curPosInLine++;
+				}
 			} else if (cur_char == '\\') {
 				// If current character is escape character, then move to the next scanning position
 				curPos++;
@@ -294,6 +300,10 @@ public class RegexScanner {
 				if (regexCharType == RegexTokenType.RE_CHAR) {
 					// If the current scanning type is RE_CHAR, see if a keyword exist
 					token = identifyRegexKeywordToken();
+					if (token == null && cur_char == '{') {
+						// See if the brace starts a bounded repetition, otherwise it is a plain character
+						token = identifyBoundedRepToken();
+					}
 				}
 				if (token == null) {
 					// If keyword was not identified, then identify the type of the current character
@@ -613,6 +623,59 @@ public class RegexScanner {
 		return null;
 	}
 	
+	/**
+	 * Checks to see if the character at the current scanning
+	 * position, which follows the closing quote of a regular
+	 * expression, is the case-insensitive flag i, and not the
+	 * start of a keyword or ID.
+	 * 
+	 * @return true if the case-insensitive flag is at the current position
+	 */
+	private boolean isCaseFoldFlag() {
+		if (curPos >= regex.length() || regex.charAt(curPos) != 'i') {
+			return false;
+		}
+		if (curPos + 1 >= regex.length()) {
+			return true;
+		}
+		char next = regex.charAt(curPos + 1);
+		return !(Character.isLetter(next) || Character.isDigit(next) || next == '_');
+	}
+	
+	/**
+	 * This method starts at the current scanning position,
+	 * and attempts to identify if their exists a bounded repetition
+	 * operator of the form {m}, {m,} or {m,n} from this position,
+	 * where m and n are sequences of digits. If there is, the method
+	 * returns a RegexToken holding the whole operator. If not, null
+	 * is returned, and the brace is scanned as a regular character.
+	 * 
+	 * @return the RegexToken representing the bounded repetition, or null if the operator was not found
+	 */
+	private RegexToken identifyBoundedRepToken() {
+		int i = curPos + 1; // Skip the opening brace
+		int str_length = regex.length(); // the overall length of the regex
+		// The lower bound must have at least one digit
+		int digits_start = i;
+		while (i < str_length && Character.isDigit(regex.charAt(i))) {
+			++i;
+		}
+		if (i == digits_start || i >= str_length) {
+			return null;
+		}
+		// The upper bound is optional after the comma
+		if (regex.charAt(i) == ',') {
+			++i;
+			while (i < str_length && Character.isDigit(regex.charAt(i))) {
+				++i;
+			}
+		}
+		if (i >= str_length || regex.charAt(i) != '}') {
+			return null;
+		}
+		return new RegexToken(regex.substring(curPos, i + 1), RegexTokenType.BOUNDED_REP, line_num, curPosInLine);
+	}
+	
 	/**
 	 * This method starts at the current scanning position,
 	 * and attempts to identify if their exists a sequence of 
@@ -23,6 +23,7 @@ public enum RegexTokenType {
 	ANY_CHAR,					// Any character indicator
 	ZERO_OR_MORE_REP,			// Zero or more repetition operator
 	ONE_OR_MORE_REP,			// One or more repetition operator
+	BOUNDED_REP,				// Bounded repetition operator "{m}", "{m,}" or "{m,n}"
 	UNION_OP,					// Union operator
 	NEGATIVE_SET,				// Negative Set indicator
 	RANGE_OP,					// Set Range operator
@@ -81,6 +82,8 @@ public enum RegexTokenType {
 				return "*";
 			case ONE_OR_MORE_REP:
 				return "+";
+			case BOUNDED_REP:
+				return token.getValue();
 			case UNION_OP:
 				return "|";
 			case NEGATIVE_SET:
@@ -169,6 +172,8 @@ public enum RegexTokenType {
 			return "*";
 		case ONE_OR_MORE_REP:
 			return "+";
+		case BOUNDED_REP:
+			return "{m,n}";
 		case UNION_OP:
 			return "|";
 		case NEGATIVE_SET:
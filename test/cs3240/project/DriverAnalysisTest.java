@@ -0,0 +1,102 @@
+package cs3240.project;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import cs3240.regex.automaton.DFAAnalysis;
+import cs3240.regex.automaton.DFATable;
+import cs3240.regex.parser.RegexParser;
+
+/**
+ * This class checks that a driver using the {@link DFAAnalysis} of
+ * its DFA finds the same tokens as a driver without it, including
+ * for DFAs with states that can not reach a terminating state.
+ */
+public class DriverAnalysisTest {
+
+	/** The regular expressions that are checked, some of which have states that can not reach a terminating state. */
+	private static final String[] REGEXES = { "a|ax[^a-z] IN [a-z]", "(ab|a[^a-z] IN [a-z])c*", "a*b|a*[^a] IN [a]",
+			"[A-Za-z]*ment[A-Za-z]*", "(ab|ac)+x", "m(e|)nt", "x{2,4}", "a|bc|ment" };
+
+	/** The characters of the lines that are checked. */
+	private static final String ALPHABET = "abcmentx \\";
+
+	/**
+	 * Runs the checks, and throws an exception on the first
+	 * line the two drivers do not agree on.
+	 *
+	 * @param args not used
+	 * @throws Exception if a check fails
+	 */
+	public static void main(String[] args) throws Exception {
+		// The candidate token a is not a token, since the line ends before the DFA fails
+		check("a|ax[^a-z] IN [a-z]", "ax", "");
+		check("a|ax[^a-z] IN [a-z]", "axb", "a");
+
+		Random random = new Random(3240);
+		for (String regex : REGEXES) {
+			DFATable dfa = new RegexParser("'" + regex + "'").parseRegex().toDFA();
+			for (int i = 0; i < 20000; ++i) {
+				StringBuilder line = new StringBuilder();
+				int length = random.nextInt(16);
+				for (int j = 0; j < length; ++j) {
+					line.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+				}
+				if (line.length() > 0 && line.charAt(line.length() - 1) == '\\') {
+					line.append('a');
+				}
+				compare(regex, dfa, line.toString());
+			}
+		}
+		System.out.println("DriverAnalysisTest OK");
+	}
+
+	/**
+	 * Checks that both drivers find the expected tokens in the inputed line.
+	 *
+	 * @param regex the regular expression
+	 * @param line the line to scan
+	 * @param expected the values of the expected tokens, separated by spaces
+	 * @throws Exception if a driver finds other tokens
+	 */
+	private static void check(String regex, String line, String expected) throws Exception {
+		DFATable dfa = new RegexParser("'" + regex + "'").parseRegex().toDFA();
+		StringBuilder found = new StringBuilder();
+		for (Driver.Token token : compare(regex, dfa, line)) {
+			found.append(found.length() == 0 ? "" : " ").append(token.getValue());
+		}
+		if (!found.toString().equals(expected)) {
+			throw new Exception(regex + " on \"" + line + "\": " + found + ", expected " + expected);
+		}
+	}
+
+	/**
+	 * Scans the inputed line with and without the analysis of the DFA,
+	 * and with both ways of finding every match.
+	 *
+	 * @param regex the regular expression
+	 * @param dfa the DFA of the regular expression
+	 * @param line the line to scan
+	 * @return the tokens found in the line
+	 * @throws Exception if the drivers find different tokens
+	 */
+	private static ArrayList<Driver.Token> compare(String regex, DFATable dfa, String line) throws Exception {
+		Driver plain = new Driver("test", dfa);
+		Driver analyzed = new Driver("test", dfa);
+		analyzed.setAnalysis(new DFAAnalysis(dfa));
+
+		ArrayList<Driver.Token> plain_tokens = new ArrayList<Driver.Token>();
+		ArrayList<Driver.Token> analyzed_tokens = new ArrayList<Driver.Token>();
+		plain.scanLine(line, plain_tokens);
+		analyzed.scanLine(line, analyzed_tokens);
+		if (!plain_tokens.toString().equals(analyzed_tokens.toString())) {
+			throw new Exception(regex + " on \"" + line + "\": " + plain_tokens + " without analysis, " + analyzed_tokens + " with analysis");
+		}
+		String plain_matches = plain.findAllMatches(line).toString();
+		String analyzed_matches = analyzed.findAllMatches(line).toString();
+		if (!plain_matches.equals(analyzed_matches)) {
+			throw new Exception(regex + " on \"" + line + "\": all matches " + plain_matches + " without analysis, " + analyzed_matches + " with analysis");
+		}
+		return plain_tokens;
+	}
+}
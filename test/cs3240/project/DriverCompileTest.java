@@ -0,0 +1,95 @@
+package cs3240.project;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import cs3240.regex.automaton.Automaton;
+import cs3240.regex.automaton.CompiledDFA;
+import cs3240.regex.automaton.DFATable;
+import cs3240.regex.parser.RegexParser;
+
+/**
+ * This class checks that a driver finds the same tokens with a
+ * compiled DFA as with its DFA Table, that the DFA is compiled once the
+ * driver has walked more characters than the compile threshold, and
+ * that the single transitions a find follows do not compile it.
+ */
+public class DriverCompileTest {
+
+	/** The regular expression that is matched, whose DFA can be compiled. */
+	private static final String REGEX = "'[0-9]+'";
+
+	/** The number of characters followed before the DFA is compiled. */
+	private static final long THRESHOLD = 10000;
+
+	/**
+	 * Runs the checks, and throws an exception if the DFA is not
+	 * compiled, or the drivers do not find the same tokens.
+	 *
+	 * @param args not used
+	 * @throws Exception if a check fails
+	 */
+	public static void main(String[] args) throws Exception {
+		RegexParser parser = new RegexParser(REGEX);
+		parser.setCompileDFA(true);
+		parser.setCompileThreshold(THRESHOLD);
+		Automaton automaton = parser.parseAutomaton();
+		if (!(automaton instanceof CompiledDFA)) {
+			throw new Exception("The automaton of the find is a " + automaton.getClass().getSimpleName());
+		}
+		CompiledDFA compiled = (CompiledDFA) automaton;
+		DFATable dfa = compiled.getDFATable();
+		Driver compiled_driver = new Driver("test", compiled);
+		Driver table_driver = new Driver("test", dfa);
+
+		Random random = new Random(3240);
+		String alphabet = "0123456789abc ";
+		long scanned = 0;
+		for (int i = 0; i < 2000; ++i) {
+			StringBuilder line = new StringBuilder();
+			int length = random.nextInt(80);
+			for (int j = 0; j < length; ++j) {
+				line.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			ArrayList<Driver.Token> compiled_tokens = new ArrayList<Driver.Token>();
+			ArrayList<Driver.Token> table_tokens = new ArrayList<Driver.Token>();
+			compiled_driver.scanLine(line, compiled_tokens);
+			table_driver.scanLine(line, table_tokens);
+			if (!compiled_tokens.toString().equals(table_tokens.toString())) {
+				throw new Exception("\"" + line + "\": " + compiled_tokens + " compiled, " + table_tokens + " with the table");
+			}
+			String compiled_matches = compiled_driver.findAllMatches(line).toString();
+			String table_matches = table_driver.findAllMatches(line).toString();
+			if (!compiled_matches.equals(table_matches)) {
+				throw new Exception("\"" + line + "\": all matches " + compiled_matches + " compiled, " + table_matches + " with the table");
+			}
+			scanned += line.length();
+		}
+		if (scanned <= 2 * THRESHOLD) {
+			throw new Exception("Only " + scanned + " characters were scanned");
+		}
+		if (compiled.isCompiled()) {
+			throw new Exception("The DFA was compiled by the single transitions of " + scanned + " characters");
+		}
+
+		// Walking whole strings compiles the DFA
+		long walked = 0;
+		for (int i = 0; walked <= 2 * THRESHOLD; ++i) {
+			StringBuilder value = new StringBuilder();
+			int length = 1 + random.nextInt(20);
+			for (int j = 0; j < length; ++j) {
+				value.append(alphabet.charAt(random.nextInt((i % 2 == 0) ? 10 : alphabet.length())));
+			}
+			String compiled_token = compiled_driver.processString(value.toString()).toString();
+			String table_token = table_driver.processString(value.toString()).toString();
+			if (!compiled_token.equals(table_token)) {
+				throw new Exception("\"" + value + "\": " + compiled_token + " compiled, " + table_token + " with the table");
+			}
+			walked += length;
+		}
+		if (!compiled.isCompiled()) {
+			throw new Exception("The DFA was not compiled after walking " + walked + " characters");
+		}
+		System.out.println("DriverCompileTest OK");
+	}
+}
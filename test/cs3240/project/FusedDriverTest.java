@@ -0,0 +1,123 @@
+package cs3240.project;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import cs3240.regex.automaton.AhoCorasick;
+import cs3240.regex.automaton.DFATable;
+import cs3240.regex.automaton.ProductDFA;
+import cs3240.regex.automaton.ReverseSuffixMatcher;
+import cs3240.regex.parser.RegexParser;
+
+/**
+ * This class checks that a {@link ProductDFA} follows each of its
+ * component DFAs, and that a {@link FusedDriver} finds the same tokens
+ * in a line as each of its drivers finds on its own, including drivers
+ * with a prefilter or a suffix matcher.
+ */
+public class FusedDriverTest {
+
+	/** The regular expressions that are combined. */
+	private static final String[] REGEXES = { "[A-Za-z]*ment[A-Za-z]*", "[A-Za-z]*ment", "(a|b)*abb", "[0-9]+",
+			"m[a-z]*", "a|ax[^a-z] IN [a-z]" };
+
+	/**
+	 * Runs the checks, and throws an exception on the first line
+	 * the fused driver does not find the same tokens in.
+	 *
+	 * @param args not used
+	 * @throws Exception if a check fails
+	 */
+	public static void main(String[] args) throws Exception {
+		Random random = new Random(3240);
+		String alphabet = "abmentxM01 ";
+		for (int i = 0; i < 200; ++i) {
+			// Combine two or three random expressions, which may be the same
+			int num_drivers = 2 + random.nextInt(2);
+			DFATable[] dfas = new DFATable[num_drivers];
+			Driver[] drivers = new Driver[num_drivers];
+			String names = "";
+			for (int k = 0; k < num_drivers; ++k) {
+				int regex = random.nextInt(REGEXES.length);
+				names += REGEXES[regex] + " ";
+				dfas[k] = new RegexParser("'" + REGEXES[regex] + "'").parseRegex().toDFA();
+				drivers[k] = new Driver("test", dfas[k]);
+				if (regex == 0 && random.nextBoolean()) {
+					drivers[k].setPrefilter(new AhoCorasick(Arrays.asList("ment")));
+				} else if (regex == 1 && random.nextBoolean()) {
+					DFATable reverseDFA = new RegexParser("'" + REGEXES[regex] + "'").parseRegex().reverse().toDFA()
+							.toMinimalDFA();
+					drivers[k].setSuffixMatcher(new ReverseSuffixMatcher(Arrays.asList("ment"), reverseDFA));
+				}
+			}
+			ProductDFA product = ProductDFA.create(dfas, 10000);
+			if (product == null) {
+				throw new Exception(names + ": the product has too many states");
+			}
+			FusedDriver fused = new FusedDriver("test", product, drivers);
+
+			for (int j = 0; j < 50; ++j) {
+				StringBuilder line = new StringBuilder();
+				int length = random.nextInt(40);
+				for (int c = 0; c < length; ++c) {
+					line.append(alphabet.charAt(random.nextInt(alphabet.length())));
+				}
+				checkProduct(names, product, dfas, line);
+
+				ArrayList<ArrayList<Driver.Token>> fused_tokens = new ArrayList<ArrayList<Driver.Token>>();
+				for (int k = 0; k < num_drivers; ++k) {
+					fused_tokens.add(new ArrayList<Driver.Token>());
+				}
+				fused.scanLine(line.toString(), fused_tokens);
+				for (int k = 0; k < num_drivers; ++k) {
+					ArrayList<Driver.Token> tokens = new ArrayList<Driver.Token>();
+					drivers[k].scanLine(line.toString(), tokens);
+					if (!tokens.toString().equals(fused_tokens.get(k).toString())) {
+						throw new Exception(names + "on \"" + line + "\": driver " + k + " found " + fused_tokens.get(k)
+								+ " fused, expected " + tokens);
+					}
+				}
+			}
+		}
+		System.out.println("FusedDriverTest OK");
+	}
+
+	/**
+	 * Walks the product and each component DFA over the inputed line,
+	 * and checks that the product is in the state of every component.
+	 *
+	 * @param names the regular expressions of the components
+	 * @param product the product DFA
+	 * @param dfas the component DFAs
+	 * @param line the line to walk over
+	 * @throws Exception if the product is not in the state of a component
+	 */
+	private static void checkProduct(String names, ProductDFA product, DFATable[] dfas, CharSequence line)
+			throws Exception {
+		int state_id = product.getStartID();
+		int[] states = new int[dfas.length];
+		for (int k = 0; k < dfas.length; ++k) {
+			states[k] = dfas[k].getStartID();
+		}
+		for (int i = 0; i <= line.length(); ++i) {
+			for (int k = 0; k < dfas.length; ++k) {
+				boolean failed = states[k] == dfas[k].getErrorStateID();
+				String data = failed ? null : dfas[k].isTerminatingState(states[k]);
+				if (product.isFailed(state_id, k) != failed || (!failed && product.getComponentState(state_id, k) != states[k])
+						|| (data == null ? product.isTerminatingState(state_id, k) != null
+								: !data.equals(product.isTerminatingState(state_id, k)))) {
+					throw new Exception(names + "on \"" + line + "\": the product is not in the state of component " + k
+							+ " after " + i + " characters");
+				}
+			}
+			if (i == line.length()) {
+				break;
+			}
+			state_id = product.followTransition(state_id, line.charAt(i));
+			for (int k = 0; k < dfas.length; ++k) {
+				states[k] = dfas[k].followTransition(states[k], line.charAt(i));
+			}
+		}
+	}
+}
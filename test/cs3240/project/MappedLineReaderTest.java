@@ -0,0 +1,144 @@
+package cs3240.project;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.util.Random;
+
+/**
+ * This class checks that a {@link MappedLineReader} reads the same
+ * lines as {@link BufferedReader#readLine()}, for files whose lines
+ * end with a carriage return, a line feed or both, with and without
+ * a final line ending, and with bytes that are not ASCII. Each file
+ * is also read in segments of a few bytes, so lines and line endings
+ * cross the ends of the segments.
+ */
+public class MappedLineReaderTest {
+
+	/** The files that are checked, besides the random ones. */
+	private static final String[] FILES = { "", "\n", "\r", "\r\n", "\n\n", "\r\r\n", "\n\r", "abc", "abc\n",
+			"abc\r", "abc\r\n", "a\rb\nc\r\nd", "a\r\r\nb\n\rc", "caf\u00c3\u00a9\r\nna\u00efve\rx\u00ff\n",
+			"\u00e2\u0082\u00ac\r\n\r\n" };
+
+	/** The sizes of the segments the files are mapped in. */
+	private static final int[] SEGMENT_SIZES = { MappedLineReader.SEGMENT_SIZE, 1, 2, 3, 4, 5, 8, 13 };
+
+	/** The bytes the random files are made of, as characters. */
+	private static final String BYTES = "ab \r\n\r\n\u00c3\u00a9\u00ff";
+
+	/**
+	 * Runs the checks, and throws an exception on the first
+	 * file the two readers do not read the same way.
+	 *
+	 * @param args not used
+	 * @throws Exception if a check fails
+	 */
+	public static void main(String[] args) throws Exception {
+		File file = File.createTempFile("lines", ".txt");
+		try {
+			for (String contents : FILES) {
+				check(file, contents);
+			}
+			Random random = new Random(3240);
+			StringBuilder contents = new StringBuilder();
+			for (int i = 0; i < 2000; ++i) {
+				contents.setLength(0);
+				int length = random.nextInt(40);
+				for (int j = 0; j < length; ++j) {
+					contents.append(BYTES.charAt(random.nextInt(BYTES.length())));
+				}
+				check(file, contents.toString());
+			}
+		} finally {
+			file.delete();
+		}
+		System.out.println("MappedLineReaderTest OK");
+	}
+
+	/**
+	 * Writes the inputed contents to the file, one byte for each
+	 * character, and compares the lines read by both readers with
+	 * each segment size.
+	 *
+	 * @param file the file to write
+	 * @param contents the bytes of the file, as characters
+	 * @throws Exception if the readers do not read the same lines
+	 */
+	private static void check(File file, String contents) throws Exception {
+		byte[] bytes = new byte[contents.length()];
+		for (int i = 0; i < bytes.length; ++i) {
+			bytes[i] = (byte) contents.charAt(i);
+		}
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(bytes);
+		} finally {
+			out.close();
+		}
+		for (int segment_size : SEGMENT_SIZES) {
+			compare(file, describe(contents) + " in segments of " + segment_size + " bytes", segment_size);
+		}
+	}
+
+	/**
+	 * Compares the lines of the file read by a BufferedReader and by
+	 * a MappedLineReader that maps segments of the inputed size.
+	 *
+	 * @param file the file to read
+	 * @param name the description of the file and segment size
+	 * @param segmentSize the number of bytes the MappedLineReader maps at once
+	 * @throws Exception if the readers do not read the same lines
+	 */
+	private static void compare(File file, String name, int segmentSize) throws Exception {
+		BufferedReader expected = new BufferedReader(new FileReader(file));
+		MappedLineReader found = new MappedLineReader(file, segmentSize);
+		try {
+			for (int n = 0;; ++n) {
+				String expected_line = expected.readLine();
+				CharSequence found_line = found.readLine();
+				if (expected_line == null || found_line == null) {
+					if (expected_line != found_line) {
+						throw new Exception(name + ": line " + n + " is " + describe(found_line)
+								+ ", expected " + describe(expected_line));
+					}
+					break;
+				}
+				if (!expected_line.equals(found_line.toString()) || !expected_line.contentEquals(found_line)) {
+					throw new Exception(name + ": line " + n + " is " + describe(found_line) + ", expected "
+							+ describe(expected_line));
+				}
+				if (expected_line.length() > 1
+						&& !expected_line.substring(1).equals(found_line.subSequence(1, found_line.length()).toString())) {
+					throw new Exception(name + ": line " + n + " has the wrong subsequence");
+				}
+			}
+		} finally {
+			expected.close();
+			found.close();
+		}
+	}
+
+	/**
+	 * Returns the inputed text with its line endings and other
+	 * characters that are not printable ASCII written as escapes.
+	 *
+	 * @param text the text, or null
+	 * @return the text quoted and escaped
+	 */
+	private static String describe(CharSequence text) {
+		if (text == null) {
+			return "null";
+		}
+		StringBuilder result = new StringBuilder("\"");
+		for (int i = 0; i < text.length(); ++i) {
+			char c = text.charAt(i);
+			if (c >= ' ' && c < 127) {
+				result.append(c);
+			} else {
+				result.append(String.format("\\u%04x", Integer.valueOf(c)));
+			}
+		}
+		return result.append('"').toString();
+	}
+}
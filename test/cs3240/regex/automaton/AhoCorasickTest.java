@@ -0,0 +1,93 @@
+package cs3240.regex.automaton;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This class checks that {@link AhoCorasick} finds the same last
+ * occurrence start as searching for each literal on its own, and
+ * that it rejects the literals it can not search for.
+ */
+public class AhoCorasickTest {
+
+	/**
+	 * Runs the checks, and throws an exception on the first
+	 * text the scanner does not find the right start in.
+	 *
+	 * @param args not used
+	 * @throws Exception if a check fails
+	 */
+	public static void main(String[] args) throws Exception {
+		Random random = new Random(3240);
+		String alphabet = "abc\u00e9\u0101";
+		for (int i = 0; i < 500; ++i) {
+			// Literals that are prefixes, suffixes and factors of each other are common over three letters
+			ArrayList<String> literals = new ArrayList<String>();
+			int num_literals = 1 + random.nextInt(5);
+			for (int j = 0; j < num_literals; ++j) {
+				literals.add(randomString(random, "abc", 1 + random.nextInt(4)));
+			}
+			AhoCorasick scanner = new AhoCorasick(literals);
+			for (int j = 0; j < 50; ++j) {
+				String text = randomString(random, alphabet, random.nextInt(30));
+				int from = random.nextInt(text.length() + 1);
+				int to = from + random.nextInt(text.length() - from + 1);
+				int expected = lastMatchStart(literals, text, from, to);
+				int found = scanner.lastMatchStart(text, from, to);
+				if (expected != found) {
+					throw new Exception(literals + " in \"" + text + "\" from " + from + " to " + to + ": " + found
+							+ ", expected " + expected);
+				}
+			}
+		}
+
+		for (String literal : new String[] { "", "a\u0101" }) {
+			try {
+				new AhoCorasick(Arrays.asList("ab", literal));
+				throw new Exception("The literal \"" + literal + "\" was accepted");
+			} catch (IllegalArgumentException e) {
+				// The literal can not be searched for
+			}
+		}
+		System.out.println("AhoCorasickTest OK");
+	}
+
+	/**
+	 * Returns the start of the last occurrence of a literal that lies
+	 * in the inputed range of the text, by searching for each literal.
+	 *
+	 * @param literals the literals to search for
+	 * @param text the text to search
+	 * @param from the index of the first character to search
+	 * @param to the index after the last character to search
+	 * @return the start index of the last occurrence, or -1 if no literal occurs
+	 */
+	private static int lastMatchStart(ArrayList<String> literals, String text, int from, int to) {
+		int last = -1;
+		String range = text.substring(0, to);
+		for (String literal : literals) {
+			int start = range.lastIndexOf(literal);
+			if (start >= from && start > last) {
+				last = start;
+			}
+		}
+		return last;
+	}
+
+	/**
+	 * Returns a random string of the inputed length over the inputed alphabet.
+	 *
+	 * @param random the random number generator to use
+	 * @param alphabet the characters of the string
+	 * @param length the length of the string
+	 * @return the random string
+	 */
+	private static String randomString(Random random, String alphabet, int length) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < length; ++i) {
+			builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,83 @@
+package cs3240.regex.automaton;
+
+import java.util.Random;
+
+import cs3240.regex.parser.RegexParser;
+
+/**
+ * This class checks that a {@link CompiledDFA} follows the same
+ * transitions as its DFA Table, both one character at a time and
+ * when walking a range of the input, and that only the DFAs whose
+ * states each have a single range of characters are compiled.
+ */
+public class CompiledDFATest {
+
+	/** The regular expressions whose DFAs are compiled. */
+	private static final String[] COMPILED = { "[0-9]+", "[a-z]+", "(ab)*", "x{2,4}", "a|ax[^a-z] IN [a-z]" };
+
+	/** The regular expressions whose DFAs have a state with more than one range, and are not compiled. */
+	private static final String[] NOT_COMPILED = { "[A-Za-z]*ment[A-Za-z]*", "(a|b)*a(a|b)(a|b)", "(a|c)*" };
+
+	/**
+	 * Runs the checks, and throws an exception on the first
+	 * transition the compiled DFA does not follow the same way.
+	 *
+	 * @param args not used
+	 * @throws Exception if a check fails
+	 */
+	public static void main(String[] args) throws Exception {
+		Random random = new Random(3240);
+		for (String regex : COMPILED) {
+			if (!check(regex, new RegexParser("'" + regex + "'").parseRegex().toDFA(), random).isCompiled()) {
+				throw new Exception(regex + ": the DFA was not compiled");
+			}
+		}
+		for (String regex : NOT_COMPILED) {
+			if (check(regex, new RegexParser("'" + regex + "'").parseRegex().toDFA(), random).isCompiled()) {
+				throw new Exception(regex + ": the DFA was compiled");
+			}
+		}
+		for (int i = 0; i < 20; ++i) {
+			check("random DFA " + i, DFAMinimizationBenchmark.generateDFA(2 + random.nextInt(24), random), random);
+		}
+		System.out.println("CompiledDFATest OK");
+	}
+
+	/**
+	 * Compiles the inputed DFA, and compares every transition and
+	 * walks over random strings with the DFA Table.
+	 *
+	 * @param name the name of the DFA
+	 * @param dfa the DFA Table to compile
+	 * @param random the random number generator to use
+	 * @return the compiled DFA
+	 * @throws Exception if the compiled DFA does not follow the same transitions
+	 */
+	private static CompiledDFA check(String name, DFATable dfa, Random random) throws Exception {
+		CompiledDFA compiled = new CompiledDFA(dfa, 0);
+		compiled.walk("a", 0, 1, compiled.getStartID()); // Walking past the threshold compiles the DFA
+		for (int s = -1; s < dfa.getTableSize(); ++s) {
+			for (int c = 0; c < 512; ++c) {
+				int expected = dfa.followTransition(s, (char) c);
+				int found = compiled.followTransition(s, (char) c);
+				if (expected != found) {
+					throw new Exception(name + ": state " + s + " on " + c + " goes to " + found + ", expected " + expected);
+				}
+			}
+		}
+		String alphabet = "abcdefghmntx0123456789 ";
+		for (int i = 0; i < 2000; ++i) {
+			StringBuilder input = new StringBuilder();
+			int length = random.nextInt(20);
+			for (int j = 0; j < length; ++j) {
+				input.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			int expected = dfa.walk(input, 0, input.length(), dfa.getStartID());
+			int found = compiled.walk(input, 0, input.length(), compiled.getStartID());
+			if (expected != found) {
+				throw new Exception(name + ": walk on \"" + input + "\" reaches " + found + ", expected " + expected);
+			}
+		}
+		return compiled;
+	}
+}
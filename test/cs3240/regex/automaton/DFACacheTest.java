@@ -0,0 +1,268 @@
+package cs3240.regex.automaton;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import cs3240.regex.parser.RegexParser;
+
+/**
+ * This class checks that a DFA Table read back from the binary format
+ * of {@link DFATable#writeTo(java.io.DataOutput)} is the same as the
+ * table that was written, at every transition width, that truncated
+ * or corrupt input is reported as an IOException, and that a
+ * {@link DFACache} returns the tables stored in it and ignores
+ * files that are corrupt or hold another key.
+ */
+public class DFACacheTest {
+
+	/**
+	 * Runs the checks, and throws an exception on the first table
+	 * that is not read back the same way.
+	 *
+	 * @param args not used
+	 * @throws Exception if a check fails
+	 */
+	public static void main(String[] args) throws Exception {
+		Random random = new Random(3240);
+		DFATable[] dfas = { new RegexParser("'[A-Za-z]*ment[A-Za-z]*'").parseRegex().toDFA(),
+				withPatterns(DFAMinimizationBenchmark.generateDFA(40, random), random),
+				withPatterns(DFAMinimizationBenchmark.generateDFA(600, random), random),
+				DFAMinimizationBenchmark.generateDFA(70000, random) };
+		for (DFATable dfa : dfas) {
+			DFATable read = DFATable.readFrom(ByteBuffer.wrap(serialize(dfa)));
+			compare(dfa, read);
+		}
+		for (int i = 1; i < dfas.length; ++i) {
+			int width = (i == 3) ? 4 : i;
+			if (dfas[i].getTransitionWidth() != width) {
+				throw new Exception("A DFA with " + dfas[i].getTableSize() + " states has width "
+						+ dfas[i].getTransitionWidth() + ", expected " + width);
+			}
+		}
+
+		// Every truncation, and random changes to the bytes, must fail with an IOException or give a valid table
+		byte[] bytes = serialize(dfas[1]);
+		for (int length = 0; length < bytes.length; ++length) {
+			try {
+				DFATable.readFrom(ByteBuffer.wrap(Arrays.copyOf(bytes, length)));
+				throw new Exception("A table truncated to " + length + " of " + bytes.length + " bytes was read");
+			} catch (IOException e) {
+				// The truncation was found
+			}
+		}
+		for (int i = 0; i < 5000; ++i) {
+			byte[] corrupt = bytes.clone();
+			int num_changes = 1 + random.nextInt(4);
+			for (int j = 0; j < num_changes; ++j) {
+				corrupt[random.nextInt(corrupt.length)] = (byte) random.nextInt(256);
+			}
+			try {
+				DFATable read = DFATable.readFrom(ByteBuffer.wrap(corrupt));
+				read.walk("abcdefgh", 0, 8, read.getStartID());
+			} catch (IOException e) {
+				// The corruption was found
+			}
+		}
+
+		// A table stored wider than it needs is rejected, and a table that was read can grow past its width
+		for (int i = 1; i < 3; ++i) {
+			for (int width = dfas[i].getTransitionWidth() * 2; width <= 4; width *= 2) {
+				try {
+					DFATable.readFrom(ByteBuffer.wrap(widen(serialize(dfas[i]), dfas[i], width)));
+					throw new Exception("A table of " + dfas[i].getTableSize() + " states stored with width " + width
+							+ " was read");
+				} catch (IOException e) {
+					// The width was found
+				}
+			}
+			checkGrowth(dfas[i]);
+		}
+
+		checkCache(dfas[2]);
+		System.out.println("DFACacheTest OK");
+	}
+
+	/**
+	 * Stores the inputed DFA in a cache in a temporary directory, and
+	 * checks what the cache returns for it, for another key, and for
+	 * the DFA once its file has been corrupted.
+	 *
+	 * @param dfa the DFA to store
+	 * @throws Exception if the cache does not return the right table
+	 */
+	private static void checkCache(DFATable dfa) throws Exception {
+		File directory = File.createTempFile("dfacache", "");
+		directory.delete();
+		DFACache cache = new DFACache(directory);
+		try {
+			String key = "'[A-Za-z]*ment[A-Za-z]*'";
+			if (cache.get(key) != null) {
+				throw new Exception("An empty cache returned a table");
+			}
+			cache.put(key, dfa);
+			compare(dfa, cache.get(key));
+			if (cache.get(key + " ") != null) {
+				throw new Exception("The cache returned a table for another key");
+			}
+			File[] files = directory.listFiles();
+			if (files == null || files.length != 1) {
+				throw new Exception("The cache directory holds " + Arrays.toString(files));
+			}
+			FileOutputStream out = new FileOutputStream(files[0], true);
+			try {
+				out.write(new byte[] { 1, 2, 3 });
+			} finally {
+				out.close();
+			}
+			compare(dfa, cache.get(key)); // Bytes after the table are not read
+			out = new FileOutputStream(files[0]);
+			try {
+				out.write(Arrays.copyOf(serialize(dfa), 100));
+			} finally {
+				out.close();
+			}
+			if (cache.get(key) != null) {
+				throw new Exception("The cache returned a table from a corrupt file");
+			}
+		} finally {
+			File[] files = directory.listFiles();
+			if (files != null) {
+				for (File file : files) {
+					file.delete();
+				}
+			}
+			directory.delete();
+		}
+	}
+
+	/**
+	 * Gives random terminating states of the inputed DFA a set of pattern ids.
+	 *
+	 * @param dfa the DFA
+	 * @param random the random number generator to use
+	 * @return the DFA
+	 */
+	private static DFATable withPatterns(DFATable dfa, Random random) {
+		for (int s = 0; s < dfa.getTableSize(); ++s) {
+			if (dfa.isTerminatingState(s) != null && random.nextBoolean()) {
+				dfa.setPatternSet(s, new int[] { random.nextInt(3), 3 + random.nextInt(3) });
+			}
+		}
+		return dfa;
+	}
+
+	/**
+	 * Reads the inputed DFA back, adds enough states to it that it
+	 * has to be widened, and checks that the states that were read
+	 * keep their transitions and the new states can be used.
+	 *
+	 * @param dfa the DFA to read back and grow
+	 * @throws Exception if the grown table does not have the transitions of the DFA
+	 */
+	private static void checkGrowth(DFATable dfa) throws Exception {
+		DFATable read = DFATable.readFrom(ByteBuffer.wrap(serialize(dfa)));
+		int width = read.getTransitionWidth();
+		int first_new = -1;
+		while (read.getTransitionWidth() == width) {
+			int state_id = read.newDFAState();
+			read.addTransition(state_id, dfa.getStartID(), 'a');
+			if (first_new == -1) {
+				first_new = state_id;
+			}
+		}
+		for (int s = 0; s < dfa.getTableSize(); ++s) {
+			for (int c = 0; c < 256; ++c) {
+				if (dfa.followTransition(s, (char) c) != read.followTransition(s, (char) c)) {
+					throw new Exception("After growing, state " + s + " on " + c + " goes to "
+							+ read.followTransition(s, (char) c) + ", expected " + dfa.followTransition(s, (char) c));
+				}
+			}
+		}
+		for (int s = first_new; s < read.getTableSize(); ++s) {
+			if (read.followTransition(s, 'a') != dfa.getStartID()) {
+				throw new Exception("The new state " + s + " does not keep its transition");
+			}
+		}
+	}
+
+	/**
+	 * Returns the bytes of a DFA in the binary format, with its rows
+	 * stored at a wider width than the one they were written at.
+	 *
+	 * @param bytes the serialized DFA
+	 * @param dfa the DFA that was serialized
+	 * @param width the width to store the rows at
+	 * @return the serialized DFA with wider rows
+	 */
+	private static byte[] widen(byte[] bytes, DFATable dfa, int width) {
+		int num_entries = (dfa.getTableSize() + 1) * dfa.getByteClasses().getNumClasses();
+		int old_width = dfa.getTransitionWidth();
+		int rows_start = 4 * 3 + 256 + 4 * 2; // The magic number, version, class count, class map, row count and width
+		ByteBuffer in = ByteBuffer.wrap(bytes);
+		ByteBuffer out = ByteBuffer.allocate(bytes.length + (width - old_width) * num_entries);
+		out.put(bytes, 0, rows_start - 4);
+		out.putInt(width);
+		in.position(rows_start);
+		for (int i = 0; i < num_entries; ++i) {
+			int row = (old_width == 1) ? (in.get() & 0xFF) : (old_width == 2) ? (in.getShort() & 0xFFFF) : in.getInt();
+			if (width == 2) {
+				out.putShort((short) row);
+			} else {
+				out.putInt(row);
+			}
+		}
+		out.put(bytes, in.position(), bytes.length - in.position());
+		return out.array();
+	}
+
+	/**
+	 * Returns the bytes of the inputed DFA in the binary format.
+	 *
+	 * @param dfa the DFA
+	 * @return the serialized DFA
+	 * @throws IOException if the DFA can not be written
+	 */
+	private static byte[] serialize(DFATable dfa) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		dfa.writeTo(out);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Compares every transition, the terminating data and the pattern sets of two DFAs.
+	 *
+	 * @param expected the DFA that was written
+	 * @param found the DFA that was read
+	 * @throws Exception if the DFAs are not the same
+	 */
+	private static void compare(DFATable expected, DFATable found) throws Exception {
+		if (found == null || expected.getTableSize() != found.getTableSize()
+				|| expected.getStartID() != found.getStartID()) {
+			throw new Exception("The table was not read back with " + expected.getTableSize() + " states");
+		}
+		for (int s = 0; s < expected.getTableSize(); ++s) {
+			for (int c = 0; c < 512; c += (c < 256) ? 1 : 37) {
+				if (expected.followTransition(s, (char) c) != found.followTransition(s, (char) c)) {
+					throw new Exception("State " + s + " on " + c + " goes to " + found.followTransition(s, (char) c)
+							+ ", expected " + expected.followTransition(s, (char) c));
+				}
+			}
+			String data = expected.isTerminatingState(s);
+			if (data == null ? found.isTerminatingState(s) != null : !data.equals(found.isTerminatingState(s))) {
+				throw new Exception("State " + s + " has the data " + found.isTerminatingState(s) + ", expected " + data);
+			}
+			if (!Arrays.equals(expected.getPatternSet(s), found.getPatternSet(s))) {
+				throw new Exception("State " + s + " has the patterns " + Arrays.toString(found.getPatternSet(s))
+						+ ", expected " + Arrays.toString(expected.getPatternSet(s)));
+			}
+		}
+	}
+}
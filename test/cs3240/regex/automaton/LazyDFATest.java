@@ -0,0 +1,55 @@
+package cs3240.regex.automaton;
+
+import java.util.Random;
+
+import cs3240.regex.parser.RegexParser;
+
+/**
+ * This class checks that a {@link LazyDFA} whose state cache is
+ * flushed on every new state matches the same strings as the DFA
+ * Table built from the same NFA, and that a flush never leaves two
+ * cached states for the same set of NFA states.
+ */
+public class LazyDFATest {
+
+	/** The regular expressions that are checked. */
+	private static final String[] REGEXES = { "(ab)*", "(a|b)*abb", "(a|b)*a(a|b)(a|b)(a|b)", "a*b*(ab)*" };
+
+	/**
+	 * Runs the checks, and throws an exception on the first
+	 * string the two DFAs do not agree on.
+	 *
+	 * @param args not used
+	 * @throws Exception if a check fails
+	 */
+	public static void main(String[] args) throws Exception {
+		Random random = new Random(3240);
+		for (String regex : REGEXES) {
+			DFATable table = new RegexParser("'" + regex + "'").parseRegex().toDFA();
+			// A budget of one byte flushes the cache every time a new state is added
+			LazyDFA lazy = new LazyDFA(new RegexParser("'" + regex + "'").parseRegex(), 1);
+			for (int i = 0; i < 2000; ++i) {
+				StringBuilder input = new StringBuilder();
+				int length = random.nextInt(12);
+				for (int j = 0; j < length; ++j) {
+					input.append((char) ('a' + random.nextInt(2)));
+				}
+				int table_id = table.walk(input, 0, input.length(), table.getStartID());
+				int lazy_id = lazy.walk(input, 0, input.length(), lazy.getStartID());
+				boolean table_match = table_id != table.getErrorStateID() && table.isTerminatingState(table_id) != null;
+				boolean lazy_match = lazy_id != lazy.getErrorStateID() && lazy.isTerminatingState(lazy_id) != null;
+				if (table_match != lazy_match) {
+					throw new Exception(regex + " on \"" + input + "\": table " + table_match + ", lazy " + lazy_match);
+				}
+				// The start state and the state being traversed to are all the cache holds
+				if (lazy.getCacheStateCount() > 2) {
+					throw new Exception(regex + " on \"" + input + "\": " + lazy.getCacheStateCount() + " cached states");
+				}
+			}
+			if (lazy.getFlushCount() == 0) {
+				throw new Exception(regex + ": the cache was never flushed");
+			}
+		}
+		System.out.println("LazyDFATest OK");
+	}
+}
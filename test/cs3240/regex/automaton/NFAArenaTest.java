@@ -0,0 +1,156 @@
+package cs3240.regex.automaton;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import cs3240.regex.parser.RegexParser;
+
+/**
+ * This class checks that an {@link NFAArena} follows the same
+ * transitions whether the epsilon closures are stored as lists of
+ * indexes or computed on demand, and that the closures of NFAs with
+ * long epsilon chains are not stored.
+ */
+public class NFAArenaTest {
+
+	/** The regular expressions that are checked. */
+	private static final String[] REGEXES = { "[0-9]+", "[A-Za-z]*ment[A-Za-z]*", "(a|b)*a(a|b)(a|b)(a|b)",
+			"((ab)*|c*)*(a|b|c)d", "a|ax[^a-z] IN [a-z]" };
+
+	/** The largest number of state sets the subset construction visits for each regular expression. */
+	private static final int MAX_SETS = 2000;
+
+	/**
+	 * Runs the checks, and throws an exception on the first
+	 * closure or move the arenas do not agree on.
+	 *
+	 * @param args not used
+	 * @throws Exception if a check fails
+	 */
+	public static void main(String[] args) throws Exception {
+		for (String regex : REGEXES) {
+			check(regex, new RegexParser("'" + regex + "'").parseRegex());
+		}
+
+		// A long run of stars, whose closures have about n^2 / 2 entries for n states
+		StringBuilder chain = new StringBuilder();
+		for (int i = 0; i < 1200; ++i) {
+			chain.append((char) ('a' + i % 3)).append('*');
+		}
+		NFA nfa = new RegexParser("'" + chain + "'").parseRegex();
+		NFAArena arena = nfa.toArena().withStoredClosures();
+		if (arena.hasStoredClosures()) {
+			throw new Exception("The closures of " + arena.getStateCount() + " states in a chain are stored");
+		}
+		check("chain of stars", nfa);
+		System.out.println("NFAArenaTest OK");
+	}
+
+	/**
+	 * Builds arenas for the inputed NFA that store their closures
+	 * and that compute them on demand, and compares the closure of every
+	 * state and the moves of the sets reached by the subset construction.
+	 *
+	 * @param name the name of the NFA
+	 * @param nfa the NFA to check
+	 * @throws Exception if the arenas do not agree
+	 */
+	private static void check(String name, NFA nfa) throws Exception {
+		NFAArena on_demand = nfa.toArena();
+		NFAArena[] arenas = { on_demand.withStoredClosures(Long.MAX_VALUE), on_demand };
+		if (!arenas[0].hasStoredClosures() || arenas[1].hasStoredClosures()) {
+			throw new Exception(name + ": the arenas do not store their closures as asked");
+		}
+		int start = on_demand.getStartState();
+		ByteClasses classes = on_demand.getByteClasses();
+		int num_states = on_demand.getStateCount();
+
+		for (int s = 0; s < num_states; ++s) {
+			NFAStateBitSet expected = null;
+			for (NFAArena arena : arenas) {
+				NFAStateBitSet set = new NFAStateBitSet(num_states);
+				arena.addClosure(set, s);
+				SparseStateSet sparse = new SparseStateSet(num_states);
+				arena.addClosure(sparse, s);
+				if (!Arrays.equals(toArray(set), toArray(sparse))) {
+					throw new Exception(name + ": the closure of state " + s + " is " + set + " but "
+							+ Arrays.toString(toArray(sparse)) + " in a sparse set");
+				}
+				if (expected == null) {
+					expected = set;
+				} else if (!expected.equals(set)) {
+					throw new Exception(name + ": the closure of state " + s + " is " + set + ", expected " + expected);
+				}
+			}
+		}
+
+		// Visit the sets of the subset construction, and move each of them on every class
+		int num_classes = classes.getNumClasses();
+		NFAStateBitSet start_set = new NFAStateBitSet(num_states);
+		arenas[0].addClosure(start_set, start);
+		ArrayList<NFAStateBitSet> sets = new ArrayList<NFAStateBitSet>();
+		HashSet<NFAStateBitSet> seen = new HashSet<NFAStateBitSet>();
+		sets.add(start_set);
+		seen.add(start_set);
+		for (int i = 0; i < sets.size() && i < MAX_SETS; ++i) {
+			NFAStateBitSet set = sets.get(i);
+			SparseStateSet sparse_set = new SparseStateSet(num_states);
+			for (int s = set.nextIndex(0); s >= 0; s = set.nextIndex(s + 1)) {
+				sparse_set.add(s);
+			}
+			for (int class_id = 0; class_id < num_classes; ++class_id) {
+				NFAStateBitSet expected = null;
+				for (NFAArena arena : arenas) {
+					NFAStateBitSet next = new NFAStateBitSet(num_states);
+					arena.move(set, class_id, next);
+					SparseStateSet sparse_next = new SparseStateSet(num_states);
+					arena.move(sparse_set, class_id, sparse_next);
+					if (!Arrays.equals(toArray(next), toArray(sparse_next))) {
+						throw new Exception(name + ": " + set + " moves to " + next + " on class " + class_id + " but to "
+								+ Arrays.toString(toArray(sparse_next)) + " in a sparse set");
+					}
+					if (expected == null) {
+						expected = next;
+					} else if (!expected.equals(next) || expected.hashCode() != next.hashCode()) {
+						throw new Exception(name + ": " + set + " moves to " + next + " on class " + class_id
+								+ ", expected " + expected);
+					}
+				}
+				if (!expected.isEmpty() && seen.add(expected)) {
+					sets.add(expected);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the indexes of the states in the inputed set, in increasing order.
+	 *
+	 * @param set a set of states
+	 * @return the indexes of the states in the set
+	 */
+	private static int[] toArray(NFAStateBitSet set) {
+		int[] indexes = new int[set.size()];
+		int k = 0;
+		for (int s = set.nextIndex(0); s >= 0; s = set.nextIndex(s + 1)) {
+			indexes[k++] = s;
+		}
+		return indexes;
+	}
+
+	/**
+	 * Returns the indexes of the states in the inputed sparse set, in increasing order.
+	 *
+	 * @param set a sparse set of states
+	 * @return the indexes of the states in the set
+	 */
+	private static int[] toArray(SparseStateSet set) {
+		int[] indexes = new int[set.size()];
+		for (int i = 0; i < set.size(); ++i) {
+			indexes[i] = set.get(i);
+		}
+		Arrays.sort(indexes);
+		return indexes;
+	}
+}
@@ -0,0 +1,93 @@
+package cs3240.regex.automaton;
+
+import java.util.Random;
+
+import cs3240.regex.ast.AnyCharNode;
+import cs3240.regex.ast.BoundedRepNode;
+import cs3240.regex.ast.CaseFoldNode;
+import cs3240.regex.ast.ConcatNode;
+import cs3240.regex.ast.EpsilonNode;
+import cs3240.regex.ast.OneOrMoreRepNode;
+import cs3240.regex.ast.ReCharNode;
+import cs3240.regex.ast.RegexAstNode;
+import cs3240.regex.ast.UnionNode;
+import cs3240.regex.ast.ZeroOrMoreRepNode;
+
+/**
+ * This class checks that the arena an Abstract Syntax Tree builds
+ * with an {@link NFABuilder} holds the same NFA as the graph of
+ * NFAStates from {@link RegexAstNode#generateNFA()}, by checking that
+ * the DFAs built from both are the same, state for state, for random trees.
+ */
+public class NFABuilderTest {
+
+	/** The number of random trees that are checked. */
+	private static final int NUM_TREES = 3000;
+
+	/** The largest depth of a random tree. */
+	private static final int MAX_DEPTH = 5;
+
+	/**
+	 * Runs the checks, and throws an exception on the
+	 * first tree whose DFAs are not the same.
+	 *
+	 * @param args not used
+	 * @throws Exception if a check fails
+	 */
+	public static void main(String[] args) throws Exception {
+		Random random = new Random(3240);
+		for (int i = 0; i < NUM_TREES; ++i) {
+			RegexAstNode root = randomTree(random, MAX_DEPTH);
+			if (random.nextInt(8) == 0) {
+				root = new CaseFoldNode(root);
+			}
+			NFA nfa = root.generateNFA();
+			nfa.setTerminatingStatesType("match");
+			nfa.setByteClasses(root.getByteClasses());
+			NFAArena arena = root.generateArena("match");
+			if (arena.getStateCount() != nfa.getStateCount()) {
+				throw new Exception(root.getCanonicalForm() + ": the arena has " + arena.getStateCount()
+						+ " states, expected " + nfa.getStateCount());
+			}
+			String expected = nfa.toDFA(Integer.MAX_VALUE, null).toString();
+			String found = arena.toDFA(Integer.MAX_VALUE).toString();
+			if (!expected.equals(found)) {
+				throw new Exception(root.getCanonicalForm() + ": the DFA of the arena is\n" + found + "expected\n" + expected);
+			}
+		}
+		System.out.println("NFABuilderTest OK");
+	}
+
+	/**
+	 * Returns a random tree of at most the inputed depth, over the
+	 * characters a, b and c.
+	 *
+	 * @param random the random number generator to use
+	 * @param depth the largest depth of the tree
+	 * @return the root of the tree
+	 */
+	private static RegexAstNode randomTree(Random random, int depth) {
+		int kind = (depth == 0) ? random.nextInt(3) : random.nextInt(9);
+		switch (kind) {
+		case 0:
+			return new ReCharNode(String.valueOf((char) ('a' + random.nextInt(3))));
+		case 1:
+			return (random.nextInt(4) == 0) ? new AnyCharNode() : new ReCharNode("A");
+		case 2:
+			return new EpsilonNode();
+		case 3:
+		case 4:
+			return new ConcatNode(randomTree(random, depth - 1), randomTree(random, depth - 1));
+		case 5:
+			return new UnionNode(randomTree(random, depth - 1), randomTree(random, depth - 1));
+		case 6:
+			return new ZeroOrMoreRepNode(randomTree(random, depth - 1));
+		case 7:
+			return new OneOrMoreRepNode(randomTree(random, depth - 1));
+		default:
+			int min = random.nextInt(3);
+			int max = random.nextBoolean() ? BoundedRepNode.UNBOUNDED : min + random.nextInt(3);
+			return new BoundedRepNode(randomTree(random, depth - 1), min, max);
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package cs3240.regex.automaton;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import cs3240.regex.parser.RegexParser;
+
+/**
+ * This class checks that an {@link OffHeapDFATable} copied from a
+ * DFA Table, written to a file and mapped back, follows the same
+ * transitions and has the same terminating data and pattern sets
+ * as the DFA Table, and that a truncated or corrupt file fails with
+ * an IOException or gives a table that can still be walked.
+ */
+public class OffHeapDFATableTest {
+
+	/**
+	 * Runs the checks, and throws an exception on the first failure.
+	 *
+	 * @param args not used
+	 * @throws Exception if a check fails
+	 */
+	public static void main(String[] args) throws Exception {
+		Random random = new Random(3240);
+		DFATable[] dfas = { new RegexParser("'[A-Za-z]*ment[A-Za-z]*'").parseRegex().toDFA(),
+				withPatterns(DFAMinimizationBenchmark.generateDFA(40, random), random),
+				withPatterns(DFAMinimizationBenchmark.generateDFA(600, random), random),
+				withPatterns(DFAMinimizationBenchmark.generateDFA(70000, random), random) };
+		File file = File.createTempFile("offheap", ".dfa");
+		File copy = File.createTempFile("offheap", ".dfa");
+		try {
+			for (DFATable dfa : dfas) {
+				OffHeapDFATable table = OffHeapDFATable.copyOf(dfa);
+				if (table.getTransitionWidth() != dfa.getTransitionWidth()) {
+					throw new Exception("A table of " + dfa.getTableSize() + " states has width "
+							+ table.getTransitionWidth() + ", expected " + dfa.getTransitionWidth());
+				}
+				compare(dfa, table, random);
+				compare(dfa, OffHeapDFATable.write(dfa, file), random);
+				compare(dfa, OffHeapDFATable.map(file), random);
+				table.writeTo(copy);
+				compare(dfa, OffHeapDFATable.map(copy), random);
+				if (!Arrays.equals(Files.readAllBytes(file.toPath()), Files.readAllBytes(copy.toPath()))) {
+					throw new Exception("The copied and written tables of " + dfa.getTableSize() + " states differ");
+				}
+			}
+
+			// Every truncation, and random changes to the bytes, must fail with an IOException or give a valid table
+			OffHeapDFATable.write(dfas[1], file);
+			byte[] bytes = Files.readAllBytes(file.toPath());
+			for (int length = 0; length < bytes.length; ++length) {
+				writeBytes(copy, Arrays.copyOf(bytes, length));
+				try {
+					OffHeapDFATable.map(copy);
+					throw new Exception("A table truncated to " + length + " of " + bytes.length + " bytes was mapped");
+				} catch (IOException e) {
+					// The truncation was found
+				}
+			}
+			for (int i = 0; i < 2000; ++i) {
+				byte[] corrupt = bytes.clone();
+				int num_changes = 1 + random.nextInt(4);
+				for (int j = 0; j < num_changes; ++j) {
+					corrupt[random.nextInt(corrupt.length)] = (byte) random.nextInt(256);
+				}
+				writeBytes(copy, corrupt);
+				try {
+					OffHeapDFATable table = OffHeapDFATable.map(copy);
+					for (int s = 0; s < table.getTableSize(); ++s) {
+						table.walk("abcdefgh", 0, 8, s);
+						table.isTerminatingState(s);
+						table.getPatternSet(s);
+					}
+				} catch (IOException e) {
+					// The corruption was found
+				}
+			}
+		} finally {
+			file.delete();
+			copy.delete();
+		}
+		System.out.println("OffHeapDFATableTest OK");
+	}
+
+	/**
+	 * Gives random terminating states of the inputed DFA a set of pattern ids.
+	 *
+	 * @param dfa the DFA
+	 * @param random the random number generator to use
+	 * @return the DFA
+	 */
+	private static DFATable withPatterns(DFATable dfa, Random random) {
+		for (int s = 0; s < dfa.getTableSize(); ++s) {
+			if (dfa.isTerminatingState(s) != null && random.nextBoolean()) {
+				dfa.setPatternSet(s, new int[] { random.nextInt(3), 3 + random.nextInt(3) });
+			}
+		}
+		return dfa;
+	}
+
+	/**
+	 * Replaces the contents of the inputed file with the inputed bytes.
+	 *
+	 * @param file the file
+	 * @param bytes the new contents of the file
+	 * @throws IOException if the file can not be written
+	 */
+	private static void writeBytes(File file, byte[] bytes) throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(bytes);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Compares every transition, the terminating data and the pattern
+	 * sets of a DFA Table and its off-heap table, and the states reached
+	 * by walking random strings from every state.
+	 *
+	 * @param expected the DFA Table
+	 * @param found the off-heap table
+	 * @param random the random number generator to use
+	 * @throws Exception if the tables are not the same
+	 */
+	private static void compare(DFATable expected, OffHeapDFATable found, Random random) throws Exception {
+		if (expected.getTableSize() != found.getTableSize() || expected.getStartID() != found.getStartID()
+				|| expected.getErrorStateID() != found.getErrorStateID()) {
+			throw new Exception("The off-heap table does not have " + expected.getTableSize() + " states");
+		}
+		StringBuilder text = new StringBuilder();
+		for (int s = 0; s < expected.getTableSize(); ++s) {
+			for (int c = 0; c < 512; c += (c < 256) ? 1 : 37) {
+				if (expected.followTransition(s, (char) c) != found.followTransition(s, (char) c)) {
+					throw new Exception("State " + s + " on " + c + " goes to " + found.followTransition(s, (char) c)
+							+ ", expected " + expected.followTransition(s, (char) c));
+				}
+			}
+			String data = expected.isTerminatingState(s);
+			if (data == null ? found.isTerminatingState(s) != null : !data.equals(found.isTerminatingState(s))) {
+				throw new Exception("State " + s + " has the data " + found.isTerminatingState(s) + ", expected " + data);
+			}
+			if (!Arrays.equals(expected.getPatternSet(s), found.getPatternSet(s))) {
+				throw new Exception("State " + s + " has the patterns " + Arrays.toString(found.getPatternSet(s))
+						+ ", expected " + Arrays.toString(expected.getPatternSet(s)));
+			}
+			text.setLength(0);
+			int length = random.nextInt(20);
+			for (int i = 0; i < length; ++i) {
+				text.append((char) random.nextInt(300));
+			}
+			if (expected.walk(text, 0, length, s) != found.walk(text, 0, length, s)) {
+				throw new Exception("Walking \"" + text + "\" from state " + s + " ends in " + found.walk(text, 0, length, s)
+						+ ", expected " + expected.walk(text, 0, length, s));
+			}
+		}
+	}
+}
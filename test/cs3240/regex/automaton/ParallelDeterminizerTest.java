@@ -0,0 +1,127 @@
+package cs3240.regex.automaton;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import cs3240.regex.parser.RegexParser;
+
+/**
+ * This class checks that {@link ParallelDeterminizer} builds the same
+ * DFA as the sequential subset construction, with the same state ids,
+ * on any number of threads, and that it stops at the same maximum
+ * number of states.
+ */
+public class ParallelDeterminizerTest {
+
+	/** The regular expressions that are checked. */
+	private static final String[] REGEXES = { "[0-9]+", "[A-Za-z]*ment[A-Za-z]*", "((ab)*|c*)*(a|b|c)d",
+			"a|ax[^a-z] IN [a-z]", "(a|b)*a(a|b)(a|b)(a|b)(a|b)(a|b)(a|b)(a|b)(a|b)(a|b)(a|b)(a|b)" };
+
+	/** The numbers of threads the DFAs are built on. */
+	private static final int[] THREADS = { 1, 2, 4 };
+
+	/**
+	 * Runs the checks, and throws an exception on the first
+	 * DFA that is not the same as the sequential one.
+	 *
+	 * @param args not used
+	 * @throws Exception if a check fails
+	 */
+	public static void main(String[] args) throws Exception {
+		ForkJoinPool[] pools = new ForkJoinPool[THREADS.length];
+		for (int i = 0; i < THREADS.length; ++i) {
+			pools[i] = new ForkJoinPool(THREADS[i]);
+		}
+		try {
+			for (String regex : REGEXES) {
+				check(regex, new RegexParser("'" + regex + "'").parseRegex(), pools);
+			}
+
+			// The union of several patterns, so the pattern sets are compared too
+			String[] patterns = { "[a-c]*abc", "(ab|ba)+", "c[a-c]c", "[^c] IN [a-c][^a] IN [a-c]*" };
+			ArrayList<NFA> nfas = new ArrayList<NFA>();
+			for (int p = 0; p < patterns.length; ++p) {
+				NFA nfa = new RegexParser("'" + patterns[p] + "'").parseRegex();
+				nfa.setTerminatingStatesPattern(p);
+				nfas.add(nfa);
+			}
+			check("union of patterns", NFA.union(nfas), pools);
+		} finally {
+			for (ForkJoinPool pool : pools) {
+				pool.shutdown();
+			}
+		}
+		System.out.println("ParallelDeterminizerTest OK");
+	}
+
+	/**
+	 * Builds the DFA of the inputed NFA on a single thread and on
+	 * each pool, twice, and compares them, then checks that a limit
+	 * on the number of states gives null on every pool exactly when
+	 * it does on a single thread.
+	 *
+	 * @param name the name of the NFA
+	 * @param nfa the NFA to check
+	 * @param pools the pools to build the DFA on
+	 * @throws Exception if the DFAs are not the same
+	 */
+	private static void check(String name, NFA nfa, ForkJoinPool[] pools) throws Exception {
+		DFATable expected = nfa.toDFA(Integer.MAX_VALUE, null);
+		for (ForkJoinPool pool : pools) {
+			for (int run = 0; run < 2; ++run) {
+				compare(name + " on " + pool.getParallelism() + " threads", expected,
+						ParallelDeterminizer.determinize(nfa, Integer.MAX_VALUE, pool));
+			}
+		}
+
+		int size = expected.getTableSize();
+		int[] limits = { 1, size / 2, size - 1, size };
+		for (int max_states : limits) {
+			DFATable limited = nfa.toDFA(max_states, null);
+			for (ForkJoinPool pool : pools) {
+				DFATable found = ParallelDeterminizer.determinize(nfa, max_states, pool);
+				if ((limited == null) != (found == null)) {
+					throw new Exception(name + " on " + pool.getParallelism() + " threads with at most " + max_states
+							+ " states gives " + found + ", expected " + limited);
+				}
+				if (limited != null) {
+					compare(name + " with at most " + max_states + " states", limited, found);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Compares the state ids, every transition, the terminating data
+	 * and the pattern sets of two DFAs.
+	 *
+	 * @param name the name of the DFA
+	 * @param expected the DFA built on a single thread
+	 * @param found the DFA built on a pool
+	 * @throws Exception if the DFAs are not the same
+	 */
+	private static void compare(String name, DFATable expected, DFATable found) throws Exception {
+		if (found == null || expected.getTableSize() != found.getTableSize()
+				|| expected.getStartID() != found.getStartID()) {
+			throw new Exception(name + ": the DFA does not have " + expected.getTableSize() + " states");
+		}
+		for (int s = 0; s < expected.getTableSize(); ++s) {
+			for (int c = 0; c < 512; c += (c < 256) ? 1 : 37) {
+				if (expected.followTransition(s, (char) c) != found.followTransition(s, (char) c)) {
+					throw new Exception(name + ": state " + s + " on " + c + " goes to "
+							+ found.followTransition(s, (char) c) + ", expected " + expected.followTransition(s, (char) c));
+				}
+			}
+			String data = expected.isTerminatingState(s);
+			if (data == null ? found.isTerminatingState(s) != null : !data.equals(found.isTerminatingState(s))) {
+				throw new Exception(name + ": state " + s + " has the data " + found.isTerminatingState(s)
+						+ ", expected " + data);
+			}
+			if (!Arrays.equals(expected.getPatternSet(s), found.getPatternSet(s))) {
+				throw new Exception(name + ": state " + s + " has the patterns " + Arrays.toString(found.getPatternSet(s))
+						+ ", expected " + Arrays.toString(expected.getPatternSet(s)));
+			}
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package cs3240.regex.automaton;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import cs3240.regex.parser.RegexParser;
+
+/**
+ * This class checks that the Moore refinement of {@link ParallelMinimizer}
+ * gives the same minimal DFA as Hopcroft's algorithm in
+ * {@link DFATable#toMinimalDFA()}, on the calling thread and on pools
+ * of several threads, for DFAs built from regular expressions and
+ * random DFAs with terminating data and pattern sets.
+ */
+public class ParallelMinimizerTest {
+
+	/** The regular expressions whose DFAs are checked. */
+	private static final String[] REGEXES = { "[0-9]+", "[A-Za-z]*ment[A-Za-z]*", "((ab)*|c*)*(a|b|c)d",
+			"(a|b)*a(a|b)(a|b)(a|b)", "(aa|aaa)*", "a|ax[^a-z] IN [a-z]" };
+
+	/** The number of random DFAs that are checked. */
+	private static final int NUM_RANDOM = 400;
+
+	/**
+	 * Runs the checks, and throws an exception on the first DFA
+	 * that is not minimized the same way by both algorithms.
+	 *
+	 * @param args not used
+	 * @throws Exception if a check fails
+	 */
+	public static void main(String[] args) throws Exception {
+		ForkJoinPool[] pools = { null, new ForkJoinPool(2), new ForkJoinPool(4) };
+		try {
+			ArrayList<DFATable> dfas = new ArrayList<DFATable>();
+			for (String regex : REGEXES) {
+				dfas.add(new RegexParser("'" + regex + "'").parseRegex().toDFA());
+			}
+			Random random = new Random(3240);
+			for (int i = 0; i < NUM_RANDOM; ++i) {
+				DFATable dfa = DFAMinimizationBenchmark.generateDFA(1 + random.nextInt(300), random);
+				if (random.nextBoolean()) {
+					withPatterns(dfa, random);
+				}
+				dfas.add(dfa);
+			}
+			// Large enough that every round is split between tasks
+			dfas.add(DFAMinimizationBenchmark.generateDFA(50000, random));
+
+			for (DFATable dfa : dfas) {
+				DFATable expected = dfa.toMinimalDFA();
+				for (ForkJoinPool pool : pools) {
+					String name = dfa.getTableSize() + " states on " + ((pool == null) ? 1 : pool.getParallelism())
+							+ " threads";
+					compare(name, expected, dfa.toMinimalDFAByRefinement(pool));
+				}
+			}
+		} finally {
+			for (ForkJoinPool pool : pools) {
+				if (pool != null) {
+					pool.shutdown();
+				}
+			}
+		}
+		System.out.println("ParallelMinimizerTest OK");
+	}
+
+	/**
+	 * Gives some of the terminating states of the inputed DFA a
+	 * random pattern set, so states with the same data can differ.
+	 *
+	 * @param dfa the DFA
+	 * @param random the random generator to pick the patterns with
+	 */
+	private static void withPatterns(DFATable dfa, Random random) {
+		for (int s = 0; s < dfa.getTableSize(); ++s) {
+			if (dfa.isTerminatingState(s) != null && random.nextBoolean()) {
+				dfa.setPatternSet(s, new int[] { random.nextInt(2) });
+			}
+		}
+	}
+
+	/**
+	 * Compares the state ids, every transition, the terminating data
+	 * and the pattern sets of two minimal DFAs.
+	 *
+	 * @param name the name of the DFA
+	 * @param expected the DFA minimized with Hopcroft's algorithm
+	 * @param found the DFA minimized with Moore's refinement
+	 * @throws Exception if the DFAs are not the same
+	 */
+	private static void compare(String name, DFATable expected, DFATable found) throws Exception {
+		if (expected.getTableSize() != found.getTableSize() || expected.getStartID() != found.getStartID()
+				|| expected.getErrorStateID() != found.getErrorStateID()) {
+			throw new Exception(name + ": the minimal DFA has " + found.getTableSize() + " states, expected "
+					+ expected.getTableSize());
+		}
+		for (int s = 0; s < expected.getTableSize(); ++s) {
+			for (int c = 0; c < 512; c += (c < 256) ? 1 : 37) {
+				if (expected.followTransition(s, (char) c) != found.followTransition(s, (char) c)) {
+					throw new Exception(name + ": state " + s + " on " + c + " goes to "
+							+ found.followTransition(s, (char) c) + ", expected " + expected.followTransition(s, (char) c));
+				}
+			}
+			String data = expected.isTerminatingState(s);
+			if (data == null ? found.isTerminatingState(s) != null : !data.equals(found.isTerminatingState(s))) {
+				throw new Exception(name + ": state " + s + " has the data " + found.isTerminatingState(s)
+						+ ", expected " + data);
+			}
+			if (!Arrays.equals(expected.getPatternSet(s), found.getPatternSet(s))) {
+				throw new Exception(name + ": state " + s + " has the patterns " + Arrays.toString(found.getPatternSet(s))
+						+ ", expected " + Arrays.toString(expected.getPatternSet(s)));
+			}
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package cs3240.regex.parser;
+
+import cs3240.regex.automaton.DFATable;
+
+/**
+ * This class checks that optimizing the Abstract Syntax Tree of a
+ * regular expression does not change the strings it matches, by
+ * comparing the DFAs built with and without the optimizer on every
+ * string up to a length, and that the rewrites do not add states.
+ */
+public class AstOptimizerTest {
+
+	/** The regular expressions that are checked, each of which has a part the optimizer rewrites. */
+	private static final String[] REGEXES = { "a|b|c|d", "ab|ac|ad", "abc|abd|ab", "(a|b)|(b|a)", "a|a|ab|ab",
+			"((a*)*)*b", "((a+)*)+", "(a|)b", "(()a())*c", "a(b(c(da)))", "(ab|ac)*|a(b|c)", "[a-b]|c|(d|[a-c])",
+			"(a*|b)*", "(a+|b+)*c", "ab*|ab+|a", "(a|b)(a|b)|(a|b)a", "a.b|a.c|.", "(|a)(|b)(|c)",
+			"[^a] IN [a-d]|ab|a[b-c]", "(abc|abd)*(abc)+" };
+
+	/** The characters of the strings that are compared. */
+	private static final String ALPHABET = "abcd";
+
+	/** The length of the longest strings that are compared. */
+	private static final int MAX_LENGTH = 7;
+
+	/**
+	 * Runs the checks, and throws an exception on the first string
+	 * the optimized expression does not match the same way.
+	 *
+	 * @param args not used
+	 * @throws Exception if a check fails
+	 */
+	public static void main(String[] args) throws Exception {
+		int num_smaller = 0;
+		for (String regex : REGEXES) {
+			int plain_states = parser(regex, false).parseRegexTree().generateNFA().getStateCount();
+			int optimized_states = parser(regex, true).parseRegexTree().generateNFA().getStateCount();
+			if (optimized_states > plain_states) {
+				throw new Exception(regex + ": the optimized NFA has " + optimized_states + " states, up from " + plain_states);
+			}
+			if (optimized_states < plain_states) {
+				++num_smaller;
+			}
+
+			DFATable plain_dfa = parser(regex, false).parseRegex().toDFA().toMinimalDFA();
+			DFATable optimized_dfa = parser(regex, true).parseRegex().toDFA().toMinimalDFA();
+			if (plain_dfa.getTableSize() != optimized_dfa.getTableSize()) {
+				throw new Exception(regex + ": the minimal DFAs have " + plain_dfa.getTableSize() + " and "
+						+ optimized_dfa.getTableSize() + " states");
+			}
+			compare(regex, plain_dfa, optimized_dfa, new StringBuilder());
+		}
+		if (num_smaller < REGEXES.length / 2) {
+			throw new Exception("Only " + num_smaller + " of the NFAs were made smaller");
+		}
+		System.out.println("AstOptimizerTest OK");
+	}
+
+	/**
+	 * Returns a parser for the inputed regular expression.
+	 *
+	 * @param regex the regular expression, without quotes
+	 * @param optimize whether the parser optimizes the Abstract Syntax Tree
+	 * @return the parser
+	 */
+	private static RegexParser parser(String regex, boolean optimize) {
+		RegexParser parser = new RegexParser("'" + regex + "'");
+		parser.setOptimizeAst(optimize);
+		return parser;
+	}
+
+	/**
+	 * Compares whether the two DFAs accept the inputed string and
+	 * every string that extends it, up to the maximum length.
+	 *
+	 * @param regex the regular expression
+	 * @param plain the DFA built without optimizing
+	 * @param optimized the DFA built from the optimized tree
+	 * @param input the string to compare
+	 * @throws Exception if the DFAs do not accept the same strings
+	 */
+	private static void compare(String regex, DFATable plain, DFATable optimized, StringBuilder input) throws Exception {
+		if (accepts(plain, input) != accepts(optimized, input)) {
+			throw new Exception(regex + ": \"" + input + "\" is " + (accepts(plain, input) ? "" : "not ")
+					+ "matched, but the optimized expression does" + (accepts(plain, input) ? " not" : ""));
+		}
+		if (input.length() == MAX_LENGTH) {
+			return;
+		}
+		for (int i = 0; i < ALPHABET.length(); ++i) {
+			input.append(ALPHABET.charAt(i));
+			compare(regex, plain, optimized, input);
+			input.setLength(input.length() - 1);
+		}
+	}
+
+	/**
+	 * Returns whether the inputed DFA accepts all of the inputed string.
+	 *
+	 * @param dfa the DFA
+	 * @param value the string to match
+	 * @return true if the DFA accepts the string
+	 */
+	private static boolean accepts(DFATable dfa, CharSequence value) {
+		int state_id = dfa.walk(value, 0, value.length(), dfa.getStartID());
+		return state_id != dfa.getErrorStateID() && dfa.isTerminatingState(state_id) != null;
+	}
+}
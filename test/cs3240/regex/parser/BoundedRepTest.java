@@ -0,0 +1,160 @@
+package cs3240.regex.parser;
+
+import java.util.regex.Pattern;
+
+import cs3240.regex.ast.BoundedRepNode;
+import cs3240.regex.ast.RegexAstNode;
+import cs3240.regex.automaton.DFATable;
+import cs3240.regex.derivative.DerivativeCompiler;
+
+/**
+ * This class checks the bounded repetition operators {m}, {m,} and
+ * {m,n}: that the scanner only reads a brace as an operator when it
+ * has the right form, that the parser rejects bounds that are too
+ * large or out of order, and that the Thompson, position and derivative
+ * automata of a {@link BoundedRepNode}, with and without the optimizer,
+ * accept the same strings as java.util.regex.
+ */
+public class BoundedRepTest {
+
+	/** The regular expressions that are checked, which mean the same in java.util.regex. */
+	private static final String[] REGEXES = { "a{3}", "a{0}", "a{2,}", "a{0,}", "a{1,}", "a{1}", "a{2,4}",
+			"a{0,2}b", "(ab){1,3}", "(a|b){2}a", "b(a*){2,3}b", "[ab]{0,3}b{2,}", "((ab){1,2}a){2}",
+			"(a{2}|b{3}){1,2}", "a{002,03}" };
+
+	/** The characters the strings that are matched are made of. */
+	private static final String ALPHABET = "ab";
+
+	/** The length of the longest string that is matched. */
+	private static final int MAX_LENGTH = 10;
+
+	/** The regular expressions whose bounds must be rejected. */
+	private static final String[] INVALID = { "a{1001}", "a{0,1001}", "a{1001,}", "a{3,2}", "a{99999999999}",
+			"a{1,99999999999}" };
+
+	/**
+	 * Runs the checks, and throws an exception on the first failure.
+	 *
+	 * @param args not used
+	 * @throws Exception if a check fails
+	 */
+	public static void main(String[] args) throws Exception {
+		for (String regex : REGEXES) {
+			Pattern pattern = Pattern.compile(regex);
+			DFATable[] dfas = { new RegexParser("'" + regex + "'").parseRegex().toDFA(),
+					parser(regex, true, false).parseRegex().toDFA(), parser(regex, false, true).parseRegex().toDFA(),
+					DerivativeCompiler.compile(parser(regex, false, false).parseRegexTree(), "match", Integer.MAX_VALUE) };
+			compare(regex, pattern, dfas, new StringBuilder());
+		}
+
+		// A brace that does not start a bounded repetition is a plain character
+		checkLiteral("a{x}", "a{x}", "a");
+		checkLiteral("a{", "a{", "a");
+		checkLiteral("a{1", "a{1", "a");
+		checkLiteral("a{1,2", "a{1,2", "aa");
+		checkLiteral("a{,2}", "a{,2}", "aa");
+		checkLiteral("a}", "a}", "a");
+
+		for (String regex : INVALID) {
+			boolean rejected = false;
+			try {
+				new RegexParser("'" + regex + "'").parseRegexTree();
+			} catch (Exception e) {
+				rejected = true;
+			}
+			if (!rejected) {
+				throw new Exception(regex + " was not rejected");
+			}
+		}
+
+		// The largest repetition is allowed, and is one DFA state per repetition
+		RegexAstNode root = new RegexParser("'.{1000}'").parseRegexTree();
+		if (!(root instanceof BoundedRepNode) || ((BoundedRepNode) root).getMin() != 1000
+				|| ((BoundedRepNode) root).getMax() != 1000) {
+			throw new Exception(".{1000} was parsed as " + root.getCanonicalForm());
+		}
+		DFATable dfa = new RegexParser("'.{1000}'").parseRegex().toDFA().toMinimalDFA();
+		if (dfa.getTableSize() > BoundedRepNode.MAX_REPETITION + 2) {
+			throw new Exception("The minimal DFA of .{1000} has " + dfa.getTableSize() + " states");
+		}
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 1001; ++i) {
+			boolean expected = (i == 1000);
+			if (accepts(dfa, text) != expected) {
+				throw new Exception(".{1000} on " + i + " characters gives " + !expected);
+			}
+			text.append((char) ('a' + i % 26));
+		}
+		System.out.println("BoundedRepTest OK");
+	}
+
+	/**
+	 * Returns a parser for the inputed regular expression.
+	 *
+	 * @param regex the regular expression, without quotes
+	 * @param optimize whether the syntax tree is optimized
+	 * @param position whether position automata are built instead of Thompson NFAs
+	 * @return the parser
+	 */
+	private static RegexParser parser(String regex, boolean optimize, boolean position) {
+		RegexParser parser = new RegexParser("'" + regex + "'");
+		parser.setOptimizeAst(optimize);
+		parser.setPositionNFA(position);
+		return parser;
+	}
+
+	/**
+	 * Checks that the inputed regular expression, whose braces are
+	 * plain characters, accepts one string and rejects another.
+	 *
+	 * @param regex the regular expression
+	 * @param accepted a string the expression must accept
+	 * @param rejected a string the expression must reject
+	 * @throws Exception if the expression does not accept and reject the strings
+	 */
+	private static void checkLiteral(String regex, String accepted, String rejected) throws Exception {
+		DFATable dfa = new RegexParser("'" + regex + "'").parseRegex().toDFA();
+		if (!accepts(dfa, accepted) || accepts(dfa, rejected)) {
+			throw new Exception(regex + " does not treat its braces as characters");
+		}
+	}
+
+	/**
+	 * Compares whether the DFAs and the pattern accept the inputed
+	 * string and every string that extends it, up to the maximum length.
+	 *
+	 * @param regex the regular expression
+	 * @param pattern the pattern from java.util.regex
+	 * @param dfas the DFAs of the regular expression
+	 * @param text the string to check, which is extended and restored
+	 * @throws Exception if a DFA does not agree with the pattern
+	 */
+	private static void compare(String regex, Pattern pattern, DFATable[] dfas, StringBuilder text) throws Exception {
+		boolean expected = pattern.matcher(text).matches();
+		for (int i = 0; i < dfas.length; ++i) {
+			if (accepts(dfas[i], text) != expected) {
+				throw new Exception(regex + ": DFA " + i + " gives " + !expected + " on \"" + text + "\"");
+			}
+		}
+		if (text.length() == MAX_LENGTH) {
+			return;
+		}
+		for (int i = 0; i < ALPHABET.length(); ++i) {
+			text.append(ALPHABET.charAt(i));
+			compare(regex, pattern, dfas, text);
+			text.setLength(text.length() - 1);
+		}
+	}
+
+	/**
+	 * Returns whether the DFA accepts the whole of the inputed string.
+	 *
+	 * @param dfa the DFA
+	 * @param text the string
+	 * @return true if the DFA ends in a terminating state
+	 */
+	private static boolean accepts(DFATable dfa, CharSequence text) {
+		int state = dfa.walk(text, 0, text.length(), dfa.getStartID());
+		return state != dfa.getErrorStateID() && dfa.isTerminatingState(state) != null;
+	}
+}
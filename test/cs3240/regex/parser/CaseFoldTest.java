@@ -0,0 +1,162 @@
+package cs3240.regex.parser;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import cs3240.regex.ast.CaseFoldNode;
+import cs3240.regex.automaton.ByteClasses;
+import cs3240.regex.automaton.DFATable;
+import cs3240.regex.derivative.DerivativeCompiler;
+
+/**
+ * This class checks case-insensitive regular expressions: that
+ * {@link ByteClasses#foldCase()} gives the coarsest classes that
+ * keep each letter with its other case, that the automata of a
+ * {@link CaseFoldNode} accept the same strings as java.util.regex
+ * without case, and that a case-insensitive pattern stays that way
+ * in a {@link RegexSet} next to case-sensitive patterns.
+ */
+public class CaseFoldTest {
+
+	/**
+	 * The regular expressions that are checked, each followed by
+	 * the same expression in java.util.regex.
+	 */
+	private static final String[][] REGEXES = { { "ab", "ab" }, { "aB", "ab" }, { "[a-c]+B", "[a-c]+b" },
+			{ "[A-C]*a", "[a-c]*a" }, { "[^a] IN [a-d]b", "[b-d]b" }, { "(Ab|c)*D", "(ab|c)*d" },
+			{ "[0-9A]+", "[0-9a]+" }, { "(a|1){2,3}", "(a|1){2,3}" }, { ".a", ".a" } };
+
+	/** The characters the strings that are matched are made of. */
+	private static final String ALPHABET = "aAbBcCdD1";
+
+	/** The length of the longest string that is matched. */
+	private static final int MAX_LENGTH = 5;
+
+	/**
+	 * Runs the checks, and throws an exception on the first failure.
+	 *
+	 * @param args not used
+	 * @throws Exception if a check fails
+	 */
+	public static void main(String[] args) throws Exception {
+		Random random = new Random(3240);
+		for (int i = 0; i < 500; ++i) {
+			ByteClasses classes = new ByteClasses();
+			int num_ranges = 1 + random.nextInt(6);
+			for (int r = 0; r < num_ranges; ++r) {
+				char start = (char) random.nextInt(256);
+				char end = (char) Math.min(255, start + random.nextInt(40));
+				classes.addCharacterRange(start, end);
+			}
+			checkFolded(classes, classes.foldCase());
+		}
+
+		for (String[] regex : REGEXES) {
+			Pattern pattern = Pattern.compile(regex[1], Pattern.CASE_INSENSITIVE);
+			String quoted = "'" + regex[0] + "'i";
+			RegexParser position_parser = new RegexParser(quoted);
+			position_parser.setPositionNFA(true);
+			DFATable[] dfas = { new RegexParser(quoted).parseRegex().toDFA(), position_parser.parseRegex().toDFA(),
+					DerivativeCompiler.compile(new RegexParser(quoted).parseRegexTree(), "match", Integer.MAX_VALUE) };
+			if (!(new RegexParser(quoted).parseRegexTree() instanceof CaseFoldNode)) {
+				throw new Exception(quoted + " is not parsed as a case-insensitive expression");
+			}
+			compare(regex[0], pattern, dfas, new StringBuilder());
+		}
+
+		// The flag is kept apart from the expression written without it
+		DFATable dfa = new RegexParser("'ab'").parseRegex().toDFA();
+		if (accepts(dfa, "AB") || !accepts(dfa, "ab")) {
+			throw new Exception("'ab' is not case-sensitive");
+		}
+
+		// A case-insensitive pattern in a set with a case-sensitive pattern
+		RegexSet set = new RegexSet(Arrays.asList(new String[] { "'ab'i", "'a[a-z]'", "'AB'" }));
+		String[] inputs = { "ab", "AB", "aB", "Ab", "ax", "AX" };
+		String[] expected = { "[0, 1]", "[0, 2]", "[0]", "[0]", "[1]", "[]" };
+		for (int i = 0; i < inputs.length; ++i) {
+			String found = Arrays.toString(set.matches(inputs[i]));
+			if (!found.equals(expected[i])) {
+				throw new Exception("\"" + inputs[i] + "\" is matched by " + found + ", expected " + expected[i]);
+			}
+		}
+		System.out.println("CaseFoldTest OK");
+	}
+
+	/**
+	 * Checks that two characters are in the same folded class exactly
+	 * when the classes of each character and its other case are the same.
+	 *
+	 * @param classes the classes before folding
+	 * @param folded the folded classes
+	 * @throws Exception if the folded classes are not the coarsest ones
+	 */
+	private static void checkFolded(ByteClasses classes, ByteClasses folded) throws Exception {
+		for (char c = 0; c < 256; ++c) {
+			for (char d = 0; d < 256; ++d) {
+				boolean expected = foldedClasses(classes, c).equals(foldedClasses(classes, d));
+				if ((folded.getClass(c) == folded.getClass(d)) != expected) {
+					throw new Exception("The characters " + (int) c + " and " + (int) d + " of " + classes
+							+ " are in the folded classes " + folded.getClass(c) + " and " + folded.getClass(d));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the classes of a character and its other case, in order.
+	 *
+	 * @param classes the classes
+	 * @param c a character
+	 * @return the two classes, separated by a comma
+	 */
+	private static String foldedClasses(ByteClasses classes, char c) {
+		char other = Character.isLowerCase(c) ? Character.toUpperCase(c) : Character.toLowerCase(c);
+		if (c >= 128 || other >= 128) {
+			other = c;
+		}
+		int first = Math.min(classes.getClass(c), classes.getClass(other));
+		int second = Math.max(classes.getClass(c), classes.getClass(other));
+		return first + "," + second;
+	}
+
+	/**
+	 * Compares whether the DFAs and the pattern accept the inputed
+	 * string and every string that extends it, up to the maximum length.
+	 *
+	 * @param regex the regular expression
+	 * @param pattern the pattern from java.util.regex
+	 * @param dfas the DFAs of the regular expression
+	 * @param text the string to check, which is extended and restored
+	 * @throws Exception if a DFA does not agree with the pattern
+	 */
+	private static void compare(String regex, Pattern pattern, DFATable[] dfas, StringBuilder text) throws Exception {
+		boolean expected = pattern.matcher(text).matches();
+		for (int i = 0; i < dfas.length; ++i) {
+			if (accepts(dfas[i], text) != expected) {
+				throw new Exception(regex + ": DFA " + i + " gives " + !expected + " on \"" + text + "\"");
+			}
+		}
+		if (text.length() == MAX_LENGTH) {
+			return;
+		}
+		for (int i = 0; i < ALPHABET.length(); ++i) {
+			text.append(ALPHABET.charAt(i));
+			compare(regex, pattern, dfas, text);
+			text.setLength(text.length() - 1);
+		}
+	}
+
+	/**
+	 * Returns whether the DFA accepts the whole of the inputed string.
+	 *
+	 * @param dfa the DFA
+	 * @param text the string
+	 * @return true if the DFA ends in a terminating state
+	 */
+	private static boolean accepts(DFATable dfa, CharSequence text) {
+		int state = dfa.walk(text, 0, text.length(), dfa.getStartID());
+		return state != dfa.getErrorStateID() && dfa.isTerminatingState(state) != null;
+	}
+}
@@ -0,0 +1,119 @@
+package cs3240.regex.parser;
+
+import java.util.Random;
+
+import cs3240.project.Driver;
+import cs3240.regex.automaton.DFATable;
+import cs3240.regex.derivative.DerivativeCompiler;
+
+/**
+ * This class checks the DFAs built from derivatives against the DFAs
+ * built from Thompson NFAs: that they accept the same strings, that
+ * {@link Driver#findAllMatches(CharSequence)} finds the same matches
+ * with both, and that a derivative DFA fails where the minimal DFA
+ * fails, which can be one character before the DFA of the NFA fails.
+ */
+public class DerivativeBackendTest {
+
+	/** The regular expressions that are checked. */
+	private static final String[] REGEXES = { "a|ax[^a-z] IN [a-z]", "(ab|a[^a-z] IN [a-z])c*", "a*b|a*[^a] IN [a]",
+			"([^a-z] IN [a-z])*a", "[A-Za-z]*ment[A-Za-z]*", "(ab|ac)+x", "m(e|)nt", "x{2,4}", "a|bc|ment", "(a|b)*a(a|b)" };
+
+	/** The characters of the lines that are checked. */
+	private static final String ALPHABET = "abcmentx ";
+
+	/**
+	 * Runs the checks, and throws an exception on the first
+	 * line the DFAs do not agree on.
+	 *
+	 * @param args not used
+	 * @throws Exception if a check fails
+	 */
+	public static void main(String[] args) throws Exception {
+		// The example in the documentation of Driver.scanLine
+		String example = "'a|ax[^a-z] IN [a-z]'";
+		DFATable thompson = new RegexParser(example).parseRegex().toDFA();
+		DFATable derivative = DerivativeCompiler.compile(new RegexParser(example).parseRegexTree(), "Go to Hell!");
+		if (walk(thompson, "ax") == thompson.getErrorStateID() || walk(derivative, "ax") != derivative.getErrorStateID()) {
+			throw new Exception("The DFAs of 'a|ax[^a-z] IN [a-z]' do not fail as documented on ax");
+		}
+
+		Random random = new Random(3240);
+		for (String regex : REGEXES) {
+			String quoted = "'" + regex + "'";
+			thompson = new RegexParser(quoted).parseRegex().toDFA();
+			derivative = DerivativeCompiler.compile(new RegexParser(quoted).parseRegexTree(), "Go to Hell!");
+			DFATable minimal = thompson.toMinimalDFA();
+			Driver thompson_driver = new Driver("test", thompson);
+			Driver derivative_driver = new Driver("test", derivative);
+			for (int i = 0; i < 20000; ++i) {
+				StringBuilder line = new StringBuilder();
+				int length = random.nextInt(16);
+				for (int j = 0; j < length; ++j) {
+					line.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+				}
+				String expected = thompson_driver.findAllMatches(line).toString();
+				String found = derivative_driver.findAllMatches(line).toString();
+				if (!expected.equals(found)) {
+					throw new Exception(regex + " on \"" + line + "\": all matches " + expected + " expected, " + found + " found");
+				}
+				compare(regex, thompson, minimal, derivative, line);
+			}
+		}
+		System.out.println("DerivativeBackendTest OK");
+	}
+
+	/**
+	 * Compares the states the DFAs reach on every prefix of the inputed line.
+	 *
+	 * @param regex the regular expression
+	 * @param thompson the DFA of the Thompson NFA of the expression
+	 * @param minimal the minimal DFA of the expression
+	 * @param derivative the DFA built from the derivatives of the expression
+	 * @param line the line whose prefixes are walked
+	 * @throws Exception if the DFAs do not accept the same prefixes, or do not fail as expected
+	 */
+	private static void compare(String regex, DFATable thompson, DFATable minimal, DFATable derivative, CharSequence line)
+			throws Exception {
+		for (int end = 0; end <= line.length(); ++end) {
+			CharSequence prefix = line.subSequence(0, end);
+			int thompson_id = walk(thompson, prefix);
+			int minimal_id = walk(minimal, prefix);
+			int derivative_id = walk(derivative, prefix);
+			boolean accepted = accepts(thompson, thompson_id);
+			if (accepts(minimal, minimal_id) != accepted || accepts(derivative, derivative_id) != accepted) {
+				throw new Exception(regex + ": the DFAs do not agree on whether they accept \"" + prefix + "\"");
+			}
+			boolean failed = (derivative_id == derivative.getErrorStateID());
+			if (failed != (minimal_id == minimal.getErrorStateID())) {
+				throw new Exception(regex + ": the derivative DFA " + (failed ? "fails" : "does not fail") + " on \""
+						+ prefix + "\", but the minimal DFA " + (failed ? "does not" : "does"));
+			}
+			if (!failed && thompson_id == thompson.getErrorStateID()) {
+				throw new Exception(regex + ": the derivative DFA fails after the Thompson DFA on \"" + prefix + "\"");
+			}
+		}
+	}
+
+	/**
+	 * Returns the state the DFA reaches from its start state on the inputed string.
+	 *
+	 * @param dfa the DFA
+	 * @param text the string
+	 * @return the state reached, or the error state
+	 */
+	private static int walk(DFATable dfa, CharSequence text) {
+		return dfa.walk(text, 0, text.length(), dfa.getStartID());
+	}
+
+	/**
+	 * Returns whether the inputed state of the DFA is a terminating state.
+	 *
+	 * @param dfa the DFA
+	 * @param state_id the state
+	 * @return true if the state is not the error state and is terminating
+	 */
+	private static boolean accepts(DFATable dfa, int state_id) {
+		return state_id != dfa.getErrorStateID() && dfa.isTerminatingState(state_id) != null;
+	}
+}
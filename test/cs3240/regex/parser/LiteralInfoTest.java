@@ -0,0 +1,114 @@
+package cs3240.regex.parser;
+
+import java.util.Collection;
+import java.util.Random;
+
+import cs3240.regex.ast.LiteralInfo;
+import cs3240.regex.automaton.DFATable;
+
+/**
+ * This class checks the literals found by {@link LiteralInfo} for the
+ * prefilter of a find. Every string matched by a regular expression
+ * must contain one of its required literals, which is checked on
+ * random strings made by walking the DFA of the expression.
+ */
+public class LiteralInfoTest {
+
+	/** The regular expressions that are checked, with the alphabet their strings are made of. */
+	private static final String[][] REGEXES = { { "[A-Za-z]*ment[A-Za-z]*", "mentxM" }, { "(ab|cd)e*(fg)+", "abcdefg" },
+			{ "a(b|c)d|xy+z", "abcdxyz" }, { "(ab)*c(de|dfg)", "abcdefg" }, { "[0-9]+\\.[0-9]*", "019." },
+			{ "(a|b)*abb", "ab" }, { "x[^a] IN [a-c]y", "abcxy" }, { "(hello|help)+ world", "helopwrd " } };
+
+	/**
+	 * Runs the checks, and throws an exception if a matched string
+	 * does not contain a required literal.
+	 *
+	 * @param args not used
+	 * @throws Exception if a check fails
+	 */
+	public static void main(String[] args) throws Exception {
+		check("[A-Za-z]*ment[A-Za-z]*", "[ment]");
+		check("abc", "[abc]");
+		check("ab|cd", "[ab, cd]");
+		check("(a|b)*", null);
+
+		Random random = new Random(3240);
+		for (String[] regex : REGEXES) {
+			Collection<String> literals = new RegexParser("'" + regex[0] + "'").parseRegexTree()
+					.analyzeLiterals().getRequiredLiterals();
+			if (literals == null) {
+				throw new Exception(regex[0] + ": no literals were found");
+			}
+			DFATable dfa = new RegexParser("'" + regex[0] + "'").parseRegex().toDFA();
+			int num_matches = 0;
+			for (int i = 0; i < 5000; ++i) {
+				String match = randomMatch(dfa, regex[1], random);
+				if (match == null) {
+					continue;
+				}
+				++num_matches;
+				boolean found = false;
+				for (String literal : literals) {
+					found |= match.contains(literal);
+				}
+				if (!found) {
+					throw new Exception(regex[0] + ": \"" + match + "\" does not contain one of " + literals);
+				}
+			}
+			if (num_matches < 100) {
+				throw new Exception(regex[0] + ": only " + num_matches + " matches were made");
+			}
+		}
+		System.out.println("LiteralInfoTest OK");
+	}
+
+	/**
+	 * Checks that the required literals of the inputed regular expression
+	 * are the inputed literals.
+	 *
+	 * @param regex the regular expression
+	 * @param expected the literals as a string, or null if there should be none
+	 * @throws Exception if the literals are not the expected ones
+	 */
+	private static void check(String regex, String expected) throws Exception {
+		Collection<String> literals = new RegexParser("'" + regex + "'").parseRegexTree().analyzeLiterals()
+				.getRequiredLiterals();
+		String found = (literals == null) ? null : literals.toString();
+		if (expected == null ? found != null : !expected.equals(found)) {
+			throw new Exception(regex + ": the required literals are " + found + ", expected " + expected);
+		}
+	}
+
+	/**
+	 * Makes a random string matched by the inputed DFA, by following
+	 * random transitions that do not lead to the error state and
+	 * stopping at a random terminating state.
+	 *
+	 * @param dfa the DFA to make a string for
+	 * @param alphabet the characters to follow the transitions for
+	 * @param random the random number generator to use
+	 * @return a string matched by the DFA, or null if the walk got stuck
+	 */
+	private static String randomMatch(DFATable dfa, String alphabet, Random random) {
+		StringBuilder match = new StringBuilder();
+		int state_id = dfa.getStartID();
+		for (int i = 0; i < 60; ++i) {
+			if (dfa.isTerminatingState(state_id) != null && random.nextInt(4) == 0) {
+				return match.toString();
+			}
+			int next_id = dfa.getErrorStateID();
+			for (int tries = 0; tries < 20 && next_id == dfa.getErrorStateID(); ++tries) {
+				char c = alphabet.charAt(random.nextInt(alphabet.length()));
+				next_id = dfa.followTransition(state_id, c);
+				if (next_id != dfa.getErrorStateID()) {
+					match.append(c);
+				}
+			}
+			if (next_id == dfa.getErrorStateID()) {
+				return null;
+			}
+			state_id = next_id;
+		}
+		return (dfa.isTerminatingState(state_id) != null) ? match.toString() : null;
+	}
+}
@@ -0,0 +1,119 @@
+package cs3240.regex.parser;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import cs3240.regex.automaton.Automaton;
+import cs3240.regex.automaton.DFATable;
+
+/**
+ * This class checks that the same regular expression can be matched
+ * from several threads at once when it is compiled to an automaton
+ * that changes while matching, such as a lazy DFA with a small state
+ * cache, even though every thread gets it from the shared regex cache.
+ */
+public class RegexCacheTest {
+
+	/** The regular expression that is matched, whose DFA has many states. */
+	private static final String REGEX = "'(a|b)*a(a|b)(a|b)(a|b)(a|b)(a|b)'";
+
+	/** The number of threads that match the regular expression. */
+	private static final int NUM_THREADS = 8;
+
+	/** The number of strings each thread matches. */
+	private static final int NUM_STRINGS = 20000;
+
+	/**
+	 * Runs the checks, and throws an exception if a thread
+	 * does not match a string the same way as the DFA Table.
+	 *
+	 * @param args not used
+	 * @throws Exception if a check fails
+	 */
+	public static void main(String[] args) throws Exception {
+		final DFATable expected = new RegexParser(REGEX).parseRegex().toDFA();
+		check(expected, "lazy DFA", true, false, false);
+		check(expected, "Pike VM", false, true, false);
+		check(expected, "compiled DFA", false, false, true);
+		System.out.println("RegexCacheTest OK");
+	}
+
+	/**
+	 * Matches random strings with the automaton of the regular expression
+	 * from several threads, each of which gets the automaton from its own parser.
+	 *
+	 * @param expected the DFA Table of the regular expression
+	 * @param name the name of the automaton
+	 * @param lazyDFA whether the regular expression is compiled to a lazy DFA
+	 * @param pikeVM whether the regular expression is matched with a Pike VM
+	 * @param compileDFA whether the DFA Table is compiled into bytecode
+	 * @throws Exception if a thread does not match a string the same way as the DFA Table
+	 */
+	private static void check(final DFATable expected, final String name, boolean lazyDFA, boolean pikeVM,
+			boolean compileDFA) throws Exception {
+		final Automaton[] automata = new Automaton[NUM_THREADS];
+		for (int i = 0; i < NUM_THREADS; ++i) {
+			RegexParser parser = new RegexParser(REGEX);
+			parser.setLazyDFA(lazyDFA);
+			parser.setLazyDFACacheSize(4096); // A small cache that is flushed often
+			parser.setPikeVM(pikeVM);
+			parser.setCompileDFA(compileDFA);
+			parser.setCompileThreshold(1000);
+			automata[i] = parser.parseAutomaton();
+			for (int j = 0; j < i; ++j) {
+				if (automata[i] == automata[j]) {
+					throw new Exception(name + ": two parsers got the same automaton");
+				}
+			}
+		}
+
+		final ArrayList<String> failures = new ArrayList<String>();
+		Thread[] threads = new Thread[NUM_THREADS];
+		for (int i = 0; i < NUM_THREADS; ++i) {
+			final Automaton automaton = automata[i];
+			final Random random = new Random(i);
+			threads[i] = new Thread() {
+				public void run() {
+					try {
+						for (int j = 0; j < NUM_STRINGS; ++j) {
+							StringBuilder input = new StringBuilder();
+							int length = random.nextInt(24);
+							for (int k = 0; k < length; ++k) {
+								input.append((char) ('a' + random.nextInt(2)));
+							}
+							if (matches(automaton, input) != matches(expected, input)) {
+								synchronized (failures) {
+									failures.add(name + " on \"" + input + "\"");
+								}
+								return;
+							}
+						}
+					} catch (RuntimeException e) {
+						synchronized (failures) {
+							failures.add(name + ": " + e);
+						}
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		if (!failures.isEmpty()) {
+			throw new Exception(failures.toString());
+		}
+	}
+
+	/**
+	 * Returns whether the inputed automaton accepts the inputed string.
+	 *
+	 * @param automaton the automaton
+	 * @param input the string to match
+	 * @return true if the automaton accepts the string
+	 */
+	private static boolean matches(Automaton automaton, CharSequence input) {
+		int state_id = automaton.walk(input, 0, input.length(), automaton.getStartID());
+		return state_id != automaton.getErrorStateID() && automaton.isTerminatingState(state_id) != null;
+	}
+}
@@ -0,0 +1,131 @@
+package cs3240.regex.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import cs3240.regex.automaton.DFATable;
+
+/**
+ * This class checks that a {@link RegexSet} finds the same patterns
+ * as matching each of its regular expressions with its own DFA, both
+ * for whole strings and for the tokens found in a line.
+ */
+public class RegexSetTest {
+
+	/** The regular expressions of the set, some of which match the same strings. */
+	private static final String[] REGEXES = { "'(a|b)*abb'", "'a+'", "'[a-c]*c'", "'ab*'", "'(ab)*'", "'b(a|b)(a|b)'",
+			"'[^b] IN [a-c]a'" };
+
+	/**
+	 * Runs the checks, and throws an exception on the first string
+	 * the set does not match the same way as the separate DFAs.
+	 *
+	 * @param args not used
+	 * @throws Exception if a check fails
+	 */
+	public static void main(String[] args) throws Exception {
+		RegexSet set = new RegexSet(Arrays.asList(REGEXES));
+		if (set.size() != REGEXES.length) {
+			throw new Exception("The set has " + set.size() + " patterns");
+		}
+		DFATable[] dfas = new DFATable[REGEXES.length];
+		for (int pattern = 0; pattern < REGEXES.length; ++pattern) {
+			dfas[pattern] = new RegexParser(REGEXES[pattern]).parseRegex().toDFA();
+		}
+
+		Random random = new Random(3240);
+		String alphabet = "abc ";
+		for (int i = 0; i < 5000; ++i) {
+			StringBuilder input = new StringBuilder();
+			int length = random.nextInt(16);
+			for (int j = 0; j < length; ++j) {
+				input.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			String expected = Arrays.toString(matchingPatterns(dfas, input));
+			String found = Arrays.toString(set.matches(input));
+			if (!expected.equals(found)) {
+				throw new Exception("\"" + input + "\" is matched by " + found + ", expected " + expected);
+			}
+			expected = describe(findAll(dfas, input));
+			found = describe(set.findAll(input));
+			if (!expected.equals(found)) {
+				throw new Exception("\"" + input + "\" has the tokens " + found + ", expected " + expected);
+			}
+		}
+		System.out.println("RegexSetTest OK");
+	}
+
+	/**
+	 * Returns the ids of the patterns whose DFA accepts all of the inputed string.
+	 *
+	 * @param dfas the DFA of each pattern
+	 * @param value the string to match
+	 * @return the ids of the matching patterns in increasing order
+	 */
+	private static int[] matchingPatterns(DFATable[] dfas, CharSequence value) {
+		ArrayList<Integer> ids = new ArrayList<Integer>();
+		for (int pattern = 0; pattern < dfas.length; ++pattern) {
+			DFATable dfa = dfas[pattern];
+			int state_id = dfa.walk(value, 0, value.length(), dfa.getStartID());
+			if (state_id != dfa.getErrorStateID() && dfa.isTerminatingState(state_id) != null) {
+				ids.add(Integer.valueOf(pattern));
+			}
+		}
+		int[] patterns = new int[ids.size()];
+		for (int i = 0; i < patterns.length; ++i) {
+			patterns[i] = ids.get(i).intValue();
+		}
+		return patterns;
+	}
+
+	/**
+	 * Finds the longest tokens in the inputed line by trying every
+	 * end of a token with each DFA, the way {@link RegexSet#findAll(CharSequence)}
+	 * is documented to.
+	 *
+	 * @param dfas the DFA of each pattern
+	 * @param line the line to find the tokens in
+	 * @return the tokens in the line
+	 */
+	private static ArrayList<RegexSet.Match> findAll(DFATable[] dfas, CharSequence line) {
+		ArrayList<RegexSet.Match> matches = new ArrayList<RegexSet.Match>();
+		int cur_pos = 0;
+		while (cur_pos < line.length()) {
+			if (Character.isWhitespace(line.charAt(cur_pos))) {
+				++cur_pos;
+				continue;
+			}
+			int end_pos = -1;
+			int[] patterns = null;
+			for (int end = line.length(); end > cur_pos && end_pos == -1; --end) {
+				int[] ids = matchingPatterns(dfas, line.subSequence(cur_pos, end));
+				if (ids.length > 0) {
+					end_pos = end;
+					patterns = ids;
+				}
+			}
+			if (end_pos == -1) {
+				++cur_pos;
+			} else {
+				matches.add(new RegexSet.Match(line.subSequence(cur_pos, end_pos).toString(), cur_pos, patterns));
+				cur_pos = end_pos;
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Returns a string listing the inputed tokens along with where they start.
+	 *
+	 * @param matches the tokens
+	 * @return the string representation of the tokens
+	 */
+	private static String describe(ArrayList<RegexSet.Match> matches) {
+		StringBuilder builder = new StringBuilder();
+		for (RegexSet.Match match : matches) {
+			builder.append(match.getStart()).append(' ').append(match).append("; ");
+		}
+		return builder.toString();
+	}
+}
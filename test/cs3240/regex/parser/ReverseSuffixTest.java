@@ -0,0 +1,97 @@
+package cs3240.regex.parser;
+
+import java.util.Collection;
+import java.util.Random;
+
+import cs3240.regex.automaton.DFATable;
+import cs3240.regex.automaton.ReverseSuffixMatcher;
+
+/**
+ * This class checks that the DFA of a reversed NFA matches the reverse
+ * of the strings the NFA matches, and that a {@link ReverseSuffixMatcher}
+ * finds every position where a match starts, and only those positions.
+ */
+public class ReverseSuffixTest {
+
+	/** The regular expressions that are checked, with the alphabet their inputs are made of. */
+	private static final String[][] REGEXES = { { "[A-Za-z]*ment", "mentaM " }, { "(a|b)*abb", "ab " },
+			{ "a*b(ab|ba)", "ab" }, { "(xy)+(z|yz)", "xyz" }, { "[a-c]*(ca|cab)", "abc " } };
+
+	/**
+	 * Runs the checks, and throws an exception on the first string
+	 * that is not matched the same way in reverse.
+	 *
+	 * @param args not used
+	 * @throws Exception if a check fails
+	 */
+	public static void main(String[] args) throws Exception {
+		Random random = new Random(3240);
+		for (String[] regex : REGEXES) {
+			String quoted = "'" + regex[0] + "'";
+			DFATable dfa = new RegexParser(quoted).parseRegex().toDFA();
+			DFATable reverseDFA = new RegexParser(quoted).parseRegex().reverse().toDFA().toMinimalDFA();
+			Collection<String> suffixes = new RegexParser(quoted).parseRegexTree().analyzeLiterals().getRequiredSuffixes();
+			if (suffixes == null) {
+				throw new Exception(regex[0] + ": no suffixes were found");
+			}
+			ReverseSuffixMatcher matcher = new ReverseSuffixMatcher(suffixes, reverseDFA);
+
+			for (int i = 0; i < 2000; ++i) {
+				StringBuilder text = new StringBuilder();
+				int length = random.nextInt(20);
+				for (int j = 0; j < length; ++j) {
+					text.append(regex[1].charAt(random.nextInt(regex[1].length())));
+				}
+				String reversed = new StringBuilder(text).reverse().toString();
+				if (accepts(dfa, text) != accepts(reverseDFA, reversed)) {
+					throw new Exception(regex[0] + ": \"" + text + "\" is " + (accepts(dfa, text) ? "" : "not ")
+							+ "matched, but its reverse is" + (accepts(dfa, text) ? " not" : ""));
+				}
+				if (accepts(dfa, text) && !endsWithOne(text.toString(), suffixes)) {
+					throw new Exception(regex[0] + ": \"" + text + "\" does not end with one of " + suffixes);
+				}
+
+				boolean[] starts = matcher.findMatchStarts(text);
+				for (int start = 0; start < text.length(); ++start) {
+					boolean expected = false;
+					for (int end = start + 1; end <= text.length() && !expected; ++end) {
+						expected = accepts(dfa, text.subSequence(start, end));
+					}
+					if (starts[start] != expected) {
+						throw new Exception(regex[0] + ": in \"" + text + "\" a match " + (expected ? "starts" : "does not start")
+								+ " at " + start + ", found " + starts[start]);
+					}
+				}
+			}
+		}
+		System.out.println("ReverseSuffixTest OK");
+	}
+
+	/**
+	 * Returns whether the inputed DFA accepts all of the inputed string.
+	 *
+	 * @param dfa the DFA
+	 * @param value the string to match
+	 * @return true if the DFA accepts the string
+	 */
+	private static boolean accepts(DFATable dfa, CharSequence value) {
+		int state_id = dfa.walk(value, 0, value.length(), dfa.getStartID());
+		return state_id != dfa.getErrorStateID() && dfa.isTerminatingState(state_id) != null;
+	}
+
+	/**
+	 * Returns whether the inputed string ends with one of the inputed suffixes.
+	 *
+	 * @param value the string
+	 * @param suffixes the suffixes
+	 * @return true if the string ends with one of the suffixes
+	 */
+	private static boolean endsWithOne(String value, Collection<String> suffixes) {
+		for (String suffix : suffixes) {
+			if (value.endsWith(suffix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}